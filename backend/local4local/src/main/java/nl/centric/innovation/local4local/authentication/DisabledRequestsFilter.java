@@ -15,8 +15,6 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static nl.centric.innovation.local4local.util.Constants.ERROR_CODE_MUNICIPALITY_NOT_APPROVED;
 import static nl.centric.innovation.local4local.util.Constants.ERROR_CODE_SUPPLIER_NOT_APPROVED;
@@ -57,6 +55,13 @@ public class DisabledRequestsFilter extends OncePerRequestFilter {
 
     static final String SUPPLIER_PROFILE_PATH ="/api/supplier-profiles/{UUID}";
 
+    // compiled once, matching a request path neither compiles nor allocates
+    private static final RoutePolicy SUPPLIER_ROUTES = RoutePolicy.compile(VALID_PATHS_SUPPLIER);
+
+    private static final RoutePolicy MUNICIPALITY_ROUTES = RoutePolicy.compile(VALID_PATHS_MUNICIPALITY);
+
+    private static final RoutePolicy SUPPLIER_PROFILE_ROUTE = RoutePolicy.compile(List.of(SUPPLIER_PROFILE_PATH));
+
     @Override
     protected void doFilterInternal(
             HttpServletRequest request, HttpServletResponse response, FilterChain filterChain
@@ -73,12 +78,12 @@ public class DisabledRequestsFilter extends OncePerRequestFilter {
                 return;
             }
 
-            if (isSupplier(user) && !isAllowedPath(path, VALID_PATHS_SUPPLIER) && !user.isApproved()) {
+            if (isSupplier(user) && !user.isApproved() && !SUPPLIER_ROUTES.matches(path)) {
                 handleDisabledRequests(response, ERROR_CODE_SUPPLIER_NOT_APPROVED);
                 throw new DisabledRequestsException(ERROR_CODE_SUPPLIER_NOT_APPROVED);
             }
 
-            if (isMunicipality(user) && !isAllowedPath(path, VALID_PATHS_MUNICIPALITY) && !user.isApproved()) {
+            if (isMunicipality(user) && !user.isApproved() && !MUNICIPALITY_ROUTES.matches(path)) {
                 handleDisabledRequests(response, ERROR_CODE_MUNICIPALITY_NOT_APPROVED);
                 throw new DisabledRequestsException(ERROR_CODE_MUNICIPALITY_NOT_APPROVED);
             }
@@ -90,7 +95,7 @@ public class DisabledRequestsFilter extends OncePerRequestFilter {
 
     private boolean isRejectedSupplierAccessingOwnProfile(User user, String path) {
         return isSupplier(user)
-                && matchesPath(SUPPLIER_PROFILE_PATH, path)
+                && SUPPLIER_PROFILE_ROUTE.matches(path)
                 && user.getSupplier().getStatus() == SupplierStatusEnum.REJECTED;
     }
 
@@ -102,10 +107,6 @@ public class DisabledRequestsFilter extends OncePerRequestFilter {
 
     }
 
-    private boolean isAllowedPath(String requestPath, List<String> validPaths) {
-        return validPaths.stream().anyMatch(p -> matchesPath(p, requestPath));
-    }
-
     private boolean isSupplier(User user) {
         return Objects.equals(user.getRole().getName(), Role.ROLE_SUPPLIER);
     }
@@ -114,16 +115,4 @@ public class DisabledRequestsFilter extends OncePerRequestFilter {
         return Objects.equals(user.getRole().getName(), Role.ROLE_MUNICIPALITY_ADMIN);
     }
 
-    private static boolean matchesPath(String pathToCheck, String path) {
-        String regex = "^" + pathToCheck
-                .replace("/", "\\/")
-                .replace("{UUID}", "[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}")
-                + "$";
-
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(path);
-
-        return matcher.matches();
-    }
-
 }
@@ -1,5 +1,6 @@
 package nl.centric.innovation.local4local.authentication;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,8 +8,8 @@ import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import nl.centric.innovation.local4local.entity.User;
+import nl.centric.innovation.local4local.service.impl.UserDetailsServiceImpl;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
@@ -26,7 +27,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 	private JwtUtil jwtService;
 
 	@Autowired
-	private UserDetailsService userDetailsService;
+	private UserDetailsServiceImpl userDetailsService;
 
 	@Override
 	protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
@@ -41,7 +42,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 		}
 
 		if(null == userDetailsService){
-			userDetailsService = webApplicationContext.getBean(UserDetailsService.class);
+			userDetailsService = webApplicationContext.getBean(UserDetailsServiceImpl.class);
 		}
 
 		if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -52,11 +53,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 		String jwt = authHeader.substring(7);
 
 		try{
-			if(jwtService.validateToken(jwt)){
-				String username = jwtService.extractUsername(jwt);
-				if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-					manageAuthentication(request, username);
-				}
+			// parsed and verified once, later filters and handlers read the claims from the request
+			Claims claims = jwtService.verifyToken(jwt);
+			request.setAttribute(JwtUtil.CLAIMS_ATTRIBUTE, claims);
+
+			String username = claims.getSubject();
+			if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+				manageAuthentication(request, username);
 			}
 		} catch (BadCredentialsException | ExpiredJwtException ex){
 			request.setAttribute("exception", ex);
@@ -66,7 +69,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 	}
 
 	private void manageAuthentication(HttpServletRequest request, String username){
-		UserDetails user = this.userDetailsService.loadUserByUsername(username);
+		User user = this.userDetailsService.loadPrincipalByUsername(username);
 		UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(user,
 				null, user.getAuthorities());
 		authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
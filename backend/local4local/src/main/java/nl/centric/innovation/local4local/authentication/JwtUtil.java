@@ -1,51 +1,120 @@
 package nl.centric.innovation.local4local.authentication;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.impl.DefaultClaims;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import nl.centric.innovation.local4local.exceptions.L4LException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies the access tokens. The signing key and the parser are built once, and the claims of
+ * recently verified tokens are kept by token digest, so a token sent with every request is parsed and its
+ * signature checked only when it is not in the cache. Cached claims are still checked against their expiry.
+ */
 @Component
 public class JwtUtil {
-	
+
+    public static final String CLAIMS_ATTRIBUTE = "jwtClaims";
+
 	@Autowired
     private Environment env;
+
+    @Value("${local4local.jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
+    @Value("${local4local.jwt.verified-cache.expire-seconds:60}")
+    private long verifiedCacheExpireSeconds;
+
+    private SecretKey signingKey;
+
+    private JwtParser parser;
+
+    // SHA-256 digest of the token to an unmodifiable copy of its claims, the tokens themselves are not kept
+    private Cache<String, Map<String, Object>> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(env.getProperty("jwt.secret.key")));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = CacheBuilder.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfterWrite(verifiedCacheExpireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Verifies the signature and expiry of the token and returns its claims. Every call gets its own claims,
+     * built from the unmodifiable copy kept for later requests carrying the same token.
+     *
+     * @throws ExpiredJwtException if the token has expired
+     * @throws BadCredentialsException if the token is malformed or its signature does not match
+     */
+    public Claims verifyToken(String token) throws ExpiredJwtException, BadCredentialsException {
+        if (Objects.isNull(token) || token.isBlank()) {
+            throw new BadCredentialsException("INVALID_CREDENTIALS");
+        }
+
+        String digest = digest(token);
+        Map<String, Object> verifiedClaims = verifiedTokens.getIfPresent(digest);
+
+        if (Objects.isNull(verifiedClaims)) {
+            verifiedClaims = unmodifiableCopy(parseClaims(token));
+            verifiedTokens.put(digest, verifiedClaims);
+
+            return claimsOf(verifiedClaims);
+        }
+
+        Claims claims = claimsOf(verifiedClaims);
+
+        if (Objects.nonNull(claims.getExpiration()) && claims.getExpiration().before(new Date())) {
+            verifiedTokens.invalidate(digest);
+            throw new ExpiredJwtException(null, claims, "JWT expired at " + claims.getExpiration());
+        }
+
+        return claims;
+    }
+
     public String extractUsername(String token) throws BadCredentialsException{
         return extractClaim(token, Claims::getSubject);
     }
 
     public<T> T extractClaim(String token, Function<Claims, T> claimResolver) throws  BadCredentialsException{
-        Claims claims = extractAllClaims(token);
+        Claims claims = verifyToken(token);
         return claimResolver.apply(claims);
     }
 
     public boolean validateToken(String token) throws  ExpiredJwtException, BadCredentialsException{
-        try {
-        	SecretKey secret = Keys.hmacShaKeyFor(Decoders.BASE64.decode(env.getProperty("jwt.secret.key")));
-        	Jwts.parserBuilder().setSigningKey(secret).build().parseClaimsJws(token);
-            return true;
-        }  catch (MalformedJwtException | UnsupportedJwtException | IllegalArgumentException ex) {
-            throw new BadCredentialsException("INVALID_CREDENTIALS", ex);
-        } catch (ExpiredJwtException ex) {
-            throw ex;
-        }
+        verifyToken(token);
+        return true;
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -55,7 +124,7 @@ public class JwtUtil {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -65,23 +134,52 @@ public class JwtUtil {
 
     public boolean isTokenValid(String token, UserDetails userDetails) throws L4LException {
         final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && validateToken(token);
+        return username.equals(userDetails.getUsername());
     }
 
-    private Date extractExpirationDate(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private Claims parseClaims(String token) {
+        try {
+            return parser.parseClaimsJws(token).getBody();
+        } catch (ExpiredJwtException ex) {
+            throw ex;
+        } catch (JwtException | IllegalArgumentException ex) {
+            throw new BadCredentialsException("INVALID_CREDENTIALS", ex);
+        }
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static Claims claimsOf(Map<String, Object> verifiedClaims) {
+        Claims claims = new DefaultClaims();
+        claims.putAll(verifiedClaims);
+
+        return claims;
     }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(env.getProperty("jwt.secret.key"));
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static Map<String, Object> unmodifiableCopy(Map<?, ?> map) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        map.forEach((key, value) -> copy.put(String.valueOf(key), unmodifiableValue(value)));
+
+        return Collections.unmodifiableMap(copy);
+    }
+
+    // nested claims are parsed into mutable maps and lists, they are copied as well
+    private static Object unmodifiableValue(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return unmodifiableCopy(map);
+        }
+
+        if (value instanceof List<?> list) {
+            return list.stream().map(JwtUtil::unmodifiableValue).toList();
+        }
+
+        return value;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
     }
 }
@@ -7,6 +7,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import lombok.RequiredArgsConstructor;
 import nl.centric.innovation.local4local.service.impl.RefreshTokenService;
+import nl.centric.innovation.local4local.service.impl.UserDetailsServiceImpl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
 import org.springframework.security.core.Authentication;
@@ -20,6 +21,8 @@ import io.jsonwebtoken.io.IOException;
 public class LogoutSuccessHandler extends SimpleUrlLogoutSuccessHandler {
     private final RefreshTokenService refreshTokenService;
 
+    private final UserDetailsServiceImpl userDetailsService;
+
     @Override
     public void onLogoutSuccess(
             HttpServletRequest request,
@@ -30,6 +33,8 @@ public class LogoutSuccessHandler extends SimpleUrlLogoutSuccessHandler {
             for (Cookie cookie : request.getCookies()) {
                 String cookieName = cookie.getName();
                 if ("refreshToken".equals(cookieName)) {
+                    refreshTokenService.findByToken(cookie.getValue())
+                            .ifPresent(refreshToken -> userDetailsService.evict(refreshToken.getUser().getUsername()));
                     refreshTokenService.deleteByToken(cookie.getValue());
                     ResponseCookie cookieToDelete = deleteCookie(cookieName);
                     response.addHeader(HttpHeaders.SET_COOKIE, cookieToDelete.toString());
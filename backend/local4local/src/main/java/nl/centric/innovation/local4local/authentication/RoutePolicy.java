@@ -0,0 +1,139 @@
+package nl.centric.innovation.local4local.authentication;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * A set of request paths compiled once into a trie of path segments. A segment of a path pattern is either a literal
+ * or the {@code {UUID}} wildcard, which matches one segment holding a UUID. A path matches when it equals one of the
+ * patterns segment by segment, so a trailing slash or an empty segment never matches. Matching walks the trie over
+ * the characters of the path and allocates nothing.
+ */
+public final class RoutePolicy {
+
+    public static final String UUID_WILDCARD = "{UUID}";
+
+    private static final int UUID_LENGTH = 36;
+
+    private final Node root = new Node();
+
+    private RoutePolicy() {
+    }
+
+    public static RoutePolicy compile(Collection<String> patterns) {
+        RoutePolicy policy = new RoutePolicy();
+        patterns.forEach(policy::add);
+
+        return policy;
+    }
+
+    public boolean matches(String path) {
+        if (Objects.isNull(path) || path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+
+        return matches(root, path, 1);
+    }
+
+    private void add(String pattern) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Path pattern must start with '/': " + pattern);
+        }
+
+        Node node = root;
+        for (String segment : pattern.substring(1).split("/", -1)) {
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException("Path pattern has an empty segment: " + pattern);
+            }
+
+            node = node.addChild(segment);
+        }
+
+        node.terminal = true;
+    }
+
+    // a literal and the wildcard may both match a segment, so both branches are tried
+    private static boolean matches(Node node, String path, int start) {
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+
+        Node literalChild = node.literalChild(path, start, end);
+        if (Objects.nonNull(literalChild) && matchesRest(literalChild, path, end)) {
+            return true;
+        }
+
+        return Objects.nonNull(node.uuidChild) && isUuid(path, start, end) && matchesRest(node.uuidChild, path, end);
+    }
+
+    private static boolean matchesRest(Node node, String path, int end) {
+        return end == path.length() ? node.terminal : matches(node, path, end + 1);
+    }
+
+    private static boolean isUuid(String path, int start, int end) {
+        if (end - start != UUID_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = path.charAt(start + i);
+            boolean valid = (i == 8 || i == 13 || i == 18 || i == 23)
+                    ? c == '-'
+                    : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+
+            if (!valid) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static final class Node {
+
+        private String[] literals = new String[0];
+
+        private Node[] literalChildren = new Node[0];
+
+        private Node uuidChild;
+
+        private boolean terminal;
+
+        private Node addChild(String segment) {
+            if (UUID_WILDCARD.equals(segment)) {
+                if (Objects.isNull(uuidChild)) {
+                    uuidChild = new Node();
+                }
+
+                return uuidChild;
+            }
+
+            for (int i = 0; i < literals.length; i++) {
+                if (literals[i].equals(segment)) {
+                    return literalChildren[i];
+                }
+            }
+
+            literals = Arrays.copyOf(literals, literals.length + 1);
+            literalChildren = Arrays.copyOf(literalChildren, literalChildren.length + 1);
+            literals[literals.length - 1] = segment;
+            literalChildren[literalChildren.length - 1] = new Node();
+
+            return literalChildren[literalChildren.length - 1];
+        }
+
+        private Node literalChild(String path, int start, int end) {
+            int length = end - start;
+
+            for (int i = 0; i < literals.length; i++) {
+                if (literals[i].length() == length && path.regionMatches(start, literals[i], 0, length)) {
+                    return literalChildren[i];
+                }
+            }
+
+            return null;
+        }
+    }
+}
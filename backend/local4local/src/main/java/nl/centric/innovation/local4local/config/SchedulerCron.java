@@ -4,8 +4,10 @@ import lombok.RequiredArgsConstructor;
 import nl.centric.innovation.local4local.exceptions.DtoValidateException;
 import nl.centric.innovation.local4local.repository.BenefitRepository;
 import nl.centric.innovation.local4local.repository.OfferRepositoryCustom;
-import nl.centric.innovation.local4local.repository.OfferSearchHistoryRepositoryCustom;
 import nl.centric.innovation.local4local.repository.RecoverPasswordRepositoryCustom;
+import nl.centric.innovation.local4local.service.impl.InvoiceService;
+import nl.centric.innovation.local4local.service.impl.OfferDetailCacheService;
+import nl.centric.innovation.local4local.service.impl.OfferMapIndexService;
 import nl.centric.innovation.local4local.service.interfaces.BankHolidaysService;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -13,6 +15,7 @@ import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.time.Year;
 import java.util.Date;
 
@@ -28,11 +31,16 @@ public class SchedulerCron {
 
     private final OfferRepositoryCustom offerRepository;
 
+    private final OfferMapIndexService offerMapIndexService;
+
+    private final OfferDetailCacheService offerDetailCacheService;
+
     private final BenefitRepository benefitRepository;
 
     private final BankHolidaysService bankHolidaysService;
 
-    private final OfferSearchHistoryRepositoryCustom offerSearchHistoryRepositoryCustom;
+    private final InvoiceService invoiceService;
+
     private SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
 
     //will execute on every Monday at 1am
@@ -47,6 +55,8 @@ public class SchedulerCron {
     public void taskToUpdateOfferStatus() {
         log.info("Scheduler Change Offer Status task started at : " + sdf.format(new Date()));
         offerRepository.updateOfferStatus();
+        offerMapIndexService.removeExpired(LocalDate.now());
+        offerDetailCacheService.evictAll();
     }
 
     //will execute on each day at 2:30am
@@ -56,6 +66,13 @@ public class SchedulerCron {
         benefitRepository.updateBenefitStatus();
     }
 
+    //will execute on the first day of each month at 4am, for the month that just ended
+    @Scheduled(cron = "0 0 4 1 * *")
+    public void taskToGenerateMonthlyInvoices() {
+        log.info("Scheduler Generate Monthly Invoices task started at : " + sdf.format(new Date()));
+        invoiceService.generateMonthlyInvoices(LocalDate.now().minusMonths(1));
+    }
+
     //will execute on 31 December at 3:30am
     @Scheduled(cron = "0 30 3 31 12 *")
     public void taskToGetBankHolidays() {
@@ -71,12 +88,4 @@ public class SchedulerCron {
         }
     }
 
-
-    //will execute on each day at 2:30am
-    @Scheduled(cron = "0 30 2 * * *")
-    public void taskToDeleteOfferSearchHistory() {
-        log.info("Scheduler Delete Offer Search History task started at : " + sdf.format(new Date()));
-        offerSearchHistoryRepositoryCustom.cleanupOfferSearchHistory();
-    }
-
 }
\ No newline at end of file
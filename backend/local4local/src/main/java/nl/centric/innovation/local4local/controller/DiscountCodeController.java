@@ -3,13 +3,17 @@ package nl.centric.innovation.local4local.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.RequiredArgsConstructor;
+import nl.centric.innovation.local4local.dto.CodeValidationBatchRequestDto;
+import nl.centric.innovation.local4local.dto.CodeValidationBatchResponseDto;
 import nl.centric.innovation.local4local.dto.CodeValidationResponseDto;
 import nl.centric.innovation.local4local.dto.DiscountCodeViewDto;
+import nl.centric.innovation.local4local.dto.DiscountCodeWalletPageDto;
 import nl.centric.innovation.local4local.dto.CodeValidationRequestDto;
 import nl.centric.innovation.local4local.entity.Role;
 import nl.centric.innovation.local4local.exceptions.DtoValidateException;
 import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException;
 import nl.centric.innovation.local4local.service.impl.DiscountCodeService;
+import nl.centric.innovation.local4local.service.impl.IdempotencyService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.validation.annotation.Validated;
@@ -17,10 +21,16 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -34,6 +44,8 @@ public class DiscountCodeController {
 
     private final DiscountCodeService discountCodeService;
 
+    private final IdempotencyService idempotencyService;
+
     @GetMapping
     @Secured({Role.ROLE_CITIZEN})
     @Operation(
@@ -45,8 +57,39 @@ public class DiscountCodeController {
             }
 
     )
-    public ResponseEntity<Map<String, List<DiscountCodeViewDto>>> getDiscountCodes() {
-        return ResponseEntity.ok(discountCodeService.getDiscountCodes());
+    public ResponseEntity<Map<String, List<DiscountCodeViewDto>>> getDiscountCodes(WebRequest webRequest) {
+        String walletVersion = discountCodeService.getWalletVersion();
+
+        if (webRequest.checkNotModified(walletVersion)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(walletVersion).body(discountCodeService.getDiscountCodes());
+    }
+
+    @GetMapping("/wallet")
+    @Secured({Role.ROLE_CITIZEN})
+    @Operation(
+            summary = "Get a page of discount codes",
+            description = "Returns a page of the active or inactive discount codes, ordered by expiration date.",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Returns the page and the cursor of the next page."),
+                    @ApiResponse(responseCode = "304",
+                            description = "The wallet did not change since the ETag in If-None-Match.")
+            }
+    )
+    public ResponseEntity<DiscountCodeWalletPageDto> getDiscountCodesPage(@RequestParam(value = "active", defaultValue = "true") boolean isActive,
+                                                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                                                          @RequestParam(value = "size", defaultValue = "20") @Min(1) @Max(100) int size,
+                                                                          WebRequest webRequest) throws DtoValidateException {
+        String walletVersion = discountCodeService.getWalletVersion();
+
+        if (webRequest.checkNotModified(walletVersion)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(walletVersion).body(discountCodeService.getDiscountCodesPage(isActive, cursor, size));
     }
 
     @GetMapping("/{offerId}")
@@ -58,10 +101,30 @@ public class DiscountCodeController {
 
     @PostMapping("/validate")
     @Secured({Role.ROLE_SUPPLIER, Role.ROLE_CASHIER})
-    public ResponseEntity<CodeValidationResponseDto> validateDiscountCode(@Valid @RequestBody CodeValidationRequestDto codeValidationDto) throws DtoValidateException {
-        CodeValidationResponseDto validationResponse = discountCodeService.validateAndProcessDiscountCode(codeValidationDto);
+    public ResponseEntity<CodeValidationResponseDto> validateDiscountCode(@Valid @RequestBody CodeValidationRequestDto codeValidationDto,
+                                                                          @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false)
+                                                                          @Size(max = 128) String idempotencyKey) throws DtoValidateException {
+        CodeValidationResponseDto validationResponse = idempotencyService.execute(idempotencyKey, "code-validation",
+                codeValidationDto, CodeValidationResponseDto.class, () -> discountCodeService.validateAndProcessDiscountCode(codeValidationDto));
         return ResponseEntity.ok(validationResponse);
     }
 
-}
+    @PostMapping("/validate/batch")
+    @Secured({Role.ROLE_SUPPLIER, Role.ROLE_CASHIER})
+    @Operation(
+            summary = "Validate a batch of discount codes",
+            description = "Validates the codes a cashier device queued while offline, in the order they were scanned.",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Returns the validation or the error code of every scan, in the order of the request.")
+            }
+    )
+    public ResponseEntity<CodeValidationBatchResponseDto> validateDiscountCodes(@Valid @RequestBody CodeValidationBatchRequestDto batchRequestDto,
+                                                                                @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false)
+                                                                                @Size(max = 128) String idempotencyKey) throws DtoValidateException {
+        CodeValidationBatchResponseDto batchResponse = idempotencyService.execute(idempotencyKey, "code-validation-batch",
+                batchRequestDto, CodeValidationBatchResponseDto.class, () -> discountCodeService.validateAndProcessDiscountCodes(batchRequestDto.validations()));
+        return ResponseEntity.ok(batchResponse);
+    }
 
+}
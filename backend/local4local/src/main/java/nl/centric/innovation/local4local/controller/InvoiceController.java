@@ -1,21 +1,27 @@
-//[PDF Invoice] This controller class is no longer used, but kept for reference or future use
 package nl.centric.innovation.local4local.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import lombok.RequiredArgsConstructor;
 import nl.centric.innovation.local4local.dto.InvoiceDto;
 import nl.centric.innovation.local4local.entity.Role;
+import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException;
 import nl.centric.innovation.local4local.service.impl.InvoiceService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.CookieValue;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
+import java.time.YearMonth;
 
 @RestController
 @RequestMapping("/invoices")
@@ -37,13 +43,44 @@ public class InvoiceController {
     ) {
         byte[] pdfData = invoiceService.generateInvoice(invoiceDto, language);
 
+        return pdfResponse(String.format("invoice_%s.pdf", invoiceDto.invoiceNumber()), pdfData);
+    }
+
+    @GetMapping
+    @Secured({Role.ROLE_SUPPLIER})
+    @Operation(
+            summary = "Download monthly invoice",
+            description = "Returns the stored invoice of the month, it is rendered again only when the transactions of the month changed"
+    )
+    public ResponseEntity<byte[]> getMonthlyInvoice(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Month of the invoice") LocalDate month,
+            @CookieValue(value = "language_supplier", defaultValue = "nl-NL") String language
+    ) throws DtoValidateNotFoundException {
+        byte[] pdfData = invoiceService.getMonthlyInvoice(month, language);
+
+        return pdfResponse(String.format("invoice_%s.pdf", YearMonth.from(month)), pdfData);
+    }
+
+    @PostMapping("/monthly")
+    @Secured({Role.ROLE_MUNICIPALITY_ADMIN})
+    @Operation(
+            summary = "Generate monthly invoices",
+            description = "Starts rendering the invoices of the month for all approved suppliers of the municipality"
+    )
+    public ResponseEntity<Void> generateMonthlyInvoices(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Month of the invoices") LocalDate month
+    ) throws DtoValidateNotFoundException {
+        invoiceService.generateMonthlyInvoicesOfTenant(month);
+
+        return ResponseEntity.accepted().build();
+    }
+
+    private ResponseEntity<byte[]> pdfResponse(String filename, byte[] pdfData) {
         return ResponseEntity.ok()
                 // This forces the browser to download the file instead of displaying it inline.
-                .header("Content-Disposition", String.format("attachment; filename=\"invoice_%s.pdf\"",
-                        invoiceDto.invoiceNumber()))
+                .header("Content-Disposition", String.format("attachment; filename=\"%s\"", filename))
                 // Without this property, the browser or client might not recognize it properly.
                 .contentType(MediaType.APPLICATION_PDF)
                 .body(pdfData);
-
     }
 }
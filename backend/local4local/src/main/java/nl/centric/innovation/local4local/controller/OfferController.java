@@ -6,7 +6,7 @@ import lombok.RequiredArgsConstructor;
 import nl.centric.innovation.local4local.dto.DeleteOffersDto;
 import nl.centric.innovation.local4local.dto.FilterOfferRequestDto;
 import nl.centric.innovation.local4local.dto.OfferMobileDetailDto;
-import nl.centric.innovation.local4local.dto.OfferMobileMapLightDto;
+import nl.centric.innovation.local4local.dto.OfferMobileListPageDto;
 import nl.centric.innovation.local4local.dto.OfferRejectionReasonDto;
 import nl.centric.innovation.local4local.dto.OfferRequestDto;
 import nl.centric.innovation.local4local.dto.OfferDto;
@@ -24,6 +24,7 @@ import nl.centric.innovation.local4local.entity.User;
 import nl.centric.innovation.local4local.enums.TimeIntervalPeriod;
 import nl.centric.innovation.local4local.exceptions.DtoValidateException;
 import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException;
+import nl.centric.innovation.local4local.service.impl.IdempotencyService;
 import nl.centric.innovation.local4local.service.impl.OfferService;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
 import nl.centric.innovation.local4local.service.impl.SupplierService;
@@ -42,15 +43,17 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.Size;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -68,6 +71,8 @@ public class OfferController {
 
     private final SupplierService supplierService;
 
+    private final IdempotencyService idempotencyService;
+
     // Todo: to be moved in service
     @Value("${error.entity.notfound}")
     private String errorEntityNotFound;
@@ -90,9 +95,14 @@ public class OfferController {
 
     @PostMapping(path = "/use")
     @Secured({Role.ROLE_CITIZEN})
-    public ResponseEntity<Void> useOffer(@Valid @RequestBody OfferUsageRequestDto offerUsageRequestDto) throws DtoValidateException {
+    public ResponseEntity<Void> useOffer(@Valid @RequestBody OfferUsageRequestDto offerUsageRequestDto,
+                                         @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false)
+                                         @Size(max = 128) String idempotencyKey) throws DtoValidateException {
 
-        offerService.useOffer(offerUsageRequestDto);
+        idempotencyService.execute(idempotencyKey, "offer-use", offerUsageRequestDto, Void.class, () -> {
+            offerService.useOffer(offerUsageRequestDto);
+            return null;
+        });
 
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
@@ -169,18 +179,41 @@ public class OfferController {
     @Secured({Role.ROLE_CITIZEN})
     @Operation(summary = "Get offers within viewport",
             description = "Retrieve offers within the specified geographical viewport.")
-    public ResponseEntity<Map<String, List<OfferMobileMapLightDto>>> getOffersWithinViewport(
+    public ResponseEntity<?> getOffersWithinViewport(
             @RequestParam @Parameter(description = "Minimum latitude of the viewport", required = true) Double minLatitude,
             @RequestParam @Parameter(description = "Maximum latitude of the viewport", required = true) Double maxLatitude,
             @RequestParam @Parameter(description = "Minimum longitude of the viewport", required = true) Double minLongitude,
             @RequestParam @Parameter(description = "Maximum longitude of the viewport", required = true) Double maxLongitude,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Current day in ISO date format", required = true) LocalDate currentDay,
-            @RequestParam @Parameter(description = "Offer type: -1 -> All, 1 -> Percentage, 2 -> BOGO, 3 -> Credit, 4 -> FreeEntry", required = true) Integer offerType,
+            @RequestParam @Min(-1) @Max(4)
+            @Parameter(description = "Offer type: -1 -> All, 1 -> Percentage, 2 -> BOGO, 3 -> Credit, 4 -> FreeEntry", required = true) Integer offerType,
             @RequestParam(required = false) @Size(min = 3, message = "Search keyword must have at least 3 characters")
-            @Parameter(description = "Optional search keyword, if present must have at least 3 characters") String searchKeyword) {
+            @Parameter(description = "Optional search keyword, if present must have at least 3 characters") String searchKeyword,
+            @RequestParam(required = false) @Min(0) @Max(22)
+            @Parameter(description = "Optional map zoom level, below the clustering threshold offers are returned as clusters") Integer zoom) {
+        if (offerService.isClusteredZoom(zoom)) {
+            return ResponseEntity.ok(offerService.getOfferClustersWithinViewport(minLatitude, maxLatitude, minLongitude, maxLongitude, offerType, searchKeyword, zoom));
+        }
+
         return ResponseEntity.ok(offerService.getOffersWithinViewport(minLatitude, maxLatitude, minLongitude, maxLongitude, currentDay, offerType, searchKeyword));
     }
 
+    @GetMapping("/list/cursor")
+    @Secured({Role.ROLE_CITIZEN})
+    @Operation(summary = "Get a page of offers ordered by distance",
+            description = "Retrieve the offers following the given cursor, ordered by their proximity to the given location. The response contains the cursor of the next page.")
+    public ResponseEntity<OfferMobileListPageDto> getOffersPageOrderedByDistance(
+            @RequestParam(required = false) @Parameter(description = "Cursor returned with the previous page, absent for the first page") String cursor,
+            @RequestParam @Parameter(description = "Latitude of the user's location", required = true) Double latitude,
+            @RequestParam @Parameter(description = "Longitude of the user's location", required = true) Double longitude,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Current day in ISO date format", required = true) LocalDate currentDay,
+            @RequestParam(required = false) @Size(min = 3, message = "Search keyword must have at least 3 characters")
+            @Parameter(description = "Optional search keyword, if present must have at least 3 characters") String searchKeyword,
+            @RequestParam @Parameter(description = "Offer type: -1 -> All, 1 -> Percentage, 2 -> BOGO, 3 -> Credit, 4 -> FreeEntry", required = true) Integer offerType
+    ) throws DtoValidateException {
+        return ResponseEntity.ok(offerService.getOffersPageOrderedByDistanceToUser(cursor, latitude, longitude, currentDay, searchKeyword, offerType));
+    }
+
     @GetMapping("/list")
     @Secured({Role.ROLE_CITIZEN})
     @Operation(summary = "Get offers ordered by distance",
@@ -7,13 +7,17 @@ import nl.centric.innovation.local4local.dto.OfferTransactionTenantTableDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionsGroupedDto;
 import nl.centric.innovation.local4local.dto.TransactionDetailsDto;
 import nl.centric.innovation.local4local.entity.Role;
+import nl.centric.innovation.local4local.enums.ExportFormat;
 import nl.centric.innovation.local4local.service.impl.OfferTransactionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.YearMonth;
 import java.util.List;
@@ -84,6 +88,21 @@ public class OfferTransactionController {
         return ResponseEntity.ok(offerTransactionService.getTransactionsByMonthAndYear(month, year, page, size));
     }
 
+    @GetMapping("/supplier/export")
+    @Secured(Role.ROLE_SUPPLIER)
+    @Operation(
+            summary = "Export supplier transactions by month and year",
+            description = "Streams all transactions for a given month and year associated with the authenticated supplier as a CSV or XLSX file."
+    )
+    public ResponseEntity<StreamingResponseBody> exportTransactionsByMonthAndYear(
+            @RequestParam(defaultValue = "#{T(java.time.LocalDate).now().getMonthValue()}") Integer month,
+            @RequestParam(defaultValue = "#{T(java.time.LocalDate).now().getYear()}") Integer year,
+            @RequestParam(defaultValue = "CSV") ExportFormat format
+    ) {
+        return exportResponse(month, year, format,
+                offerTransactionService.exportTransactionsByMonthAndYear(month, year, format));
+    }
+
     @GetMapping("/group-by-months")
     @Secured(Role.ROLE_CITIZEN)
     @Operation(
@@ -143,4 +162,28 @@ public class OfferTransactionController {
     ) {
         return ResponseEntity.ok(offerTransactionService.getTransactionsByMonthYearAndTenantId(month, year, page, size));
     }
+
+    @GetMapping("/admin/export")
+    @Secured(Role.ROLE_MUNICIPALITY_ADMIN)
+    @Operation(
+            summary = "Export transactions by tenant for given month and year",
+            description = "Streams all transactions for given month and year associated with the tenant of the logged in admin as a CSV or XLSX file."
+    )
+    public ResponseEntity<StreamingResponseBody> exportTransactionsByMonthYearAndTenant(
+            @RequestParam(defaultValue = "#{T(java.time.LocalDate).now().getMonthValue()}") Integer month,
+            @RequestParam(defaultValue = "#{T(java.time.LocalDate).now().getYear()}") Integer year,
+            @RequestParam(defaultValue = "CSV") ExportFormat format
+    ) {
+        return exportResponse(month, year, format,
+                offerTransactionService.exportTransactionsByMonthYearAndTenantId(month, year, format));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> exportResponse(Integer month, Integer year, ExportFormat format,
+                                                                        StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=\"transactions_%s.%s\"",
+                        YearMonth.of(year, month), format.getExtension()))
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
+    }
 }
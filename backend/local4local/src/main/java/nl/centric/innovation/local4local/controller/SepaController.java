@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 
@@ -28,13 +29,14 @@ public class SepaController {
 
     @Operation(
             summary = "Generate SEPA XML file",
-            description = "Generates a SEPA XML file for the given month and returns it as a downloadable attachment."
+            description = "Generates a SEPA XML file for the given month and streams it as a downloadable attachment."
     )
     @PostMapping
     @Secured(Role.ROLE_MUNICIPALITY_ADMIN)
-    public ResponseEntity<String> generateSepaFile(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Month for which the SEPA file is generated") LocalDate month) throws DtoValidateNotFoundException {
+    public ResponseEntity<StreamingResponseBody> generateSepaFile(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Month for which the SEPA file is generated") LocalDate month,
+                                                                  @RequestParam(defaultValue = "false") @Parameter(description = "Nets the transactions into one credit transfer per supplier account") boolean netted) throws DtoValidateNotFoundException {
 
-        String xml = sepaService.generateSepaFile(month);
+        StreamingResponseBody xml = sepaService.generateSepaFile(month, netted);
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=sepa_" + LocalDate.now() + ".xml")
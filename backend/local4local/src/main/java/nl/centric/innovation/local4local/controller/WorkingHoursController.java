@@ -23,6 +23,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import nl.centric.innovation.local4local.entity.Role;
+import nl.centric.innovation.local4local.security.SkipXssSanitization;
 import nl.centric.innovation.local4local.service.interfaces.WorkingHoursService;
 
 @RestController
@@ -38,6 +39,7 @@ public class WorkingHoursController {
     private String errorEntityNotFound;
 
     @PatchMapping("/{supplierId}")
+    @SkipXssSanitization
     public ResponseEntity<List<WorkingHoursDto>> editWorkingHours(@Valid @RequestBody List<WorkingHoursDto> workingHours,
                                                                   @PathVariable("supplierId") UUID supplierId)
             throws DtoValidateException {
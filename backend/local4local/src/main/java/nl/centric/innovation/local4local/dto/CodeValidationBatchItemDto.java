@@ -0,0 +1,28 @@
+package nl.centric.innovation.local4local.dto;
+
+import lombok.Builder;
+
+/**
+ * Outcome of one scan of a batch, either the validation or the error code it was rejected with.
+ */
+@Builder
+public record CodeValidationBatchItemDto(
+        String code,
+        CodeValidationResponseDto validation,
+        String errorCode
+) {
+
+    public static CodeValidationBatchItemDto validated(String code, CodeValidationResponseDto validation) {
+        return CodeValidationBatchItemDto.builder()
+                .code(code)
+                .validation(validation)
+                .build();
+    }
+
+    public static CodeValidationBatchItemDto rejected(String code, String errorCode) {
+        return CodeValidationBatchItemDto.builder()
+                .code(code)
+                .errorCode(errorCode)
+                .build();
+    }
+}
@@ -0,0 +1,13 @@
+package nl.centric.innovation.local4local.dto;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public record CodeValidationBatchRequestDto(
+        @NotEmpty(message = "Validations are required")
+        @Size(max = 200, message = "A batch can contain at most 200 validations")
+        List<@Valid CodeValidationRequestDto> validations
+) {
+}
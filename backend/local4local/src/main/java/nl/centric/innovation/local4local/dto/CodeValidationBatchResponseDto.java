@@ -0,0 +1,9 @@
+package nl.centric.innovation.local4local.dto;
+
+import java.util.List;
+
+/**
+ * Results of a validation batch, in the order of the request.
+ */
+public record CodeValidationBatchResponseDto(List<CodeValidationBatchItemDto> results) {
+}
@@ -0,0 +1,10 @@
+package nl.centric.innovation.local4local.dto;
+
+import nl.centric.innovation.local4local.entity.DiscountCode;
+
+public interface CodeValidationProjection {
+
+    DiscountCode getDiscountCode();
+
+    Double getBalance();
+}
@@ -11,7 +11,7 @@ import javax.validation.constraints.Pattern;
 @Builder
 public record CodeValidationRequestDto(
         @NotEmpty(message = "Code is required")
-        @Pattern(regexp = "^[0-9A-Za-z]{5}$", message = "Invalid code format")
+        @Pattern(regexp = "^[0-9A-Za-z]{5,12}$", message = "Invalid code format")
         String code,
         @NotEmpty(message = "Current time is required")
         String currentTime,
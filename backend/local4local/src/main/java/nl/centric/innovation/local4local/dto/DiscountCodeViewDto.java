@@ -36,7 +36,24 @@ public record DiscountCodeViewDto(@NonNull String companyName,
                 .build();
     }
 
+    public static DiscountCodeViewDto of(DiscountCodeWalletProjection walletCode) {
+        return DiscountCodeViewDto.builder()
+                .companyName(walletCode.getCompanyName())
+                .offerType(walletCode.getOfferType())
+                .expirationDate(walletCode.getExpirationDate())
+                .code(walletCode.getCode())
+                .companyLogo(walletCode.getCompanyLogo())
+                .amount(walletCode.getAmount())
+                .isActive(isDiscountCodeActive(walletCode.getIsActive(), walletCode.getOfferStatus()))
+                .offerTitle(walletCode.getOfferTitle())
+                .build();
+    }
+
     private static boolean isDiscountCodeActive(DiscountCode discountCode) {
-        return discountCode.getIsActive() && discountCode.getOffer().getStatus() == GenericStatusEnum.ACTIVE;
+        return isDiscountCodeActive(discountCode.getIsActive(), discountCode.getOffer().getStatus());
+    }
+
+    private static boolean isDiscountCodeActive(Boolean isCodeActive, GenericStatusEnum offerStatus) {
+        return isCodeActive && offerStatus == GenericStatusEnum.ACTIVE;
     }
 }
@@ -0,0 +1,9 @@
+package nl.centric.innovation.local4local.dto;
+
+import java.util.List;
+
+/**
+ * One page of a wallet section, the cursor is null on the last page.
+ */
+public record DiscountCodeWalletPageDto(List<DiscountCodeViewDto> discountCodes, String nextCursor) {
+}
@@ -0,0 +1,30 @@
+package nl.centric.innovation.local4local.dto;
+
+import nl.centric.innovation.local4local.entity.OfferType;
+import nl.centric.innovation.local4local.enums.GenericStatusEnum;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public interface DiscountCodeWalletProjection {
+
+    UUID getId();
+
+    String getCode();
+
+    Boolean getIsActive();
+
+    GenericStatusEnum getOfferStatus();
+
+    OfferType getOfferType();
+
+    LocalDate getExpirationDate();
+
+    Double getAmount();
+
+    String getOfferTitle();
+
+    String getCompanyName();
+
+    String getCompanyLogo();
+}
@@ -0,0 +1,19 @@
+package nl.centric.innovation.local4local.dto;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Objects;
+
+public record InvoiceTransactionsSummaryDto(Long transactionCount,
+                                            Double totalAmount,
+                                            LocalDateTime lastTransactionDate
+) {
+    public boolean hasTransactions() {
+        return Objects.nonNull(transactionCount) && transactionCount > 0;
+    }
+
+    public String fingerprint() {
+        return String.format(Locale.ROOT, "%d:%.2f:%s", transactionCount,
+                Objects.requireNonNullElse(totalAmount, 0.0), lastTransactionDate);
+    }
+}
@@ -0,0 +1,41 @@
+package nl.centric.innovation.local4local.dto;
+
+import lombok.NonNull;
+import nl.centric.innovation.local4local.entity.Offer;
+import nl.centric.innovation.local4local.util.MapUtils;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * The user independent part of the offer detail, together with the offer coordinates
+ * so the distance to the citizen can be computed without another query.
+ */
+public record OfferDetailCacheDto(@NonNull UUID supplierId,
+                                  @NonNull OfferMobileDetailDto detail,
+                                  Double longitude,
+                                  Double latitude) {
+
+    public static OfferDetailCacheDto of(Offer offer) {
+        Coordinate coordinate = offer.getCoordinates() != null ? offer.getCoordinates().getCoordinate() : null;
+
+        return new OfferDetailCacheDto(offer.getSupplier().getId(),
+                OfferMobileDetailDto.entityToOfferMobileDetailDto(offer, null, null, false),
+                coordinate != null ? coordinate.getX() : null,
+                coordinate != null ? coordinate.getY() : null);
+    }
+
+    public OfferMobileDetailDto toOfferMobileDetailDto(Double userLatitude, Double userLongitude, String discountCode,
+                                                       LocalDate currentDay) {
+        Double distance = longitude != null && latitude != null && userLatitude != null && userLongitude != null
+                ? MapUtils.distanceInMeters(userLatitude, userLongitude, latitude, longitude)
+                : null;
+
+        return detail.toBuilder()
+                .distance(distance)
+                .discountCode(discountCode)
+                .isActive(!detail.startDate().isAfter(currentDay))
+                .build();
+    }
+}
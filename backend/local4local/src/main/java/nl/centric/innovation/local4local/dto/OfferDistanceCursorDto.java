@@ -0,0 +1,34 @@
+package nl.centric.innovation.local4local.dto;
+
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of the last offer of a distance ordered page, exchanged with the client as an opaque token.
+ */
+public record OfferDistanceCursorDto(double distance, @NonNull UUID id) {
+
+    public static final OfferDistanceCursorDto FIRST_PAGE = new OfferDistanceCursorDto(-1, new UUID(0, 0));
+
+    private static final String SEPARATOR = "_";
+
+    public String encode() {
+        String value = distance + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OfferDistanceCursorDto decode(String token) {
+        String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separatorIndex = value.indexOf(SEPARATOR);
+
+        if (separatorIndex < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        return new OfferDistanceCursorDto(Double.parseDouble(value.substring(0, separatorIndex)),
+                UUID.fromString(value.substring(separatorIndex + 1)));
+    }
+}
@@ -0,0 +1,10 @@
+package nl.centric.innovation.local4local.dto;
+
+public interface OfferDistanceProjection {
+
+    String getId();
+
+    Double getDistance();
+
+    Double getSortDistance();
+}
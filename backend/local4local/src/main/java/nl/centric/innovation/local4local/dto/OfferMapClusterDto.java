@@ -0,0 +1,10 @@
+package nl.centric.innovation.local4local.dto;
+
+import lombok.Builder;
+
+@Builder
+public record OfferMapClusterDto(double latitude,
+                                 double longitude,
+                                 int count
+) {
+}
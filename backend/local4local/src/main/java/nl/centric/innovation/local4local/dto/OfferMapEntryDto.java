@@ -0,0 +1,43 @@
+package nl.centric.innovation.local4local.dto;
+
+import lombok.Builder;
+import lombok.NonNull;
+import nl.centric.innovation.local4local.entity.Offer;
+import nl.centric.innovation.local4local.entity.OfferType;
+import org.locationtech.jts.geom.Geometry;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Builder
+public record OfferMapEntryDto(@NonNull UUID id,
+                               @NonNull String title,
+                               @NonNull String description,
+                               @NonNull OfferType offerType,
+                               @NonNull String coordinatesString,
+                               double longitude,
+                               double latitude,
+                               @NonNull LocalDate startDate,
+                               @NonNull LocalDate expirationDate,
+                               UUID benefitId
+) {
+
+    public OfferMapEntryDto(UUID id, String title, String description, OfferType offerType, String coordinatesString,
+                            Geometry coordinates, LocalDate startDate, LocalDate expirationDate, UUID benefitId) {
+        this(id, title, description, offerType, coordinatesString,
+                coordinates.getCoordinate().getX(),
+                coordinates.getCoordinate().getY(),
+                startDate, expirationDate, benefitId);
+    }
+
+    public static OfferMapEntryDto of(Offer offer) {
+        return new OfferMapEntryDto(offer.getId(), offer.getTitle(), offer.getDescription(), offer.getOfferType(),
+                offer.getCoordinatesString(), offer.getCoordinates(), offer.getStartDate(), offer.getExpirationDate(),
+                offer.getBenefit() != null ? offer.getBenefit().getId() : null);
+    }
+
+    public OfferMobileMapLightDto toMapLightDto(LocalDate currentDay) {
+        return new OfferMobileMapLightDto(id, title, description, offerType, coordinatesString,
+                !startDate.isAfter(currentDay));
+    }
+}
@@ -16,7 +16,7 @@ import java.util.stream.Collectors;
 
 import static nl.centric.innovation.local4local.util.ModelConverter.entityToRestrictionViewDto;
 
-@Builder
+@Builder(toBuilder = true)
 public record OfferMobileDetailDto(@NonNull UUID id,
                                    @NonNull String title,
                                    @NonNull String description,
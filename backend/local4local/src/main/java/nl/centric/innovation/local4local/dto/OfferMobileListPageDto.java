@@ -0,0 +1,14 @@
+package nl.centric.innovation.local4local.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.NonNull;
+
+import java.util.List;
+
+@Builder
+public record OfferMobileListPageDto(@NonNull List<OfferMobileListDto> offers,
+                                     @JsonInclude(JsonInclude.Include.NON_NULL)
+                                     String nextCursor
+) {
+}
@@ -0,0 +1,15 @@
+package nl.centric.innovation.local4local.dto;
+
+/**
+ * One credit transfer of a SEPA file, either a single transaction or all transactions of a creditor netted.
+ */
+public record SepaCreditTransferDto(String creditorIban,
+                                    String creditorName,
+                                    Double amount,
+                                    Long transactionCount
+) {
+
+    public SepaCreditTransferDto(String creditorIban, String creditorName, Double amount) {
+        this(creditorIban, creditorName, amount, 1L);
+    }
+}
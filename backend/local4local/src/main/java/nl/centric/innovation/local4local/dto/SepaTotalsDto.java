@@ -0,0 +1,7 @@
+package nl.centric.innovation.local4local.dto;
+
+public record SepaTotalsDto(Long transactionCount,
+                            Long creditorCount,
+                            Double totalAmount
+) {
+}
@@ -11,6 +11,7 @@ import javax.persistence.Entity;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @EqualsAndHashCode(callSuper = true)
@@ -35,6 +36,12 @@ public class DiscountCode extends BaseEntity {
     @Column(name = "code", nullable = false, unique = true)
     private String code;
 
+    // maintained by the validation write only
+    @Column(name = "last_used_at", insertable = false, updatable = false)
+    private LocalDateTime lastUsedAt;
+
+    @Column(name = "usage_count", insertable = false, updatable = false)
+    private Integer usageCount;
 
     public static DiscountCode of(Offer offer, UUID userId, String code, Boolean isActive) {
         return DiscountCode.builder()
@@ -0,0 +1,37 @@
+package nl.centric.innovation.local4local.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(schema = "l4l_global", name = "idempotency_key")
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key", nullable = false, updatable = false)
+    private String key;
+
+    // SHA-256 of the canonical request body, a retry must send the same request
+    @Column(name = "request_fingerprint")
+    private String requestFingerprint;
+
+    @Column(name = "response")
+    private String response;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
+import java.time.LocalDateTime;
 
 @EqualsAndHashCode(callSuper = true)
 @Entity
@@ -24,4 +25,7 @@ public class LoginAttempt extends BaseEntity {
     @Column(name = "failed_count")
     private Integer count;
 
+    @Column(name = "last_failed_date")
+    private LocalDateTime lastFailedDate;
+
 }
@@ -64,6 +64,23 @@ import nl.centric.innovation.local4local.enums.GenericStatusEnum;
 
         }
 )
+@NamedEntityGraph(
+        name = "include-offer-detail-graph",
+        attributeNodes = {
+                @NamedAttributeNode(value = "supplier", subgraph = "supplier-detail"),
+                @NamedAttributeNode("restriction"),
+                @NamedAttributeNode("benefit")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "supplier-detail",
+                        attributeNodes = {
+                                @NamedAttributeNode(value = "profile", subgraph = "profile-category"),
+                                @NamedAttributeNode("workingHours")
+                        }),
+                @NamedSubgraph(name = "profile-category",
+                        attributeNodes = @NamedAttributeNode(value = "category"))
+        }
+)
 public class Offer extends BaseEntity {
 
     @Column(name = "title")
@@ -46,10 +46,21 @@ public class OfferTransaction {
     @Column(name = "amount")
     private Double amount;
 
+    // copied from the offer when the transaction is created, so the reports filter without joining the offer
+    @Column(name = "supplier_id", updatable = false)
+    private UUID supplierId;
+
+    @Column(name = "tenant_id", updatable = false)
+    private UUID tenantId;
+
     public static OfferTransaction offerTransactionDtoToEntity(DiscountCode discountCode, LocalDateTime createdDate) {
+        Supplier supplier = discountCode.getOffer().getSupplier();
+
         OfferTransaction offerTransaction = new OfferTransaction();
         offerTransaction.setDiscountCode(discountCode);
         offerTransaction.setCreatedDate(createdDate);
+        offerTransaction.setSupplierId(supplier.getId());
+        offerTransaction.setTenantId(supplier.getTenant().getId());
 
         return offerTransaction;
     }
@@ -81,15 +81,23 @@ public class Restriction extends BaseEntity {
     }
 
     public boolean isFrequencyViolated(LocalDateTime lastTransactionDate) {
+        return isFrequencyViolated(lastTransactionDate, LocalDateTime.now());
+    }
+
+    /**
+     * Checks the last use against the period the code is used in, which for an offline scan lies in the past.
+     * A last use after that period counts as a violation, only the latest use is known.
+     */
+    public boolean isFrequencyViolated(LocalDateTime lastTransactionDate, LocalDateTime at) {
         if (Objects.isNull(this.frequencyOfUse) || Objects.isNull(lastTransactionDate)) {
             return false;
         }
 
         return switch (this.frequencyOfUse) {
-            case DAILY -> !DateUtils.isDateBeforeToday(lastTransactionDate);
-            case MONTHLY -> !DateUtils.isDateBeforeMonth(lastTransactionDate);
-            case WEEKLY -> !DateUtils.isDateBeforeWeek(lastTransactionDate);
-            case YEARLY -> !DateUtils.isDateBeforeYear(lastTransactionDate);
+            case DAILY -> !DateUtils.isDateBeforeToday(lastTransactionDate, at);
+            case MONTHLY -> !DateUtils.isDateBeforeMonth(lastTransactionDate, at);
+            case WEEKLY -> !DateUtils.isDateBeforeWeek(lastTransactionDate, at);
+            case YEARLY -> !DateUtils.isDateBeforeYear(lastTransactionDate, at);
             case SINGLE_USE -> false;
             default -> false;
         };
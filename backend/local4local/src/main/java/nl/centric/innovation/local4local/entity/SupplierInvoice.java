@@ -0,0 +1,53 @@
+package nl.centric.innovation.local4local.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(schema = "l4l_global", name = "supplier_invoice")
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupplierInvoice {
+
+    @Id
+    @GeneratedValue
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Column(name = "supplier_id", nullable = false)
+    private UUID supplierId;
+
+    // first day of the month
+    @Column(name = "month", nullable = false)
+    private LocalDate month;
+
+    @Column(name = "language", nullable = false)
+    private String language;
+
+    @Column(name = "transactions_fingerprint", nullable = false)
+    private String transactionsFingerprint;
+
+    @Column(name = "storage_key", nullable = false)
+    private String storageKey;
+
+    @Column(name = "rendered_date", nullable = false)
+    private LocalDateTime renderedDate;
+}
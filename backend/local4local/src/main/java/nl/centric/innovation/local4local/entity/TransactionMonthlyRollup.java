@@ -0,0 +1,52 @@
+package nl.centric.innovation.local4local.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Entity
+@Table(schema = "l4l_global", name = "transaction_monthly_rollup")
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionMonthlyRollup {
+
+    @Id
+    @GeneratedValue
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Column(name = "supplier_id", nullable = false)
+    private UUID supplierId;
+
+    @Column(name = "benefit_id")
+    private UUID benefitId;
+
+    @Column(name = "offer_type_id", nullable = false)
+    private Integer offerTypeId;
+
+    // first day of the month
+    @Column(name = "month", nullable = false)
+    private LocalDate month;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Integer transactionCount;
+
+    @Column(name = "total_amount", nullable = false)
+    private Double totalAmount;
+}
@@ -0,0 +1,28 @@
+package nl.centric.innovation.local4local.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import nl.centric.innovation.local4local.util.export.CsvExportWriter;
+import nl.centric.innovation.local4local.util.export.ExportWriter;
+import nl.centric.innovation.local4local.util.export.XlsxExportWriter;
+
+import java.io.OutputStream;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+
+    CSV("text/csv", "csv"),
+    XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+    private final String contentType;
+
+    private final String extension;
+
+    public ExportWriter open(OutputStream outputStream) {
+        return switch (this) {
+            case CSV -> new CsvExportWriter(outputStream);
+            case XLSX -> new XlsxExportWriter(outputStream);
+        };
+    }
+}
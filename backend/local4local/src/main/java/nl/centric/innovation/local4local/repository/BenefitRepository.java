@@ -25,11 +25,21 @@ public interface BenefitRepository extends JpaRepository<Benefit, UUID> {
                 AND ph.user.id = :userId
             """;
 
+    String FIND_ACCESSIBLE_BENEFIT_IDS_FOR_USER = """
+                SELECT DISTINCT b.id
+                FROM Benefit b
+                JOIN b.citizenGroups cg
+                JOIN Passholder ph ON ph.citizenGroup.id = cg.id
+                WHERE ph.user.id = :userId
+            """;
 
     @Query(FIND_ALL_FOR_USER_BENEFITS)
     List<BenefitResponseDto> findAllBenefitsForUserBenefits(@Param("tenantId") UUID tenantId,
                                                            @Param("userId") UUID userId);
     
+    @Query(FIND_ACCESSIBLE_BENEFIT_IDS_FOR_USER)
+    List<UUID> findAccessibleBenefitIdsForUser(@Param("userId") UUID userId);
+
     @Modifying
     @Transactional
     @Query(nativeQuery = true, value = "CALL l4l_global.update_benefit_status()")
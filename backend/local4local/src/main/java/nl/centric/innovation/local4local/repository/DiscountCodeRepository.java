@@ -1,13 +1,17 @@
 package nl.centric.innovation.local4local.repository;
 
-import nl.centric.innovation.local4local.dto.OfferStatisticsDto;
+import nl.centric.innovation.local4local.dto.CodeValidationProjection;
+import nl.centric.innovation.local4local.dto.DiscountCodeWalletProjection;
 import nl.centric.innovation.local4local.entity.DiscountCode;
+import nl.centric.innovation.local4local.enums.GenericStatusEnum;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,36 +19,123 @@ import java.util.UUID;
 @Repository
 public interface DiscountCodeRepository extends JpaRepository<DiscountCode, UUID> {
 
-    String FIND_CITIZEN_COUNT_BY_OFFER_TYPE_AND_SUPPLIER_ID = """
-            SELECT new nl.centric.innovation.local4local.dto.OfferStatisticsDto(
-                o.offerType.offerTypeId,
-                o.offerType.offerTypeLabel,
-                COUNT(dc.userId)
-            )
+    String RESERVE_CODE_SEQUENCE_VALUES =
+            "SELECT nextval('l4l_global.discount_code_seq') FROM generate_series(1, :count)";
+
+    String FIND_CODE_BY_USER_ID_AND_OFFER_ID =
+            "SELECT dc.code FROM DiscountCode dc WHERE dc.userId = :userId AND dc.offer.id = :offerId";
+
+    String FIND_CODE_VALIDATION_BY_CODE_AND_SUPPLIER_ID = """
+            SELECT dc AS discountCode, cb.amount AS balance
+            FROM DiscountCode dc
+            JOIN FETCH dc.offer o
+            JOIN FETCH o.offerType
+            JOIN FETCH o.benefit
+            LEFT JOIN FETCH o.restriction
+            LEFT JOIN CitizenBenefit cb ON cb.userId = dc.userId AND cb.benefit = o.benefit
+            WHERE dc.code = :code
+            AND dc.isActive = true
+            AND o.supplier.id = :supplierId
+            """;
+
+    String FIND_CODE_VALIDATIONS_BY_CODES_AND_SUPPLIER_ID = """
+            SELECT dc AS discountCode, cb.amount AS balance
+            FROM DiscountCode dc
+            JOIN FETCH dc.offer o
+            JOIN FETCH o.offerType
+            JOIN FETCH o.benefit
+            LEFT JOIN FETCH o.restriction
+            LEFT JOIN CitizenBenefit cb ON cb.userId = dc.userId AND cb.benefit = o.benefit
+            WHERE dc.code IN :codes
+            AND dc.isActive = true
+            AND o.supplier.id = :supplierId
+            """;
+
+    // Only the wallet fields, the offers and their eager associations are not loaded
+    String SELECT_WALLET_CODES = """
+            SELECT dc.id AS id,
+                dc.code AS code,
+                dc.isActive AS isActive,
+                o.status AS offerStatus,
+                ot AS offerType,
+                o.expirationDate AS expirationDate,
+                o.amount AS amount,
+                o.title AS offerTitle,
+                s.companyName AS companyName,
+                p.logo AS companyLogo
             FROM DiscountCode dc
             JOIN dc.offer o
-            WHERE o.supplier.id = :supplierId
-            AND o.createdDate >= :intervalPeriod
-            GROUP BY o.offerType.offerTypeId, o.offerType.offerTypeLabel
+            JOIN o.offerType ot
+            JOIN o.supplier s
+            LEFT JOIN s.profile p
+            WHERE dc.userId = :userId
             """;
 
-    String FIND_ALL_DISCOUNT_CODES_BY_USER_ID_ORDERED_BY_EXPIRATION_AND_STATUS =
-            """
-                            SELECT dc FROM DiscountCode dc JOIN dc.offer o WHERE dc.userId = :userId 
-                            ORDER BY CASE WHEN dc.isActive = true AND o.status != 'EXPIRED' 
-                            THEN 0 ELSE 1 END, o.expirationDate ASC
-                    """;
+    String WALLET_SECTION = """
+            AND ((:isActive = true AND dc.isActive = true AND o.status = :activeStatus)
+                OR (:isActive = false AND (dc.isActive = false OR o.status <> :activeStatus)))
+            """;
+
+    String WALLET_ORDER = " ORDER BY o.expirationDate ASC, dc.id ASC";
+
+    String FIND_WALLET_CODES_BY_USER_ID = SELECT_WALLET_CODES + WALLET_ORDER;
+
+    String FIND_WALLET_PAGE_BY_USER_ID = SELECT_WALLET_CODES + WALLET_SECTION + WALLET_ORDER;
+
+    String FIND_WALLET_PAGE_BY_USER_ID_AFTER_CURSOR = SELECT_WALLET_CODES + WALLET_SECTION + """
+            AND (o.expirationDate > :afterExpirationDate
+                OR (o.expirationDate = :afterExpirationDate AND dc.id > :afterId))
+            """ + WALLET_ORDER;
+
+    // Digest of every wallet field, so an unchanged wallet is recognised without loading it. The logo is
+    // followed through the modification date of the profile, it is too large to be read for every wallet
+    String FIND_WALLET_VERSION_BY_USER_ID = """
+            SELECT md5(COALESCE(string_agg(
+                    concat_ws('|', dc.id, dc.is_active, o.status, o.offer_type_id, o.expiration_date, o.amount,
+                        o.title, s.company_name, p.id, p.last_modified_date),
+                    ',' ORDER BY dc.id), ''))
+            FROM l4l_global.discount_code dc
+            JOIN l4l_global.offers o ON o.id = dc.offer_id
+            JOIN l4l_security.suppliers s ON s.id = o.supplier_id
+            LEFT JOIN l4l_security.supplier_profile p ON p.id = s.profile_id
+            WHERE dc.user_id = :userId
+            """;
 
     Optional<DiscountCode> findByUserIdAndOfferId(UUID userId, UUID offerId);
 
-    Optional<DiscountCode> findByCodeIgnoreCaseAndIsActiveTrueAndOfferSupplierId(String code, UUID supplierId);
+    boolean existsByIdAndIsActiveTrue(UUID id);
+
+    @Query(value = RESERVE_CODE_SEQUENCE_VALUES, nativeQuery = true)
+    List<Number> reserveCodeSequenceValues(@Param("count") int count);
+
+    @Query(FIND_CODE_BY_USER_ID_AND_OFFER_ID)
+    Optional<String> findCodeByUserIdAndOfferId(@Param("userId") UUID userId, @Param("offerId") UUID offerId);
+
+    @Query(FIND_CODE_VALIDATION_BY_CODE_AND_SUPPLIER_ID)
+    Optional<CodeValidationProjection> findCodeValidationByCodeAndSupplierId(@Param("code") String code,
+                                                                             @Param("supplierId") UUID supplierId);
+
+    @Query(FIND_CODE_VALIDATIONS_BY_CODES_AND_SUPPLIER_ID)
+    List<CodeValidationProjection> findCodeValidationsByCodesAndSupplierId(@Param("codes") Collection<String> codes,
+                                                                           @Param("supplierId") UUID supplierId);
+
+    @Query(FIND_WALLET_CODES_BY_USER_ID)
+    List<DiscountCodeWalletProjection> findWalletCodesByUserId(@Param("userId") UUID userId);
+
+    @Query(FIND_WALLET_PAGE_BY_USER_ID)
+    List<DiscountCodeWalletProjection> findWalletPageByUserId(@Param("userId") UUID userId,
+                                                              @Param("isActive") boolean isActive,
+                                                              @Param("activeStatus") GenericStatusEnum activeStatus,
+                                                              Pageable pageable);
 
-    @Query(FIND_ALL_DISCOUNT_CODES_BY_USER_ID_ORDERED_BY_EXPIRATION_AND_STATUS)
-    List<DiscountCode> findByUserIdOrderByOfferExpirationDateAndIsActive(UUID userId);
+    @Query(FIND_WALLET_PAGE_BY_USER_ID_AFTER_CURSOR)
+    List<DiscountCodeWalletProjection> findWalletPageByUserIdAfterCursor(@Param("userId") UUID userId,
+                                                                         @Param("isActive") boolean isActive,
+                                                                         @Param("activeStatus") GenericStatusEnum activeStatus,
+                                                                         @Param("afterExpirationDate") LocalDate afterExpirationDate,
+                                                                         @Param("afterId") UUID afterId,
+                                                                         Pageable pageable);
 
-    @Query(FIND_CITIZEN_COUNT_BY_OFFER_TYPE_AND_SUPPLIER_ID)
-    List<OfferStatisticsDto> findCitizenCountByOfferTypeAndTenantId(
-            @Param("supplierId") UUID supplierId,
-            @Param("intervalPeriod") LocalDateTime intervalPeriod
-    );
+    @Query(value = FIND_WALLET_VERSION_BY_USER_ID, nativeQuery = true)
+    String findWalletVersionByUserId(@Param("userId") UUID userId);
 }
@@ -0,0 +1,41 @@
+package nl.centric.innovation.local4local.repository;
+
+import nl.centric.innovation.local4local.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // An expired row is taken over, a live one is left alone so the caller can tell it lost the race
+    String SAVE_IF_ABSENT = """
+                INSERT INTO l4l_global.idempotency_key (idempotency_key, request_fingerprint, response, expires_at)
+                VALUES (:key, :requestFingerprint, :response, :expiresAt)
+                ON CONFLICT (idempotency_key) DO UPDATE
+                SET request_fingerprint = EXCLUDED.request_fingerprint, response = EXCLUDED.response,
+                    expires_at = EXCLUDED.expires_at
+                WHERE l4l_global.idempotency_key.expires_at < :now
+            """;
+
+    String DELETE_EXPIRED = "DELETE FROM IdempotencyKey ik WHERE ik.expiresAt < :now";
+
+    Optional<IdempotencyKey> findByKeyAndExpiresAtAfter(String key, LocalDateTime now);
+
+    @Modifying
+    @Query(value = SAVE_IF_ABSENT, nativeQuery = true)
+    int saveIfAbsent(@Param("key") String key, @Param("requestFingerprint") String requestFingerprint,
+                     @Param("response") String response, @Param("expiresAt") LocalDateTime expiresAt,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query(DELETE_EXPIRED)
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
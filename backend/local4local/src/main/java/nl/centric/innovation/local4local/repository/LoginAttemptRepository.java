@@ -1,10 +1,40 @@
 package nl.centric.innovation.local4local.repository;
 
 import nl.centric.innovation.local4local.entity.LoginAttempt;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface LoginAttemptRepository extends CrudRepository<LoginAttempt, Long> {
+
+    // Nodes write the failures since their last flush, which are added to the failures of the other nodes.
+    // A reset by a successful login, or a last failure before the window, drops the stored failures
+    String UPSERT_LOGIN_ATTEMPTS = """
+            WITH attempts AS (
+                SELECT * FROM json_to_recordset(CAST(:attempts AS json))
+                    AS a(remote_addr varchar, failed_count smallint, last_failed_date timestamp, is_reset boolean)
+            )
+            INSERT INTO l4l_security.login_attempt (remote_addr, failed_count, last_failed_date)
+            SELECT remote_addr, failed_count, last_failed_date FROM attempts
+            ON CONFLICT (remote_addr) DO UPDATE
+            SET failed_count = LEAST(CAST(EXCLUDED.failed_count AS integer) + CASE
+                    WHEN (SELECT a.is_reset FROM attempts a WHERE a.remote_addr = EXCLUDED.remote_addr)
+                        OR l4l_security.login_attempt.last_failed_date IS NULL
+                        OR l4l_security.login_attempt.last_failed_date <= :windowStart THEN 0
+                    ELSE l4l_security.login_attempt.failed_count
+                END, 32767),
+                last_failed_date = GREATEST(l4l_security.login_attempt.last_failed_date, EXCLUDED.last_failed_date)
+            """;
+
     Optional<LoginAttempt> findByRemoteAddress(String remoteAddress);
-}
\ No newline at end of file
+
+    @Modifying
+    @Transactional
+    @Query(value = UPSERT_LOGIN_ATTEMPTS, nativeQuery = true)
+    void upsertLoginAttempts(@Param("attempts") String attempts, @Param("windowStart") LocalDateTime windowStart);
+}
@@ -4,8 +4,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
+import nl.centric.innovation.local4local.dto.OfferDistanceProjection;
+import nl.centric.innovation.local4local.dto.OfferMapEntryDto;
 import nl.centric.innovation.local4local.dto.OfferMobileListDto;
 import nl.centric.innovation.local4local.dto.OfferMobileMapLightDto;
 import nl.centric.innovation.local4local.dto.OfferStatusCountsDto;
@@ -22,15 +25,9 @@ import nl.centric.innovation.local4local.enums.GenericStatusEnum;
 
 @Repository
 public interface OfferRepository extends JpaRepository<Offer, UUID>, OfferRepositoryFilterCustom {
+    // benefitIds are the benefits accessible to the citizen, resolved once per user by BenefitAccessService
     String BENEFIT_ACCESS_FOR_OFFER = """
-                AND EXISTS (
-                    SELECT 1
-                    FROM Benefit b
-                    JOIN b.citizenGroups cg
-                    JOIN Passholder ph ON ph.citizenGroup.id = cg.id
-                    WHERE b = o.benefit
-                    AND ph.user.id = :userId
-                )
+                AND o.benefit.id IN (:benefitIds)
             """;
 
     String FIND_ALL_OFFERS_ORDERED_BY_DISTANCE_TO_USER = """
@@ -80,6 +77,24 @@ public interface OfferRepository extends JpaRepository<Offer, UUID>, OfferReposi
             """ + BENEFIT_ACCESS_FOR_OFFER;
 
 
+    // word_similarity (<%) tolerates typos, both operators are served by the trigram index on LOWER(title)
+    String SEARCH_OFFER_TITLES_BY_SIMILARITY = """
+            SELECT o.title
+            FROM l4l_global.offers o
+            JOIN l4l_security.suppliers supplier ON supplier.id = o.supplier_id
+            WHERE (
+                LOWER(o.title) LIKE CONCAT('%', LOWER(:keyword), '%')
+                OR LOWER(:keyword) <% LOWER(o.title)
+            )
+            AND supplier.tenant_id = :tenantId
+            AND o.status = 'ACTIVE'
+            AND o.is_active = true
+            AND o.benefit_id IN (:benefitIds)
+            GROUP BY o.title
+            ORDER BY MAX(word_similarity(LOWER(:keyword), LOWER(o.title))) DESC, o.title
+            LIMIT :limit
+            """;
+
     String FIND_SEARCHED_OFFERS_ORDERED_BY_DISTANCE_TO_USER = """
             SELECT new nl.centric.innovation.local4local.dto.OfferMobileListDto(o,
             ST_Distance(Geography(ST_SetSRID(ST_MakePoint(:longitude,:latitude),4326)), o.coordinates) * 1.0 AS distance,
@@ -108,6 +123,69 @@ public interface OfferRepository extends JpaRepository<Offer, UUID>, OfferReposi
             AND (:offerType = -1 OR o.offerType.id = :offerType)
             """ + BENEFIT_ACCESS_FOR_OFFER;
 
+    String FIND_ACTIVE_OFFER_MAP_ENTRIES_BY_TENANT_ID = """
+            SELECT new nl.centric.innovation.local4local.dto.OfferMapEntryDto(
+            o.id, o.title, o.description, o.offerType, o.coordinatesString, o.coordinates,
+            o.startDate, o.expirationDate, o.benefit.id
+            ) FROM Offer o JOIN o.supplier supplier
+            WHERE o.isActive = true AND o.status = 'ACTIVE' AND supplier.tenant.id = :tenantId
+            AND o.coordinates IS NOT NULL
+            """;
+
+    // The same spheroid distance as the page based list, reported for the offers of a page
+    String NATIVE_DISTANCE_TO_USER =
+            "ST_Distance(CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography), CAST(o.coordinates AS geography))";
+
+    // The KNN sphere distance on the geography index, used for the order and the cursor
+    String NATIVE_SORT_DISTANCE_TO_USER =
+            "CAST(o.coordinates AS geography) <-> CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography)";
+
+    String NATIVE_OFFERS_ACCESSIBLE_TO_USER = """
+            FROM l4l_global.offers o
+            JOIN l4l_security.suppliers supplier ON supplier.id = o.supplier_id
+            WHERE supplier.tenant_id = :tenantId AND o.status = 'ACTIVE' AND o.is_active = true
+            AND o.coordinates IS NOT NULL
+            AND (:offerType = -1 OR o.offer_type_id = :offerType)
+            AND o.benefit_id IN (:benefitIds)
+            """;
+
+    String NATIVE_TITLE_MATCHES_KEYWORD = """
+            AND (
+                LOWER(o.title) LIKE LOWER(CONCAT(:keyword, '%'))
+                OR LOWER(o.title) LIKE LOWER(CONCAT('% ', :keyword, '%'))
+            )
+            """;
+
+    // The KNN index scan returns the offers nearest first, so only the rows of the page are read after the cursor
+    // and the spheroid distance is computed for those rows alone
+    String NATIVE_DISTANCES_AFTER_CURSOR =
+            "SELECT CAST(o.id AS varchar) AS id, " + NATIVE_DISTANCE_TO_USER + " AS distance, "
+                    + NATIVE_SORT_DISTANCE_TO_USER + " AS \"sortDistance\" ";
+
+    String NATIVE_AFTER_CURSOR_ORDERED_BY_DISTANCE =
+            "AND (" + NATIVE_SORT_DISTANCE_TO_USER + ", o.id) > (:lastDistance, CAST(:lastId AS uuid)) "
+                    + "ORDER BY " + NATIVE_SORT_DISTANCE_TO_USER + ", o.id LIMIT :size";
+
+    String FIND_OFFER_DISTANCES_AFTER_CURSOR =
+            NATIVE_DISTANCES_AFTER_CURSOR
+                    + NATIVE_OFFERS_ACCESSIBLE_TO_USER
+                    + NATIVE_AFTER_CURSOR_ORDERED_BY_DISTANCE;
+
+    String FIND_SEARCHED_OFFER_DISTANCES_AFTER_CURSOR =
+            NATIVE_DISTANCES_AFTER_CURSOR
+                    + NATIVE_OFFERS_ACCESSIBLE_TO_USER
+                    + NATIVE_TITLE_MATCHES_KEYWORD
+                    + NATIVE_AFTER_CURSOR_ORDERED_BY_DISTANCE;
+
+    String FIND_OFFERS_FOR_MOBILE_LIST_BY_IDS = """
+            SELECT DISTINCT o FROM Offer o
+            JOIN FETCH o.supplier supplier
+            LEFT JOIN FETCH supplier.workingHours
+            LEFT JOIN FETCH o.benefit
+            LEFT JOIN FETCH o.restriction
+            WHERE o.id IN :ids
+            """;
+
     String FIND_BY_ID_AND_STATUS_WITH_BENEFIT_ACCESS = """
                 SELECT o FROM Offer o
                 WHERE o.id = :id
@@ -120,7 +198,7 @@ public interface OfferRepository extends JpaRepository<Offer, UUID>, OfferReposi
                                                                   @Param("longitude") Double longitude,
                                                                   @Param("tenantId") UUID tenantId,
                                                                   @Param("currentDay") LocalDate currentDay,
-                                                                  @Param("userId") UUID userId,
+                                                                  @Param("benefitIds") Set<UUID> benefitIds,
                                                                   @Param("offerType") Integer offerType);
 
     @Query(FIND_SEARCHED_OFFERS_ORDERED_BY_DISTANCE_TO_USER)
@@ -129,10 +207,34 @@ public interface OfferRepository extends JpaRepository<Offer, UUID>, OfferReposi
                                                                        @Param("longitude") Double longitude,
                                                                        @Param("tenantId") UUID tenantId,
                                                                        @Param("currentDay") LocalDate currentDay,
-                                                                       @Param("userId") UUID userId,
+                                                                       @Param("benefitIds") Set<UUID> benefitIds,
                                                                        @Param("keyword") String searchKeyword,
                                                                        @Param("offerType") Integer offerType);
 
+    @Query(value = FIND_OFFER_DISTANCES_AFTER_CURSOR, nativeQuery = true)
+    List<OfferDistanceProjection> findOfferDistancesAfterCursor(@Param("latitude") Double latitude,
+                                                                @Param("longitude") Double longitude,
+                                                                @Param("tenantId") UUID tenantId,
+                                                                @Param("benefitIds") Set<UUID> benefitIds,
+                                                                @Param("offerType") Integer offerType,
+                                                                @Param("lastDistance") Double lastDistance,
+                                                                @Param("lastId") String lastId,
+                                                                @Param("size") Integer size);
+
+    @Query(value = FIND_SEARCHED_OFFER_DISTANCES_AFTER_CURSOR, nativeQuery = true)
+    List<OfferDistanceProjection> findSearchedOfferDistancesAfterCursor(@Param("latitude") Double latitude,
+                                                                        @Param("longitude") Double longitude,
+                                                                        @Param("tenantId") UUID tenantId,
+                                                                        @Param("benefitIds") Set<UUID> benefitIds,
+                                                                        @Param("keyword") String searchKeyword,
+                                                                        @Param("offerType") Integer offerType,
+                                                                        @Param("lastDistance") Double lastDistance,
+                                                                        @Param("lastId") String lastId,
+                                                                        @Param("size") Integer size);
+
+    @Query(FIND_OFFERS_FOR_MOBILE_LIST_BY_IDS)
+    List<Offer> findOffersForMobileListByIds(@Param("ids") List<UUID> ids);
+
     @Query(FIND_ACTIVE_OFFERS_IN_VIEWPORT)
     List<OfferMobileMapLightDto> findActiveOffersInViewport(@Param("minLatitude") Double minLatitude,
                                                             @Param("maxLatitude") Double maxLatitude,
@@ -141,7 +243,10 @@ public interface OfferRepository extends JpaRepository<Offer, UUID>, OfferReposi
                                                             @Param("currentDay") LocalDate currentDay,
                                                             @Param("tenantId") UUID tenantId,
                                                             @Param("offerType") Integer offerType,
-                                                            @Param("userId") UUID userId);
+                                                            @Param("benefitIds") Set<UUID> benefitIds);
+
+    @Query(FIND_ACTIVE_OFFER_MAP_ENTRIES_BY_TENANT_ID)
+    List<OfferMapEntryDto> findActiveOfferMapEntriesByTenantId(@Param("tenantId") UUID tenantId);
 
     @Query(GET_OFFER_DISTANCE)
     Double getOfferDistance(UUID id, @Param("latitude") Double latitude,
@@ -150,11 +255,14 @@ public interface OfferRepository extends JpaRepository<Offer, UUID>, OfferReposi
     @EntityGraph(value = "include-supplier-restriction-profile-graph", type = EntityGraph.EntityGraphType.LOAD)
     Optional<Offer> findById(UUID id);
 
+    @EntityGraph(value = "include-offer-detail-graph", type = EntityGraph.EntityGraphType.LOAD)
+    Optional<Offer> findWithDetailsById(UUID id);
+
     @Query(FIND_BY_ID_AND_STATUS_WITH_BENEFIT_ACCESS)
     @EntityGraph(value = "include-supplier-restriction-profile-graph", type = EntityGraph.EntityGraphType.LOAD)
     Optional<Offer> findByIdAndStatusWithBenefitAccess(@Param("id") UUID id,
                                                      @Param("status") GenericStatusEnum status,
-                                                     @Param("userId") UUID userId);
+                                                     @Param("benefitIds") Set<UUID> benefitIds);
 
     @EntityGraph(value = "include-supplier-graph", type = EntityGraph.EntityGraphType.LOAD)
     Page<Offer> findAllBySupplierIdAndIsActive(UUID supplierId, boolean isActive, Pageable pageable);
@@ -174,7 +282,15 @@ public interface OfferRepository extends JpaRepository<Offer, UUID>, OfferReposi
             @Param("keyword") String keyword,
             @Param("tenantId") UUID tenantId,
             @Param("status") GenericStatusEnum status,
-            @Param("userId") UUID userId);
+            @Param("benefitIds") Set<UUID> benefitIds,
+            Pageable pageable);
+
+    @Query(value = SEARCH_OFFER_TITLES_BY_SIMILARITY, nativeQuery = true)
+    List<String> searchOfferTitlesBySimilarity(
+            @Param("keyword") String keyword,
+            @Param("tenantId") UUID tenantId,
+            @Param("benefitIds") Set<UUID> benefitIds,
+            @Param("limit") Integer limit);
 
     @Query(FIND_ACTIVE_SEARCHED_OFFERS_IN_VIEWPORT)
     List<OfferMobileMapLightDto> findActiveSearchOffersInViewport(@Param("minLatitude") Double minLatitude,
@@ -184,6 +300,6 @@ public interface OfferRepository extends JpaRepository<Offer, UUID>, OfferReposi
                                                                   @Param("currentDay") LocalDate currentDay,
                                                                   @Param("tenantId") UUID tenantId,
                                                                   @Param("offerType") Integer offerType,
-                                                                  @Param("userId") UUID userId,
+                                                                  @Param("benefitIds") Set<UUID> benefitIds,
                                                                   @Param("keyword") String searchKeyword);
 }
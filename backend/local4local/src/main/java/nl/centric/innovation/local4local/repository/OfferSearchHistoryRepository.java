@@ -2,11 +2,13 @@ package nl.centric.innovation.local4local.repository;
 
 import nl.centric.innovation.local4local.entity.OfferSearchHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface OfferSearchHistoryRepository extends JpaRepository<OfferSearchHistory, UUID> {
@@ -14,8 +16,34 @@ public interface OfferSearchHistoryRepository extends JpaRepository<OfferSearchH
     String FIND_TOP_5_SEARCH_KEYWORDS =
             "SELECT o.search_keyword FROM l4l_global.offer_search_history o WHERE o.user_id = :userId ORDER BY o.created_date DESC LIMIT 5";
 
-    Optional<OfferSearchHistory> findBySearchKeywordAndUserId(String searchKeyword, UUID userId);
+    String UPSERT_SEARCH_HISTORY = """
+            INSERT INTO l4l_global.offer_search_history (user_id, search_keyword, created_date)
+            SELECT s.user_id, s.search_keyword, s.created_date
+            FROM json_to_recordset(CAST(:searches AS json)) AS s(user_id uuid, search_keyword varchar, created_date timestamp)
+            ON CONFLICT (user_id, search_keyword) DO UPDATE SET created_date = EXCLUDED.created_date
+            """;
+
+    String TRIM_SEARCH_HISTORY = """
+            DELETE FROM l4l_global.offer_search_history h
+            WHERE h.user_id IN (:userIds)
+            AND h.id NOT IN (
+                SELECT recent.id FROM l4l_global.offer_search_history recent
+                WHERE recent.user_id = h.user_id
+                ORDER BY recent.created_date DESC
+                LIMIT :historySize
+            )
+            """;
 
     @Query(value = FIND_TOP_5_SEARCH_KEYWORDS, nativeQuery = true)
     List<String> findTop5SearchKeywordsByUserIdOrderByCreatedDateDesc(@Param("userId") UUID userId);
+
+    @Modifying
+    @Transactional
+    @Query(value = UPSERT_SEARCH_HISTORY, nativeQuery = true)
+    void upsertSearchHistory(@Param("searches") String searches);
+
+    @Modifying
+    @Transactional
+    @Query(value = TRIM_SEARCH_HISTORY, nativeQuery = true)
+    void trimSearchHistory(@Param("userIds") Set<UUID> userIds, @Param("historySize") int historySize);
 }
@@ -1,31 +1,44 @@
 package nl.centric.innovation.local4local.repository;
 
-import nl.centric.innovation.local4local.dto.MonthlyTransactionDto;
+import nl.centric.innovation.local4local.dto.InvoiceTransactionsSummaryDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceTenantDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionTableDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionTenantTableDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionsGroupedDto;
+import nl.centric.innovation.local4local.dto.SepaCreditTransferDto;
+import nl.centric.innovation.local4local.dto.SepaTotalsDto;
 import nl.centric.innovation.local4local.entity.OfferTransaction;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface OfferTransactionRepository extends JpaRepository<OfferTransaction, UUID> {
 
+    // Rows fetched per round trip by the exports, which read the result through a cursor
+    String EXPORT_FETCH_SIZE = "500";
+
+    // Date filters are half-open ranges on created_date, so they are served by the (supplier_id, created_date)
+    // and (tenant_id, created_date) indexes
     String FIND_DISTINCT_YEARS_QUERY = "SELECT DISTINCT YEAR(o.createdDate) FROM OfferTransaction o " +
-            "WHERE o.discountCode.offer.supplier.id = :supplierId AND YEAR(o.createdDate) < YEAR(CURRENT_DATE) ORDER BY YEAR(o.createdDate) DESC";
+            "WHERE o.supplierId = :supplierId AND o.createdDate < :startOfYear ORDER BY YEAR(o.createdDate) DESC";
 
     String COUNT_MONTH_YEAR_TRANSACTIONS_BY_SUPPLIER_ID = "SELECT COUNT(ot) FROM OfferTransaction ot WHERE " +
-            "ot.discountCode.offer.supplier.id = :supplierId AND MONTH(ot.createdDate) = :month AND YEAR(ot.createdDate) = :year";
+            "ot.supplierId = :supplierId AND ot.createdDate >= :startDate AND ot.createdDate < :endDate";
 
     String FIND_OFFER_TRANSACTIONS_BY_MONTH_AND_YEAR_ORDERED_DESC =
             "SELECT new nl.centric.innovation.local4local.dto.OfferTransactionTableDto( " +
@@ -39,9 +52,9 @@ public interface OfferTransactionRepository extends JpaRepository<OfferTransacti
                     "JOIN ot.discountCode dc " +
                     "JOIN User u ON u.id = dc.userId " +
                     "JOIN Passholder ph ON ph.user.id = u.id " +
-                    "WHERE dc.offer.supplier.id = :supplierId " +
-                    "  AND MONTH(ot.createdDate) = :month " +
-                    "  AND YEAR(ot.createdDate) = :year " +
+                    "WHERE ot.supplierId = :supplierId " +
+                    "  AND ot.createdDate >= :startDate " +
+                    "  AND ot.createdDate < :endDate " +
                     "ORDER BY ot.createdDate DESC";
 
     String FIND_OFFER_TRANSACTIONS_FOR_INVOICE_BY_MONTH_AND_YEAR_ORDERED_DESC =
@@ -52,7 +65,7 @@ public interface OfferTransactionRepository extends JpaRepository<OfferTransacti
                         FROM OfferTransaction ot
                         JOIN User u ON u.id = ot.discountCode.userId
                         JOIN Passholder ph ON ph.user.id = u.id
-                        WHERE ot.discountCode.offer.supplier.id = :supplierId
+                        WHERE ot.supplierId = :supplierId
                         AND ot.createdDate BETWEEN :startDate AND :endDate
                         ORDER BY ot.createdDate DESC
                     """;
@@ -71,32 +84,8 @@ public interface OfferTransactionRepository extends JpaRepository<OfferTransacti
                 ORDER BY ot.createdDate DESC
             """;
 
-    String SUM_TRANSACTIONS_BY_MONTH_AND_TENANT_ID = """
-                SELECT new nl.centric.innovation.local4local.dto.MonthlyTransactionDto(
-                    MONTH(ot.createdDate),
-                    SUM(ot.amount)
-                )
-                FROM OfferTransaction ot
-                WHERE ot.discountCode.offer.supplier.tenant.id = :tenantId
-                AND ot.createdDate >= :fromDate
-                GROUP BY MONTH(ot.createdDate)
-                ORDER BY MONTH(ot.createdDate)
-            """;
-
-    String SUM_TRANSACTIONS_BY_MONTH_AND_SUPPLIER_ID = """
-                SELECT new nl.centric.innovation.local4local.dto.MonthlyTransactionDto(
-                    MONTH(ot.createdDate),
-                    SUM(ot.amount)
-                )
-                FROM OfferTransaction ot
-                WHERE ot.discountCode.offer.supplier.id = :supplierId
-                AND ot.createdDate >= :fromDate
-                GROUP BY MONTH(ot.createdDate)
-                ORDER BY MONTH(ot.createdDate)
-            """;
-
     String FIND_DISTINCT_YEARS_TENANT_QUERY = "SELECT DISTINCT YEAR(o.createdDate) FROM OfferTransaction o " +
-            "WHERE o.discountCode.offer.supplier.tenant.id = :tenantId AND YEAR(o.createdDate) < YEAR(CURRENT_DATE) ORDER BY YEAR(o.createdDate) DESC";
+            "WHERE o.tenantId = :tenantId AND o.createdDate < :startOfYear ORDER BY YEAR(o.createdDate) DESC";
 
     String FIND_OFFER_TRANSACTIONS_BY_MONTH_YEAR_AND_TENANT_ID_ORDERED_DESC =
             "SELECT new nl.centric.innovation.local4local.dto.OfferTransactionTenantTableDto( " +
@@ -112,9 +101,9 @@ public interface OfferTransactionRepository extends JpaRepository<OfferTransacti
                     "JOIN ot.discountCode dc " +
                     "JOIN User u ON u.id = dc.userId " +
                     "JOIN Passholder ph ON ph.user.id = u.id " +
-                    "WHERE dc.offer.supplier.tenant.id = :tenantId " +
-                    "  AND MONTH(ot.createdDate) = :month " +
-                    "  AND YEAR(ot.createdDate) = :year " +
+                    "WHERE ot.tenantId = :tenantId " +
+                    "  AND ot.createdDate >= :startDate " +
+                    "  AND ot.createdDate < :endDate " +
                     "ORDER BY ot.createdDate DESC";
 
     String FIND_OFFER_TRANSACTIONS_FOR_INVOICE_BY_TENANT_ID_AND_CREATED_DATE_BETWEEN_DATES_ORDERED_DESC =
@@ -127,7 +116,7 @@ public interface OfferTransactionRepository extends JpaRepository<OfferTransacti
                         FROM OfferTransaction ot
                         JOIN User u ON u.id = ot.discountCode.userId
                         JOIN Passholder ph ON ph.user.id = u.id
-                        WHERE ot.discountCode.offer.supplier.tenant.id = :tenantId
+                        WHERE ot.tenantId = :tenantId
                         AND ot.createdDate BETWEEN :startDate AND :endDate
                         ORDER BY ot.createdDate DESC
                     """;
@@ -135,25 +124,95 @@ public interface OfferTransactionRepository extends JpaRepository<OfferTransacti
     String COUNT_MONTH_YEAR_TRANSACTIONS_BY_TENANT_ID = """
                 SELECT COUNT(ot)
                 FROM OfferTransaction ot
-                WHERE ot.discountCode.offer.supplier.tenant.id = :tenantId AND MONTH(ot.createdDate) = :month AND YEAR(ot.createdDate) = :year
+                WHERE ot.tenantId = :tenantId AND ot.createdDate >= :startDate AND ot.createdDate < :endDate
+            """;
+
+    String SEPA_TRANSACTIONS_BY_TENANT_ID_AND_PERIOD = """
+                FROM OfferTransaction ot
+                JOIN Supplier s ON s.id = ot.supplierId
+                JOIN s.profile p
+                WHERE ot.tenantId = :tenantId
+                AND ot.createdDate >= :startDate AND ot.createdDate < :endDate
+                AND ot.amount > 0
             """;
 
-    Optional<OfferTransaction> findFirstByDiscountCode_UserIdAndDiscountCode_OfferIdOrderByCreatedDateDesc(UUID userId, UUID offerId);
+    String FIND_SEPA_CREDIT_TRANSFERS = """
+                SELECT new nl.centric.innovation.local4local.dto.SepaCreditTransferDto(p.iban, s.companyName, ot.amount)
+            """ + SEPA_TRANSACTIONS_BY_TENANT_ID_AND_PERIOD + """
+                ORDER BY ot.createdDate
+            """;
+
+    // One credit transfer per creditor account with the sum of its transactions
+    String FIND_NETTED_SEPA_CREDIT_TRANSFERS = """
+                SELECT new nl.centric.innovation.local4local.dto.SepaCreditTransferDto(
+                    p.iban, MAX(s.companyName), SUM(ot.amount), COUNT(ot))
+            """ + SEPA_TRANSACTIONS_BY_TENANT_ID_AND_PERIOD + """
+                GROUP BY p.iban
+                ORDER BY p.iban
+            """;
 
-    List<OfferTransaction> findAllByDiscountCode_Offer_SupplierIdOrderByCreatedDateDesc(UUID supplierId);
+    String FIND_SEPA_TOTALS = """
+                SELECT new nl.centric.innovation.local4local.dto.SepaTotalsDto(COUNT(ot), COUNT(DISTINCT p.iban), SUM(ot.amount))
+            """ + SEPA_TRANSACTIONS_BY_TENANT_ID_AND_PERIOD;
+
+    // Changes whenever a transaction of the supplier is added to or removed from the period
+    String FIND_INVOICE_TRANSACTIONS_SUMMARY = """
+                SELECT new nl.centric.innovation.local4local.dto.InvoiceTransactionsSummaryDto(
+                    COUNT(ot), SUM(ot.amount), MAX(ot.createdDate))
+                FROM OfferTransaction ot
+                WHERE ot.supplierId = :supplierId
+                AND ot.createdDate BETWEEN :startDate AND :endDate
+            """;
+
+    // Debits the balance, updates the usage of the code, deactivates it when asked to, adds the transaction to the
+    // monthly rollup and records it in one statement, nothing is written when the balance no longer covers the amount
+    // or the code is no longer active. The code row is locked first, so a concurrent deactivation is waited for
+    String RECORD_VALIDATION = """
+                WITH active_code AS (
+                    SELECT id FROM l4l_global.discount_code
+                    WHERE id = :discountCodeId AND is_active
+                    FOR UPDATE
+                ), debit AS (
+                    UPDATE l4l_global.citizen_benefit
+                    SET amount = amount - CAST(:amount AS numeric)
+                    WHERE user_id = :userId AND benefit_id = :benefitId AND amount >= CAST(:amount AS numeric)
+                    AND EXISTS (SELECT 1 FROM active_code)
+                    RETURNING id
+                ), code_usage AS (
+                    UPDATE l4l_global.discount_code
+                    SET last_used_at = GREATEST(last_used_at, :createdDate),
+                        usage_count = usage_count + 1,
+                        is_active = is_active AND NOT :deactivate
+                    WHERE id = :discountCodeId AND is_active AND EXISTS (SELECT 1 FROM debit)
+                ), rollup AS (
+            """ + TransactionMonthlyRollupRepository.INSERT_ROLLUP
+            + TransactionMonthlyRollupRepository.ROLLUP_TRANSACTION_SELECT
+            + "AND EXISTS (SELECT 1 FROM debit)\n"
+            + TransactionMonthlyRollupRepository.ON_ROLLUP_KEY_CONFLICT + """
+                )
+                INSERT INTO l4l_global.offer_transaction (discount_code_id, amount, created_date, supplier_id, tenant_id)
+                SELECT :discountCodeId, :amount, :createdDate, o.supplier_id, s.tenant_id
+                FROM debit, l4l_global.discount_code dc
+                JOIN l4l_global.offers o ON o.id = dc.offer_id
+                JOIN l4l_security.suppliers s ON s.id = o.supplier_id
+                WHERE dc.id = :discountCodeId
+            """;
+
+    List<OfferTransaction> findAllBySupplierIdOrderByCreatedDateDesc(UUID supplierId);
 
     @Query(FIND_DISTINCT_YEARS_QUERY)
-    List<Integer> findDistinctYearByCreatedDateDesc(@Param("supplierId") UUID supplierId);
+    List<Integer> findDistinctYearByCreatedDateDesc(@Param("supplierId") UUID supplierId,
+                                                    @Param("startOfYear") LocalDateTime startOfYear);
 
     @Query(COUNT_MONTH_YEAR_TRANSACTIONS_BY_SUPPLIER_ID)
-    Integer countMonthYearTransactionsBySupplierId(@Param("supplierId") UUID supplierId, @Param("month") Integer month,
-                                                   @Param("year") Integer year);
+    Integer countMonthYearTransactionsBySupplierId(@Param("supplierId") UUID supplierId, @Param("startDate") LocalDateTime startDate,
+                                                   @Param("endDate") LocalDateTime endDate);
 
-    Integer countByDiscountCodeOfferSupplierId(@Param("supplierId") UUID supplierId);
+    Integer countBySupplierId(UUID supplierId);
 
     @Query(FIND_OFFER_TRANSACTIONS_BY_MONTH_AND_YEAR_ORDERED_DESC)
-    List<OfferTransactionTableDto> findTransactionsByMonthAndYear(@Param("supplierId") UUID supplierId,
-                                                                  @Param("month") Integer month, @Param("year") Integer year, Pageable pageable);
+    List<OfferTransactionTableDto> findTransactionsByMonthAndYear(@Param("supplierId") UUID supplierId, @Param("startDate") LocalDateTime startDate,
+                                                                  @Param("endDate") LocalDateTime endDate, Pageable pageable);
 
     @Query(FIND_OFFER_TRANSACTIONS_FOR_INVOICE_BY_MONTH_AND_YEAR_ORDERED_DESC)
     List<OfferTransactionInvoiceDto> findTransactionsByMonthAndYear(
@@ -162,27 +221,57 @@ public interface OfferTransactionRepository extends JpaRepository<OfferTransacti
     @Query(FIND_OFFER_TRANSACTIONS_FOR_CITIZEN)
     List<OfferTransactionsGroupedDto> findOfferTransactionsForCitizen(@Param("userId") UUID userId, Pageable pageable);
 
-    Integer countByDiscountCode_Offer_Supplier_Tenant_Id(UUID tenantId);
+    Integer countByTenantId(UUID tenantId);
 
-    @Query(SUM_TRANSACTIONS_BY_MONTH_AND_TENANT_ID)
-    List<MonthlyTransactionDto> sumTransactionsByMonthAndTenantIdSince(@Param("tenantId") UUID tenantId, @Param("fromDate") LocalDateTime fromDate);
-
-    @Query(SUM_TRANSACTIONS_BY_MONTH_AND_SUPPLIER_ID)
-    List<MonthlyTransactionDto> sumTransactionsByMonthAndSupplierIdSince(@Param("supplierId") UUID supplierId, @Param("fromDate") LocalDateTime fromDate);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(FIND_OFFER_TRANSACTIONS_BY_MONTH_AND_YEAR_ORDERED_DESC)
+    Stream<OfferTransactionTableDto> streamTransactionsByMonthAndYear(@Param("supplierId") UUID supplierId, @Param("startDate") LocalDateTime startDate,
+                                                                      @Param("endDate") LocalDateTime endDate);
 
     @Query(FIND_DISTINCT_YEARS_TENANT_QUERY)
-    List<Integer> findDistinctYearByTenantIdAndCreatedDateDesc(@Param("tenantId") UUID tenantId);
+    List<Integer> findDistinctYearByTenantIdAndCreatedDateDesc(@Param("tenantId") UUID tenantId,
+                                                               @Param("startOfYear") LocalDateTime startOfYear);
 
     @Query(COUNT_MONTH_YEAR_TRANSACTIONS_BY_TENANT_ID)
-    Integer countMonthYearTransactionsByTenantId(@Param("tenantId") UUID tenantId, @Param("month") Integer month,
-                                                 @Param("year") Integer year);
+    Integer countMonthYearTransactionsByTenantId(@Param("tenantId") UUID tenantId, @Param("startDate") LocalDateTime startDate,
+                                                 @Param("endDate") LocalDateTime endDate);
 
     @Query(FIND_OFFER_TRANSACTIONS_BY_MONTH_YEAR_AND_TENANT_ID_ORDERED_DESC)
-    List<OfferTransactionTenantTableDto> findTransactionsByMonthYearAndTenantId(@Param("tenantId") UUID supplierId,
-                                                                                @Param("month") Integer month, @Param("year") Integer year, Pageable pageable);
+    List<OfferTransactionTenantTableDto> findTransactionsByMonthYearAndTenantId(@Param("tenantId") UUID supplierId, @Param("startDate") LocalDateTime startDate,
+                                                                                @Param("endDate") LocalDateTime endDate, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(FIND_OFFER_TRANSACTIONS_BY_MONTH_YEAR_AND_TENANT_ID_ORDERED_DESC)
+    Stream<OfferTransactionTenantTableDto> streamTransactionsByMonthYearAndTenantId(@Param("tenantId") UUID tenantId, @Param("startDate") LocalDateTime startDate,
+                                                                                    @Param("endDate") LocalDateTime endDate);
 
     @Query(FIND_OFFER_TRANSACTIONS_FOR_INVOICE_BY_TENANT_ID_AND_CREATED_DATE_BETWEEN_DATES_ORDERED_DESC)
     List<OfferTransactionInvoiceTenantDto> findTransactionsBetweenDatesByTenantId(
             @Param("tenantId") UUID tenantId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-}
 
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(FIND_SEPA_CREDIT_TRANSFERS)
+    Stream<SepaCreditTransferDto> streamSepaCreditTransfers(@Param("tenantId") UUID tenantId, @Param("startDate") LocalDateTime startDate,
+                                                            @Param("endDate") LocalDateTime endDate);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(FIND_NETTED_SEPA_CREDIT_TRANSFERS)
+    Stream<SepaCreditTransferDto> streamNettedSepaCreditTransfers(@Param("tenantId") UUID tenantId, @Param("startDate") LocalDateTime startDate,
+                                                                  @Param("endDate") LocalDateTime endDate);
+
+    @Query(FIND_SEPA_TOTALS)
+    SepaTotalsDto findSepaTotals(@Param("tenantId") UUID tenantId, @Param("startDate") LocalDateTime startDate,
+                                 @Param("endDate") LocalDateTime endDate);
+
+    @Query(FIND_INVOICE_TRANSACTIONS_SUMMARY)
+    InvoiceTransactionsSummaryDto findInvoiceTransactionsSummary(@Param("supplierId") UUID supplierId,
+                                                                 @Param("startDate") LocalDateTime startDate,
+                                                                 @Param("endDate") LocalDateTime endDate);
+
+    @Modifying
+    @Transactional
+    @Query(value = RECORD_VALIDATION, nativeQuery = true)
+    int recordValidation(@Param("discountCodeId") UUID discountCodeId, @Param("userId") UUID userId,
+                         @Param("benefitId") UUID benefitId, @Param("amount") Double amount,
+                         @Param("deactivate") boolean deactivate, @Param("createdDate") LocalDateTime createdDate);
+}
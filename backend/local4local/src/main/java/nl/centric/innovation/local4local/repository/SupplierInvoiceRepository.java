@@ -0,0 +1,39 @@
+package nl.centric.innovation.local4local.repository;
+
+import nl.centric.innovation.local4local.entity.SupplierInvoice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SupplierInvoiceRepository extends JpaRepository<SupplierInvoice, UUID> {
+
+    // The batch and a download may render the same invoice at once, the last one rendered is kept
+    String UPSERT_SUPPLIER_INVOICE = """
+                INSERT INTO l4l_global.supplier_invoice AS i
+                    (tenant_id, supplier_id, month, language, transactions_fingerprint, storage_key, rendered_date)
+                VALUES (:tenantId, :supplierId, :month, :language, :fingerprint, :storageKey, :renderedDate)
+                ON CONFLICT (supplier_id, month, language)
+                DO UPDATE SET transactions_fingerprint = EXCLUDED.transactions_fingerprint,
+                              storage_key = EXCLUDED.storage_key,
+                              rendered_date = EXCLUDED.rendered_date
+            """;
+
+    Optional<SupplierInvoice> findBySupplierIdAndMonthAndLanguage(UUID supplierId, LocalDate month, String language);
+
+    @Modifying
+    @Transactional
+    @Query(value = UPSERT_SUPPLIER_INVOICE, nativeQuery = true)
+    int upsertSupplierInvoice(@Param("tenantId") UUID tenantId, @Param("supplierId") UUID supplierId,
+                              @Param("month") LocalDate month, @Param("language") String language,
+                              @Param("fingerprint") String fingerprint, @Param("storageKey") String storageKey,
+                              @Param("renderedDate") LocalDateTime renderedDate);
+}
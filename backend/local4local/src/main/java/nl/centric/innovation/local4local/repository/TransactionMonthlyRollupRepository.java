@@ -0,0 +1,114 @@
+package nl.centric.innovation.local4local.repository;
+
+import nl.centric.innovation.local4local.dto.MonthlyTransactionDto;
+import nl.centric.innovation.local4local.dto.OfferStatisticsDto;
+import nl.centric.innovation.local4local.entity.TransactionMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TransactionMonthlyRollupRepository extends JpaRepository<TransactionMonthlyRollup, UUID> {
+
+    // Matches the unique index of the table, offers without a benefit share the nil uuid
+    String ON_ROLLUP_KEY_CONFLICT = """
+                ON CONFLICT (tenant_id, supplier_id,
+                    COALESCE(benefit_id, CAST('00000000-0000-0000-0000-000000000000' AS uuid)), offer_type_id, month)
+                DO UPDATE SET transaction_count = r.transaction_count + EXCLUDED.transaction_count,
+                              total_amount = r.total_amount + EXCLUDED.total_amount
+            """;
+
+    String INSERT_ROLLUP = """
+                INSERT INTO l4l_global.transaction_monthly_rollup AS r
+                    (tenant_id, supplier_id, benefit_id, offer_type_id, month, transaction_count, total_amount)
+            """;
+
+    // One transaction of the given code, in the month of its creation
+    String ROLLUP_TRANSACTION_SELECT = """
+                SELECT s.tenant_id, o.supplier_id, o.benefit_id, o.offer_type_id,
+                       CAST(date_trunc('month', CAST(:createdDate AS timestamp)) AS date), 1, COALESCE(CAST(:amount AS numeric), 0)
+                FROM l4l_global.discount_code dc
+                JOIN l4l_global.offers o ON o.id = dc.offer_id
+                JOIN l4l_security.suppliers s ON s.id = o.supplier_id
+                WHERE dc.id = :discountCodeId
+            """;
+
+    String LOCK_ROLLUP = "LOCK TABLE l4l_global.transaction_monthly_rollup IN EXCLUSIVE MODE";
+
+    String DELETE_ROLLUP = "DELETE FROM l4l_global.transaction_monthly_rollup";
+
+    String INSERT_ROLLUP_FROM_TRANSACTIONS = INSERT_ROLLUP + """
+                SELECT s.tenant_id, o.supplier_id, o.benefit_id, o.offer_type_id,
+                       CAST(date_trunc('month', ot.created_date) AS date), COUNT(*), COALESCE(SUM(ot.amount), 0)
+                FROM l4l_global.offer_transaction ot
+                JOIN l4l_global.discount_code dc ON dc.id = ot.discount_code_id
+                JOIN l4l_global.offers o ON o.id = dc.offer_id
+                JOIN l4l_security.suppliers s ON s.id = o.supplier_id
+                GROUP BY s.tenant_id, o.supplier_id, o.benefit_id, o.offer_type_id, CAST(date_trunc('month', ot.created_date) AS date)
+            """;
+
+    String SUM_AMOUNT_BY_MONTH_AND_TENANT_ID = """
+                SELECT new nl.centric.innovation.local4local.dto.MonthlyTransactionDto(
+                    MONTH(r.month),
+                    SUM(r.totalAmount)
+                )
+                FROM TransactionMonthlyRollup r
+                WHERE r.tenantId = :tenantId
+                AND r.month >= :fromMonth
+                GROUP BY MONTH(r.month)
+                ORDER BY MONTH(r.month)
+            """;
+
+    String SUM_AMOUNT_BY_MONTH_AND_SUPPLIER_ID = """
+                SELECT new nl.centric.innovation.local4local.dto.MonthlyTransactionDto(
+                    MONTH(r.month),
+                    SUM(r.totalAmount)
+                )
+                FROM TransactionMonthlyRollup r
+                WHERE r.supplierId = :supplierId
+                AND r.month >= :fromMonth
+                GROUP BY MONTH(r.month)
+                ORDER BY MONTH(r.month)
+            """;
+
+    String COUNT_TRANSACTIONS_BY_OFFER_TYPE_AND_SUPPLIER_ID = """
+                SELECT new nl.centric.innovation.local4local.dto.OfferStatisticsDto(
+                    ot.offerTypeId,
+                    ot.offerTypeLabel,
+                    SUM(r.transactionCount)
+                )
+                FROM TransactionMonthlyRollup r, OfferType ot
+                WHERE ot.offerTypeId = r.offerTypeId
+                AND r.supplierId = :supplierId
+                AND r.month >= :fromMonth
+                GROUP BY ot.offerTypeId, ot.offerTypeLabel
+            """;
+
+    @Modifying
+    @Query(value = LOCK_ROLLUP, nativeQuery = true)
+    void lockRollup();
+
+    @Modifying
+    @Query(value = DELETE_ROLLUP, nativeQuery = true)
+    int deleteRollup();
+
+    @Modifying
+    @Query(value = INSERT_ROLLUP_FROM_TRANSACTIONS, nativeQuery = true)
+    int insertRollupFromTransactions();
+
+    @Query(SUM_AMOUNT_BY_MONTH_AND_TENANT_ID)
+    List<MonthlyTransactionDto> sumAmountByMonthAndTenantIdSince(@Param("tenantId") UUID tenantId, @Param("fromMonth") LocalDate fromMonth);
+
+    @Query(SUM_AMOUNT_BY_MONTH_AND_SUPPLIER_ID)
+    List<MonthlyTransactionDto> sumAmountByMonthAndSupplierIdSince(@Param("supplierId") UUID supplierId, @Param("fromMonth") LocalDate fromMonth);
+
+    @Query(COUNT_TRANSACTIONS_BY_OFFER_TYPE_AND_SUPPLIER_ID)
+    List<OfferStatisticsDto> countTransactionsByOfferTypeAndSupplierIdSince(@Param("supplierId") UUID supplierId,
+                                                                           @Param("fromMonth") LocalDate fromMonth);
+}
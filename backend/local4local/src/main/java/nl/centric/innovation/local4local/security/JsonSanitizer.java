@@ -0,0 +1,184 @@
+package nl.centric.innovation.local4local.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Sanitizes the strings of a JSON document while it is read. Tokens are copied from a parser to a generator
+ * a chunk at a time, so the document is never held in memory as a whole. Only strings that may hold markup go
+ * through SanitizerUtil, all other strings are written straight from the parser buffer.
+ */
+public final class JsonSanitizer {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private JsonSanitizer() {
+    }
+
+    /**
+     * Returns the sanitized document as UTF-8, read lazily from the given JSON stream.
+     */
+    public static InputStream sanitize(InputStream json) throws IOException {
+        return new SanitizingInputStream(json);
+    }
+
+    /**
+     * Whether SanitizerUtil would return the string unchanged. Sanitizing only changes markup, entities and
+     * characters the policy strips, and turns blank strings into null, so any other string is written as is.
+     */
+    static boolean isClean(char[] text, int offset, int length) {
+        boolean blank = true;
+
+        for (int i = offset; i < offset + length; i++) {
+            char c = text[i];
+
+            if (c == '<' || c == '&' || isStrippedCharacter(c)) {
+                return false;
+            }
+
+            blank = blank && Character.isWhitespace(c);
+        }
+
+        return !blank;
+    }
+
+    // control characters, surrogates and non-characters may be dropped by the policy
+    private static boolean isStrippedCharacter(char c) {
+        return (c < 0x20 && c != '\t' && c != '\n' && c != '\r')
+                || (c >= 0x7F && c <= 0x9F)
+                || Character.isSurrogate(c)
+                || c >= 0xFFFE;
+    }
+
+    private static String sanitizeText(String text) {
+        return SanitizerUtil.isHtml(text)
+                ? SanitizerUtil.sanitizeWithMoreTags(text)
+                : SanitizerUtil.sanitize(text);
+    }
+
+    private static final class SanitizingInputStream extends InputStream {
+
+        private static final int TOKENS_PER_CHUNK = 256;
+
+        private final JsonParser parser;
+
+        private final JsonGenerator generator;
+
+        private final ChunkBuffer chunk = new ChunkBuffer();
+
+        private int position;
+
+        private boolean finished;
+
+        private SanitizingInputStream(InputStream json) throws IOException {
+            parser = jsonFactory.createParser(json);
+            generator = jsonFactory.createGenerator(chunk);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? chunk.byteAt(position++) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+
+            if (length == 0) {
+                return 0;
+            }
+
+            if (!fill()) {
+                return -1;
+            }
+
+            int count = Math.min(length, chunk.size() - position);
+            chunk.copyTo(position, bytes, offset, count);
+            position += count;
+
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+
+        private boolean fill() throws IOException {
+            while (position == chunk.size()) {
+                if (finished) {
+                    return false;
+                }
+
+                chunk.reset();
+                position = 0;
+                copyTokens();
+            }
+
+            return true;
+        }
+
+        private void copyTokens() throws IOException {
+            for (int i = 0; i < TOKENS_PER_CHUNK; i++) {
+                JsonToken token = parser.nextToken();
+
+                if (Objects.isNull(token)) {
+                    finished = true;
+                    break;
+                }
+
+                copyToken(token);
+            }
+
+            generator.flush();
+        }
+
+        private void copyToken(JsonToken token) throws IOException {
+            switch (token) {
+                case VALUE_STRING -> copyString();
+                // numbers keep their exact text instead of going through a double
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT ->
+                        generator.writeNumber(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                default -> generator.copyCurrentEvent(parser);
+            }
+        }
+
+        private void copyString() throws IOException {
+            char[] text = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+
+            if (isClean(text, offset, length)) {
+                generator.writeString(text, offset, length);
+                return;
+            }
+
+            String sanitized = sanitizeText(parser.getText());
+
+            if (Objects.isNull(sanitized)) {
+                generator.writeNull();
+            } else {
+                generator.writeString(sanitized);
+            }
+        }
+    }
+
+    // reused for every chunk, so the generator output is not copied into a new array each time
+    private static final class ChunkBuffer extends ByteArrayOutputStream {
+
+        private int byteAt(int index) {
+            return buf[index] & 0xFF;
+        }
+
+        private void copyTo(int index, byte[] target, int offset, int length) {
+            System.arraycopy(buf, index, target, offset, length);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package nl.centric.innovation.local4local.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller or one of its endpoints whose JSON request body is passed on without XSS sanitization.
+ * Only meant for bodies without free text, request parameters are still sanitized.
+ */
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SkipXssSanitization {
+}
@@ -1,5 +1,6 @@
 package nl.centric.innovation.local4local.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,6 +8,9 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class WebConfig {
 
+    @Value("${local4local.xss.max-body-size:2097152}")
+    private long maxBodySize;
+
     /**
      * Registers an XSS filter to sanitize incoming requests.
      * This filter will be applied to all URL patterns.
@@ -15,7 +19,7 @@ public class WebConfig {
     public FilterRegistrationBean<XSSFilter> xssFilterRegistrationBean() {
         FilterRegistrationBean<XSSFilter> registrationBean = new FilterRegistrationBean<>();
 
-        registrationBean.setFilter(new XSSFilter());
+        registrationBean.setFilter(new XSSFilter(maxBodySize));
         registrationBean.addUrlPatterns("/*");
 
         return registrationBean;
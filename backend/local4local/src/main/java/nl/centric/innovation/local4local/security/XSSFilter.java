@@ -7,24 +7,38 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 /**
  * A filter to intercept all incoming HTTP requests and apply XSS protection.
+ * Bodies larger than the configured maximum are rejected, JSON bodies are sanitized by {@link XSSRequestBodyAdvice}.
  */
 @WebFilter("/*")
 public class XSSFilter implements Filter {
 
+    private final long maxBodySize;
+
+    public XSSFilter(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
 
-        ServletRequest wrappedRequest = (httpRequest.getContentType() != null
-                && httpRequest.getContentType().toLowerCase().startsWith("multipart/"))
-                ? request
-                : new XSSRequestWrapper(httpRequest);
+        if (httpRequest.getContentType() != null
+                && httpRequest.getContentType().toLowerCase().startsWith("multipart/")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (httpRequest.getContentLengthLong() > maxBodySize) {
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
 
-        chain.doFilter(wrappedRequest, response);
+        chain.doFilter(new XSSRequestWrapper(httpRequest, maxBodySize), response);
     }
 }
@@ -0,0 +1,60 @@
+package nl.centric.innovation.local4local.security;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Sanitizes JSON request bodies against XSS while Jackson reads them, unless the endpoint
+ * or its controller is annotated with {@link SkipXssSanitization}.
+ */
+@ControllerAdvice
+public class XSSRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType)
+                && !methodParameter.hasMethodAnnotation(SkipXssSanitization.class)
+                && !AnnotatedElementUtils.hasAnnotation(methodParameter.getContainingClass(), SkipXssSanitization.class);
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) throws IOException {
+        InputStream body = JsonSanitizer.sanitize(inputMessage.getBody());
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(inputMessage.getHeaders());
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+
+        // the sanitized body is always written as UTF-8, whatever the charset of the original body
+        MediaType contentType = inputMessage.getHeaders().getContentType();
+        if (Objects.nonNull(contentType)) {
+            headers.setContentType(new MediaType(contentType, StandardCharsets.UTF_8));
+        }
+
+        return new HttpInputMessage() {
+            @Override
+            public InputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+}
@@ -1,136 +1,89 @@
 package nl.centric.innovation.local4local.security;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.TextNode;
-
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 /**
  * Wraps HttpServletRequest to sanitize input and prevent XSS attacks.
- * Cleans JSON bodies and request parameters using SanitizerUtil.
+ * Cleans request parameters using SanitizerUtil and limits the size of the body, which is read as a stream
+ * and never buffered here. JSON bodies are cleaned while they are read, see {@link XSSRequestBodyAdvice}.
  */
 public class XSSRequestWrapper extends HttpServletRequestWrapper {
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-    private final byte[] sanitizedBodyBytes;
+    private final long maxBodySize;
 
-    public XSSRequestWrapper(HttpServletRequest request) throws IOException {
+    public XSSRequestWrapper(HttpServletRequest request, long maxBodySize) {
         super(request);
-        this.sanitizedBodyBytes = extractAndSanitizeBody(request);
-    }
-
-    /**
-     * Reads and sanitizes the request body if it's JSON.
-     */
-    private byte[] extractAndSanitizeBody(HttpServletRequest request) throws IOException {
-        String body = readRequestBody();
-        return isJson(request) ? sanitizeJsonBody(body) : body.getBytes();
-    }
-
-    /**
-     * Reads the raw body from the request.
-     */
-    private String readRequestBody() throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(super.getInputStream()))) {
-            return reader.lines().collect(Collectors.joining(System.lineSeparator()));
-        }
-    }
-
-    /**
-     * Checks if the content type is JSON.
-     */
-    private boolean isJson(HttpServletRequest request) {
-        return Optional.ofNullable(request.getContentType())
-                .map(contentType -> contentType.contains("application/json"))
-                .orElse(false);
-    }
-
-    /**
-     * Parses and sanitizes a JSON body.
-     */
-    private byte[] sanitizeJsonBody(String body) throws IOException {
-        JsonNode root = objectMapper.readTree(body);
-        sanitizeNode(root);
-        return objectMapper.writeValueAsBytes(root);
-    }
-
-    /**
-     * Recursively sanitizes all nodes in a JSON tree.
-     */
-    private void sanitizeNode(JsonNode node) {
-        if (node.isObject()) {
-            node.fields().forEachRemaining(field -> field.setValue(sanitize(field.getValue())));
-        } else {
-            StreamSupport.stream(Spliterators.spliteratorUnknownSize(node.elements(), Spliterator.ORDERED), false)
-                    .forEach(this::sanitize);
-        }
-    }
-
-    /**
-     * Sanitizes a JSON node if it contains text.
-     */
-    private JsonNode sanitize(JsonNode node) {
-        if (node.isTextual()) {
-            String textValue = node.textValue();
-
-            return new TextNode(SanitizerUtil.isHtml(textValue)
-                    ? SanitizerUtil.sanitizeWithMoreTags(textValue)
-                    : SanitizerUtil.sanitize(textValue));
-        }
-        sanitizeNode(node);
-        return node;
+        this.maxBodySize = maxBodySize;
     }
 
     /**
-     * Returns sanitized input stream.
+     * Returns the body stream, failing once more than the maximum body size is read.
      */
     @Override
-    public ServletInputStream getInputStream() {
-        ByteArrayInputStream bais = new ByteArrayInputStream(sanitizedBodyBytes);
+    public ServletInputStream getInputStream() throws IOException {
+        ServletInputStream source = super.getInputStream();
         return new ServletInputStream() {
+            private long bytesRead;
+
             @Override
             public boolean isFinished() {
-                return bais.available() == 0;
+                return source.isFinished();
             }
 
             @Override
             public boolean isReady() {
-                return true;
+                return source.isReady();
             }
 
             @Override
             public void setReadListener(ReadListener readListener) {
-                // This method is intentionally left empty as it is not required for this implementation.
+                source.setReadListener(readListener);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int value = source.read();
+                count(value < 0 ? 0 : 1);
+                return value;
             }
 
             @Override
-            public int read() {
-                return bais.read();
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                int count = source.read(bytes, offset, length);
+                count(Math.max(count, 0));
+                return count;
+            }
+
+            private void count(int bytes) throws IOException {
+                bytesRead += bytes;
+                if (bytesRead > maxBodySize) {
+                    throw new IOException("Request body is larger than " + maxBodySize + " bytes");
+                }
             }
         };
     }
 
     /**
-     * Returns a reader for the sanitized input.
+     * Returns a reader for the size limited input.
      */
     @Override
-    public BufferedReader getReader() {
-        return new BufferedReader(new InputStreamReader(getInputStream()));
+    public BufferedReader getReader() throws IOException {
+        Charset charset = Optional.ofNullable(getCharacterEncoding())
+                .map(Charset::forName)
+                .orElse(StandardCharsets.UTF_8);
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
     }
 
     /**
@@ -5,7 +5,6 @@ import nl.centric.innovation.local4local.authentication.JwtUtil;
 import nl.centric.innovation.local4local.dto.AuthResponseDto;
 import nl.centric.innovation.local4local.dto.LoginRequestDTO;
 import nl.centric.innovation.local4local.dto.LoginResponseDto;
-import nl.centric.innovation.local4local.entity.LoginAttempt;
 import nl.centric.innovation.local4local.entity.Role;
 import nl.centric.innovation.local4local.entity.User;
 import nl.centric.innovation.local4local.exceptions.AuthenticationLoginException;
@@ -31,7 +30,6 @@ import org.springframework.stereotype.Service;
 import javax.servlet.http.HttpServletRequest;
 import java.util.Collection;
 import java.util.Map;
-import java.util.Optional;
 
 import static nl.centric.innovation.local4local.util.ClaimsUtils.setClaims;
 
@@ -74,26 +72,24 @@ public class AuthenticationService {
 
         String remoteAddress = SecurityUtils.getClientIP(request);
         boolean isRecaptchaBlank = StringUtils.isBlank(loginRequestDTO.reCaptchaResponse());
-        Optional<LoginAttempt> loginAttempt = loginAttemptService.findByRemoteAddress(remoteAddress);
 
-        if (loginAttempt.isPresent() && loginAttemptService.isBlocked(loginAttempt.get()) && isRecaptchaBlank) {
-            loginAttemptService.countLoginAttempts(loginAttempt, remoteAddress, false);
+        if (isRecaptchaBlank && loginAttemptService.isBlocked(remoteAddress, loginRequestDTO.username())) {
+            loginAttemptService.loginFailed(remoteAddress, loginRequestDTO.username());
             throw new CaptchaException(errorCaptchaShow);
         }
 
         if (isRecaptchaBlank || captchaService.isResponseValid(loginRequestDTO.reCaptchaResponse(), remoteAddress)) {
-            return performAuthentication(loginRequestDTO, remoteAddress, loginAttempt);
+            return performAuthentication(loginRequestDTO, remoteAddress);
         }
 
         throw new CaptchaException(errorCaptchaNotCompleted);
 
     }
 
-    private AuthResponseDto performAuthentication(LoginRequestDTO loginRequestDTO, String remoteAddress,
-                                                  Optional<LoginAttempt> loginAttempt)
+    private AuthResponseDto performAuthentication(LoginRequestDTO loginRequestDTO, String remoteAddress)
             throws CaptchaException, AuthenticationLoginException, InvalidRoleException {
 
-        authenticate(loginAttempt, loginRequestDTO, remoteAddress);
+        authenticate(loginRequestDTO, remoteAddress);
 
 
         final User userDetails = (User) userDetailsService.loadUserByUsername(loginRequestDTO.username());
@@ -116,7 +112,7 @@ public class AuthenticationService {
             throw new AuthenticationLoginException(userDeactivatedErrorMessage);
         }
 
-        loginAttemptService.countLoginAttempts(loginAttempt, remoteAddress, true);
+        loginAttemptService.loginSucceeded(remoteAddress, loginRequestDTO.username());
 
         Map<String, Object> extraClaims = setClaims(userDetails);
 
@@ -142,8 +138,8 @@ public class AuthenticationService {
 
     }
 
-    private void authenticate(Optional<LoginAttempt> loginAttempt, LoginRequestDTO loginRequestDTO,
-                              String remoteAddress) throws CaptchaException, AuthenticationLoginException {
+    private void authenticate(LoginRequestDTO loginRequestDTO, String remoteAddress)
+            throws CaptchaException, AuthenticationLoginException {
         var username = loginRequestDTO.username();
         var password = loginRequestDTO.password();
 
@@ -152,13 +148,12 @@ public class AuthenticationService {
         } catch (DisabledException e) {
             throw new AuthenticationLoginException("USER_DISABLED");
         } catch (BadCredentialsException e) {
-            this.manageBadCredentials(loginRequestDTO, remoteAddress, loginAttempt);
+            this.manageBadCredentials(loginRequestDTO, remoteAddress);
         }
     }
 
-    private void manageBadCredentials(LoginRequestDTO loginRequestDTO, String remoteAddress, Optional<LoginAttempt> loginAttempt) throws CaptchaException, AuthenticationLoginException {
-        LoginAttempt loginAttemptResult = loginAttemptService.countLoginAttempts(loginAttempt, remoteAddress, false);
-        if (loginAttemptService.isBlocked(loginAttemptResult)) {
+    private void manageBadCredentials(LoginRequestDTO loginRequestDTO, String remoteAddress) throws CaptchaException, AuthenticationLoginException {
+        if (loginAttemptService.loginFailed(remoteAddress, loginRequestDTO.username())) {
             if (loginRequestDTO.reCaptchaResponse() == null || loginRequestDTO.reCaptchaResponse().isEmpty()) {
                 throw new CaptchaException(errorCaptchaShow);
             }
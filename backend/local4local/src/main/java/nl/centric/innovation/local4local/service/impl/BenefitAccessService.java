@@ -0,0 +1,63 @@
+package nl.centric.innovation.local4local.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.RequiredArgsConstructor;
+import nl.centric.innovation.local4local.repository.BenefitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+import static nl.centric.innovation.local4local.util.TransactionUtils.afterCommit;
+
+/**
+ * Resolves the benefits a citizen can see offers for, through the citizen group of their passholder.
+ * The resolved sets are cached per user and evicted when a benefit or passholder changes, the
+ * expiry only bounds staleness between nodes.
+ */
+@Service
+@RequiredArgsConstructor
+public class BenefitAccessService {
+
+    private final BenefitRepository benefitRepository;
+
+    @Value("${local4local.benefits.access-cache.expire-minutes:10}")
+    private long expireMinutes;
+
+    @Value("${local4local.benefits.access-cache.max-size:50000}")
+    private long maxSize;
+
+    private Cache<UUID, Set<UUID>> accessibleBenefitIds;
+
+    @PostConstruct
+    public void init() {
+        accessibleBenefitIds = CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(expireMinutes))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public Set<UUID> getAccessibleBenefitIds(UUID userId) {
+        Set<UUID> benefitIds = accessibleBenefitIds.getIfPresent(userId);
+
+        if (benefitIds == null) {
+            benefitIds = Set.copyOf(benefitRepository.findAccessibleBenefitIdsForUser(userId));
+            accessibleBenefitIds.put(userId, benefitIds);
+        }
+
+        return benefitIds;
+    }
+
+    public void evict(UUID userId) {
+        afterCommit(() -> accessibleBenefitIds.invalidate(userId));
+    }
+
+    public void evictAll(Collection<UUID> userIds) {
+        afterCommit(() -> accessibleBenefitIds.invalidateAll(userIds));
+    }
+}
@@ -54,6 +54,8 @@ public class BenefitService {
 
     private final CitizenBenefitService citizenBenefitService;
 
+    private final BenefitAccessService benefitAccessService;
+
     @Value("${error.general.availability}")
     private String errorGeneralAvailability;
 
@@ -83,6 +85,7 @@ public class BenefitService {
                 .map(passholder -> passholder.getUser().getId())
                 .toList();
         citizenBenefitService.createCitizenBenefitForBenefitAndUserIds(createdBenefit, userToCreateBenefitFor);
+        benefitAccessService.evictAll(userToCreateBenefitFor);
         return BenefitResponseDto.entityToBenefitResponseDto(createdBenefit);
     }
 
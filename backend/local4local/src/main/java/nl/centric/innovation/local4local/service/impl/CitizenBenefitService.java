@@ -8,7 +8,6 @@ import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException
 import nl.centric.innovation.local4local.repository.CitizenBenefitRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Set;
@@ -67,10 +66,4 @@ public class CitizenBenefitService {
     public void saveCitizenBenefit(CitizenBenefit citizenBenefit) {
         this.citizenBenefitRepository.save(citizenBenefit);
     }
-
-    @Transactional
-    public void updateAmount(UUID userId, UUID benefitId, Double usedAmount) throws DtoValidateNotFoundException {
-        CitizenBenefit benefitToUpdate = getCitizenBenefitByUserIdAndBenefit(userId, benefitId);
-        benefitToUpdate.setAmount(benefitToUpdate.getAmount() - usedAmount);
-    }
 }
@@ -8,7 +8,7 @@ import nl.centric.innovation.local4local.dto.OfferStatisticsDto;
 import nl.centric.innovation.local4local.enums.SupplierStatusEnum;
 import nl.centric.innovation.local4local.enums.TimeIntervalPeriod;
 import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException;
-import nl.centric.innovation.local4local.repository.DiscountCodeRepository;
+import nl.centric.innovation.local4local.repository.TransactionMonthlyRollupRepository;
 import nl.centric.innovation.local4local.util.DateUtils;
 import org.springframework.stereotype.Service;
 
@@ -26,7 +26,7 @@ public class DashboardService {
     private final PrincipalService principalService;
     private final OfferTransactionService offerTransactionService;
 
-    private final DiscountCodeRepository discountCodeRepository;
+    private final TransactionMonthlyRollupRepository transactionMonthlyRollupRepository;
 
     public DashboardCountDto getDashboardCounts(Set<SupplierStatusEnum> statuses) throws DtoValidateNotFoundException {
         return DashboardCountDto.builder()
@@ -42,8 +42,8 @@ public class DashboardService {
 
     public List<OfferStatisticsDto> getUsedOfferStatistics(TimeIntervalPeriod intervalPeriod) {
         LocalDateTime createdDate = DateUtils.calculateCreatedDate(intervalPeriod);
-        return discountCodeRepository.findCitizenCountByOfferTypeAndTenantId(
-                principalService.getSupplierId(), createdDate
+        return transactionMonthlyRollupRepository.countTransactionsByOfferTypeAndSupplierIdSince(
+                principalService.getSupplierId(), createdDate.toLocalDate()
         );
     }
 
@@ -0,0 +1,200 @@
+package nl.centric.innovation.local4local.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.centric.innovation.local4local.repository.DiscountCodeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Allocates discount codes that never collide. Every code is the image of a database sequence value
+ * under a keyed permutation of the base 36 code space, so distinct sequence values always give distinct
+ * codes while consecutive values give unrelated looking codes. Once the space of the configured length
+ * is used up, the following sequence values are mapped into the space of one character more.
+ * Sequence values are reserved in blocks, so most allocations do not reach the database.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DiscountCodeAllocator {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private static final int MAX_CODE_LENGTH = 12;
+
+    private static final int FEISTEL_ROUNDS = 4;
+
+    private static final double SPACE_USAGE_WARNING = 0.8;
+
+    private final DiscountCodeRepository discountCodeRepository;
+
+    // Shorter codes would overlap with the randomly generated codes issued before this allocator.
+    @Value("${local4local.discount-codes.min-length:6}")
+    private int minCodeLength;
+
+    @Value("${local4local.discount-codes.block-size:100}")
+    private int blockSize;
+
+    // Changing the key after codes were issued breaks the collision guarantee, so it is never shared with
+    // a key that is rotated, such as the JWT secret.
+    @Value("${local4local.discount-codes.permutation-key}")
+    private String permutationKey;
+
+    private long[] roundKeys;
+
+    private final Deque<Long> pool = new ArrayDeque<>();
+
+    private long lastSequenceValue = -1;
+
+    private boolean spaceUsageWarned;
+
+    @PostConstruct
+    public void init() {
+        if (permutationKey.isBlank()) {
+            throw new IllegalStateException("local4local.discount-codes.permutation-key must not be blank");
+        }
+
+        roundKeys = deriveRoundKeys(permutationKey);
+    }
+
+    public synchronized String allocate() {
+        if (pool.isEmpty()) {
+            refill();
+        }
+
+        lastSequenceValue = pool.poll();
+        warnWhenSpaceRunsOut();
+
+        return encode(lastSequenceValue);
+    }
+
+    public synchronized int getPooledCodes() {
+        return pool.size();
+    }
+
+    /**
+     * Fraction of the code space of the current code length that has been allocated, across all nodes
+     * up to the last sequence value this node reserved.
+     */
+    public synchronized double getSpaceUsage() {
+        if (lastSequenceValue < 0) {
+            return 0;
+        }
+
+        long offset = 0;
+        int length = minCodeLength;
+
+        while (lastSequenceValue - offset >= space(length)) {
+            offset += space(length);
+            length++;
+        }
+
+        return (double) (lastSequenceValue - offset + 1) / space(length);
+    }
+
+    String encode(long sequenceValue) {
+        long offset = 0;
+        int length = minCodeLength;
+
+        while (sequenceValue - offset >= space(length)) {
+            offset += space(length);
+            length++;
+
+            if (length > MAX_CODE_LENGTH) {
+                throw new IllegalStateException("Discount code space is exhausted");
+            }
+        }
+
+        long index = permute(sequenceValue - offset, space(length));
+        char[] code = new char[length];
+
+        for (int i = length - 1; i >= 0; i--) {
+            code[i] = ALPHABET[(int) (index % ALPHABET.length)];
+            index /= ALPHABET.length;
+        }
+
+        return new String(code);
+    }
+
+    private void refill() {
+        discountCodeRepository.reserveCodeSequenceValues(blockSize)
+                .forEach(value -> pool.add(value.longValue()));
+        log.debug("Reserved {} discount code sequence values", pool.size());
+    }
+
+    private void warnWhenSpaceRunsOut() {
+        if (!spaceUsageWarned && getSpaceUsage() >= SPACE_USAGE_WARNING) {
+            spaceUsageWarned = true;
+            log.warn("Discount codes have used {}% of the code space, longer codes follow once it is full",
+                    Math.round(SPACE_USAGE_WARNING * 100));
+        }
+    }
+
+    /**
+     * Feistel network over the smallest even bit width covering the domain, with cycle walking
+     * to stay inside the domain. Both are bijections, so the result is a permutation of [0, domain).
+     */
+    private long permute(long value, long domain) {
+        int bits = 64 - Long.numberOfLeadingZeros(domain - 1);
+        bits += bits % 2;
+        int halfBits = bits / 2;
+        long halfMask = (1L << halfBits) - 1;
+
+        long result = value;
+        do {
+            long left = result >>> halfBits;
+            long right = result & halfMask;
+
+            for (int round = 0; round < FEISTEL_ROUNDS; round++) {
+                long next = left ^ (mix(right ^ roundKeys[round] ^ domain) & halfMask);
+                left = right;
+                right = next;
+            }
+
+            result = (left << halfBits) | right;
+        } while (result >= domain);
+
+        return result;
+    }
+
+    private static long space(int length) {
+        long space = 1;
+        for (int i = 0; i < length; i++) {
+            space *= ALPHABET.length;
+        }
+
+        return space;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long[] deriveRoundKeys(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.wrap(digest);
+            long[] keys = new long[FEISTEL_ROUNDS];
+
+            for (int i = 0; i < FEISTEL_ROUNDS; i++) {
+                keys[i] = buffer.getLong();
+            }
+
+            return keys;
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
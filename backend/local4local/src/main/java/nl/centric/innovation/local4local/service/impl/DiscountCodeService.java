@@ -1,35 +1,49 @@
 package nl.centric.innovation.local4local.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import nl.centric.innovation.local4local.dto.CodeValidationBatchItemDto;
+import nl.centric.innovation.local4local.dto.CodeValidationBatchResponseDto;
+import nl.centric.innovation.local4local.dto.CodeValidationProjection;
 import nl.centric.innovation.local4local.dto.CodeValidationResponseDto;
 import nl.centric.innovation.local4local.dto.DiscountCodeViewDto;
+import nl.centric.innovation.local4local.dto.DiscountCodeWalletPageDto;
+import nl.centric.innovation.local4local.dto.DiscountCodeWalletProjection;
 import nl.centric.innovation.local4local.dto.CodeValidationRequestDto;
-import nl.centric.innovation.local4local.entity.Benefit;
-import nl.centric.innovation.local4local.entity.CitizenBenefit;
 import nl.centric.innovation.local4local.entity.DiscountCode;
 import nl.centric.innovation.local4local.entity.Offer;
-import nl.centric.innovation.local4local.entity.OfferTransaction;
 import nl.centric.innovation.local4local.entity.Restriction;
 import nl.centric.innovation.local4local.enums.GenericStatusEnum;
 import nl.centric.innovation.local4local.exceptions.DtoValidateException;
 import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException;
-import nl.centric.innovation.local4local.repository.BenefitRepository;
 import nl.centric.innovation.local4local.repository.DiscountCodeRepository;
 import nl.centric.innovation.local4local.repository.OfferRepository;
 import nl.centric.innovation.local4local.util.DateUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Time;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static nl.centric.innovation.local4local.util.Constants.ZERO_AMOUNT;
 
@@ -41,18 +55,21 @@ public class DiscountCodeService {
 
     private final OfferRepository offerRepository;
 
-    private final BenefitRepository benefitRepository;
-
     private final PrincipalService principalService;
 
-    private final CitizenBenefitService citizenBenefitService;
-
     private final OfferTransactionService offerTransactionService;
+
+    private final DiscountCodeAllocator discountCodeAllocator;
     private static final int PERCENTAGE_OFFER_TYPE = 1;
 
+    private static final String CURSOR_SEPARATOR = "_";
+
     @Value("${error.entity.notfound}")
     private String errorEntityNotFound;
 
+    @Value("${error.general.entityValidate}")
+    private String errorEntityValidate;
+
     @Value("${error.offer.notActive}")
     private String errorOfferNotActive;
 
@@ -74,13 +91,16 @@ public class DiscountCodeService {
     @Value("${error.benefit.amountExceeded}")
     private String amountExceededError;
 
+    @Value("${local4local.code-validation.offline-window-hours:168}")
+    private long offlineWindowHours;
+
 
     public void save(UUID offerId, UUID userId) {
         Optional<DiscountCode> discountCode = discountCodeRepository.findByUserIdAndOfferId(userId, offerId);
         Optional<Offer> offer = offerRepository.findById(offerId);
 
         if (discountCode.isEmpty()) {
-            DiscountCode discountCodeToSave = DiscountCode.of(offer.get(), userId, generateCode(), true);
+            DiscountCode discountCodeToSave = DiscountCode.of(offer.get(), userId, discountCodeAllocator.allocate(), true);
             discountCodeRepository.save(discountCodeToSave);
         }
 
@@ -99,76 +119,182 @@ public class DiscountCodeService {
 
     }
 
-    @Transactional
     public Map<String, List<DiscountCodeViewDto>> getDiscountCodes() {
-        List<DiscountCodeViewDto> discountCodes = discountCodeRepository
-                .findByUserIdOrderByOfferExpirationDateAndIsActive(principalService.getUser().getId())
+        Map<Boolean, List<DiscountCodeViewDto>> discountCodes = discountCodeRepository
+                .findWalletCodesByUserId(principalService.getUser().getId())
                 .stream()
                 .map(DiscountCodeViewDto::of)
-                .toList();
+                .collect(Collectors.partitioningBy(DiscountCodeViewDto::isActive));
 
-        List<DiscountCodeViewDto> activeDiscountCodes = discountCodes.stream()
-                .filter(DiscountCodeViewDto::isActive)
-                .toList();
+        return Map.of("active", discountCodes.get(true), "inactive", discountCodes.get(false));
+    }
 
-        List<DiscountCodeViewDto> inactiveDiscountCodes = discountCodes.stream()
-                .filter(discountCode -> !discountCode.isActive())
-                .toList();
+    /**
+     * Returns one page of the active or inactive wallet section, ordered by expiration date. The cursor of
+     * the next page points after the last code of this page, so pages stay stable while codes are added.
+     */
+    public DiscountCodeWalletPageDto getDiscountCodesPage(boolean isActive, String cursor, int size) throws DtoValidateException {
+        UUID userId = principalService.getUser().getId();
+        Pageable pageable = PageRequest.of(0, size + 1);
+
+        List<DiscountCodeWalletProjection> walletCodes;
+
+        if (Objects.isNull(cursor)) {
+            walletCodes = discountCodeRepository.findWalletPageByUserId(userId, isActive, GenericStatusEnum.ACTIVE, pageable);
+        } else {
+            WalletCursor walletCursor = decodeWalletCursor(cursor);
+            walletCodes = discountCodeRepository.findWalletPageByUserIdAfterCursor(userId, isActive, GenericStatusEnum.ACTIVE,
+                    walletCursor.expirationDate(), walletCursor.id(), pageable);
+        }
 
-        return Map.of("active", activeDiscountCodes, "inactive", inactiveDiscountCodes);
+        boolean hasNextPage = walletCodes.size() > size;
+        List<DiscountCodeWalletProjection> page = hasNextPage ? walletCodes.subList(0, size) : walletCodes;
+        String nextCursor = hasNextPage ? encodeWalletCursor(page.get(page.size() - 1)) : null;
+
+        return new DiscountCodeWalletPageDto(page.stream().map(DiscountCodeViewDto::of).toList(), nextCursor);
     }
 
     /**
-     * Numbers 0–9 are converted to digits, and 10–35 are mapped to letters A–Z.
+     * Version of the wallet of the current user, used as ETag. It changes whenever a field shown in the wallet changes.
      */
-    private String generateCode() {
-        return new Random().ints(5, 0, 36)
-                .mapToObj(i -> i < 10 ? String.valueOf(i) : String.valueOf((char) ('A' + i - 10)))
-                .reduce("", String::concat);
+    public String getWalletVersion() {
+        return discountCodeRepository.findWalletVersionByUserId(principalService.getUser().getId());
     }
 
+    /**
+     * Validates a scanned code with one read, which loads the code, offer, restriction, balance and last use
+     * together, and at most one write, which debits the balance and records the transaction. The use is
+     * recorded and checked against the frequency restriction at the server time, the time of the device
+     * is only used for the time slots.
+     */
+    @Transactional(rollbackFor = DtoValidateException.class)
     public CodeValidationResponseDto validateAndProcessDiscountCode(CodeValidationRequestDto codeValidationDto) throws DtoValidateException {
-        boolean isCustomAmount = codeValidationDto.amount() != null;
-        double adjustedAmount = isCustomAmount
-                ? calculateDiscountedAmount(codeValidationDto.amount(), validateDiscountCode(codeValidationDto.code()))
-                : ZERO_AMOUNT;
+        CodeValidationProjection codeValidation = discountCodeRepository
+                .findCodeValidationByCodeAndSupplierId(normalizeCode(codeValidationDto.code()), supplierId())
+                .orElseThrow(() -> new DtoValidateNotFoundException(notFoundOrInactive));
+
+        DiscountCode discountCode = codeValidation.getDiscountCode();
 
-        return validateAndProcessDiscountCodeCommon(
-                codeValidationDto.code(),
-                DateUtils.formatToLocalDateTime(codeValidationDto.currentTime()),
-                adjustedAmount,
-                isCustomAmount
-        );
+        return processCodeValidation(discountCode, codeValidation.getBalance(), discountCode.getLastUsedAt(),
+                codeValidationDto, DateUtils.formatToLocalDateTime(codeValidationDto.currentTime()), LocalDateTime.now()).response();
     }
 
+    /**
+     * Validates the codes a cashier device queued while offline, in one transaction. The codes, balances and
+     * last uses are loaded with one query and the scans are replayed in scan order, so every scan sees the
+     * balance and last use left by the earlier scans of the batch. A rejected scan does not stop the others.
+     * A scan is used at its scan time, bounded by the server time and the offline window before it.
+     */
     @Transactional
-    public void deactivateCodeAndSaveTransaction(DiscountCode discountCode, LocalDateTime currentTime, Double amount, CitizenBenefit citizenBenefit) throws DtoValidateException {
-        if (!isOfferEligible(discountCode, currentTime, amount, true)) {
-            deactivateDiscountCode(discountCode);
+    public CodeValidationBatchResponseDto validateAndProcessDiscountCodes(List<CodeValidationRequestDto> validations) {
+        Set<String> codes = validations.stream()
+                .map(validation -> normalizeCode(validation.code()))
+                .collect(Collectors.toSet());
+
+        Map<String, CodeValidationProjection> codeValidations = discountCodeRepository
+                .findCodeValidationsByCodesAndSupplierId(codes, supplierId())
+                .stream()
+                .collect(Collectors.toMap(codeValidation -> codeValidation.getDiscountCode().getCode(), Function.identity()));
+
+        Map<String, Double> balances = new HashMap<>();
+        Map<String, LocalDateTime> lastUses = new HashMap<>();
+        Set<String> deactivatedCodes = new HashSet<>();
+
+        codeValidations.forEach((code, codeValidation) -> {
+            balances.put(balanceKey(codeValidation.getDiscountCode()), codeValidation.getBalance());
+            lastUses.put(code, codeValidation.getDiscountCode().getLastUsedAt());
+        });
+
+        CodeValidationBatchItemDto[] results = new CodeValidationBatchItemDto[validations.size()];
+        LocalDateTime[] scanTimes = new LocalDateTime[validations.size()];
+        LocalDateTime[] usageTimes = new LocalDateTime[validations.size()];
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int index = 0; index < validations.size(); index++) {
+            try {
+                scanTimes[index] = DateUtils.formatToLocalDateTime(validations.get(index).currentTime());
+                usageTimes[index] = offlineUsageTime(scanTimes[index], now);
+            } catch (DateTimeParseException exception) {
+                results[index] = CodeValidationBatchItemDto.rejected(validations.get(index).code(), errorEntityValidate);
+            }
+        }
+
+        List<Integer> scanOrder = IntStream.range(0, validations.size())
+                .filter(index -> Objects.nonNull(scanTimes[index]))
+                .boxed()
+                .sorted(Comparator.comparing(index -> scanTimes[index]))
+                .toList();
+
+        for (int index : scanOrder) {
+            CodeValidationRequestDto validation = validations.get(index);
+            String code = normalizeCode(validation.code());
+            CodeValidationProjection codeValidation = codeValidations.get(code);
+
+            try {
+                if (Objects.isNull(codeValidation) || deactivatedCodes.contains(code)) {
+                    throw new DtoValidateNotFoundException(notFoundOrInactive);
+                }
+
+                String balanceKey = balanceKey(codeValidation.getDiscountCode());
+                CodeValidationOutcome outcome = processCodeValidation(codeValidation.getDiscountCode(), balances.get(balanceKey),
+                        lastUses.get(code), validation, scanTimes[index], usageTimes[index]);
+
+                if (outcome.isRecorded()) {
+                    balances.computeIfPresent(balanceKey, (key, balance) -> balance - outcome.transactionAmount());
+                    lastUses.merge(code, usageTimes[index], (lastUse, usageTime) -> usageTime.isAfter(lastUse) ? usageTime : lastUse);
+                }
+
+                if (outcome.isCodeDeactivated()) {
+                    deactivatedCodes.add(code);
+                }
+
+                results[index] = CodeValidationBatchItemDto.validated(validation.code(), outcome.response());
+            } catch (DtoValidateException exception) {
+                results[index] = CodeValidationBatchItemDto.rejected(validation.code(), exception.getMessage());
+            }
         }
-        Double transactionAmount = amount != ZERO_AMOUNT ? amount : discountCode.getOffer().getAmount();
-        offerTransactionService.saveTransaction(discountCode, transactionAmount, currentTime);
-        citizenBenefitService.updateAmount(citizenBenefit.getUserId(), citizenBenefit.getBenefit().getId(), transactionAmount);
+
+        return new CodeValidationBatchResponseDto(Arrays.asList(results));
     }
 
-    private CodeValidationResponseDto validateAndProcessDiscountCodeCommon(String code, LocalDateTime currentTime, double adjustedAmount, boolean isCustomAmount)
-            throws DtoValidateException {
-        DiscountCode discountCode = validateDiscountCode(code);
+    private CodeValidationOutcome processCodeValidation(DiscountCode discountCode, Double balance, LocalDateTime lastUsedAt,
+                                                        CodeValidationRequestDto codeValidationDto, LocalDateTime currentTime,
+                                                        LocalDateTime usageTime) throws DtoValidateException {
+        validateOfferStatus(discountCode.getOffer());
+
+        boolean isCustomAmount = codeValidationDto.amount() != null;
+        double adjustedAmount = isCustomAmount
+                ? calculateDiscountedAmount(codeValidationDto.amount(), discountCode)
+                : ZERO_AMOUNT;
 
-        Benefit benefit = benefitRepository.findById(discountCode.getOffer().getBenefit().getId())
-                .orElseThrow(() -> new DtoValidateException(errorEntityNotFound));
-        CitizenBenefit citizenBenefit = citizenBenefitService.getCitizenBenefitByUserIdAndBenefit(discountCode.getUserId(), discountCode.getOffer().getBenefit().getId());
+        if (Objects.isNull(balance)) {
+            throw new DtoValidateNotFoundException(errorEntityNotFound);
+        }
 
-        if (adjustedAmount > citizenBenefit.getAmount()) {
+        if (adjustedAmount > balance) {
             throw new DtoValidateException(amountExceededError);
         }
 
-        if (isSpecialOfferType(discountCode) && !isCustomAmount && isOfferEligible(discountCode, currentTime, adjustedAmount, false)) {
-            return CodeValidationResponseDto.toDtoWithOfferDetails(discountCode, currentTime.toLocalTime());
+        if (isSpecialOfferType(discountCode) && !isCustomAmount
+                && isOfferEligible(discountCode, lastUsedAt, currentTime, usageTime, adjustedAmount, false)) {
+            return new CodeValidationOutcome(CodeValidationResponseDto.toDtoWithOfferDetails(discountCode, currentTime.toLocalTime()),
+                    ZERO_AMOUNT, false, false);
+        }
+
+        boolean isEligible = isOfferEligible(discountCode, lastUsedAt, currentTime, usageTime, adjustedAmount, true);
+        Double transactionAmount = adjustedAmount != ZERO_AMOUNT ? adjustedAmount : discountCode.getOffer().getAmount();
+
+        // the write is skipped entirely when a concurrent validation spent the balance or used up the code
+        boolean isRecorded = offerTransactionService.recordValidation(discountCode,
+                discountCode.getOffer().getBenefit().getId(), transactionAmount, !isEligible, usageTime);
+
+        if (!isRecorded) {
+            throw new DtoValidateException(discountCodeRepository.existsByIdAndIsActiveTrue(discountCode.getId())
+                    ? amountExceededError : alreadyUsed);
         }
 
-        deactivateCodeAndSaveTransaction(discountCode, currentTime, adjustedAmount, citizenBenefit);
-        return CodeValidationResponseDto.toDto(discountCode, currentTime.toLocalTime());
+        return new CodeValidationOutcome(CodeValidationResponseDto.toDto(discountCode, currentTime.toLocalTime()),
+                transactionAmount, true, !isEligible);
     }
 
     private double calculateDiscountedAmount(Double originalAmount, DiscountCode discountCode) {
@@ -188,16 +314,32 @@ public class DiscountCodeService {
         return Set.of(1, 2).contains(discountCode.getOffer().getOfferType().getOfferTypeId());
     }
 
-    private DiscountCode validateDiscountCode(String code) throws DtoValidateException {
-        DiscountCode discountCode = discountCodeRepository.findByCodeIgnoreCaseAndIsActiveTrueAndOfferSupplierId(code, supplierId())
-                .orElseThrow(() -> new DtoValidateNotFoundException(notFoundOrInactive));
+    private static String encodeWalletCursor(DiscountCodeWalletProjection walletCode) {
+        String cursor = walletCode.getExpirationDate() + CURSOR_SEPARATOR + walletCode.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
 
-        validateOfferStatus(discountCode.getOffer());
+    private WalletCursor decodeWalletCursor(String cursor) throws DtoValidateException {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(CURSOR_SEPARATOR);
+            return new WalletCursor(LocalDate.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException exception) {
+            throw new DtoValidateException(errorEntityValidate);
+        }
+    }
 
-        return discountCode;
+    // codes are stored upper case, so the lookup can use the unique index on the code column
+    private static String normalizeCode(String code) {
+        return code.toUpperCase(Locale.ROOT);
     }
 
-    private boolean isOfferEligible(DiscountCode discountCode, LocalDateTime currentTime, Double amount, boolean checkForExistingRestrictions) throws DtoValidateException {
+    private static String balanceKey(DiscountCode discountCode) {
+        return discountCode.getUserId() + ":" + discountCode.getOffer().getBenefit().getId();
+    }
+
+    private boolean isOfferEligible(DiscountCode discountCode, LocalDateTime lastUsedAt, LocalDateTime currentTime,
+                                    LocalDateTime usageTime, Double amount, boolean checkForExistingRestrictions)
+            throws DtoValidateException {
 
         Offer offer = discountCode.getOffer();
         Restriction restriction = offer.getRestriction();
@@ -210,7 +352,7 @@ public class DiscountCodeService {
             return false;
         }
 
-        if (hasFrequencyViolation(discountCode)) {
+        if (hasFrequencyViolation(restriction, lastUsedAt, usageTime)) {
             throw new DtoValidateException(alreadyUsed);
         }
 
@@ -233,29 +375,23 @@ public class DiscountCodeService {
         }
     }
 
-    private void deactivateDiscountCode(DiscountCode discountCode) {
-        discountCode.setIsActive(false);
-        discountCodeRepository.save(discountCode);
-    }
-
-    private boolean hasFrequencyViolation(DiscountCode discountCode) {
-        Offer offer = discountCode.getOffer();
-        Restriction restriction = offer.getRestriction();
-
+    private boolean hasFrequencyViolation(Restriction restriction, LocalDateTime lastUsedAt, LocalDateTime usageTime) {
         if (Objects.isNull(restriction) || Objects.isNull(restriction.getFrequencyOfUse())) {
             return false;
         }
 
-        Optional<OfferTransaction> lastTransaction = offerTransactionService
-                .getLastOfferValidationForCitizen(offer.getId(), discountCode.getUserId());
+        return restriction.isFrequencyViolated(lastUsedAt, usageTime);
+    }
 
-        if (lastTransaction.isEmpty()) {
-            return false;
-        }
+    // a device can neither move a use past the server time nor further back than it can have been offline
+    private LocalDateTime offlineUsageTime(LocalDateTime scanTime, LocalDateTime now) {
+        LocalDateTime windowStart = now.minusHours(offlineWindowHours);
 
-        OfferTransaction lastOfferTransaction = lastTransaction.get();
+        if (scanTime.isAfter(now)) {
+            return now;
+        }
 
-        return restriction.isFrequencyViolated(lastOfferTransaction.getCreatedDate());
+        return scanTime.isBefore(windowStart) ? windowStart : scanTime;
     }
 
     private boolean hasPriceViolation(Restriction restriction, Double amount, boolean checkForExistingRestrictions) {
@@ -272,4 +408,10 @@ public class DiscountCodeService {
         return principalService.getSupplierId();
     }
 
+    private record WalletCursor(LocalDate expirationDate, UUID id) {
+    }
+
+    private record CodeValidationOutcome(CodeValidationResponseDto response, double transactionAmount,
+                                         boolean isRecorded, boolean isCodeDeactivated) {
+    }
 }
@@ -0,0 +1,59 @@
+package nl.centric.innovation.local4local.service.impl;
+
+import nl.centric.innovation.local4local.service.interfaces.DocumentStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Stores documents on the local filesystem, standing in for an object store. A document is written to a temporary
+ * file next to its target and then moved in place, so readers never see a partially written document.
+ */
+@Service
+public class FileSystemDocumentStoreImpl implements DocumentStore {
+
+    private final Path root;
+
+    public FileSystemDocumentStoreImpl(@Value("${local4local.documents.store-path}") String storePath) {
+        this.root = Path.of(storePath).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, byte[] content) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, content);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> get(String key) throws IOException {
+        try {
+            return Optional.of(Files.readAllBytes(resolve(key)));
+        } catch (NoSuchFileException exception) {
+            return Optional.empty();
+        }
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Document key points outside of the store: " + key);
+        }
+
+        return path;
+    }
+}
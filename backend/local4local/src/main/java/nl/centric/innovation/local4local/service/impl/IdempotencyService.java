@@ -0,0 +1,245 @@
+package nl.centric.innovation.local4local.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.centric.innovation.local4local.exceptions.DtoValidateAlreadyExistsException;
+import nl.centric.innovation.local4local.exceptions.DtoValidateException;
+import nl.centric.innovation.local4local.repository.IdempotencyKeyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Replays the stored response of a request that is retried with the same Idempotency-Key header, so a retry
+ * never repeats the work of the original request. Responses are kept in a bounded in-memory store and,
+ * when enabled, in the database so a retry reaching another node is replayed as well. Only successful
+ * responses are stored, a failed request wrote nothing and is simply executed again. A key reused for a request
+ * with another body is rejected instead of replaying the response of the first one.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@PropertySource({"classpath:errorcodes.properties"})
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    // the same request always serializes to the same bytes, whatever the order of its fields
+    private static final ObjectMapper canonicalMapper = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final PrincipalService principalService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${local4local.idempotency.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${local4local.idempotency.max-size:100000}")
+    private long maxSize;
+
+    @Value("${local4local.idempotency.database-store.enabled:false}")
+    private boolean databaseStoreEnabled;
+
+    @Value("${error.idempotency.keyReused}")
+    private String errorKeyReused;
+
+    private Cache<String, StoredResponse> responses;
+
+    // retries of the same key on this node wait for the original request instead of running next to it
+    private final Striped<Lock> keyLocks = Striped.lock(LOCK_STRIPES);
+
+    @FunctionalInterface
+    public interface IdempotentAction<T> {
+        T execute() throws DtoValidateException;
+    }
+
+    @PostConstruct
+    public void init() {
+        responses = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Runs the action once per key, scope and user. Without a key the action always runs. The request is
+     * fingerprinted, a retry with the same key and another request fails with a conflict.
+     */
+    public <T> T execute(String idempotencyKey, String scope, Object request, Class<T> responseType,
+                         IdempotentAction<T> action) throws DtoValidateException {
+        if (Objects.isNull(idempotencyKey) || idempotencyKey.isBlank()) {
+            return action.execute();
+        }
+
+        String storeKey = String.join(":", scope, principalService.getUser().getId().toString(), idempotencyKey);
+        String fingerprint = fingerprint(request);
+        Lock lock = keyLocks.get(storeKey);
+        lock.lock();
+
+        try {
+            Optional<StoredResponse> storedResponse = findStoredResponse(storeKey);
+
+            if (storedResponse.isPresent()) {
+                log.debug("Replaying the stored {} response for a retried request", scope);
+                return replay(storedResponse.get(), fingerprint, responseType);
+            }
+
+            return databaseStoreEnabled
+                    ? executeAndStoreInDatabase(storeKey, fingerprint, responseType, action)
+                    : executeAndStore(storeKey, fingerprint, action);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${local4local.idempotency.cleanup-interval-ms:600000}")
+    public void deleteExpiredKeys() {
+        if (databaseStoreEnabled) {
+            idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        }
+    }
+
+    private Optional<StoredResponse> findStoredResponse(String storeKey) {
+        StoredResponse response = responses.getIfPresent(storeKey);
+
+        if (Objects.nonNull(response) || !databaseStoreEnabled) {
+            return Optional.ofNullable(response);
+        }
+
+        return idempotencyKeyRepository.findByKeyAndExpiresAtAfter(storeKey, LocalDateTime.now())
+                .map(idempotencyKey -> {
+                    StoredResponse storedResponse = new StoredResponse(idempotencyKey.getRequestFingerprint(),
+                            idempotencyKey.getResponse());
+                    responses.put(storeKey, storedResponse);
+                    return storedResponse;
+                });
+    }
+
+    private <T> T replay(StoredResponse storedResponse, String fingerprint, Class<T> responseType)
+            throws DtoValidateAlreadyExistsException {
+        // keys stored before requests were fingerprinted are replayed as they were
+        if (Objects.nonNull(storedResponse.fingerprint()) && !storedResponse.fingerprint().equals(fingerprint)) {
+            throw new DtoValidateAlreadyExistsException(errorKeyReused);
+        }
+
+        return readResponse(storedResponse.response(), responseType);
+    }
+
+    private <T> T executeAndStore(String storeKey, String fingerprint, IdempotentAction<T> action)
+            throws DtoValidateException {
+        T response = action.execute();
+        responses.put(storeKey, new StoredResponse(fingerprint, writeResponse(response)));
+
+        return response;
+    }
+
+    /**
+     * The key is written in the transaction of the action. When another node stored the same key first,
+     * the action is rolled back and the response of that node is returned instead.
+     */
+    private <T> T executeAndStoreInDatabase(String storeKey, String fingerprint, Class<T> responseType,
+                                            IdempotentAction<T> action) throws DtoValidateException {
+        try {
+            T response = transactionTemplate.execute(status -> {
+                T result = executeUnchecked(action);
+                LocalDateTime now = LocalDateTime.now();
+
+                if (idempotencyKeyRepository.saveIfAbsent(storeKey, fingerprint, writeResponse(result),
+                        now.plusMinutes(ttlMinutes), now) == 0) {
+                    throw new DuplicateRequestException();
+                }
+
+                return result;
+            });
+
+            responses.put(storeKey, new StoredResponse(fingerprint, writeResponse(response)));
+
+            return response;
+        } catch (ActionFailedException exception) {
+            throw exception.getCause();
+        } catch (DuplicateRequestException exception) {
+            return replay(findStoredResponse(storeKey).orElseThrow(IllegalStateException::new), fingerprint, responseType);
+        }
+    }
+
+    private static <T> T executeUnchecked(IdempotentAction<T> action) {
+        try {
+            return action.execute();
+        } catch (DtoValidateException exception) {
+            throw new ActionFailedException(exception);
+        }
+    }
+
+    private static String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static String writeResponse(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static <T> T readResponse(String response, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(response, responseType);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private record StoredResponse(String fingerprint, String response) {
+    }
+
+    private static final class ActionFailedException extends RuntimeException {
+
+        private ActionFailedException(DtoValidateException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized DtoValidateException getCause() {
+            return (DtoValidateException) super.getCause();
+        }
+    }
+
+    private static final class DuplicateRequestException extends RuntimeException {
+    }
+}
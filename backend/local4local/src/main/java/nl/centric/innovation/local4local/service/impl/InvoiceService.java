@@ -1,15 +1,21 @@
-//[PDF Invoice] This service class is no longer used, but kept for reference or future use
 package nl.centric.innovation.local4local.service.impl;
 
 import com.itextpdf.html2pdf.HtmlConverter;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import nl.centric.innovation.local4local.dto.InvoiceDto;
+import nl.centric.innovation.local4local.dto.InvoiceTransactionsSummaryDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceDto;
+import nl.centric.innovation.local4local.entity.Supplier;
+import nl.centric.innovation.local4local.entity.SupplierInvoice;
 import nl.centric.innovation.local4local.entity.SupplierProfile;
 import nl.centric.innovation.local4local.entity.Tenant;
 import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException;
 import nl.centric.innovation.local4local.exceptions.InvoiceGenerationException;
+import nl.centric.innovation.local4local.repository.SupplierInvoiceRepository;
+import nl.centric.innovation.local4local.repository.TenantRepository;
+import nl.centric.innovation.local4local.service.interfaces.DocumentStore;
 import nl.centric.innovation.local4local.util.DateUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -17,14 +23,34 @@ import org.thymeleaf.ITemplateEngine;
 
 import org.thymeleaf.context.Context;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static nl.centric.innovation.local4local.util.DateUtils.formatDateDefault;
 import static nl.centric.innovation.local4local.util.DateUtils.getLastDayOfMonth;
 
+/**
+ * Renders supplier invoices. Besides invoices with custom details, the invoice of every approved supplier is
+ * rendered for each month on a bounded worker pool and kept in the document store, together with a fingerprint
+ * of the transactions it was rendered from. Downloads are served from the store and an invoice is only
+ * rendered again once the transactions of its month change.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class InvoiceService {
@@ -34,45 +60,216 @@ public class InvoiceService {
     private final SupplierService supplierService;
     private final PrincipalService principalService;
     private final ITemplateEngine templateEngine;
+    private final SupplierInvoiceRepository supplierInvoiceRepository;
+    private final TenantRepository tenantRepository;
+    private final DocumentStore documentStore;
 
     @Value("${error.entity.notfound}")
     private String errorEntityNotFound;
 
+    @Value("${local4local.invoices.pool-size:4}")
+    private int poolSize;
+
+    @Value("${local4local.invoices.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${local4local.invoices.due-days:30}")
+    private int dueDays;
+
+    @Value("${local4local.invoices.default-language:nl-NL}")
+    private String defaultLanguage;
+
+    private ExecutorService renderExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // a full queue makes the submitting thread render the invoice itself instead of dropping it
+        renderExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "invoice-render-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdown();
+    }
+
     /**
      * Generates a PDF invoice based on the provided invoice data and language.
      *
      * @throws InvoiceGenerationException if an error occurs during PDF generation, e.g. not closing the stream
      */
     public byte[] generateInvoice(InvoiceDto invoiceDto, String language) {
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             PdfWriter writer = new PdfWriter(byteArrayOutputStream)) {
-            String htmlContent = generateHtmlContent(invoiceDto, language);
-            HtmlConverter.convertToPdf(htmlContent, writer);
-            return byteArrayOutputStream.toByteArray();
+        try {
+            List<OfferTransactionInvoiceDto> offerTransactions = getOfferTransactions(invoiceDto.currentDate());
+
+            if (offerTransactions.isEmpty()) {
+                throw new DtoValidateNotFoundException(errorEntityNotFound);
+            }
+
+            SupplierProfile profile = supplierService.findBySupplierId(principalService.getSupplierId()).get().getProfile();
+
+            return renderPdf(invoiceDto, language, principalService.getUserFullName(), profile,
+                    principalService.getTenant(), offerTransactions);
         } catch (Exception e) {
             throw new InvoiceGenerationException("Error generating invoice PDF", e);
         }
     }
 
-    private String generateHtmlContent(InvoiceDto invoiceDto, String language) throws DtoValidateNotFoundException {
-        LocalDate invoiceDate = invoiceDto.currentDate();
+    /**
+     * Returns the invoice of the signed in supplier for the given month from the document store, rendering and
+     * storing it first when it is missing or the transactions of the month changed since it was rendered.
+     *
+     * @throws DtoValidateNotFoundException if the supplier has no transactions in the month
+     */
+    public byte[] getMonthlyInvoice(LocalDate month, String language) throws DtoValidateNotFoundException {
+        Supplier supplier = supplierService.findBySupplierId(principalService.getSupplierId())
+                .orElseThrow(() -> new DtoValidateNotFoundException(errorEntityNotFound));
+        LocalDate firstDayOfMonth = month.withDayOfMonth(FIRST_DAY_OF_MONTH);
+        String languageTag = normalizeLanguage(language);
 
-        List<OfferTransactionInvoiceDto> offerTransactions = getOfferTransactions(invoiceDate);
+        InvoiceTransactionsSummaryDto summary = getTransactionsSummary(supplier.getId(), firstDayOfMonth);
 
-        if (offerTransactions.isEmpty()) {
+        if (!summary.hasTransactions()) {
             throw new DtoValidateNotFoundException(errorEntityNotFound);
         }
 
-        Tenant tenant = principalService.getTenant();
+        try {
+            Optional<SupplierInvoice> currentInvoice =
+                    findCurrentInvoice(supplier.getId(), firstDayOfMonth, languageTag, summary.fingerprint());
+
+            if (currentInvoice.isPresent()) {
+                Optional<byte[]> storedPdf = documentStore.get(currentInvoice.get().getStorageKey());
+
+                if (storedPdf.isPresent()) {
+                    return storedPdf.get();
+                }
+            }
+
+            return renderAndStore(supplier, supplier.getTenant(), firstDayOfMonth, languageTag, summary.fingerprint());
+        } catch (IOException e) {
+            throw new InvoiceGenerationException("Error reading or storing invoice PDF", e);
+        }
+    }
+
+    /**
+     * Renders the invoices of the given month for the approved suppliers of every tenant, one tenant after the other.
+     * Meant to run once the month has ended, invoices whose transactions did not change are left as they are.
+     */
+    public void generateMonthlyInvoices(LocalDate month) {
+        LocalDate firstDayOfMonth = month.withDayOfMonth(FIRST_DAY_OF_MONTH);
+
+        tenantRepository.findAll().forEach(tenant -> generateMonthlyInvoices(tenant, firstDayOfMonth).join());
+    }
+
+    /**
+     * Starts rendering the invoices of the given month for the approved suppliers of the signed in municipality.
+     *
+     * @return completes once every invoice of the tenant has been handled, failures are logged per supplier
+     */
+    public CompletableFuture<Void> generateMonthlyInvoicesOfTenant(LocalDate month) throws DtoValidateNotFoundException {
+        Tenant tenant = tenantRepository.findById(principalService.getTenantId())
+                .orElseThrow(() -> new DtoValidateNotFoundException(errorEntityNotFound));
+
+        return generateMonthlyInvoices(tenant, month.withDayOfMonth(FIRST_DAY_OF_MONTH));
+    }
+
+    private CompletableFuture<Void> generateMonthlyInvoices(Tenant tenant, LocalDate firstDayOfMonth) {
+        List<Supplier> suppliers = supplierService.findApprovedByTenantId(tenant.getId());
+        log.info("Generating the {} invoices of {} suppliers of tenant {}",
+                YearMonth.from(firstDayOfMonth), suppliers.size(), tenant.getId());
+
+        return CompletableFuture.allOf(suppliers.stream()
+                .map(supplier -> CompletableFuture.runAsync(
+                        () -> refreshMonthlyInvoice(supplier, tenant, firstDayOfMonth), renderExecutor))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private void refreshMonthlyInvoice(Supplier supplier, Tenant tenant, LocalDate firstDayOfMonth) {
+        try {
+            InvoiceTransactionsSummaryDto summary = getTransactionsSummary(supplier.getId(), firstDayOfMonth);
+
+            if (!summary.hasTransactions()
+                    || findCurrentInvoice(supplier.getId(), firstDayOfMonth, defaultLanguage, summary.fingerprint()).isPresent()) {
+                return;
+            }
+
+            renderAndStore(supplier, tenant, firstDayOfMonth, defaultLanguage, summary.fingerprint());
+        } catch (Exception e) {
+            log.error("Error generating the {} invoice of supplier {}", YearMonth.from(firstDayOfMonth), supplier.getId(), e);
+        }
+    }
+
+    private InvoiceTransactionsSummaryDto getTransactionsSummary(UUID supplierId, LocalDate firstDayOfMonth) {
+        return offerTransactionService.getInvoiceTransactionsSummary(
+                supplierId, firstDayOfMonth, getLastDayOfMonth(firstDayOfMonth));
+    }
+
+    private Optional<SupplierInvoice> findCurrentInvoice(UUID supplierId, LocalDate firstDayOfMonth, String language,
+                                                         String fingerprint) {
+        return supplierInvoiceRepository.findBySupplierIdAndMonthAndLanguage(supplierId, firstDayOfMonth, language)
+                .filter(invoice -> invoice.getTransactionsFingerprint().equals(fingerprint));
+    }
+
+    /**
+     * The fingerprint is taken before the transactions are read, so a transaction added in between
+     * only causes one more render later on.
+     */
+    private byte[] renderAndStore(Supplier supplier, Tenant tenant, LocalDate firstDayOfMonth, String language,
+                                  String fingerprint) throws IOException {
+        List<OfferTransactionInvoiceDto> offerTransactions = offerTransactionService.getTransactionsBySupplierIdBetweenDates(
+                supplier.getId(), firstDayOfMonth, getLastDayOfMonth(firstDayOfMonth));
+
+        byte[] pdf = renderPdf(buildMonthlyInvoiceDto(supplier, firstDayOfMonth), language, supplier.getCompanyName(),
+                supplier.getProfile(), tenant, offerTransactions);
+
+        String storageKey = String.format("invoices/%s/%s/%s_%s.pdf",
+                tenant.getId(), YearMonth.from(firstDayOfMonth), supplier.getId(), language);
+        documentStore.put(storageKey, pdf);
+        supplierInvoiceRepository.upsertSupplierInvoice(tenant.getId(), supplier.getId(), firstDayOfMonth, language,
+                fingerprint, storageKey, LocalDateTime.now());
+
+        return pdf;
+    }
+
+    private InvoiceDto buildMonthlyInvoiceDto(Supplier supplier, LocalDate firstDayOfMonth) {
+        String invoiceNumber = String.format("INV-%d%02d-%s", firstDayOfMonth.getYear(), firstDayOfMonth.getMonthValue(),
+                supplier.getId().toString().substring(0, 8).toUpperCase(Locale.ROOT));
+
+        return new InvoiceDto(invoiceNumber, firstDayOfMonth, firstDayOfMonth.plusMonths(1), dueDays);
+    }
+
+    // the language ends up in the storage key, so only well formed language tags are kept
+    private static String normalizeLanguage(String language) {
+        return Locale.forLanguageTag(language).toLanguageTag();
+    }
+
+    private byte[] renderPdf(InvoiceDto invoiceDto, String language, String supplierName, SupplierProfile supplierProfile,
+                             Tenant tenant, List<OfferTransactionInvoiceDto> offerTransactions) throws IOException {
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+             PdfWriter writer = new PdfWriter(byteArrayOutputStream)) {
+            String htmlContent = generateHtmlContent(invoiceDto, language, supplierName, supplierProfile, tenant,
+                    offerTransactions);
+            HtmlConverter.convertToPdf(htmlContent, writer);
+            return byteArrayOutputStream.toByteArray();
+        }
+    }
+
+    private String generateHtmlContent(InvoiceDto invoiceDto, String language, String supplierName,
+                                       SupplierProfile supplierProfile, Tenant tenant,
+                                       List<OfferTransactionInvoiceDto> offerTransactions) {
+        LocalDate invoiceDate = invoiceDto.currentDate();
 
         Context context = new Context(Locale.forLanguageTag(language));
 
         context.setVariable("invoiceNumber", invoiceDto.invoiceNumber());
         context.setVariable("invoiceDate", invoiceDate.toString());
-        context.setVariable("supplierName", principalService.getUserFullName());
+        context.setVariable("supplierName", supplierName);
         context.setVariable("municipalityName", tenant.getName());
         context.setVariable("municipalityAddress", tenant.getAddress());
-        context.setVariable("supplierAddress", getSupplierAddress());
+        context.setVariable("supplierAddress", getSupplierAddress(supplierProfile));
         context.setVariable("billingPeriod", formatBillingPeriod(invoiceDate));
         context.setVariable("issueDate", DateUtils.formatDateDefault(invoiceDto.issueDate()));
         context.setVariable("dueDate", DateUtils.formatDateDefault(invoiceDto.getFinalDueDate()));
@@ -82,9 +279,7 @@ public class InvoiceService {
         return templateEngine.process("invoiceTemplate", context);
     }
 
-    private String getSupplierAddress() {
-        SupplierProfile profile = supplierService.findBySupplierId(principalService.getSupplierId()).get().getProfile();
-
+    private String getSupplierAddress(SupplierProfile profile) {
         return String.format("%s, %s, %s, %s",
                 profile.getBranchLocation(),
                 profile.getBranchProvince(),
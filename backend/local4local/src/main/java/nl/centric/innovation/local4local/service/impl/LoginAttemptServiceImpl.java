@@ -1,58 +1,307 @@
 package nl.centric.innovation.local4local.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import nl.centric.innovation.local4local.entity.LoginAttempt;
 import nl.centric.innovation.local4local.repository.LoginAttemptRepository;
 import nl.centric.innovation.local4local.service.interfaces.LoginAttemptService;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Throttles logins in memory with a sliding window of failed attempts per remote address and per username.
+ * Once MAX_ATTEMPT logins failed within the window for either of them, a captcha is required.
+ * Memory is bounded, the least recently used counters are evicted first. When the database store is enabled,
+ * the failures of remote addresses are written behind to login_attempt, where the failures of all nodes add up.
+ * A node reads the stored counter the first time it sees an address and again once its copy is older than
+ * a flush interval, so nodes share them with the delay of about two flushes.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class LoginAttemptServiceImpl implements LoginAttemptService {
 
+    private static final int MAX_ATTEMPT = 5;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
 
     private final LoginAttemptRepository attemptRepository;
 
-    private static final int MAX_ATTEMPT = 5;
+    @Value("${local4local.login-throttle.window-minutes:60}")
+    private long windowMinutes;
+
+    @Value("${local4local.login-throttle.max-size:100000}")
+    private long maxSize;
+
+    @Value("${local4local.login-throttle.database-store.enabled:false}")
+    private boolean databaseStoreEnabled;
+
+    @Value("${local4local.login-throttle.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    private Cache<String, FailureWindow> remoteAddressWindows;
+
+    private Cache<String, FailureWindow> usernameWindows;
+
+    private final Set<String> pendingRemoteAddresses = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        remoteAddressWindows = buildCache();
+        usernameWindows = buildCache();
+    }
 
     @Override
-    public Optional<LoginAttempt> findByRemoteAddress(String remoteAddress) {
-        return attemptRepository.findByRemoteAddress(remoteAddress);
+    public boolean isBlocked(String remoteAddress, String username) {
+        long now = System.currentTimeMillis();
+
+        if (remoteAddressWindow(remoteAddress).failures(now, windowMillis()) >= MAX_ATTEMPT) {
+            return true;
+        }
+
+        FailureWindow usernameWindow = StringUtils.isBlank(username) ? null : usernameWindows.getIfPresent(usernameKey(username));
+
+        return Objects.nonNull(usernameWindow) && usernameWindow.failures(now, windowMillis()) >= MAX_ATTEMPT;
     }
 
     @Override
-    public LoginAttempt countLoginAttempts(Optional<LoginAttempt> loginAttempt, String remoteAddress, boolean isSuccessful) {
+    public boolean loginFailed(String remoteAddress, String username) {
+        long now = System.currentTimeMillis();
+        remoteAddressWindow(remoteAddress).fail(now);
+        markPending(remoteAddress);
+
+        if (StringUtils.isNotBlank(username)) {
+            usernameWindow(username).fail(now);
+        }
+
+        return isBlocked(remoteAddress, username);
+    }
+
+    @Override
+    public void loginSucceeded(String remoteAddress, String username) {
+        remoteAddressWindow(remoteAddress).reset();
+        markPending(remoteAddress);
+
+        if (StringUtils.isNotBlank(username)) {
+            usernameWindows.invalidate(usernameKey(username));
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${local4local.login-throttle.flush-interval-ms:5000}")
+    public void flushLoginAttempts() {
+        if (pendingRemoteAddresses.isEmpty()) {
+            return;
+        }
 
-        LoginAttempt loginAttemptResult;
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> attempts = new ArrayList<>();
 
-        int counter = isSuccessful ? 0 : 1;
+        for (String remoteAddress : Set.copyOf(pendingRemoteAddresses)) {
+            pendingRemoteAddresses.remove(remoteAddress);
+            FailureWindow window = remoteAddressWindows.getIfPresent(remoteAddress);
 
-        if (loginAttempt.isEmpty()) {
-            loginAttemptResult = loginAttemptBuilder(counter, remoteAddress);
-        } else {
-            loginAttemptResult = loginAttempt.get();
-            if (isSuccessful) {
-                loginAttemptResult.setCount(0);
-            } else {
-                loginAttemptResult.setCount(loginAttemptResult.getCount() + 1);
+            if (Objects.nonNull(window)) {
+                attempts.add(window.toAttempt(remoteAddress));
             }
         }
 
-        return attemptRepository.save(loginAttemptResult);
+        try {
+            attemptRepository.upsertLoginAttempts(objectMapper.writeValueAsString(attempts),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(now - windowMillis()), ZoneId.systemDefault()));
+        } catch (JsonProcessingException | RuntimeException exception) {
+            log.error("Failed to save the login attempts of {} remote addresses", attempts.size(), exception);
+        }
+    }
 
+    private Cache<String, FailureWindow> buildCache() {
+        // a window untouched for its whole length holds no failures that still count
+        return CacheBuilder.newBuilder()
+                .expireAfterAccess(windowMinutes, TimeUnit.MINUTES)
+                .maximumSize(maxSize)
+                .build();
     }
 
-    @Override
-    public boolean isBlocked(LoginAttempt loginAttempt) {
-        return loginAttempt.getCount() >= MAX_ATTEMPT;
+    private FailureWindow remoteAddressWindow(String remoteAddress) {
+        FailureWindow window = remoteAddressWindows.asMap().computeIfAbsent(remoteAddress, this::loadWindow);
+
+        // the failures other nodes flushed since the last read are picked up by one of the requests
+        if (databaseStoreEnabled && window.claimRefresh(System.currentTimeMillis(), flushIntervalMs)) {
+            findAttempt(remoteAddress).ifPresent(attempt -> window.refresh(attempt.getCount(),
+                    toMillis(attempt.getLastFailedDate())));
+        }
+
+        return window;
     }
 
-    public LoginAttempt loginAttemptBuilder(Integer count, String remoteAddress) {
-        return LoginAttempt.builder()
-                .count(count)
-                .remoteAddress(remoteAddress)
-                .build();
+    private FailureWindow usernameWindow(String username) {
+        return usernameWindows.asMap().computeIfAbsent(usernameKey(username), key -> new FailureWindow(System.currentTimeMillis()));
+    }
+
+    private FailureWindow loadWindow(String remoteAddress) {
+        FailureWindow window = new FailureWindow(System.currentTimeMillis());
+
+        if (databaseStoreEnabled) {
+            findAttempt(remoteAddress).ifPresent(attempt -> window.restore(attempt.getCount(),
+                    toMillis(attempt.getLastFailedDate())));
+        }
+
+        return window;
+    }
+
+    private Optional<LoginAttempt> findAttempt(String remoteAddress) {
+        try {
+            return attemptRepository.findByRemoteAddress(remoteAddress)
+                    .filter(attempt -> Objects.nonNull(attempt.getLastFailedDate()) && Objects.nonNull(attempt.getCount()));
+        } catch (RuntimeException exception) {
+            log.warn("Failed to load the login attempts of a remote address, keeping the counter of this node", exception);
+            return Optional.empty();
+        }
+    }
+
+    private void markPending(String remoteAddress) {
+        if (databaseStoreEnabled && pendingRemoteAddresses.size() < maxSize) {
+            pendingRemoteAddresses.add(remoteAddress);
+        }
+    }
+
+    private long windowMillis() {
+        return TimeUnit.MINUTES.toMillis(windowMinutes);
+    }
+
+    private static String usernameKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * The times of the last MAX_ATTEMPT failed logins, older failures can never block on their own. Failures and
+     * resets that were not flushed yet are tracked apart, so only they are added to the stored counter.
+     */
+    private static final class FailureWindow {
+
+        private final long[] failureTimes = new long[MAX_ATTEMPT];
+
+        private int next;
+
+        private int size;
+
+        private int unflushedFailures;
+
+        private boolean unflushedReset;
+
+        private long readTime;
+
+        private FailureWindow(long readTime) {
+            this.readTime = readTime;
+        }
+
+        private synchronized void fail(long now) {
+            add(now);
+            unflushedFailures++;
+        }
+
+        private synchronized void reset() {
+            size = 0;
+            unflushedFailures = 0;
+            unflushedReset = true;
+        }
+
+        // failures loaded from the database are all placed at the time of the last one
+        private synchronized void restore(int count, long lastFailureTime) {
+            for (int i = 0; i < Math.min(count, MAX_ATTEMPT); i++) {
+                add(lastFailureTime);
+            }
+        }
+
+        // only one request reads the stored counter once the copy of this node is older than the interval
+        private synchronized boolean claimRefresh(long now, long intervalMillis) {
+            if (now - readTime < intervalMillis) {
+                return false;
+            }
+
+            readTime = now;
+            return true;
+        }
+
+        /**
+         * Replaces the failures with the stored counter, which holds every flushed failure of this node as well,
+         * and adds the failures this node did not flush yet. A reset not flushed yet ignores the stored counter.
+         */
+        private synchronized void refresh(int count, long lastFailureTime) {
+            int unflushed = Math.min(unflushedFailures, size);
+            long[] unflushedTimes = new long[unflushed];
+
+            for (int i = 0; i < unflushed; i++) {
+                unflushedTimes[i] = failureTimes[Math.floorMod(next - unflushed + i, MAX_ATTEMPT)];
+            }
+
+            size = 0;
+
+            if (!unflushedReset) {
+                restore(count, lastFailureTime);
+            }
+
+            for (long failureTime : unflushedTimes) {
+                add(failureTime);
+            }
+        }
+
+        private synchronized int failures(long now, long windowMillis) {
+            int failures = 0;
+
+            for (int i = 1; i <= size; i++) {
+                if (failureTimes[Math.floorMod(next - i, MAX_ATTEMPT)] > now - windowMillis) {
+                    failures++;
+                }
+            }
+
+            return failures;
+        }
+
+        private synchronized Map<String, Object> toAttempt(String remoteAddress) {
+            Map<String, Object> attempt = new HashMap<>();
+            attempt.put("remote_addr", remoteAddress);
+            attempt.put("failed_count", Math.min(unflushedFailures, Short.MAX_VALUE));
+            attempt.put("is_reset", unflushedReset);
+            attempt.put("last_failed_date", unflushedFailures == 0 || size == 0 ? null : LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(failureTimes[Math.floorMod(next - 1, MAX_ATTEMPT)]), ZoneId.systemDefault()).toString());
+
+            unflushedFailures = 0;
+            unflushedReset = false;
+
+            return attempt;
+        }
+
+        private void add(long failureTime) {
+            failureTimes[next] = failureTime;
+            next = (next + 1) % MAX_ATTEMPT;
+            size = Math.min(size + 1, MAX_ATTEMPT);
+        }
     }
-}
\ No newline at end of file
+}
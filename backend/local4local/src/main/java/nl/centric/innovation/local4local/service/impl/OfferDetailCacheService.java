@@ -0,0 +1,77 @@
+package nl.centric.innovation.local4local.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.RequiredArgsConstructor;
+import nl.centric.innovation.local4local.dto.OfferDetailCacheDto;
+import nl.centric.innovation.local4local.repository.OfferRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+import static nl.centric.innovation.local4local.util.TransactionUtils.afterCommit;
+
+/**
+ * Caches the offer, supplier, restriction and working hours part of the offer detail screen.
+ * A miss loads the whole graph in one query, entries are evicted when the offer or its supplier changes.
+ */
+@Service
+@RequiredArgsConstructor
+public class OfferDetailCacheService {
+
+    private final OfferRepository offerRepository;
+
+    @Value("${local4local.offers.detail-cache.expire-minutes:10}")
+    private long expireMinutes;
+
+    @Value("${local4local.offers.detail-cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<UUID, OfferDetailCacheDto> offerDetails;
+
+    @PostConstruct
+    public void init() {
+        offerDetails = CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(expireMinutes))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public Optional<OfferDetailCacheDto> getOfferDetail(UUID offerId) {
+        OfferDetailCacheDto offerDetail = offerDetails.getIfPresent(offerId);
+
+        if (offerDetail == null) {
+            offerDetail = offerRepository.findWithDetailsById(offerId)
+                    .map(OfferDetailCacheDto::of)
+                    .orElse(null);
+
+            if (offerDetail != null) {
+                offerDetails.put(offerId, offerDetail);
+            }
+        }
+
+        return Optional.ofNullable(offerDetail);
+    }
+
+    public void evict(UUID offerId) {
+        afterCommit(() -> offerDetails.invalidate(offerId));
+    }
+
+    public void evictAll(Collection<UUID> offerIds) {
+        afterCommit(() -> offerDetails.invalidateAll(offerIds));
+    }
+
+    public void evictAll() {
+        offerDetails.invalidateAll();
+    }
+
+    public void evictSupplier(UUID supplierId) {
+        afterCommit(() -> offerDetails.asMap().values()
+                .removeIf(offerDetail -> offerDetail.supplierId().equals(supplierId)));
+    }
+}
@@ -0,0 +1,431 @@
+package nl.centric.innovation.local4local.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.centric.innovation.local4local.dto.OfferMapClusterDto;
+import nl.centric.innovation.local4local.dto.OfferMapEntryDto;
+import nl.centric.innovation.local4local.dto.OfferMobileMapLightDto;
+import nl.centric.innovation.local4local.entity.Offer;
+import nl.centric.innovation.local4local.enums.GenericStatusEnum;
+import nl.centric.innovation.local4local.repository.OfferRepository;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static nl.centric.innovation.local4local.util.TransactionUtils.afterCommit;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Per-tenant in-memory spatial index of the active offers shown on the citizen map.
+ * The index is loaded lazily per tenant, patched by the offer lifecycle operations and
+ * fully reloaded once it is older than the configured refresh interval.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OfferMapIndexService {
+
+    private static final int ALL_OFFER_TYPES = -1;
+
+    private static final int MAX_ZOOM = 22;
+
+    // A map tile is 256px wide, four cells per tile keep clusters roughly 64px apart on screen.
+    private static final int CELLS_PER_TILE = 4;
+
+    private final OfferRepository offerRepository;
+
+    private final Map<UUID, TenantOfferIndex> tenantIndexes = new ConcurrentHashMap<>();
+
+    @Value("${local4local.offers.map-index.refresh-minutes:15}")
+    private long refreshMinutes;
+
+    public List<OfferMobileMapLightDto> findOffersInViewport(UUID tenantId, Double minLatitude, Double maxLatitude,
+                                                             Double minLongitude, Double maxLongitude,
+                                                             LocalDate currentDay, Integer offerType,
+                                                             String searchKeyword, Set<UUID> benefitIds) {
+        if (benefitIds.isEmpty()) {
+            return List.of();
+        }
+
+        Envelope viewport = new Envelope(minLongitude, maxLongitude, minLatitude, maxLatitude);
+        String keyword = isNotBlank(searchKeyword) ? searchKeyword.toLowerCase(Locale.ROOT) : null;
+
+        @SuppressWarnings("unchecked")
+        List<OfferMapEntryDto> candidates = getTenantIndex(tenantId).tree().query(viewport);
+
+        return candidates.stream()
+                .filter(entry -> viewport.contains(entry.longitude(), entry.latitude()))
+                .filter(entry -> entry.benefitId() != null && benefitIds.contains(entry.benefitId()))
+                .filter(entry -> matchesOfferType(entry, offerType))
+                .filter(entry -> keyword == null || matchesKeyword(entry.title(), keyword))
+                .map(entry -> entry.toMapLightDto(currentDay))
+                .toList();
+    }
+
+    /**
+     * Aggregates the offers of the viewport into grid cells sized for the given zoom level.
+     * Without a search keyword the grid is cached per tenant, offer type and zoom level, so
+     * only the cells and the benefit counts inside them are visited for each request.
+     * The offer type and zoom level are validated by the controller, which bounds the cached grids.
+     */
+    public List<OfferMapClusterDto> findClustersInViewport(UUID tenantId, Double minLatitude, Double maxLatitude,
+                                                           Double minLongitude, Double maxLongitude,
+                                                           Integer offerType, String searchKeyword, int zoom,
+                                                           Set<UUID> benefitIds) {
+        if (benefitIds.isEmpty()) {
+            return List.of();
+        }
+
+        Envelope viewport = new Envelope(minLongitude, maxLongitude, minLatitude, maxLatitude);
+        TenantOfferIndex index = getTenantIndex(tenantId);
+
+        if (isNotBlank(searchKeyword)) {
+            String keyword = searchKeyword.toLowerCase(Locale.ROOT);
+
+            @SuppressWarnings("unchecked")
+            List<OfferMapEntryDto> candidates = index.tree().query(viewport);
+
+            List<OfferMapEntryDto> matches = candidates.stream()
+                    .filter(entry -> viewport.contains(entry.longitude(), entry.latitude()))
+                    .filter(entry -> matchesOfferType(entry, offerType))
+                    .filter(entry -> matchesKeyword(entry.title(), keyword))
+                    .toList();
+
+            return new ClusterGrid(zoom, matches).clustersIn(viewport, benefitIds);
+        }
+
+        int normalizedOfferType = offerType == null ? ALL_OFFER_TYPES : offerType;
+        return index.clusterGrid(normalizedOfferType, zoom).clustersIn(viewport, benefitIds);
+    }
+
+    /**
+     * Typeahead suggestions over the titles of the indexed offers, matched at the start of any word
+     * and falling back to titles within a small edit distance when the prefix matches too few.
+     */
+    public List<String> suggestTitles(UUID tenantId, String keyword, Set<UUID> benefitIds, int limit) {
+        if (benefitIds.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        return getTenantIndex(tenantId).titleIndex().suggest(keyword, benefitIds, limit);
+    }
+
+    /**
+     * Adds the offer to the index of its tenant when it is visible on the map, otherwise removes it.
+     * When called inside a transaction the change is applied only after a successful commit.
+     */
+    public void upsert(Offer offer) {
+        if (!isVisibleOnMap(offer)) {
+            remove(offer.getId());
+            return;
+        }
+
+        UUID tenantId = offer.getSupplier().getTenant().getId();
+        OfferMapEntryDto entry = OfferMapEntryDto.of(offer);
+
+        afterCommit(() -> {
+            TenantOfferIndex index = tenantIndexes.get(tenantId);
+            if (index != null) {
+                index.put(entry);
+            }
+        });
+    }
+
+    public void remove(UUID offerId) {
+        afterCommit(() -> tenantIndexes.values().forEach(index -> index.remove(offerId)));
+    }
+
+    public void removeAll(List<UUID> offerIds) {
+        afterCommit(() -> tenantIndexes.values().forEach(index -> offerIds.forEach(index::remove)));
+    }
+
+    /**
+     * Mirrors the nightly offer status procedure, which expires every offer whose expiration date has passed.
+     */
+    public void removeExpired(LocalDate currentDay) {
+        tenantIndexes.values().forEach(index -> index.removeIf(entry -> entry.expirationDate().isBefore(currentDay)));
+    }
+
+    public void evictTenant(UUID tenantId) {
+        afterCommit(() -> tenantIndexes.remove(tenantId));
+    }
+
+    private TenantOfferIndex getTenantIndex(UUID tenantId) {
+        TenantOfferIndex index = tenantIndexes.get(tenantId);
+
+        if (index == null || index.isOlderThan(Duration.ofMinutes(refreshMinutes))) {
+            index = loadTenantIndex(tenantId);
+            tenantIndexes.put(tenantId, index);
+        }
+
+        return index;
+    }
+
+    private TenantOfferIndex loadTenantIndex(UUID tenantId) {
+        List<OfferMapEntryDto> entries = offerRepository.findActiveOfferMapEntriesByTenantId(tenantId);
+        log.debug("Loaded {} offers into the map index of tenant {}", entries.size(), tenantId);
+
+        return new TenantOfferIndex(entries);
+    }
+
+    private boolean isVisibleOnMap(Offer offer) {
+        return offer.isActive()
+                && offer.getStatus() == GenericStatusEnum.ACTIVE
+                && offer.getCoordinates() != null;
+    }
+
+    private static boolean matchesOfferType(OfferMapEntryDto entry, Integer offerType) {
+        return offerType == null || offerType == ALL_OFFER_TYPES
+                || Objects.equals(entry.offerType().getOfferTypeId(), offerType);
+    }
+
+    // Same semantics as the title filter of the viewport search query: match at the start of any word.
+    private static boolean matchesKeyword(String title, String keyword) {
+        String lowerTitle = title.toLowerCase(Locale.ROOT);
+        return lowerTitle.startsWith(keyword) || lowerTitle.contains(" " + keyword);
+    }
+
+    /**
+     * The STR-tree and the title index are immutable once built, so entry changes only mark them stale
+     * and the next query rebuilds them from the current entries.
+     * Changes and rebuilds are serialized on the instance, reads of a built tree are lock free.
+     */
+    private static final class TenantOfferIndex {
+
+        private final Map<UUID, OfferMapEntryDto> entries = new ConcurrentHashMap<>();
+
+        private final Instant loadedAt = Instant.now();
+
+        private volatile STRtree tree;
+
+        private volatile OfferTitleIndex titleIndex;
+
+        private final Map<String, ClusterGrid> clusterGrids = new ConcurrentHashMap<>();
+
+        private TenantOfferIndex(List<OfferMapEntryDto> initialEntries) {
+            initialEntries.forEach(entry -> entries.put(entry.id(), entry));
+        }
+
+        private STRtree tree() {
+            STRtree current = tree;
+
+            if (current == null) {
+                synchronized (this) {
+                    current = tree;
+                    if (current == null) {
+                        current = build();
+                        tree = current;
+                    }
+                }
+            }
+
+            return current;
+        }
+
+        private STRtree build() {
+            STRtree strTree = new STRtree();
+            entries.values().forEach(entry ->
+                    strTree.insert(new Envelope(new Coordinate(entry.longitude(), entry.latitude())), entry));
+            strTree.build();
+
+            return strTree;
+        }
+
+        private OfferTitleIndex titleIndex() {
+            OfferTitleIndex current = titleIndex;
+
+            if (current == null) {
+                synchronized (this) {
+                    current = titleIndex;
+                    if (current == null) {
+                        current = new OfferTitleIndex(entries.values());
+                        titleIndex = current;
+                    }
+                }
+            }
+
+            return current;
+        }
+
+        private ClusterGrid clusterGrid(int offerType, int zoom) {
+            String key = offerType + ":" + zoom;
+            ClusterGrid grid = clusterGrids.get(key);
+
+            if (grid == null) {
+                synchronized (this) {
+                    grid = clusterGrids.computeIfAbsent(key, k -> new ClusterGrid(zoom, entries.values().stream()
+                            .filter(entry -> matchesOfferType(entry, offerType))
+                            .toList()));
+                }
+            }
+
+            return grid;
+        }
+
+        private synchronized void put(OfferMapEntryDto entry) {
+            entries.put(entry.id(), entry);
+            invalidate();
+        }
+
+        private synchronized void remove(UUID offerId) {
+            if (entries.remove(offerId) != null) {
+                invalidate();
+            }
+        }
+
+        private synchronized void removeIf(Predicate<OfferMapEntryDto> predicate) {
+            if (entries.values().removeIf(predicate)) {
+                invalidate();
+            }
+        }
+
+        private void invalidate() {
+            tree = null;
+            titleIndex = null;
+            clusterGrids.clear();
+        }
+
+        private boolean isOlderThan(Duration maxAge) {
+            return loadedAt.plus(maxAge).isBefore(Instant.now());
+        }
+    }
+
+    /**
+     * Square grid of the offers for one zoom level. Every cell keeps a count and coordinate sum per benefit,
+     * so the clusters visible to a citizen are computed from the cells alone.
+     */
+    private static final class ClusterGrid {
+
+        private final double cellSize;
+
+        private final Map<Long, GridCell> cells = new HashMap<>();
+
+        private ClusterGrid(int zoom, List<OfferMapEntryDto> entries) {
+            int clampedZoom = Math.max(0, Math.min(zoom, MAX_ZOOM));
+            this.cellSize = 360.0 / (1L << clampedZoom) / CELLS_PER_TILE;
+
+            entries.stream()
+                    .filter(entry -> entry.benefitId() != null)
+                    .forEach(this::add);
+        }
+
+        private void add(OfferMapEntryDto entry) {
+            long column = (long) Math.floor(entry.longitude() / cellSize);
+            long row = (long) Math.floor(entry.latitude() / cellSize);
+
+            cells.computeIfAbsent(cellKey(column, row), key -> new GridCell(column, row))
+                    .add(entry);
+        }
+
+        /**
+         * Looks up the cells of the column and row range covered by the viewport. A viewport spanning more
+         * cells than the grid holds, as when zoomed out over a sparse tenant, walks the held cells instead.
+         */
+        private List<OfferMapClusterDto> clustersIn(Envelope viewport, Set<UUID> benefitIds) {
+            List<OfferMapClusterDto> clusters = new ArrayList<>();
+
+            if (viewport.isNull()) {
+                return clusters;
+            }
+
+            long minColumn = (long) Math.floor(viewport.getMinX() / cellSize);
+            long maxColumn = (long) Math.floor(viewport.getMaxX() / cellSize);
+            long minRow = (long) Math.floor(viewport.getMinY() / cellSize);
+            long maxRow = (long) Math.floor(viewport.getMaxY() / cellSize);
+            double viewportCells = (double) (maxColumn - minColumn + 1) * (maxRow - minRow + 1);
+
+            if (viewportCells > cells.size()) {
+                for (GridCell cell : cells.values()) {
+                    if (isInRange(cell, minColumn, maxColumn, minRow, maxRow)) {
+                        cell.toCluster(benefitIds).ifPresent(clusters::add);
+                    }
+                }
+
+                return clusters;
+            }
+
+            for (long column = minColumn; column <= maxColumn; column++) {
+                for (long row = minRow; row <= maxRow; row++) {
+                    GridCell cell = cells.get(cellKey(column, row));
+
+                    if (cell != null) {
+                        cell.toCluster(benefitIds).ifPresent(clusters::add);
+                    }
+                }
+            }
+
+            return clusters;
+        }
+
+        private static boolean isInRange(GridCell cell, long minColumn, long maxColumn, long minRow, long maxRow) {
+            return cell.column >= minColumn && cell.column <= maxColumn && cell.row >= minRow && cell.row <= maxRow;
+        }
+
+        private static long cellKey(long column, long row) {
+            return (column << 32) ^ (row & 0xFFFFFFFFL);
+        }
+    }
+
+    private static final class GridCell {
+
+        private final long column;
+
+        private final long row;
+
+        private final Map<UUID, double[]> sumsByBenefit = new HashMap<>();
+
+        private GridCell(long column, long row) {
+            this.column = column;
+            this.row = row;
+        }
+
+        // sums hold count, longitude sum and latitude sum
+        private void add(OfferMapEntryDto entry) {
+            double[] sums = sumsByBenefit.computeIfAbsent(entry.benefitId(), id -> new double[3]);
+            sums[0]++;
+            sums[1] += entry.longitude();
+            sums[2] += entry.latitude();
+        }
+
+        private Optional<OfferMapClusterDto> toCluster(Set<UUID> benefitIds) {
+            double count = 0;
+            double longitudeSum = 0;
+            double latitudeSum = 0;
+
+            for (Map.Entry<UUID, double[]> benefitSums : sumsByBenefit.entrySet()) {
+                if (benefitIds.contains(benefitSums.getKey())) {
+                    count += benefitSums.getValue()[0];
+                    longitudeSum += benefitSums.getValue()[1];
+                    latitudeSum += benefitSums.getValue()[2];
+                }
+            }
+
+            if (count == 0) {
+                return Optional.empty();
+            }
+
+            return Optional.of(OfferMapClusterDto.builder()
+                    .latitude(latitudeSum / count)
+                    .longitude(longitudeSum / count)
+                    .count((int) count)
+                    .build());
+        }
+    }
+}
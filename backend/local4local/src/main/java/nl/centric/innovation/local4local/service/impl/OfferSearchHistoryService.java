@@ -1,40 +1,142 @@
 package nl.centric.innovation.local4local.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import nl.centric.innovation.local4local.entity.OfferSearchHistory;
+import lombok.extern.slf4j.Slf4j;
 import nl.centric.innovation.local4local.entity.User;
-import nl.centric.innovation.local4local.exceptions.DtoValidateException;
 import nl.centric.innovation.local4local.repository.OfferSearchHistoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import static nl.centric.innovation.local4local.entity.OfferSearchHistory.createEntityOfferSearchHistory;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Records citizen searches through a write-behind buffer. Searches are coalesced per user and keyword
+ * in memory and flushed in batches with a single upsert, which also trims every flushed user
+ * to the most recent searches.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OfferSearchHistoryService {
 
+    public static final int SEARCH_HISTORY_SIZE = 5;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
     private final OfferSearchHistoryRepository offerSearchHistoryRepository;
 
     private final PrincipalService principalService;
 
+    private final Map<UUID, Map<String, LocalDateTime>> pendingSearches = new ConcurrentHashMap<>();
+
+    @Value("${local4local.offers.search-history.max-pending-users:10000}")
+    private int maxPendingUsers;
+
+    @Value("${local4local.offers.search-history.batch-size:500}")
+    private int batchSize;
 
     public void saveSearchHistory(String searchKeyword) {
+        UUID userId = getUser().getId();
 
-        Optional<OfferSearchHistory> offerSearchHistory = offerSearchHistoryRepository.findBySearchKeywordAndUserId(searchKeyword, getUser().getId());
-        if (offerSearchHistory.isPresent()) {
-            offerSearchHistory.get().setCreatedDate(LocalDateTime.now());
-            offerSearchHistoryRepository.save(offerSearchHistory.get());
+        if (pendingSearches.size() >= maxPendingUsers && !pendingSearches.containsKey(userId)) {
+            log.warn("Search history buffer is full, search of user {} is not recorded", userId);
             return;
         }
 
-        offerSearchHistoryRepository.save(createEntityOfferSearchHistory(getUser(),searchKeyword));
+        pendingSearches.compute(userId, (id, searches) -> {
+            Map<String, LocalDateTime> userSearches = searches != null ? searches : new LinkedHashMap<>();
+            userSearches.remove(searchKeyword);
+            userSearches.put(searchKeyword, LocalDateTime.now());
+
+            if (userSearches.size() > SEARCH_HISTORY_SIZE) {
+                userSearches.remove(userSearches.keySet().iterator().next());
+            }
+
+            return userSearches;
+        });
     }
 
+    /**
+     * Searches still waiting in the buffer are newer than the stored ones, so they are listed first.
+     */
     public List<String> getSearchHistoryForCitizen() {
-        return offerSearchHistoryRepository.findTop5SearchKeywordsByUserIdOrderByCreatedDateDesc(getUser().getId());
+        UUID userId = getUser().getId();
+        List<String> pendingKeywords = new ArrayList<>();
+
+        pendingSearches.computeIfPresent(userId, (id, searches) -> {
+            pendingKeywords.addAll(searches.keySet());
+            return searches;
+        });
+
+        if (pendingKeywords.isEmpty()) {
+            return offerSearchHistoryRepository.findTop5SearchKeywordsByUserIdOrderByCreatedDateDesc(userId);
+        }
+
+        Collections.reverse(pendingKeywords);
+
+        if (pendingKeywords.size() >= SEARCH_HISTORY_SIZE) {
+            return List.copyOf(pendingKeywords);
+        }
+
+        List<String> storedKeywords = offerSearchHistoryRepository.findTop5SearchKeywordsByUserIdOrderByCreatedDateDesc(userId);
+
+        return Stream.concat(pendingKeywords.stream(),
+                        storedKeywords.stream().filter(keyword -> !pendingKeywords.contains(keyword)))
+                .limit(SEARCH_HISTORY_SIZE)
+                .toList();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${local4local.offers.search-history.flush-interval-ms:2000}")
+    public void flushSearchHistory() {
+        List<Map<String, String>> batch = new ArrayList<>();
+
+        for (UUID userId : Set.copyOf(pendingSearches.keySet())) {
+            Map<String, LocalDateTime> searches = pendingSearches.remove(userId);
+
+            if (searches != null) {
+                searches.forEach((keyword, createdDate) -> batch.add(Map.of(
+                        "user_id", userId.toString(),
+                        "search_keyword", keyword,
+                        "created_date", createdDate.toString())));
+            }
+
+            if (batch.size() >= batchSize) {
+                saveBatch(batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            saveBatch(batch);
+        }
+    }
+
+    private void saveBatch(List<Map<String, String>> batch) {
+        Set<UUID> userIds = batch.stream()
+                .map(search -> UUID.fromString(search.get("user_id")))
+                .collect(Collectors.toSet());
+
+        try {
+            offerSearchHistoryRepository.upsertSearchHistory(objectMapper.writeValueAsString(batch));
+            offerSearchHistoryRepository.trimSearchHistory(userIds, SEARCH_HISTORY_SIZE);
+        } catch (JsonProcessingException | RuntimeException exception) {
+            log.error("Failed to save the search history of {} users", userIds.size(), exception);
+        }
     }
 
     private User getUser() {
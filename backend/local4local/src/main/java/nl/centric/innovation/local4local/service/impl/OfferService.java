@@ -3,8 +3,13 @@ package nl.centric.innovation.local4local.service.impl;
 import lombok.RequiredArgsConstructor;
 import nl.centric.innovation.local4local.dto.DeleteOffersDto;
 import nl.centric.innovation.local4local.dto.FilterOfferRequestDto;
+import nl.centric.innovation.local4local.dto.OfferDetailCacheDto;
+import nl.centric.innovation.local4local.dto.OfferDistanceCursorDto;
+import nl.centric.innovation.local4local.dto.OfferDistanceProjection;
 import nl.centric.innovation.local4local.dto.OfferMobileDetailDto;
 import nl.centric.innovation.local4local.dto.OfferMobileListDto;
+import nl.centric.innovation.local4local.dto.OfferMobileListPageDto;
+import nl.centric.innovation.local4local.dto.OfferMapClusterDto;
 import nl.centric.innovation.local4local.dto.OfferMobileMapLightDto;
 import nl.centric.innovation.local4local.dto.OfferRejectionReasonDto;
 import nl.centric.innovation.local4local.dto.OfferRequestDto;
@@ -16,7 +21,6 @@ import nl.centric.innovation.local4local.dto.OfferViewTableDto;
 import nl.centric.innovation.local4local.dto.ReactivateOfferDto;
 import nl.centric.innovation.local4local.dto.RejectOfferDto;
 import nl.centric.innovation.local4local.entity.Benefit;
-import nl.centric.innovation.local4local.entity.DiscountCode;
 import nl.centric.innovation.local4local.entity.Offer;
 import nl.centric.innovation.local4local.entity.OfferType;
 import nl.centric.innovation.local4local.entity.Passholder;
@@ -58,6 +62,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static nl.centric.innovation.local4local.entity.Offer.offerRequestDtoToEntity;
@@ -70,6 +75,8 @@ public class OfferService {
 
     public static final String ORDER_CRITERIA = "title";
 
+    private static final int DISTANCE_LIST_PAGE_SIZE = 20;
+
     private final OfferRepository offerRepository;
 
     private final PrincipalService principalService;
@@ -98,6 +105,12 @@ public class OfferService {
 
     private final BenefitService benefitService;
 
+    private final OfferMapIndexService offerMapIndexService;
+
+    private final BenefitAccessService benefitAccessService;
+
+    private final OfferDetailCacheService offerDetailCacheService;
+
     private static final Set<Integer> AMOUNT_REQUIRED_OFFER_TYPES = Set.of(1, 3, 4);
 
 
@@ -128,6 +141,21 @@ public class OfferService {
     @Value("${error.benefit.expired}")
     private String benefitExpiredError;
 
+    @Value("${local4local.offers.map-index.enabled:true}")
+    private boolean mapIndexEnabled;
+
+    @Value("${local4local.offers.map-index.cluster-max-zoom:14}")
+    private int clusterMaxZoom;
+
+    @Value("${local4local.offers.search.typeahead-index.enabled:true}")
+    private boolean typeaheadIndexEnabled;
+
+    @Value("${local4local.offers.search.trigram-enabled:true}")
+    private boolean trigramSearchEnabled;
+
+    @Value("${local4local.offers.search.suggestion-limit:10}")
+    private int suggestionLimit;
+
     // Todo: to be refactored -> SRP violation
     @Transactional
     public void useOffer(OfferUsageRequestDto offerUsageRequestDto) throws DtoValidateException {
@@ -143,8 +171,14 @@ public class OfferService {
             throw new DtoValidateException(passExpiredError);
         }
 
+        Set<UUID> benefitIds = getAccessibleBenefitIds();
+
+        if (benefitIds.isEmpty()) {
+            throw new DtoValidateNotFoundException(errorEntityNotFound);
+        }
+
         Offer offer = offerRepository.findByIdAndStatusWithBenefitAccess(offerUsageRequestDto.offerId(),
-                        GenericStatusEnum.ACTIVE, citizenId)
+                        GenericStatusEnum.ACTIVE, benefitIds)
                 .orElseThrow(() -> new DtoValidateNotFoundException(errorEntityNotFound));
 
         if(offer.getBenefit().getExpirationDate().isBefore(LocalDate.now())) {
@@ -218,6 +252,22 @@ public class OfferService {
                 .collect(Collectors.groupingBy(OfferMobileMapLightDto::coordinatesString));
     }
 
+    /**
+     * Clusters are served from the map index only, when the index is disabled every zoom level gets full offers.
+     */
+    public boolean isClusteredZoom(Integer zoom) {
+        return mapIndexEnabled && zoom != null && zoom < clusterMaxZoom;
+    }
+
+    public List<OfferMapClusterDto> getOfferClustersWithinViewport(Double minLatitude, Double maxLatitude,
+                                                                   Double minLongitude, Double maxLongitude,
+                                                                   Integer offerType, String searchKeyword,
+                                                                   Integer zoom) {
+        Set<UUID> benefitIds = getAccessibleBenefitIds();
+        return offerMapIndexService.findClustersInViewport(getTenantId(), minLatitude, maxLatitude, minLongitude,
+                maxLongitude, offerType, searchKeyword, zoom, benefitIds);
+    }
+
     public Integer countAll() {
         UUID supplierId = principalService.getSupplierId();
         return offerRepository.countBySupplierIdAndIsActiveTrue(supplierId);
@@ -277,6 +327,8 @@ public class OfferService {
     public void updateOfferStatus(Offer offer, GenericStatusEnum status) {
         offer.setStatus(status);
         offerRepository.save(offer);
+        offerMapIndexService.upsert(offer);
+        offerDetailCacheService.evict(offer.getId());
     }
 
     public List<OfferMobileListDto> getOffersOrderedByDistanceToUser(Integer page, Double latitude, Double longitude,
@@ -286,36 +338,89 @@ public class OfferService {
             throw new DtoValidateException(errorEntityValidate);
         }
 
-        Pageable pageable = PageRequest.of(page, 20);
+        Pageable pageable = PageRequest.of(page, DISTANCE_LIST_PAGE_SIZE);
 
         if (isNotBlank(searchKeyword)) {
             offerSearchHistoryService.saveSearchHistory(searchKeyword);
+        }
+
+        Set<UUID> benefitIds = getAccessibleBenefitIds();
+
+        if (benefitIds.isEmpty()) {
+            return List.of();
+        }
+
+        if (isNotBlank(searchKeyword)) {
             return offerRepository.findSearchedOffersOrderedByDistanceToUser(pageable, latitude, longitude,
-                    getTenantId(), currentDay, getCurrentUser().getId(), searchKeyword, offerType);
+                    getTenantId(), currentDay, benefitIds, searchKeyword, offerType);
         }
 
         return offerRepository.findAllOffersOrderedByDistanceToUser(pageable, latitude, longitude, getTenantId(),
-                currentDay, getCurrentUser().getId(), offerType);
+                currentDay, benefitIds, offerType);
     }
 
-    //TODO to refactor this method
-    @Transactional
-    public OfferMobileDetailDto getOfferDetails(UUID offerId, Double latitude, Double longitude, LocalDate currentDay) throws DtoValidateNotFoundException {
-        Optional<Offer> offer = offerRepository.findById(offerId);
+    /**
+     * Keyset variant of {@link #getOffersOrderedByDistanceToUser}: every page continues after the
+     * (distance, id) of the previous one, so deep pages cost the same as the first.
+     */
+    public OfferMobileListPageDto getOffersPageOrderedByDistanceToUser(String cursor, Double latitude, Double longitude,
+                                                                       LocalDate currentDay, String searchKeyword,
+                                                                       Integer offerType) throws DtoValidateException {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            throw new DtoValidateException(errorEntityValidate);
+        }
 
-        if (offer.isEmpty()) {
-            throw new DtoValidateNotFoundException(errorEntityNotFound);
+        OfferDistanceCursorDto after = decodeCursor(cursor);
+
+        if (isNotBlank(searchKeyword)) {
+            offerSearchHistoryService.saveSearchHistory(searchKeyword);
         }
 
-        Double distance = offerRepository.getOfferDistance(offerId, latitude, longitude);
+        Set<UUID> benefitIds = getAccessibleBenefitIds();
+
+        if (benefitIds.isEmpty()) {
+            return new OfferMobileListPageDto(List.of(), null);
+        }
+
+        List<OfferDistanceProjection> distances = isNotBlank(searchKeyword)
+                ? offerRepository.findSearchedOfferDistancesAfterCursor(latitude, longitude, getTenantId(), benefitIds,
+                searchKeyword, offerType, after.distance(), after.id().toString(), DISTANCE_LIST_PAGE_SIZE)
+                : offerRepository.findOfferDistancesAfterCursor(latitude, longitude, getTenantId(), benefitIds,
+                offerType, after.distance(), after.id().toString(), DISTANCE_LIST_PAGE_SIZE);
+
+        if (distances.isEmpty()) {
+            return new OfferMobileListPageDto(List.of(), null);
+        }
+
+        Map<UUID, Offer> offersById = offerRepository.findOffersForMobileListByIds(distances.stream()
+                        .map(distance -> UUID.fromString(distance.getId()))
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(Offer::getId, Function.identity()));
+
+        List<OfferMobileListDto> offers = distances.stream()
+                .filter(distance -> offersById.containsKey(UUID.fromString(distance.getId())))
+                .map(distance -> {
+                    Offer offer = offersById.get(UUID.fromString(distance.getId()));
+                    return new OfferMobileListDto(offer, distance.getDistance(), !offer.getStartDate().isAfter(currentDay));
+                })
+                .toList();
+
+        OfferDistanceProjection last = distances.get(distances.size() - 1);
+        String nextCursor = distances.size() < DISTANCE_LIST_PAGE_SIZE ? null
+                : new OfferDistanceCursorDto(last.getSortDistance(), UUID.fromString(last.getId())).encode();
+
+        return new OfferMobileListPageDto(offers, nextCursor);
+    }
+
+    public OfferMobileDetailDto getOfferDetails(UUID offerId, Double latitude, Double longitude, LocalDate currentDay) throws DtoValidateNotFoundException {
+        OfferDetailCacheDto offerDetail = offerDetailCacheService.getOfferDetail(offerId)
+                .orElseThrow(() -> new DtoValidateNotFoundException(errorEntityNotFound));
 
         UUID citizenId = getCurrentUser().getId();
-        String discountCode = discountCodeRepository.findByUserIdAndOfferId(citizenId, offerId)
-                .map(DiscountCode::getCode)
-                .orElse(null);
+        String discountCode = discountCodeRepository.findCodeByUserIdAndOfferId(citizenId, offerId).orElse(null);
 
-        boolean isActive = offer.get().getStartDate().isBefore(currentDay) || offer.get().getStartDate().isEqual(currentDay);
-        return OfferMobileDetailDto.entityToOfferMobileDetailDto(offer.get(), distance, discountCode, isActive);
+        return offerDetail.toOfferMobileDetailDto(latitude, longitude, discountCode, currentDay);
     }
 
     public void deleteOffers(DeleteOffersDto deleteOffersDto) {
@@ -324,6 +429,9 @@ public class OfferService {
         offers.forEach(offer -> offer.setActive(false));
 
         offerRepository.saveAll(offers);
+        List<UUID> offerIds = offers.stream().map(Offer::getId).toList();
+        offerMapIndexService.removeAll(offerIds);
+        offerDetailCacheService.evictAll(offerIds);
     }
 
     public Offer reactivateOffer(ReactivateOfferDto reactivateOfferDto) throws DtoValidateNotFoundException {
@@ -343,6 +451,8 @@ public class OfferService {
                 GenericStatusEnum.ACTIVE);
 
         offerRepository.save(offerToReactivate);
+        offerMapIndexService.upsert(offerToReactivate);
+        offerDetailCacheService.evict(offerToReactivate.getId());
         return offerToReactivate;
     }
 
@@ -416,19 +526,61 @@ public class OfferService {
     }
 
     public List<String> searchOffersByKeyword(String keyword) {
-        return offerRepository.searchByTitlePrefix(keyword, getTenantId(), GenericStatusEnum.ACTIVE, getCurrentUser().getId());
+        Set<UUID> benefitIds = getAccessibleBenefitIds();
+
+        if (benefitIds.isEmpty()) {
+            return List.of();
+        }
+
+        if (typeaheadIndexEnabled) {
+            return offerMapIndexService.suggestTitles(getTenantId(), keyword, benefitIds, suggestionLimit);
+        }
+
+        if (trigramSearchEnabled) {
+            return offerRepository.searchOfferTitlesBySimilarity(keyword, getTenantId(), benefitIds, suggestionLimit);
+        }
+
+        return offerRepository.searchByTitlePrefix(keyword, getTenantId(), GenericStatusEnum.ACTIVE, benefitIds,
+                PageRequest.of(0, suggestionLimit));
     }
 
     private List<OfferMobileMapLightDto> findOffersInViewport(Double minLatitude, Double maxLatitude,
                                                               Double minLongitude, Double maxLongitude,
                                                               LocalDate currentDay, Integer offerType,
                                                               String searchKeyword) {
+        Set<UUID> benefitIds = getAccessibleBenefitIds();
+
+        if (mapIndexEnabled) {
+            return offerMapIndexService.findOffersInViewport(getTenantId(), minLatitude, maxLatitude, minLongitude,
+                    maxLongitude, currentDay, offerType, searchKeyword, benefitIds);
+        }
+
+        if (benefitIds.isEmpty()) {
+            return List.of();
+        }
+
         if (isNotBlank(searchKeyword)) {
             return offerRepository.findActiveSearchOffersInViewport(minLatitude, maxLatitude, minLongitude, maxLongitude,
-                    currentDay, getTenantId(), offerType, getCurrentUser().getId(), searchKeyword);
+                    currentDay, getTenantId(), offerType, benefitIds, searchKeyword);
         }
         return offerRepository.findActiveOffersInViewport(minLatitude, maxLatitude, minLongitude, maxLongitude, currentDay,
-                getTenantId(), offerType, getCurrentUser().getId());
+                getTenantId(), offerType, benefitIds);
+    }
+
+    private Set<UUID> getAccessibleBenefitIds() {
+        return benefitAccessService.getAccessibleBenefitIds(getCurrentUser().getId());
+    }
+
+    private OfferDistanceCursorDto decodeCursor(String cursor) throws DtoValidateException {
+        if (cursor == null) {
+            return OfferDistanceCursorDto.FIRST_PAGE;
+        }
+
+        try {
+            return OfferDistanceCursorDto.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new DtoValidateException(errorEntityValidate);
+        }
     }
 
     private OfferType validateOfferRequest(OfferRequestDto offerRequestDto, Benefit benefit) throws DtoValidateException {
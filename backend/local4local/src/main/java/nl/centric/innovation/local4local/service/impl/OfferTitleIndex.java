@@ -0,0 +1,178 @@
+package nl.centric.innovation.local4local.service.impl;
+
+import nl.centric.innovation.local4local.dto.OfferMapEntryDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable typeahead index over offer titles. Every word start of a title is stored as a lower case
+ * key in a sorted array, title starts and later word starts apart, so word-start prefix matches are one
+ * binary search followed by a range scan that stops once enough titles are found. Title starts come first,
+ * each in key order. When the prefix matches fewer titles than requested, keys sharing the first letter and
+ * within a small edit distance of the keyword are added as a fallback for typos.
+ */
+final class OfferTitleIndex {
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparing(Suggestion::edits)
+            .thenComparing(Suggestion::titleStart, Comparator.reverseOrder())
+            .thenComparing(suggestion -> suggestion.title().length())
+            .thenComparing(Suggestion::title);
+
+    private final SortedKeys titleStarts;
+
+    private final SortedKeys wordStarts;
+
+    OfferTitleIndex(Collection<OfferMapEntryDto> offers) {
+        List<Map.Entry<String, OfferMapEntryDto>> titles = new ArrayList<>();
+        List<Map.Entry<String, OfferMapEntryDto>> words = new ArrayList<>();
+
+        for (OfferMapEntryDto offer : offers) {
+            String title = offer.title().toLowerCase(Locale.ROOT);
+
+            for (int i = 0; i < title.length(); i++) {
+                if ((i == 0 || title.charAt(i - 1) == ' ') && title.charAt(i) != ' ') {
+                    (i == 0 ? titles : words).add(Map.entry(title.substring(i), offer));
+                }
+            }
+        }
+
+        this.titleStarts = SortedKeys.of(titles);
+        this.wordStarts = SortedKeys.of(words);
+    }
+
+    List<String> suggest(String keyword, Set<UUID> benefitIds, int limit) {
+        String prefix = keyword.toLowerCase(Locale.ROOT).trim();
+
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> titles = new LinkedHashSet<>();
+        titleStarts.collectPrefixMatches(prefix, benefitIds, limit, titles);
+        wordStarts.collectPrefixMatches(prefix, benefitIds, limit, titles);
+
+        if (titles.size() >= limit) {
+            return List.copyOf(titles);
+        }
+
+        Map<String, Suggestion> typos = new HashMap<>();
+        int maxEdits = prefix.length() <= 5 ? 1 : 2;
+        titleStarts.collectTypos(prefix, maxEdits, benefitIds, true, typos);
+        wordStarts.collectTypos(prefix, maxEdits, benefitIds, false, typos);
+
+        typos.values().stream()
+                .filter(suggestion -> !titles.contains(suggestion.title()))
+                .sorted(RANKING)
+                .limit(limit - titles.size())
+                .forEach(suggestion -> titles.add(suggestion.title()));
+
+        return List.copyOf(titles);
+    }
+
+    private static boolean isAccessible(OfferMapEntryDto entry, Set<UUID> benefitIds) {
+        return entry.benefitId() != null && benefitIds.contains(entry.benefitId());
+    }
+
+    /**
+     * Levenshtein distance between the keyword and the closest prefix of the key,
+     * abandoned as soon as it exceeds maxEdits.
+     */
+    private static int prefixEditDistance(String keyword, String key, int maxEdits) {
+        int keyLength = Math.min(key.length(), keyword.length() + maxEdits);
+        int[] previous = new int[keyLength + 1];
+        int[] current = new int[keyLength + 1];
+
+        for (int j = 0; j <= keyLength; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= keyword.length(); i++) {
+            current[0] = i;
+            int rowMinimum = current[0];
+
+            for (int j = 1; j <= keyLength; j++) {
+                int substitution = previous[j - 1] + (keyword.charAt(i - 1) == key.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+
+            if (rowMinimum > maxEdits) {
+                return Integer.MAX_VALUE;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int best = Integer.MAX_VALUE;
+        for (int j = 0; j <= keyLength; j++) {
+            best = Math.min(best, previous[j]);
+        }
+
+        return best;
+    }
+
+    private record Suggestion(String title, int edits, boolean titleStart) {
+    }
+
+    private record SortedKeys(String[] keys, OfferMapEntryDto[] entries) {
+
+        private static SortedKeys of(List<Map.Entry<String, OfferMapEntryDto>> wordStarts) {
+            wordStarts.sort(Map.Entry.comparingByKey());
+
+            String[] keys = new String[wordStarts.size()];
+            OfferMapEntryDto[] entries = new OfferMapEntryDto[wordStarts.size()];
+
+            for (int i = 0; i < wordStarts.size(); i++) {
+                keys[i] = wordStarts.get(i).getKey();
+                entries[i] = wordStarts.get(i).getValue();
+            }
+
+            return new SortedKeys(keys, entries);
+        }
+
+        // walks the keys starting with the prefix in key order until the titles hold the limit
+        private void collectPrefixMatches(String prefix, Set<UUID> benefitIds, int limit, Set<String> titles) {
+            for (int i = lowerBound(prefix); i < keys.length && keys[i].startsWith(prefix) && titles.size() < limit; i++) {
+                if (isAccessible(entries[i], benefitIds)) {
+                    titles.add(entries[i].title());
+                }
+            }
+        }
+
+        // like the prefix length of a fuzzy query, typos are only looked for after the first letter, so just
+        // the keys starting with it are compared instead of every word start of every title
+        private void collectTypos(String prefix, int maxEdits, Set<UUID> benefitIds, boolean titleStart,
+                                  Map<String, Suggestion> suggestions) {
+            char first = prefix.charAt(0);
+            int end = first == Character.MAX_VALUE ? keys.length : lowerBound(String.valueOf((char) (first + 1)));
+
+            for (int i = lowerBound(String.valueOf(first)); i < end; i++) {
+                int edits = prefixEditDistance(prefix, keys[i], maxEdits);
+
+                if (edits > 0 && edits <= maxEdits && isAccessible(entries[i], benefitIds)) {
+                    Suggestion suggestion = new Suggestion(entries[i].title(), edits, titleStart);
+                    suggestions.merge(suggestion.title(), suggestion, (current, candidate) ->
+                            RANKING.compare(candidate, current) < 0 ? candidate : current);
+                }
+            }
+        }
+
+        private int lowerBound(String prefix) {
+            int index = Arrays.binarySearch(keys, prefix);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
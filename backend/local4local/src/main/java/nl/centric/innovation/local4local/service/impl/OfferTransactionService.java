@@ -1,6 +1,8 @@
 package nl.centric.innovation.local4local.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.centric.innovation.local4local.dto.InvoiceTransactionsSummaryDto;
 import nl.centric.innovation.local4local.dto.MonthlyTransactionDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceTenantDto;
@@ -11,13 +13,21 @@ import nl.centric.innovation.local4local.dto.TransactionDetailsDto;
 import nl.centric.innovation.local4local.entity.DiscountCode;
 import nl.centric.innovation.local4local.entity.OfferTransaction;
 import nl.centric.innovation.local4local.entity.Role;
+import nl.centric.innovation.local4local.enums.ExportFormat;
 import nl.centric.innovation.local4local.enums.TimeIntervalPeriod;
 import nl.centric.innovation.local4local.repository.OfferTransactionRepository;
+import nl.centric.innovation.local4local.repository.TransactionMonthlyRollupRepository;
 import nl.centric.innovation.local4local.util.DateUtils;
+import nl.centric.innovation.local4local.util.export.ExportWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -29,7 +39,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -38,58 +47,128 @@ import java.util.stream.Stream;
 
 import static nl.centric.innovation.local4local.util.DateUtils.getDefaultDateTimeFormatter;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @PropertySource({"classpath:errorcodes.properties"})
 public class OfferTransactionService {
 
+    private static final Object[] SUPPLIER_EXPORT_HEADER = {"Pass number", "Citizen", "Amount", "Date", "Time"};
+
+    private static final Object[] TENANT_EXPORT_HEADER =
+            {"Pass number", "Citizen", "Amount", "Supplier", "Benefit", "Date", "Time"};
+
     private final OfferTransactionRepository offerTransactionRepository;
+    private final TransactionMonthlyRollupRepository transactionMonthlyRollupRepository;
     private final PrincipalService principalService;
+    private final TransactionTemplate transactionTemplate;
 
-    public void saveTransaction(DiscountCode code, Double transactionAmount, LocalDateTime currentTime) {
-        OfferTransaction offerTransactionToSave = OfferTransaction.offerTransactionDtoToEntity(code, currentTime);
-        offerTransactionToSave.setAmount(transactionAmount);
+    @Value("${local4local.transaction-rollup.rebuild-on-startup:false}")
+    private boolean rebuildRollupOnStartup;
+
+    /**
+     * Recomputes the monthly rollup from the offer transactions, for backfills and after transactions were
+     * removed. Validations wait for the rebuild to commit, so no transaction is counted twice or lost.
+     */
+    public int rebuildMonthlyRollup() {
+        return transactionTemplate.execute(status -> {
+            transactionMonthlyRollupRepository.lockRollup();
+            transactionMonthlyRollupRepository.deleteRollup();
+
+            return transactionMonthlyRollupRepository.insertRollupFromTransactions();
+        });
+    }
 
-        offerTransactionRepository.save(offerTransactionToSave);
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildMonthlyRollupOnStartup() {
+        if (rebuildRollupOnStartup) {
+            log.info("Rebuilt {} monthly transaction rollup rows", rebuildMonthlyRollup());
+        }
     }
 
-    public Optional<OfferTransaction> getLastOfferValidationForCitizen(UUID offerId, UUID citizenId) {
-        return offerTransactionRepository.findFirstByDiscountCode_UserIdAndDiscountCode_OfferIdOrderByCreatedDateDesc(citizenId, offerId);
+    /**
+     * Writes a validation in a single statement. Returns false, without writing anything, when the
+     * citizen balance no longer covers the amount.
+     */
+    public boolean recordValidation(DiscountCode code, UUID benefitId, Double transactionAmount,
+                                    boolean deactivateCode, LocalDateTime currentTime) {
+        return offerTransactionRepository.recordValidation(code.getId(), code.getUserId(), benefitId,
+                transactionAmount, deactivateCode, currentTime) > 0;
     }
 
     public List<TransactionDetailsDto> getAllValidTransactions() {
 
-        return offerTransactionRepository.findAllByDiscountCode_Offer_SupplierIdOrderByCreatedDateDesc(getSupplierId())
+        return offerTransactionRepository.findAllBySupplierIdOrderByCreatedDateDesc(getSupplierId())
                 .stream()
                 .map(this::convertToTransactionDetailsDto)
                 .collect(Collectors.toList());
     }
 
     public List<Integer> getDistinctYearsForTransactionsBySupplierId() {
-        return offerTransactionRepository.findDistinctYearByCreatedDateDesc(getSupplierId());
+        return offerTransactionRepository.findDistinctYearByCreatedDateDesc(getSupplierId(), startOfCurrentYear());
     }
 
     public Integer countMonthYearTransactionsBySupplierId(Integer month, Integer year) {
-        return offerTransactionRepository.countMonthYearTransactionsBySupplierId(getSupplierId(), month, year);
+        LocalDateTime startOfMonth = startOfMonth(month, year);
+        return offerTransactionRepository.countMonthYearTransactionsBySupplierId(getSupplierId(), startOfMonth, startOfMonth.plusMonths(1));
     }
 
     public Integer countAllTransactionsBySupplierId() {
-        return offerTransactionRepository.countByDiscountCodeOfferSupplierId(getSupplierId());
+        return offerTransactionRepository.countBySupplierId(getSupplierId());
     }
 
     public List<OfferTransactionTableDto> getTransactionsByMonthAndYear(Integer month, Integer year, Integer page, Integer size) {
         Pageable pageable = PageRequest.of(page, size);
+        LocalDateTime startOfMonth = startOfMonth(month, year);
 
         return offerTransactionRepository.findTransactionsByMonthAndYear(
-                getSupplierId(), month, year, pageable);
+                getSupplierId(), startOfMonth, startOfMonth.plusMonths(1), pageable);
+    }
+
+    /**
+     * Streams all transactions of the supplier in the given month. Rows are read through a database cursor
+     * and written as they arrive, so memory use does not grow with the number of transactions.
+     */
+    public StreamingResponseBody exportTransactionsByMonthAndYear(Integer month, Integer year, ExportFormat format) {
+        UUID supplierId = getSupplierId();
+        LocalDateTime startOfMonth = startOfMonth(month, year);
+
+        return outputStream -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<OfferTransactionTableDto> rows = offerTransactionRepository.streamTransactionsByMonthAndYear(
+                    supplierId, startOfMonth, startOfMonth.plusMonths(1));
+                 ExportWriter writer = format.open(outputStream)) {
+                writer.writeRow(SUPPLIER_EXPORT_HEADER);
+                rows.forEach(row -> writer.writeRow(row.passNumber(), row.citizenName(), row.amount(),
+                        row.createdDate(), row.createdTime()));
+            }
+        });
+    }
+
+    /**
+     * Streams all transactions of the tenant in the given month, see {@link #exportTransactionsByMonthAndYear}.
+     */
+    public StreamingResponseBody exportTransactionsByMonthYearAndTenantId(Integer month, Integer year, ExportFormat format) {
+        UUID tenantId = getTenantId();
+        LocalDateTime startOfMonth = startOfMonth(month, year);
+
+        return outputStream -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<OfferTransactionTenantTableDto> rows = offerTransactionRepository.streamTransactionsByMonthYearAndTenantId(
+                    tenantId, startOfMonth, startOfMonth.plusMonths(1));
+                 ExportWriter writer = format.open(outputStream)) {
+                writer.writeRow(TENANT_EXPORT_HEADER);
+                rows.forEach(row -> writer.writeRow(row.passNumber(), row.citizenName(), row.amount(),
+                        row.supplierName(), row.benefit(), row.createdDate(), row.createdTime()));
+            }
+        });
     }
 
     public List<Integer> getDistinctYearsForTransactionsByTenantId() {
-        return offerTransactionRepository.findDistinctYearByTenantIdAndCreatedDateDesc(getTenantId());
+        return offerTransactionRepository.findDistinctYearByTenantIdAndCreatedDateDesc(getTenantId(), startOfCurrentYear());
     }
 
     public Integer countMonthYearTransactionsByTenantId(Integer month, Integer year) {
-        return offerTransactionRepository.countMonthYearTransactionsByTenantId(getTenantId(), month, year);
+        LocalDateTime startOfMonth = startOfMonth(month, year);
+        return offerTransactionRepository.countMonthYearTransactionsByTenantId(getTenantId(), startOfMonth, startOfMonth.plusMonths(1));
     }
 
     public List<OfferTransactionInvoiceTenantDto> getTransactionsByMonthYearAndTenantId(LocalDate startDate, LocalDate endDate) {
@@ -100,15 +179,28 @@ public class OfferTransactionService {
 
     public List<OfferTransactionTenantTableDto> getTransactionsByMonthYearAndTenantId(Integer month, Integer year, Integer page, Integer size) {
         Pageable pageable = PageRequest.of(page, size);
+        LocalDateTime startOfMonth = startOfMonth(month, year);
 
         return offerTransactionRepository.findTransactionsByMonthYearAndTenantId(
-                getTenantId(), month, year, pageable);
+                getTenantId(), startOfMonth, startOfMonth.plusMonths(1), pageable);
     }
 
     public List<OfferTransactionInvoiceDto> getTransactionsByMonthAndYear(LocalDate startDate, LocalDate endDate) {
+        return getTransactionsBySupplierIdBetweenDates(getSupplierId(), startDate, endDate);
+    }
+
+    public List<OfferTransactionInvoiceDto> getTransactionsBySupplierIdBetweenDates(UUID supplierId, LocalDate startDate,
+                                                                                    LocalDate endDate) {
         LocalDateTime endOfDay = endDate.atStartOfDay().plusDays(1).minusNanos(1);
         return offerTransactionRepository.findTransactionsByMonthAndYear(
-                getSupplierId(), startDate.atStartOfDay(), endOfDay);
+                supplierId, startDate.atStartOfDay(), endOfDay);
+    }
+
+    public InvoiceTransactionsSummaryDto getInvoiceTransactionsSummary(UUID supplierId, LocalDate startDate,
+                                                                       LocalDate endDate) {
+        LocalDateTime endOfDay = endDate.atStartOfDay().plusDays(1).minusNanos(1);
+        return offerTransactionRepository.findInvoiceTransactionsSummary(
+                supplierId, startDate.atStartOfDay(), endOfDay);
     }
 
     public Map<YearMonth, List<OfferTransactionsGroupedDto>> getUserTransactionsGrouped(Integer pageIndex, Integer pageSize) {
@@ -122,7 +214,7 @@ public class OfferTransactionService {
     }
 
     public Integer countAllTransactionsByTenantId() {
-        return offerTransactionRepository.countByDiscountCode_Offer_Supplier_Tenant_Id(getTenantId());
+        return offerTransactionRepository.countByTenantId(getTenantId());
     }
 
     /**
@@ -161,12 +253,12 @@ public class OfferTransactionService {
 
     private List<MonthlyTransactionDto> geTransactionsOnRole(LocalDateTime fromDate) {
         if (Objects.equals(getUserRole(), Role.ROLE_MUNICIPALITY_ADMIN)) {
-            return offerTransactionRepository
-                    .sumTransactionsByMonthAndTenantIdSince(getTenantId(), fromDate);
+            return transactionMonthlyRollupRepository
+                    .sumAmountByMonthAndTenantIdSince(getTenantId(), fromDate.toLocalDate());
         }
 
-        return offerTransactionRepository
-                .sumTransactionsByMonthAndSupplierIdSince(getSupplierId(), fromDate);
+        return transactionMonthlyRollupRepository
+                .sumAmountByMonthAndSupplierIdSince(getSupplierId(), fromDate.toLocalDate());
     }
 
     private Set<Integer> getExpectedMonthsForPeriod(LocalDateTime now, TimeIntervalPeriod period) {
@@ -222,6 +314,14 @@ public class OfferTransactionService {
                 .toList();
     }
 
+    private static LocalDateTime startOfMonth(Integer month, Integer year) {
+        return YearMonth.of(year, month).atDay(1).atStartOfDay();
+    }
+
+    private static LocalDateTime startOfCurrentYear() {
+        return LocalDate.now().withDayOfYear(1).atStartOfDay();
+    }
+
     private TransactionDetailsDto convertToTransactionDetailsDto(OfferTransaction transaction) {
         return TransactionDetailsDto.of(
                 transaction.getDiscountCode().getCode(),
@@ -61,6 +61,8 @@ public class PassholderService {
 
     private final CitizenBenefitService citizenBenefitService;
 
+    private final BenefitAccessService benefitAccessService;
+
     @Value("${error.entity.notfound}")
     private String errorEntityNotFound;
 
@@ -134,7 +136,10 @@ public class PassholderService {
         passholderToSave.setId(passholderDto.id());
         passholderToSave.setUser(passholder.getUser());
 
-        return entityToPassholderViewDto(passholderRepository.save(passholderToSave));
+        Passholder savedPassholder = passholderRepository.save(passholderToSave);
+        evictBenefitAccess(savedPassholder);
+
+        return entityToPassholderViewDto(savedPassholder);
     }
 
     public void deletePassholder(UUID passholderId) throws DtoValidateNotFoundException {
@@ -146,6 +151,7 @@ public class PassholderService {
         }
 
         passholderRepository.deleteById(passholderId);
+        evictBenefitAccess(passholder.get());
     }
 
     public Passholder getPassholderByPassNumber(String passNumber) throws DtoValidateNotFoundException {
@@ -157,7 +163,13 @@ public class PassholderService {
         passholder.setUser(user);
         passholderRepository.save(passholder);
         citizenBenefitService.createCitizenBenefitForUserIdAndBenefits(user.getId(), passholder.getCitizenGroup().getBenefits());
+        benefitAccessService.evict(user.getId());
+    }
 
+    private void evictBenefitAccess(Passholder passholder) {
+        if (passholder.getUser() != null) {
+            benefitAccessService.evict(passholder.getUser().getId());
+        }
     }
 
     private List<Passholder> parseCsvFile(List<CSVRecord> csvRecords, Tenant tenant, CitizenGroup citizenGroup) throws DtoValidateException {
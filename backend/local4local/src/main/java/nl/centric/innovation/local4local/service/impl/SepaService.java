@@ -1,37 +1,31 @@
 package nl.centric.innovation.local4local.service.impl;
 
-import com.prowidesoftware.swift.model.mx.MxPain00100103;
-import com.prowidesoftware.swift.model.mx.dic.AccountIdentification4Choice;
-import com.prowidesoftware.swift.model.mx.dic.ActiveOrHistoricCurrencyAndAmount;
-import com.prowidesoftware.swift.model.mx.dic.AmountType3Choice;
-import com.prowidesoftware.swift.model.mx.dic.BranchAndFinancialInstitutionIdentification4;
-import com.prowidesoftware.swift.model.mx.dic.CashAccount16;
-import com.prowidesoftware.swift.model.mx.dic.CreditTransferTransactionInformation10;
-import com.prowidesoftware.swift.model.mx.dic.CustomerCreditTransferInitiationV03;
-import com.prowidesoftware.swift.model.mx.dic.FinancialInstitutionIdentification7;
-import com.prowidesoftware.swift.model.mx.dic.GroupHeader32;
-import com.prowidesoftware.swift.model.mx.dic.PartyIdentification32;
-import com.prowidesoftware.swift.model.mx.dic.PaymentIdentification1;
-import com.prowidesoftware.swift.model.mx.dic.PaymentInstructionInformation3;
-import com.prowidesoftware.swift.model.mx.dic.PaymentMethod3Code;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceDto;
-import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceTenantDto;
-import nl.centric.innovation.local4local.entity.Supplier;
+import nl.centric.innovation.local4local.dto.SepaCreditTransferDto;
+import nl.centric.innovation.local4local.dto.SepaTotalsDto;
 import nl.centric.innovation.local4local.entity.Tenant;
 import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException;
+import nl.centric.innovation.local4local.repository.OfferTransactionRepository;
 import nl.centric.innovation.local4local.repository.TenantRepository;
+import nl.centric.innovation.local4local.util.export.SepaCreditTransferWriter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
-import java.util.List;
+import java.time.YearMonth;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static nl.centric.innovation.local4local.util.DateUtils.getLastDayOfMonth;
 
@@ -39,172 +33,81 @@ import static nl.centric.innovation.local4local.util.DateUtils.getLastDayOfMonth
 @Slf4j
 @RequiredArgsConstructor
 public class SepaService {
-    private final OfferTransactionService offerTransactionService;
+    private final OfferTransactionRepository offerTransactionRepository;
     private final PrincipalService principalService;
-    private final SupplierService supplierService;
     private final TenantRepository tenantRepository;
-    private static final String CURRENCY = "EUR";
+    private final PlatformTransactionManager transactionManager;
     private static final Integer DAYS_UNTIL_DUE_DATE = 30;
 
     @Value("${error.entity.notfound}")
     private String errorEntityNotFound;
 
     /**
-     * Generates a SEPA XML payment file as a string.
-     * It builds the group header and payment information sections,
-     * wraps them in a CustomerCreditTransferInitiationV03 message,
-     * and returns the serialized XML representation.
+     * Generates a SEPA XML payment file for the given month.
+     * The number of transfers and the control sum for the headers are computed in the database first,
+     * after which the credit transfers are read through a database cursor and written as they arrive.
+     * Both are read in one repeatable read transaction, so transactions recorded while the file is written
+     * can not make the headers disagree with the transfers.
+     * When netted, the transactions of each supplier account are summed in the database
+     * into a single credit transfer.
      *
-     * @return the SEPA payment XML file content as a string
+     * @return the SEPA payment XML file, written while the response is streamed
      */
-    public String generateSepaFile(LocalDate month) throws DtoValidateNotFoundException {
-        List<OfferTransactionInvoiceTenantDto> transactions = getOfferTransactionsByTenant(month);
+    public StreamingResponseBody generateSepaFile(LocalDate month, boolean netted) throws DtoValidateNotFoundException {
+        UUID tenantId = principalService.getTenantId();
+        LocalDate firstDayOfMonth = month.withDayOfMonth(1);
+        LocalDateTime startDate = firstDayOfMonth.atStartOfDay();
+        LocalDateTime endDate = getLastDayOfMonth(firstDayOfMonth).plusDays(1).atStartOfDay();
 
-        if (transactions.isEmpty()) {
+        if (offerTransactionRepository.findSepaTotals(tenantId, startDate, endDate).transactionCount() == 0) {
             log.warn("No transactions found for the current month.");
             throw new DtoValidateNotFoundException(errorEntityNotFound);
         }
 
-        CustomerCreditTransferInitiationV03 creditTransfer = new CustomerCreditTransferInitiationV03();
-
-        creditTransfer.setGrpHdr(buildGroupHeader(transactions));
-        creditTransfer.getPmtInf().add(buildPaymentInfo(transactions));
-
-        MxPain00100103 message = new MxPain00100103();
-        message.setCstmrCdtTrfInitn(creditTransfer);
-        return message.message();
+        Tenant tenant = geTenant(tenantId);
+        String debtorName = getDebtorName();
+
+        return outputStream -> snapshotTransactionTemplate().executeWithoutResult(status -> {
+            SepaTotalsDto totals = offerTransactionRepository.findSepaTotals(tenantId, startDate, endDate);
+            long numberOfTransfers = netted ? totals.creditorCount() : totals.transactionCount();
+            BigDecimal controlSum = toAmount(totals.totalAmount());
+
+            try (Stream<SepaCreditTransferDto> transfers = netted
+                    ? offerTransactionRepository.streamNettedSepaCreditTransfers(tenantId, startDate, endDate)
+                    : offerTransactionRepository.streamSepaCreditTransfers(tenantId, startDate, endDate);
+                 SepaCreditTransferWriter writer = new SepaCreditTransferWriter(outputStream)) {
+
+                writer.writeGroupHeader(generateMessageIdentification(), OffsetDateTime.now(), numberOfTransfers,
+                        controlSum, debtorName);
+                writer.startPaymentInformation(generatePaymentInformationIdentification(), numberOfTransfers, controlSum,
+                        LocalDate.now().plusDays(DAYS_UNTIL_DUE_DATE), debtorName, tenant.getIban(), tenant.getBic());
+
+                transfers.forEach(transfer -> writer.writeCreditTransfer(generateEndtoEndIdentification(),
+                        toAmount(transfer.amount()), transfer.creditorName(), transfer.creditorIban(),
+                        netted ? buildRemittanceInformation(month, transfer) : null));
+            }
+        });
     }
 
-    /**
-     * Constructs and returns a GroupHeader32 object containing
-     * the message identification, creation timestamp, number of transactions,
-     * control sum (total amount), and initiating party information.
-     *
-     * @return a fully populated GroupHeader32 instance for message header
-     */
-    private GroupHeader32 buildGroupHeader(List<OfferTransactionInvoiceTenantDto> transactions) {
-        GroupHeader32 header = new GroupHeader32();
-        header.setMsgId(generateMessageIdentification());
-        header.setCreDtTm(OffsetDateTime.now());
-
-        BigDecimal totalAmount = calculateTotalAmount(transactions);
-
-        header.setNbOfTxs(String.valueOf(transactions.size()));
-        header.setCtrlSum(totalAmount);
-
-        PartyIdentification32 initiatingParty = new PartyIdentification32();
-        initiatingParty.setNm(getDebtorName());
-        header.setInitgPty(initiatingParty);
+    private TransactionTemplate snapshotTransactionTemplate() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        template.setReadOnly(true);
 
-        return header;
+        return template;
     }
 
-
     /**
-     * Builds and returns a PaymentInstructionInformation3 object
-     * with payment details including debtor info, account, agent,
-     * payment method, and requested execution date set to 30 days from today.
-     *
-     * @return a populated PaymentInstructionInformation3 instance ready for processing
+     * Describes a netted credit transfer, so the supplier can match it with its transactions.
      */
-    private PaymentInstructionInformation3 buildPaymentInfo(List<OfferTransactionInvoiceTenantDto> transactions) throws DtoValidateNotFoundException {
-        PaymentInstructionInformation3 paymentInfo = new PaymentInstructionInformation3();
-        paymentInfo.setPmtInfId(generatePaymentInformationIdentification());
-        paymentInfo.setPmtMtd(PaymentMethod3Code.TRF);
-        paymentInfo.setReqdExctnDt(LocalDate.now().plusDays(DAYS_UNTIL_DUE_DATE));
-
-        paymentInfo.setDbtr(buildParty(getDebtorName()));
-
-        Tenant tenant = geTenant();
-        paymentInfo.setDbtrAcct(buildAccount(tenant.getIban()));
-        paymentInfo.setDbtrAgt(buildAgent(tenant.getBic()));
-
-        // Add each transaction's credit transfer info
-        for (OfferTransactionInvoiceTenantDto tx : transactions) {
-            paymentInfo.getCdtTrfTxInf().add(buildCreditTransferTransaction(tx));
-        }
-        return paymentInfo;
+    private String buildRemittanceInformation(LocalDate month, SepaCreditTransferDto transfer) {
+        return String.format("%d transactions %s", transfer.transactionCount(), YearMonth.from(month));
     }
 
-    /**
-     * Builds and returns a CreditTransferTransactionInformation10 object
-     * representing a single credit transfer transaction with payment identification,
-     * instructed amount (currency and value), creditor details, and creditor account.
-     *
-     * @return a fully populated CreditTransferTransactionInformation10 instance
-     */
-    private CreditTransferTransactionInformation10 buildCreditTransferTransaction(OfferTransactionInvoiceTenantDto transactionDto) throws DtoValidateNotFoundException {
-        CreditTransferTransactionInformation10 transaction = new CreditTransferTransactionInformation10();
-
-        PaymentIdentification1 pmtId = new PaymentIdentification1();
-        pmtId.setEndToEndId(generateEndtoEndIdentification()); //checked
-        transaction.setPmtId(pmtId);
-
-        AmountType3Choice amt = new AmountType3Choice();
-        ActiveOrHistoricCurrencyAndAmount instructedAmount = new ActiveOrHistoricCurrencyAndAmount();
-        instructedAmount.setCcy(CURRENCY);
-        instructedAmount.setValue(BigDecimal.valueOf(transactionDto.amount()));
-        amt.setInstdAmt(instructedAmount);
-        transaction.setAmt(amt);
-
-        transaction.setCdtr(buildParty(transactionDto.supplierName()));
-        transaction.setCdtrAcct(buildAccount(transactionDto.supplierIban()));
-
-        return transaction;
-    }
-
-    /**
-     * Creates and returns a PartyIdentification32 object with the given party name set.
-     *
-     * @param name the name of the party
-     * @return a PartyIdentification32 instance with the name initialized
-     */
-    private PartyIdentification32 buildParty(String name) {
-        PartyIdentification32 party = new PartyIdentification32();
-        party.setNm(name);
-        return party;
-    }
-
-    /**
-     * Creates and returns a CashAccount16 object with the specified IBAN set as the account identifier.
-     *
-     * @param iban the IBAN string for the account
-     * @return a CashAccount16 instance with the IBAN initialized
-     */
-    private CashAccount16 buildAccount(String iban) {
-        CashAccount16 account = new CashAccount16();
-        AccountIdentification4Choice id = new AccountIdentification4Choice();
-        id.setIBAN(iban);
-        account.setId(id);
-        return account;
-    }
-
-    /**
-     * Creates and returns a BranchAndFinancialInstitutionIdentification4 object
-     * representing the financial institution agent identified by the given BIC.
-     *
-     * @param bic the BIC (Bank Identifier Code) of the financial institution
-     * @return a BranchAndFinancialInstitutionIdentification4 instance with the BIC set
-     */
-    private BranchAndFinancialInstitutionIdentification4 buildAgent(String bic) {
-        FinancialInstitutionIdentification7 financialIdentification = new FinancialInstitutionIdentification7();
-        financialIdentification.setBIC(bic);
-
-        BranchAndFinancialInstitutionIdentification4 agent = new BranchAndFinancialInstitutionIdentification4();
-        agent.setFinInstnId(financialIdentification);
-        return agent;
-    }
-
-    private List<OfferTransactionInvoiceTenantDto> getOfferTransactionsByTenant(LocalDate firstDayOfMonth) {
-        return offerTransactionService.getTransactionsByMonthYearAndTenantId(
-                firstDayOfMonth, getLastDayOfMonth(firstDayOfMonth));
-    }
-
-    private BigDecimal calculateTotalAmount(List<OfferTransactionInvoiceTenantDto> transactions) {
-        return transactions.stream()
-                .map(tx -> BigDecimal.valueOf(tx.amount()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_EVEN);
+    private BigDecimal toAmount(Double amount) {
+        return Objects.isNull(amount)
+                ? BigDecimal.ZERO.setScale(2, RoundingMode.HALF_EVEN)
+                : BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_EVEN);
     }
 
     // The following three methods are now generated as placeholders until it is decided how to implement them.
@@ -220,16 +123,11 @@ public class SepaService {
         return "E2E-" + UUID.randomUUID().toString().replace("-", "").substring(0, 30);
     }
 
-    private String getCreditorName() {
-        return principalService.getUserFullName();
-    }
-
     private String getDebtorName() {
         return principalService.getTenant().getName();
     }
 
-    private Tenant geTenant() throws DtoValidateNotFoundException {
-        UUID tenantId = principalService.getTenantId();
+    private Tenant geTenant(UUID tenantId) throws DtoValidateNotFoundException {
         Optional<Tenant> tenant = tenantRepository.findById(tenantId);
 
         if(tenant.isEmpty()) {
@@ -50,6 +50,10 @@ public class SupplierProfileService {
 
     private final RejectSupplierRepository rejectSupplierRepository;
 
+    private final OfferMapIndexService offerMapIndexService;
+
+    private final OfferDetailCacheService offerDetailCacheService;
+
 
     @Value("${local4local.municipality.server.name}")
     private String baseURL;
@@ -217,6 +221,8 @@ public class SupplierProfileService {
 
             supplierProfileRepository.save(supplierProfile);
             supplierRepository.save(supplier);
+            offerMapIndexService.evictTenant(principalService.getTenantId());
+            offerDetailCacheService.evictSupplier(supplier.getId());
         } catch (DataIntegrityViolationException | L4LException exception) {
             throw new DtoValidateException(dataIntegrityViolation);
         }
@@ -73,6 +73,8 @@ public class SupplierService {
 
     private final PrincipalService principalService;
 
+    private final UserDetailsServiceImpl userDetailsService;
+
     //private final QRCodeGenerator qrCodeGenerator;
 
     @Value("${error.unique.violation}")
@@ -100,6 +102,10 @@ public class SupplierService {
         return supplierRepository.findWithSupplierProfileById(supplierId);
     }
 
+    public List<Supplier> findApprovedByTenantId(UUID tenantId) {
+        return supplierRepository.findAllByTenantIdAndStatus(tenantId, SupplierStatusEnum.APPROVED);
+    }
+
     public Optional<RejectSupplier> findRejectedSupplier(UUID supplierId) {
         return rejectSupplierRepository.findBySupplierId(supplierId);
     }
@@ -258,6 +264,8 @@ public class SupplierService {
         }
         supplier.setStatus(status);
         supplierRepository.save(supplier);
+        // the status of the supplier decides which requests its users may make
+        userDetailsService.evictBySupplierId(supplier.getId());
     }
 
     @Transactional
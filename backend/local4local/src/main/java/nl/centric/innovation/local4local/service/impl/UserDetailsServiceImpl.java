@@ -1,7 +1,15 @@
 package nl.centric.innovation.local4local.service.impl;
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.RequiredArgsConstructor;
+import nl.centric.innovation.local4local.entity.Role;
+import nl.centric.innovation.local4local.entity.Supplier;
+import nl.centric.innovation.local4local.entity.Tenant;
+import nl.centric.innovation.local4local.entity.User;
+import nl.centric.innovation.local4local.enums.SupplierStatusEnum;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -9,13 +17,183 @@ import org.springframework.stereotype.Service;
 
 import nl.centric.innovation.local4local.repository.UserRepository;
 
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static nl.centric.innovation.local4local.util.TransactionUtils.afterCommit;
+
+/**
+ * Loads users for the login and the principals of authenticated requests. Principals are kept in a bounded cache by
+ * username, so requests carrying a token do not query the user. Only an immutable snapshot of the user and the
+ * associations requests read is cached, every request gets its own user built from it. Changes to a user or its
+ * supplier that matter for authentication evict the cached principal, the expiry bounds how long any other change
+ * can go unnoticed.
+ */
 @Service
 @RequiredArgsConstructor
 public class UserDetailsServiceImpl implements UserDetailsService {
     private final UserRepository userRepository;
 
+    @Value("${local4local.principal-cache.expire-seconds:300}")
+    private long expireSeconds;
+
+    @Value("${local4local.principal-cache.max-size:10000}")
+    private long maxSize;
+
+    // usernames are matched ignoring case, so they are kept in lower case
+    private Cache<String, CachedPrincipal> principals;
+
+    @PostConstruct
+    public void init() {
+        principals = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .maximumSize(maxSize)
+                .build();
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         return userRepository.findByUsernameIgnoreCase(username).orElseThrow(() -> new UsernameNotFoundException("Username not found"));
     }
+
+    /**
+     * Loads the principal of a request authenticated with a token, from the cache when present.
+     */
+    public User loadPrincipalByUsername(String username) throws UsernameNotFoundException {
+        String key = cacheKey(username);
+        CachedPrincipal principal = principals.getIfPresent(key);
+
+        if (Objects.isNull(principal)) {
+            principal = CachedPrincipal.of((User) loadUserByUsername(username));
+            principals.put(key, principal);
+        }
+
+        return principal.toUser();
+    }
+
+    public void evict(String username) {
+        if (Objects.nonNull(username)) {
+            String key = cacheKey(username);
+            afterCommit(() -> principals.invalidate(key));
+        }
+    }
+
+    public void evictBySupplierId(UUID supplierId) {
+        afterCommit(() -> principals.asMap().values().removeIf(principal -> Objects.nonNull(principal.supplier())
+                && supplierId.equals(principal.supplier().id())));
+    }
+
+    private static String cacheKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] copyOf(byte[] bytes) {
+        return Objects.isNull(bytes) ? null : bytes.clone();
+    }
+
+    /**
+     * The fields of a user that requests read from their principal. Every request gets a new user built from them,
+     * so a request changing its principal or one of its associations never changes the cached one.
+     */
+    private record CachedPrincipal(UUID id, LocalDateTime createdDate, String username, String firstName,
+                                   String lastName, String password, boolean isActive, boolean isApproved,
+                                   Boolean isEnabled, UUID tenantId, Integer roleId, String roleName,
+                                   CachedSupplier supplier) {
+
+        private static CachedPrincipal of(User user) {
+            Role role = user.getRole();
+
+            return new CachedPrincipal(user.getId(), user.getCreatedDate(), user.getUsername(), user.getFirstName(),
+                    user.getLastName(), user.getPassword(), user.isActive(), user.isApproved(), user.getIsEnabled(),
+                    user.getTenantId(), Objects.isNull(role) ? null : role.getId(),
+                    Objects.isNull(role) ? null : role.getName(), CachedSupplier.of(user.getSupplier()));
+        }
+
+        private User toUser() {
+            User user = User.builder()
+                    .username(username)
+                    .firstName(firstName)
+                    .lastName(lastName)
+                    .password(password)
+                    .isActive(isActive)
+                    .isApproved(isApproved)
+                    .tenantId(tenantId)
+                    .role(Objects.isNull(roleId) && Objects.isNull(roleName) ? null : new Role(roleId, roleName))
+                    .supplier(Objects.isNull(supplier) ? null : supplier.toSupplier())
+                    .isEnabled(isEnabled)
+                    .build();
+            user.setId(id);
+            user.setCreatedDate(createdDate);
+
+            return user;
+        }
+    }
+
+    private record CachedSupplier(UUID id, LocalDateTime createdDate, String companyName, String kvk,
+                                  Boolean isProfileSet, Boolean isReviewed, boolean hasStatusUpdate,
+                                  SupplierStatusEnum status, String adminEmail, CachedTenant tenant) {
+
+        private static CachedSupplier of(Supplier supplier) {
+            if (Objects.isNull(supplier)) {
+                return null;
+            }
+
+            return new CachedSupplier(supplier.getId(), supplier.getCreatedDate(), supplier.getCompanyName(),
+                    supplier.getKvk(), supplier.getIsProfileSet(), supplier.getIsReviewed(),
+                    supplier.isHasStatusUpdate(), supplier.getStatus(), supplier.getAdminEmail(),
+                    CachedTenant.of(supplier.getTenant()));
+        }
+
+        private Supplier toSupplier() {
+            Supplier supplier = Supplier.builder()
+                    .companyName(companyName)
+                    .kvk(kvk)
+                    .isProfileSet(isProfileSet)
+                    .isReviewed(isReviewed)
+                    .hasStatusUpdate(hasStatusUpdate)
+                    .status(status)
+                    .adminEmail(adminEmail)
+                    .tenant(Objects.isNull(tenant) ? null : tenant.toTenant())
+                    .build();
+            supplier.setId(id);
+            supplier.setCreatedDate(createdDate);
+
+            return supplier;
+        }
+    }
+
+    private record CachedTenant(UUID id, LocalDateTime createdDate, String name, String address, String iban,
+                                String bic, Double wage, String email, String phone, byte[] logo) {
+
+        private static CachedTenant of(Tenant tenant) {
+            if (Objects.isNull(tenant)) {
+                return null;
+            }
+
+            return new CachedTenant(tenant.getId(), tenant.getCreatedDate(), tenant.getName(), tenant.getAddress(),
+                    tenant.getIban(), tenant.getBic(), tenant.getWage(), tenant.getEmail(), tenant.getPhone(),
+                    copyOf(tenant.getLogo()));
+        }
+
+        private Tenant toTenant() {
+            Tenant tenant = Tenant.builder()
+                    .name(name)
+                    .address(address)
+                    .iban(iban)
+                    .bic(bic)
+                    .wage(wage)
+                    .email(email)
+                    .phone(phone)
+                    .logo(copyOf(logo))
+                    .build();
+            tenant.setId(id);
+            tenant.setCreatedDate(createdDate);
+
+            return tenant;
+        }
+    }
 }
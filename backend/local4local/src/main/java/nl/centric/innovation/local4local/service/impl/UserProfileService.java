@@ -27,6 +27,8 @@ public class UserProfileService {
 
     private final PrincipalService principalService;
 
+    private final UserDetailsServiceImpl userDetailsService;
+
     @Value("${error.entity.notfound}")
     private String errorEntityNotFound;
 
@@ -46,6 +48,8 @@ public class UserProfileService {
         updatedUser.setUserProfile((userProfile));
 
         User savedUser = userRepository.save(updatedUser);
+        userDetailsService.evict(savedUser.getUsername());
+
         return UserProfileDto.entityToUserProfileDto(savedUser.getUserProfile());
     }
 
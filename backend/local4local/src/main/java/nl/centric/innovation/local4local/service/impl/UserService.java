@@ -24,7 +24,6 @@ import nl.centric.innovation.local4local.dto.SetupPasswordDTO;
 import nl.centric.innovation.local4local.dto.SetupPasswordValidateDTO;
 import nl.centric.innovation.local4local.dto.UserTableDto;
 import nl.centric.innovation.local4local.entity.DeletedUser;
-import nl.centric.innovation.local4local.entity.LoginAttempt;
 import nl.centric.innovation.local4local.entity.Passholder;
 import nl.centric.innovation.local4local.entity.RecoverPassword;
 import nl.centric.innovation.local4local.entity.Role;
@@ -103,6 +102,8 @@ public class UserService {
 
     private final JwtUtil jwtUtil;
 
+    private final UserDetailsServiceImpl userDetailsService;
+
     @Value("${error.account.tokenExpired}")
     private String confirmationTokenExpired;
 
@@ -292,6 +293,7 @@ public class UserService {
         User updatedUser = user.get();
         updatedUser.setPassword(bCryptPasswordEncoder.encode(rawPassword));
         userRepository.save(updatedUser);
+        userDetailsService.evict(updatedUser.getUsername());
         rp.get().setIsActive(false);
         recoverPasswordService.save(rp.get());
     }
@@ -321,6 +323,7 @@ public class UserService {
         user.get().setPassword(bCryptPasswordEncoder.encode(setupPasswordDTO.password()));
         user.get().setIsEnabled(true);
         userRepository.save(user.get());
+        userDetailsService.evict(user.get().getUsername());
     }
 
     public Boolean validateToken(SetupPasswordValidateDTO setupPasswordValidateDTO) throws DtoValidateException {
@@ -345,6 +348,7 @@ public class UserService {
         User user = confirmationToken.getUser();
         user.setIsEnabled(true);
         userRepository.save(user);
+        userDetailsService.evict(user.getUsername());
         confirmationTokenRepository.deleteById(confirmationToken.getId());
 
         redirectToSuccessfulRegistrationPage(response, user.getRole());
@@ -375,6 +379,7 @@ public class UserService {
         String anonymized = "delete_" + LocalDateTime.now();
 
         User user = getUser();
+        userDetailsService.evict(user.getUsername());
 
         user.setUsername(anonymized);
         user.setFirstName(anonymized);
@@ -473,8 +478,7 @@ public class UserService {
             throw new RecoverException(errorRecoveryExceeded);
         }
 
-        Optional<LoginAttempt> loginAttempt = loginAttemptService.findByRemoteAddress(remoteAddress);
-        loginAttemptService.countLoginAttempts(loginAttempt, remoteAddress, true);
+        loginAttemptService.loginSucceeded(remoteAddress, null);
     }
 
     private void validateCaptcha(String reCaptchaResponse, String remoteAddress) throws CaptchaException {
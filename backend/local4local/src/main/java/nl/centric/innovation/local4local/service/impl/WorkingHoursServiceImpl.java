@@ -24,6 +24,8 @@ public class WorkingHoursServiceImpl implements WorkingHoursService {
 
     private final WorkingHoursRepository workingHoursRepository;
 
+    private final OfferDetailCacheService offerDetailCacheService;
+
     @Value("${error.general.entityValidate}")
     private String errorEntityValidate;
 
@@ -49,6 +51,7 @@ public class WorkingHoursServiceImpl implements WorkingHoursService {
         }
 
         List<WorkingHours> workingHoursList = (List<WorkingHours>) workingHoursRepository.saveAll(workingHoursToSave);
+        offerDetailCacheService.evictSupplier(supplier.getId());
 
         return workingHoursList.stream()
                 .map(WorkingHoursDto::workingHoursEntityToDto)
@@ -0,0 +1,13 @@
+package nl.centric.innovation.local4local.service.interfaces;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Keeps generated documents by key, keys are relative paths such as "tenant/2025-02/supplier_nl-NL.pdf".
+ */
+public interface DocumentStore {
+    void put(String key, byte[] content) throws IOException;
+
+    Optional<byte[]> get(String key) throws IOException;
+}
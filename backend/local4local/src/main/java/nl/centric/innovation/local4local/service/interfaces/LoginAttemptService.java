@@ -1,12 +1,13 @@
 package nl.centric.innovation.local4local.service.interfaces;
 
-import nl.centric.innovation.local4local.entity.LoginAttempt;
+public interface LoginAttemptService {
 
-import java.util.Optional;
+    boolean isBlocked(String remoteAddress, String username);
 
-public interface LoginAttemptService {
-    LoginAttempt countLoginAttempts(Optional<LoginAttempt> loginAttempt, String remoteAddress, boolean isSuccessful);
-    Optional<LoginAttempt> findByRemoteAddress(String remoteAddress);
+    /**
+     * Records a failed login and returns whether the remote address or username is blocked afterwards.
+     */
+    boolean loginFailed(String remoteAddress, String username);
 
-    boolean isBlocked(LoginAttempt loginAttempt);
+    void loginSucceeded(String remoteAddress, String username);
 }
@@ -21,25 +21,38 @@ public class DateUtils {
     }
 
     public static boolean isDateBeforeToday(LocalDateTime dateTime) {
-        LocalDateTime today = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
+        return isDateBeforeToday(dateTime, LocalDateTime.now());
+    }
+
+    public static boolean isDateBeforeToday(LocalDateTime dateTime, LocalDateTime at) {
+        LocalDateTime today = at.withHour(0).withMinute(0).withSecond(0).withNano(0);
         return dateTime.isBefore(today);
     }
 
     public static boolean isDateBeforeWeek(LocalDateTime dateTime) {
-        LocalDateTime today = LocalDateTime.now();
-        LocalDateTime startOfWeek = today.minusDays(today.getDayOfWeek().getValue() - 1).withHour(0).withMinute(0).withSecond(0).withNano(0);
+        return isDateBeforeWeek(dateTime, LocalDateTime.now());
+    }
+
+    public static boolean isDateBeforeWeek(LocalDateTime dateTime, LocalDateTime at) {
+        LocalDateTime startOfWeek = at.minusDays(at.getDayOfWeek().getValue() - 1).withHour(0).withMinute(0).withSecond(0).withNano(0);
         return dateTime.isBefore(startOfWeek);
     }
 
     public static boolean isDateBeforeMonth(LocalDateTime dateTime) {
-        LocalDateTime today = LocalDateTime.now();
-        LocalDateTime startOfMonth = today.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
+        return isDateBeforeMonth(dateTime, LocalDateTime.now());
+    }
+
+    public static boolean isDateBeforeMonth(LocalDateTime dateTime, LocalDateTime at) {
+        LocalDateTime startOfMonth = at.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
         return dateTime.isBefore(startOfMonth);
     }
 
     public static boolean isDateBeforeYear(LocalDateTime dateTime) {
-        LocalDateTime today = LocalDateTime.now();
-        LocalDateTime startOfYear = today.withDayOfYear(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
+        return isDateBeforeYear(dateTime, LocalDateTime.now());
+    }
+
+    public static boolean isDateBeforeYear(LocalDateTime dateTime, LocalDateTime at) {
+        LocalDateTime startOfYear = at.withDayOfYear(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
         return dateTime.isBefore(startOfYear);
     }
 
@@ -16,6 +16,21 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 
 public class MapUtils {
+
+    // mean earth radius, within half a percent of the spheroid distances computed by PostGIS geography
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    public static double distanceInMeters(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        double latitudeDelta = Math.toRadians(toLatitude - fromLatitude);
+        double longitudeDelta = Math.toRadians(toLongitude - fromLongitude);
+
+        double haversine = Math.pow(Math.sin(latitudeDelta / 2), 2)
+                + Math.cos(Math.toRadians(fromLatitude)) * Math.cos(Math.toRadians(toLatitude))
+                * Math.pow(Math.sin(longitudeDelta / 2), 2);
+
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(haversine)));
+    }
+
     public static Point getPointFromGeographicCoordinates(double longitude, double latitude) throws L4LException {
         GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
         Point point;
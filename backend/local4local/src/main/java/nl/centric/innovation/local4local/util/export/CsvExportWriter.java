@@ -0,0 +1,57 @@
+package nl.centric.innovation.local4local.util.export;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+public class CsvExportWriter implements ExportWriter {
+
+    private static final String FORMULA_START = "=+-@\t\r";
+
+    private final CSVPrinter printer;
+
+    public CsvExportWriter(OutputStream outputStream) {
+        try {
+            printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)),
+                    CSVFormat.DEFAULT);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public void writeRow(Object... values) {
+        try {
+            for (Object value : values) {
+                printer.print(value instanceof String text ? escapeFormula(text) : value);
+            }
+
+            printer.println();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Spreadsheet applications run text starting with a formula character as a formula, such text is
+     * written with a leading quote so it is shown as entered. Numbers are not text and are written as they are.
+     */
+    private static String escapeFormula(String text) {
+        return FORMULA_START.indexOf(text.isEmpty() ? ' ' : text.charAt(0)) >= 0 ? "'" + text : text;
+    }
+
+    @Override
+    public void close() {
+        try {
+            printer.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
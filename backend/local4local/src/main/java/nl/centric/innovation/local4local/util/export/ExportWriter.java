@@ -0,0 +1,16 @@
+package nl.centric.innovation.local4local.util.export;
+
+/**
+ * Writes a table row by row to an output stream, without keeping earlier rows in memory.
+ * Closing the writer completes the document but leaves the underlying stream open.
+ */
+public interface ExportWriter extends AutoCloseable {
+
+    /**
+     * Writes one row. Numbers are written as numeric cells, everything else as text, null as an empty cell.
+     */
+    void writeRow(Object... values);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,158 @@
+package nl.centric.innovation.local4local.util.export;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * Writes a pain.001.001.03 customer credit transfer initiation with a single payment information block.
+ * The group header and payment information are written first, after which the credit transfers are written
+ * one by one, so the number of transfers does not affect memory use. Closing the writer completes the
+ * document but leaves the underlying stream open.
+ */
+public class SepaCreditTransferWriter implements AutoCloseable {
+
+    private static final String NAMESPACE = "urn:iso:std:iso:20022:tech:xsd:pain.001.001.03";
+
+    private static final String PREFIX = "pain";
+
+    private static final String CURRENCY = "EUR";
+
+    private static final String PAYMENT_METHOD_TRANSFER = "TRF";
+
+    private final XMLStreamWriter xml;
+
+    public SepaCreditTransferWriter(OutputStream outputStream) {
+        try {
+            xml = XMLOutputFactory.newFactory().createXMLStreamWriter(outputStream, StandardCharsets.UTF_8.name());
+        } catch (XMLStreamException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void writeGroupHeader(String messageId, OffsetDateTime creationDateTime, long numberOfTransactions,
+                                 BigDecimal controlSum, String initiatingPartyName) {
+        try {
+            xml.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            xml.setPrefix(PREFIX, NAMESPACE);
+            startElement("Document");
+            xml.writeNamespace(PREFIX, NAMESPACE);
+            startElement("CstmrCdtTrfInitn");
+
+            startElement("GrpHdr");
+            writeElement("MsgId", messageId);
+            writeElement("CreDtTm", creationDateTime.truncatedTo(ChronoUnit.SECONDS).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+            writeElement("NbOfTxs", String.valueOf(numberOfTransactions));
+            writeElement("CtrlSum", controlSum.toPlainString());
+            writeParty("InitgPty", initiatingPartyName);
+            xml.writeEndElement();
+        } catch (XMLStreamException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void startPaymentInformation(String paymentInformationId, long numberOfTransactions, BigDecimal controlSum,
+                                        LocalDate requestedExecutionDate, String debtorName, String debtorIban,
+                                        String debtorBic) {
+        try {
+            startElement("PmtInf");
+            writeElement("PmtInfId", paymentInformationId);
+            writeElement("PmtMtd", PAYMENT_METHOD_TRANSFER);
+            writeElement("NbOfTxs", String.valueOf(numberOfTransactions));
+            writeElement("CtrlSum", controlSum.toPlainString());
+            writeElement("ReqdExctnDt", requestedExecutionDate.toString());
+            writeParty("Dbtr", debtorName);
+            writeAccount("DbtrAcct", debtorIban);
+
+            startElement("DbtrAgt");
+            startElement("FinInstnId");
+            writeElement("BIC", debtorBic);
+            xml.writeEndElement();
+            xml.writeEndElement();
+        } catch (XMLStreamException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Writes one credit transfer. The remittance information is optional and limited to 140 characters by the scheme.
+     */
+    public void writeCreditTransfer(String endToEndId, BigDecimal amount, String creditorName, String creditorIban,
+                                    String remittanceInformation) {
+        try {
+            startElement("CdtTrfTxInf");
+
+            startElement("PmtId");
+            writeElement("EndToEndId", endToEndId);
+            xml.writeEndElement();
+
+            startElement("Amt");
+            startElement("InstdAmt");
+            xml.writeAttribute("Ccy", CURRENCY);
+            xml.writeCharacters(amount.toPlainString());
+            xml.writeEndElement();
+            xml.writeEndElement();
+
+            writeParty("Cdtr", creditorName);
+            writeAccount("CdtrAcct", creditorIban);
+
+            if (Objects.nonNull(remittanceInformation)) {
+                startElement("RmtInf");
+                writeElement("Ustrd", remittanceInformation);
+                xml.writeEndElement();
+            }
+
+            xml.writeEndElement();
+        } catch (XMLStreamException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            xml.writeEndDocument();
+            xml.flush();
+            xml.close();
+        } catch (XMLStreamException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private void writeParty(String name, String partyName) throws XMLStreamException {
+        startElement(name);
+        writeElement("Nm", partyName);
+        xml.writeEndElement();
+    }
+
+    private void writeAccount(String name, String iban) throws XMLStreamException {
+        startElement(name);
+        startElement("Id");
+        writeElement("IBAN", iban);
+        xml.writeEndElement();
+        xml.writeEndElement();
+    }
+
+    private void startElement(String name) throws XMLStreamException {
+        xml.writeStartElement(PREFIX, name, NAMESPACE);
+    }
+
+    // optional elements without a value are left out, as the scheme does not allow them empty
+    private void writeElement(String name, String value) throws XMLStreamException {
+        if (Objects.isNull(value)) {
+            return;
+        }
+
+        startElement(name);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+}
@@ -0,0 +1,140 @@
+package nl.centric.innovation.local4local.util.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a single sheet workbook in the Office Open XML format. The fixed parts of the package are written
+ * up front and the sheet is written last, row by row, so the rows never have to be held in memory.
+ * Text is written as inline strings, which spreadsheet applications read without a shared string table.
+ */
+public class XlsxExportWriter implements ExportWriter {
+
+    private static final String CONTENT_TYPES = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">
+            <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>
+            <Default Extension="xml" ContentType="application/xml"/>
+            <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>
+            <Override PartName="/xl/worksheets/sheet1.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>
+            </Types>""";
+
+    private static final String ROOT_RELATIONSHIPS = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">
+            <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>
+            </Relationships>""";
+
+    private static final String WORKBOOK = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">
+            <sheets><sheet name="Sheet1" sheetId="1" r:id="rId1"/></sheets>
+            </workbook>""";
+
+    private static final String WORKBOOK_RELATIONSHIPS = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">
+            <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" Target="worksheets/sheet1.xml"/>
+            </Relationships>""";
+
+    private static final String SHEET_START = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <worksheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main"><sheetData>""";
+
+    private static final String SHEET_END = "</sheetData></worksheet>";
+
+    private final ZipOutputStream zip;
+
+    private final Writer sheet;
+
+    public XlsxExportWriter(OutputStream outputStream) {
+        zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        sheet = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+
+        try {
+            writeEntry("[Content_Types].xml", CONTENT_TYPES);
+            writeEntry("_rels/.rels", ROOT_RELATIONSHIPS);
+            writeEntry("xl/workbook.xml", WORKBOOK);
+            writeEntry("xl/_rels/workbook.xml.rels", WORKBOOK_RELATIONSHIPS);
+
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            sheet.write(SHEET_START);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public void writeRow(Object... values) {
+        try {
+            sheet.write("<row>");
+
+            for (Object value : values) {
+                writeCell(value);
+            }
+
+            sheet.write("</row>");
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            sheet.write(SHEET_END);
+            sheet.flush();
+            zip.closeEntry();
+            zip.finish();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private void writeCell(Object value) throws IOException {
+        if (Objects.isNull(value)) {
+            sheet.write("<c/>");
+        } else if (value instanceof Number number) {
+            sheet.write("<c><v>");
+            sheet.write(number.toString());
+            sheet.write("</v></c>");
+        } else {
+            sheet.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+            writeEscaped(value.toString());
+            sheet.write("</t></is></c>");
+        }
+    }
+
+    private void writeEscaped(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+
+            switch (character) {
+                case '<' -> sheet.write("&lt;");
+                case '>' -> sheet.write("&gt;");
+                case '&' -> sheet.write("&amp;");
+                case '"' -> sheet.write("&quot;");
+                default -> {
+                    // control characters other than tab and line breaks are not allowed in XML 1.0
+                    if (character >= 0x20 || character == '\t' || character == '\n' || character == '\r') {
+                        sheet.write(character);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,7 @@
+-- Spatial index for the viewport queries on the citizen map
+CREATE INDEX IF NOT EXISTS offers_coordinates_gist_idx
+    ON l4l_global.offers USING GIST (coordinates);
+
+-- KNN (<->) index for the distance ordered offer list, distances are computed on the geography
+CREATE INDEX IF NOT EXISTS offers_coordinates_geography_gist_idx
+    ON l4l_global.offers USING GIST (CAST(coordinates AS geography));
@@ -0,0 +1,5 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Serves the LIKE '%keyword%' filters and the similarity ranked title search
+CREATE INDEX IF NOT EXISTS offers_title_trgm_idx
+    ON l4l_global.offers USING GIN (LOWER(title) gin_trgm_ops);
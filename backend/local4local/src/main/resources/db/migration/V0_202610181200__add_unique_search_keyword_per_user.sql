@@ -0,0 +1,20 @@
+DELETE FROM l4l_global.offer_search_history
+WHERE id IN (
+    SELECT id
+    FROM (
+        SELECT id,
+               ROW_NUMBER() OVER (PARTITION BY user_id, search_keyword ORDER BY created_date DESC) AS keyword_rn
+        FROM l4l_global.offer_search_history
+    ) AS duplicates
+    WHERE keyword_rn > 1
+);
+
+CALL l4l_global.cleanup_offer_search_history();
+
+ALTER TABLE l4l_global.offer_search_history
+    ADD CONSTRAINT offer_search_history_user_keyword_unique UNIQUE (user_id, search_keyword);
+
+CREATE INDEX IF NOT EXISTS idx_offer_search_history_user_created_date
+    ON l4l_global.offer_search_history (user_id, created_date DESC);
+
+DROP PROCEDURE IF EXISTS l4l_global.cleanup_offer_search_history();
@@ -0,0 +1,5 @@
+CREATE SEQUENCE IF NOT EXISTS l4l_global.discount_code_seq AS bigint MINVALUE 0 START WITH 0;
+
+-- Allocated codes grow beyond the original six characters once a length is used up
+ALTER TABLE l4l_global.discount_code
+    ALTER COLUMN code TYPE VARCHAR(12);
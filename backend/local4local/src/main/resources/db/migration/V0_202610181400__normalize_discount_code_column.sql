@@ -0,0 +1,5 @@
+-- Codes are stored upper case so cashier lookups compare on the plain unique index instead of LOWER(code)
+UPDATE l4l_global.discount_code SET code = UPPER(code) WHERE code <> UPPER(code);
+
+ALTER TABLE l4l_global.discount_code
+    ADD CONSTRAINT discount_code_code_upper_check CHECK (code = UPPER(code));
@@ -0,0 +1,9 @@
+-- Responses of retried requests, shared between nodes when the database store is enabled
+CREATE TABLE IF NOT EXISTS l4l_global.idempotency_key (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    response TEXT,
+    expires_at timestamp without time zone NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_key_expires_at
+    ON l4l_global.idempotency_key (expires_at);
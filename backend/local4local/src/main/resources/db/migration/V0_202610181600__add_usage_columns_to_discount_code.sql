@@ -0,0 +1,15 @@
+-- Maintained by the validation write, so the frequency restriction needs no lookup in offer_transaction
+ALTER TABLE l4l_global.discount_code
+    ADD COLUMN IF NOT EXISTS last_used_at timestamp without time zone,
+    ADD COLUMN IF NOT EXISTS usage_count integer DEFAULT 0 NOT NULL;
+
+UPDATE l4l_global.discount_code dc
+SET last_used_at = usage.last_used_at,
+    usage_count = usage.usage_count
+FROM (
+    SELECT discount_code_id, MAX(created_date) AS last_used_at, COUNT(*) AS usage_count
+    FROM l4l_global.offer_transaction
+    WHERE discount_code_id IS NOT NULL
+    GROUP BY discount_code_id
+) AS usage
+WHERE usage.discount_code_id = dc.id;
@@ -0,0 +1,29 @@
+-- Count and sum of offer transactions per month, maintained by the validation write so the dashboards
+-- do not aggregate offer_transaction on every load. Offers without a benefit share the nil uuid in the key.
+CREATE TABLE IF NOT EXISTS l4l_global.transaction_monthly_rollup (
+    id uuid DEFAULT uuid_generate_v1() PRIMARY KEY,
+    tenant_id uuid NOT NULL,
+    supplier_id uuid NOT NULL,
+    benefit_id uuid,
+    offer_type_id integer NOT NULL,
+    month date NOT NULL,
+    transaction_count integer DEFAULT 0 NOT NULL,
+    total_amount numeric(14, 2) DEFAULT 0 NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS transaction_monthly_rollup_key_idx
+    ON l4l_global.transaction_monthly_rollup (tenant_id, supplier_id,
+        COALESCE(benefit_id, CAST('00000000-0000-0000-0000-000000000000' AS uuid)), offer_type_id, month);
+
+CREATE INDEX IF NOT EXISTS transaction_monthly_rollup_supplier_month_idx
+    ON l4l_global.transaction_monthly_rollup (supplier_id, month);
+
+INSERT INTO l4l_global.transaction_monthly_rollup
+    (tenant_id, supplier_id, benefit_id, offer_type_id, month, transaction_count, total_amount)
+SELECT s.tenant_id, o.supplier_id, o.benefit_id, o.offer_type_id, CAST(date_trunc('month', ot.created_date) AS date),
+       COUNT(*), COALESCE(SUM(ot.amount), 0)
+FROM l4l_global.offer_transaction ot
+JOIN l4l_global.discount_code dc ON dc.id = ot.discount_code_id
+JOIN l4l_global.offers o ON o.id = dc.offer_id
+JOIN l4l_security.suppliers s ON s.id = o.supplier_id
+GROUP BY s.tenant_id, o.supplier_id, o.benefit_id, o.offer_type_id, CAST(date_trunc('month', ot.created_date) AS date);
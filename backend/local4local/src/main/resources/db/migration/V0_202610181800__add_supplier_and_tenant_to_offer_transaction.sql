@@ -0,0 +1,19 @@
+-- Copied from the offer at insert time, so the transaction reports filter on a half-open created_date range
+-- per supplier or tenant without joining discount_code, offers and suppliers
+ALTER TABLE l4l_global.offer_transaction
+    ADD COLUMN IF NOT EXISTS supplier_id uuid,
+    ADD COLUMN IF NOT EXISTS tenant_id uuid;
+
+UPDATE l4l_global.offer_transaction ot
+SET supplier_id = o.supplier_id,
+    tenant_id = s.tenant_id
+FROM l4l_global.discount_code dc
+JOIN l4l_global.offers o ON o.id = dc.offer_id
+JOIN l4l_security.suppliers s ON s.id = o.supplier_id
+WHERE dc.id = ot.discount_code_id;
+
+CREATE INDEX IF NOT EXISTS offer_transaction_supplier_created_date_idx
+    ON l4l_global.offer_transaction (supplier_id, created_date);
+
+CREATE INDEX IF NOT EXISTS offer_transaction_tenant_created_date_idx
+    ON l4l_global.offer_transaction (tenant_id, created_date);
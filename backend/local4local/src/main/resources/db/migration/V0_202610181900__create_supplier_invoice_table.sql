@@ -0,0 +1,15 @@
+-- Invoices rendered for a supplier and month. The PDF itself is kept in the document store under storage_key,
+-- transactions_fingerprint describes the transactions it was rendered from so it is only rendered again when they change.
+CREATE TABLE IF NOT EXISTS l4l_global.supplier_invoice (
+    id uuid DEFAULT uuid_generate_v1() PRIMARY KEY,
+    tenant_id uuid NOT NULL,
+    supplier_id uuid NOT NULL,
+    month date NOT NULL,
+    language varchar(16) NOT NULL,
+    transactions_fingerprint varchar(128) NOT NULL,
+    storage_key varchar(255) NOT NULL,
+    rendered_date timestamp NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS supplier_invoice_key_idx
+    ON l4l_global.supplier_invoice (supplier_id, month, language);
@@ -0,0 +1 @@
+ALTER TABLE l4l_security.login_attempt ADD COLUMN last_failed_date timestamp;
@@ -0,0 +1,3 @@
+-- Fingerprint of the request a key was first used for, a reuse for another request is rejected
+ALTER TABLE l4l_global.idempotency_key
+    ADD COLUMN IF NOT EXISTS request_fingerprint VARCHAR(64);
@@ -0,0 +1,15 @@
+-- Changes whenever a profile is updated, so a digest can follow the profile without reading its logo
+ALTER TABLE l4l_security.supplier_profile
+    ADD COLUMN IF NOT EXISTS last_modified_date timestamp without time zone NOT NULL DEFAULT now();
+
+CREATE OR REPLACE FUNCTION l4l_security.set_supplier_profile_last_modified_date()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.last_modified_date = clock_timestamp();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER trig_update_supplier_profile_last_modified_date
+BEFORE UPDATE ON l4l_security.supplier_profile
+FOR EACH ROW EXECUTE FUNCTION l4l_security.set_supplier_profile_last_modified_date();
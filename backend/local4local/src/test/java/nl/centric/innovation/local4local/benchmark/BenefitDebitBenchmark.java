@@ -0,0 +1,151 @@
+package nl.centric.innovation.local4local.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import nl.centric.innovation.local4local.repository.OfferTransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent validations of one discount code, each running the statement of
+ * {@link OfferTransactionRepository#recordValidation} against a real database, so all threads debit the same
+ * citizen_benefit row. The balance is set so that it runs out during the warmup, after which the statement has to
+ * reject every debit. The trial fails when the final balance is negative, or does not match the debits and the
+ * offer transactions that were recorded.
+ * <p>
+ * The benchmark picks the first active code whose citizen holds the benefit of the offer, overwrites that balance
+ * and records transactions for it, so run it against a disposable copy of a migrated database:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=nl.centric.innovation.local4local.benchmark.BenefitDebitBenchmark
+ * -Dbenchmark.datasource.url=jdbc:postgresql://localhost:5432/local4local}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class BenefitDebitBenchmark {
+
+    private static final BigDecimal STARTING_BALANCE = new BigDecimal("100.00");
+
+    private static final double AMOUNT = 0.01;
+
+    private static final String FIND_CODE_WITH_BALANCE = """
+            SELECT dc.id AS discount_code_id, dc.user_id, cb.benefit_id
+            FROM l4l_global.discount_code dc
+            JOIN l4l_global.offers o ON o.id = dc.offer_id
+            JOIN l4l_global.citizen_benefit cb ON cb.user_id = dc.user_id AND cb.benefit_id = o.benefit_id
+            WHERE dc.is_active
+            LIMIT 1
+            """;
+
+    private static final String SET_BALANCE = """
+            UPDATE l4l_global.citizen_benefit SET amount = :amount
+            WHERE user_id = :userId AND benefit_id = :benefitId
+            """;
+
+    private static final String FIND_BALANCE = """
+            SELECT amount FROM l4l_global.citizen_benefit
+            WHERE user_id = :userId AND benefit_id = :benefitId
+            """;
+
+    private static final String COUNT_TRANSACTIONS = """
+            SELECT COUNT(*) FROM l4l_global.offer_transaction
+            WHERE discount_code_id = :discountCodeId AND created_date >= :startDate
+            """;
+
+    private final AtomicLong recordedDebits = new AtomicLong();
+
+    private HikariDataSource dataSource;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private MapSqlParameterSource code;
+
+    private LocalDateTime startDate;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("benchmark.datasource.url", "jdbc:postgresql://localhost:5432/local4local"));
+        dataSource.setUsername(System.getProperty("benchmark.datasource.username", "edmin"));
+        dataSource.setPassword(System.getProperty("benchmark.datasource.password", "password"));
+        dataSource.setMaximumPoolSize(16);
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+
+        Map<String, Object> row = jdbcTemplate.queryForList(FIND_CODE_WITH_BALANCE, Map.of()).stream()
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No active discount code with a citizen benefit to debit"));
+        code = new MapSqlParameterSource()
+                .addValue("discountCodeId", row.get("discount_code_id"))
+                .addValue("userId", row.get("user_id"))
+                .addValue("benefitId", row.get("benefit_id"));
+
+        startDate = LocalDateTime.now();
+        jdbcTemplate.update(SET_BALANCE, new MapSqlParameterSource(code.getValues()).addValue("amount", STARTING_BALANCE));
+    }
+
+    @Benchmark
+    public int recordValidation() {
+        int recorded = jdbcTemplate.update(OfferTransactionRepository.RECORD_VALIDATION, new MapSqlParameterSource(code.getValues())
+                .addValue("amount", AMOUNT)
+                .addValue("deactivate", false)
+                .addValue("createdDate", LocalDateTime.now()));
+
+        recordedDebits.addAndGet(recorded);
+        return recorded;
+    }
+
+    @TearDown
+    public void tearDown() {
+        try {
+            BigDecimal balance = jdbcTemplate.queryForObject(FIND_BALANCE, code, BigDecimal.class);
+            Long transactions = jdbcTemplate.queryForObject(COUNT_TRANSACTIONS,
+                    new MapSqlParameterSource(code.getValues()).addValue("startDate", startDate), Long.class);
+            BigDecimal debited = BigDecimal.valueOf(AMOUNT).multiply(BigDecimal.valueOf(recordedDebits.get()));
+
+            if (balance.signum() < 0 || balance.compareTo(STARTING_BALANCE.subtract(debited)) != 0
+                    || transactions != recordedDebits.get()) {
+                throw new IllegalStateException("Balance " + balance + " after " + recordedDebits.get()
+                        + " debits and " + transactions + " transactions from " + STARTING_BALANCE);
+            }
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        // the fork does not inherit the system properties of this JVM
+        String[] datasourceProperties = System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("benchmark.datasource."))
+                .map(name -> "-D" + name + "=" + System.getProperty(name))
+                .toArray(String[]::new);
+
+        new Runner(new OptionsBuilder()
+                .include(BenefitDebitBenchmark.class.getSimpleName())
+                .jvmArgsAppend(datasourceProperties)
+                .build()).run();
+    }
+}
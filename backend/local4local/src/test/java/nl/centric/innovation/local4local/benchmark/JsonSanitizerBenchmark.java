@@ -0,0 +1,98 @@
+package nl.centric.innovation.local4local.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import nl.centric.innovation.local4local.security.JsonSanitizer;
+import nl.centric.innovation.local4local.security.SanitizerUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XSS sanitization of a clean JSON body of a few hundred offers, as read by the message converter.
+ * {@code treeSanitizer} repeats what the XSS request wrapper did before, reading the body into a string and a tree,
+ * parsing every text with Jsoup and writing the tree again, {@code streamingSanitizer} is the body as it is read now.
+ * Run with the gc profiler to compare the allocations per request:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=nl.centric.innovation.local4local.benchmark.JsonSanitizerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSanitizerBenchmark {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 300; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"title\":\"Korting op fietsen ").append(i)
+                    .append("\",\"description\":\"Tien procent korting op alle fietsen in de winkel\",")
+                    .append("\"amount\":12.50,\"citizenGroupIds\":[\"3f2b8c1e-9d4a-4b6f-8e2d-1a7c5b9e0f3d\"]}");
+        }
+        body = json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] treeSanitizer() throws IOException {
+        JsonNode root = objectMapper.readTree(new String(body, StandardCharsets.UTF_8));
+        sanitizeNode(root);
+        return objectMapper.writeValueAsBytes(root);
+    }
+
+    @Benchmark
+    public long streamingSanitizer() throws IOException {
+        try (InputStream sanitized = JsonSanitizer.sanitize(new ByteArrayInputStream(body))) {
+            return sanitized.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void sanitizeNode(JsonNode node) {
+        if (node.isObject()) {
+            node.fields().forEachRemaining(field -> {
+                if (field.getValue().isTextual()) {
+                    String text = field.getValue().textValue();
+                    field.setValue(new TextNode(SanitizerUtil.isHtml(text)
+                            ? SanitizerUtil.sanitizeWithMoreTags(text)
+                            : SanitizerUtil.sanitize(text)));
+                } else {
+                    sanitizeNode(field.getValue());
+                }
+            });
+        } else {
+            node.elements().forEachRemaining(JsonSanitizerBenchmark::sanitizeNode);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonSanitizerBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package nl.centric.innovation.local4local.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import nl.centric.innovation.local4local.authentication.JwtUtil;
+import nl.centric.innovation.local4local.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication overhead of the JWT filter per request. {@code twoParses} repeats what the filter did before,
+ * building the key and parser and verifying the token once to validate it and once more to read the subject.
+ * {@code singleParse} verifies with the prebuilt parser and the cache disabled, {@code cachedVerification}
+ * is the filter as it runs now for a token that was seen before.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=nl.centric.innovation.local4local.benchmark.JwtVerificationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET_KEY = "c2VjcmV0LWtleS1mb3ItdGhlLWp3dC11dGlsLXRlc3RzLW9mLWxvY2FsNGxvY2Fs";
+
+    private JwtUtil uncachedJwtUtil;
+
+    private JwtUtil cachedJwtUtil;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncachedJwtUtil = jwtUtil(0L);
+        cachedJwtUtil = jwtUtil(10_000L);
+
+        User user = new User();
+        user.setUsername("supplier@domain.com");
+        token = cachedJwtUtil.generateToken(Map.of("role", "ROLE_SUPPLIER"), user);
+    }
+
+    @Benchmark
+    public String twoParses() {
+        SecretKey validationKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+        Jwts.parserBuilder().setSigningKey(validationKey).build().parseClaimsJws(token);
+
+        SecretKey extractionKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+        return Jwts.parserBuilder().setSigningKey(extractionKey).build().parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String singleParse() {
+        Claims claims = uncachedJwtUtil.verifyToken(token);
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public String cachedVerification() {
+        Claims claims = cachedJwtUtil.verifyToken(token);
+        return claims.getSubject();
+    }
+
+    private static JwtUtil jwtUtil(long cacheSize) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "env", new MockEnvironment()
+                .withProperty("jwt.secret.key", SECRET_KEY)
+                .withProperty("jwt.expiration.time", "3600000"));
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", cacheSize);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheExpireSeconds", 60L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtVerificationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+package nl.centric.innovation.local4local.benchmark;
+
+import nl.centric.innovation.local4local.authentication.RoutePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Cost of checking a request path against the allow-list of unapproved suppliers. {@code regexPerRequest} is how
+ * the disabled requests filter matched before, compiling a pattern per allowed path on every request, while
+ * {@code routePolicy} walks the precompiled trie. Run with the gc profiler to see the allocations per request:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=nl.centric.innovation.local4local.benchmark.RoutePolicyBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutePolicyBenchmark {
+
+    private static final List<String> VALID_PATHS_SUPPLIER = List.of(
+            "/api/authenticate",
+            "/api/authenticate/refresh-token",
+            "/api/suppliers/approve/{UUID}",
+            "/api/suppliers/rejection/{UUID}",
+            "/api/suppliers/change-has-status-update/{UUID}",
+            "/api/suppliers/{UUID}",
+            "/api/suppliers/register",
+            "/api/supplier-profiles",
+            "/api/supplier-profiles/reapplication",
+            "/api/tenants/{UUID}",
+            "/api/tenants/all",
+            "/api/tenants/create",
+            "/api/users",
+            "/api/users/recover",
+            "/api/users/recover/reset-password",
+            "/api/supplier-profiles/dropdown-data",
+            "/api/working-hours/{UUID}",
+            "/api/working-hours/availability/{UUID}"
+    );
+
+    private static final RoutePolicy SUPPLIER_ROUTES = RoutePolicy.compile(VALID_PATHS_SUPPLIER);
+
+    // allowed with a wildcard near the end of the list, and not allowed at all
+    @Param({"/api/working-hours/availability/3f2b8c1e-9d4a-4b6f-8e2d-1a7c5b9e0f3d", "/api/offers/supplier/active"})
+    private String path;
+
+    @Benchmark
+    public boolean regexPerRequest() {
+        return VALID_PATHS_SUPPLIER.stream().anyMatch(validPath -> Pattern.compile("^" + validPath
+                .replace("/", "\\/")
+                .replace("{UUID}", "[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}")
+                + "$").matcher(path).matches());
+    }
+
+    @Benchmark
+    public boolean routePolicy() {
+        return SUPPLIER_ROUTES.matches(path);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RoutePolicyBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -4,7 +4,6 @@ import lombok.SneakyThrows;
 import nl.centric.innovation.local4local.authentication.JwtUtil;
 import nl.centric.innovation.local4local.dto.AuthResponseDto;
 import nl.centric.innovation.local4local.dto.LoginRequestDTO;
-import nl.centric.innovation.local4local.entity.LoginAttempt;
 import nl.centric.innovation.local4local.entity.Role;
 import nl.centric.innovation.local4local.entity.User;
 import nl.centric.innovation.local4local.exceptions.AuthenticationLoginException;
@@ -30,7 +29,6 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.servlet.http.HttpServletRequest;
 
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -177,7 +175,7 @@ class AuthenticationServiceImplTests {
 
         when(captchaService.isResponseValid(any(), any())).thenReturn(true);
         when(authenticationManager.authenticate(any())).thenThrow(BadCredentialsException.class);
-        when(loginAttemptService.isBlocked(any())).thenReturn(true);
+        when(loginAttemptService.loginFailed(any(), any())).thenReturn(true);
         // When and Then
         assertThrows(CaptchaException.class, () -> authenticationService.authenticateByRole(loginRequestDTO, request));
     }
@@ -215,14 +213,9 @@ class AuthenticationServiceImplTests {
         // Given
         LoginRequestDTO loginRequestDTO = loginRequestDTOBuilder(EMPTY_STRING, false);
 
-        LoginAttempt loginAttempt = LoginAttempt.builder()
-                .remoteAddress(REMOTE_ADDRESS)
-                .count(5)
-                .build();
         // When
         when(SecurityUtils.getClientIP(request)).thenReturn(REMOTE_ADDRESS);
-        when(loginAttemptService.findByRemoteAddress(REMOTE_ADDRESS)).thenReturn(Optional.of(loginAttempt));
-        when(loginAttemptService.isBlocked(loginAttempt)).thenReturn(true);
+        when(loginAttemptService.isBlocked(REMOTE_ADDRESS, USERNAME)).thenReturn(true);
 
         // Then
         assertThrows(CaptchaException.class, () -> authenticationService.authenticateByRole(loginRequestDTO, request));
@@ -258,7 +251,6 @@ class AuthenticationServiceImplTests {
                 .rememberMe(false)
                 .build();
 
-        when(loginAttemptService.findByRemoteAddress(any())).thenReturn(Optional.empty());
         when(captchaService.isResponseValid(any(), any())).thenReturn(true);
 
         when(authenticationManager.authenticate(any())).thenReturn(
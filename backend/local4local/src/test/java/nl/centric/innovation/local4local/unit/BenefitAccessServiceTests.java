@@ -0,0 +1,72 @@
+package nl.centric.innovation.local4local.unit;
+
+import nl.centric.innovation.local4local.repository.BenefitRepository;
+import nl.centric.innovation.local4local.service.impl.BenefitAccessService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BenefitAccessServiceTests {
+
+    @InjectMocks
+    private BenefitAccessService benefitAccessService;
+
+    @Mock
+    private BenefitRepository benefitRepository;
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final UUID BENEFIT_ID = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(benefitAccessService, "expireMinutes", 10L);
+        ReflectionTestUtils.setField(benefitAccessService, "maxSize", 100L);
+        benefitAccessService.init();
+    }
+
+    @Test
+    void GivenResolvedBenefits_WhenGetAccessibleBenefitIdsTwice_ThenRepositoryIsQueriedOnce() {
+        // Given
+        when(benefitRepository.findAccessibleBenefitIdsForUser(USER_ID)).thenReturn(List.of(BENEFIT_ID));
+
+        // When
+        benefitAccessService.getAccessibleBenefitIds(USER_ID);
+        Set<UUID> result = benefitAccessService.getAccessibleBenefitIds(USER_ID);
+
+        // Then
+        assertEquals(Set.of(BENEFIT_ID), result);
+        verify(benefitRepository, times(1)).findAccessibleBenefitIdsForUser(USER_ID);
+    }
+
+    @Test
+    void GivenEvictedUser_WhenGetAccessibleBenefitIds_ThenBenefitsAreResolvedAgain() {
+        // Given
+        UUID newBenefitId = UUID.randomUUID();
+        when(benefitRepository.findAccessibleBenefitIdsForUser(USER_ID))
+                .thenReturn(List.of(BENEFIT_ID))
+                .thenReturn(List.of(BENEFIT_ID, newBenefitId));
+        benefitAccessService.getAccessibleBenefitIds(USER_ID);
+
+        // When
+        benefitAccessService.evictAll(List.of(USER_ID));
+        Set<UUID> result = benefitAccessService.getAccessibleBenefitIds(USER_ID);
+
+        // Then
+        assertEquals(Set.of(BENEFIT_ID, newBenefitId), result);
+        verify(benefitRepository, times(2)).findAccessibleBenefitIdsForUser(USER_ID);
+    }
+}
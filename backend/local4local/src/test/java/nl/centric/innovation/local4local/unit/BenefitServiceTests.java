@@ -19,6 +19,7 @@ import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException
 import nl.centric.innovation.local4local.repository.BenefitRepository;
 import nl.centric.innovation.local4local.repository.GroupCitizenAssignmentRepository;
 import nl.centric.innovation.local4local.repository.PassholderRepository;
+import nl.centric.innovation.local4local.service.impl.BenefitAccessService;
 import nl.centric.innovation.local4local.service.impl.BenefitService;
 import nl.centric.innovation.local4local.service.impl.CitizenBenefitService;
 import nl.centric.innovation.local4local.service.impl.CitizenGroupService;
@@ -72,6 +73,9 @@ class BenefitServiceTests {
     @Mock
     private PrincipalService principalService;
 
+    @Mock
+    private BenefitAccessService benefitAccessService;
+
     UUID tenantId = UUID.randomUUID();
     UUID userId = UUID.randomUUID();
 
@@ -108,6 +112,7 @@ class BenefitServiceTests {
 
         // Verify
         verify(benefitRepository).save(any(Benefit.class));
+        verify(benefitAccessService).evictAll(List.of(userId));
     }
 
     @Test
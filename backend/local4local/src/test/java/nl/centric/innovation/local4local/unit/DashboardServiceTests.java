@@ -5,7 +5,7 @@ import nl.centric.innovation.local4local.dto.DashboardCountDto;
 import nl.centric.innovation.local4local.dto.OfferStatisticsDto;
 import nl.centric.innovation.local4local.enums.SupplierStatusEnum;
 import nl.centric.innovation.local4local.enums.TimeIntervalPeriod;
-import nl.centric.innovation.local4local.repository.DiscountCodeRepository;
+import nl.centric.innovation.local4local.repository.TransactionMonthlyRollupRepository;
 import nl.centric.innovation.local4local.service.impl.DashboardService;
 import nl.centric.innovation.local4local.service.impl.OfferTransactionService;
 import nl.centric.innovation.local4local.service.impl.PassholderService;
@@ -42,7 +42,7 @@ class DashboardServiceTests {
     @Mock
     private PassholderService passholderService;
     @Mock
-    private DiscountCodeRepository discountCodeRepository;
+    private TransactionMonthlyRollupRepository transactionMonthlyRollupRepository;
 
     @Test
     @SneakyThrows
@@ -85,7 +85,7 @@ class DashboardServiceTests {
         );
 
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(discountCodeRepository.findCitizenCountByOfferTypeAndTenantId(supplierId, createdDate))
+        when(transactionMonthlyRollupRepository.countTransactionsByOfferTypeAndSupplierIdSince(supplierId, createdDate.toLocalDate()))
                 .thenReturn(expectedStatistics);
 
         // When
@@ -95,7 +95,7 @@ class DashboardServiceTests {
         assertEquals(expectedStatistics, result);
 
         verify(principalService).getSupplierId();
-        verify(discountCodeRepository).findCitizenCountByOfferTypeAndTenantId(supplierId, createdDate);
+        verify(transactionMonthlyRollupRepository).countTransactionsByOfferTypeAndSupplierIdSince(supplierId, createdDate.toLocalDate());
     }
 }
 
@@ -0,0 +1,86 @@
+package nl.centric.innovation.local4local.unit;
+
+import nl.centric.innovation.local4local.repository.DiscountCodeRepository;
+import nl.centric.innovation.local4local.service.impl.DiscountCodeAllocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DiscountCodeAllocatorTests {
+
+    @InjectMocks
+    private DiscountCodeAllocator discountCodeAllocator;
+
+    @Mock
+    private DiscountCodeRepository discountCodeRepository;
+
+    private static final int BLOCK_SIZE = 50;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(discountCodeAllocator, "minCodeLength", 2);
+        ReflectionTestUtils.setField(discountCodeAllocator, "blockSize", BLOCK_SIZE);
+        ReflectionTestUtils.setField(discountCodeAllocator, "permutationKey", "test-key");
+        discountCodeAllocator.init();
+    }
+
+    @Test
+    void GivenWholeCodeSpace_WhenAllocate_ThenCodesNeverCollideAndGrowLonger() {
+        // Given
+        stubSequence();
+        int twoCharacterCodes = 36 * 36;
+
+        // When
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < twoCharacterCodes + BLOCK_SIZE; i++) {
+            codes.add(discountCodeAllocator.allocate());
+        }
+
+        // Then
+        assertEquals(twoCharacterCodes + BLOCK_SIZE, codes.size());
+        assertEquals(twoCharacterCodes, codes.stream().filter(code -> code.length() == 2).count());
+        assertEquals(BLOCK_SIZE, codes.stream().filter(code -> code.length() == 3).count());
+        assertTrue(codes.stream().allMatch(code -> code.matches("[0-9A-Z]+")));
+    }
+
+    @Test
+    void GivenReservedBlock_WhenAllocate_ThenSequenceIsQueriedOncePerBlock() {
+        // Given
+        stubSequence();
+
+        // When
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            discountCodeAllocator.allocate();
+        }
+
+        // Then
+        assertEquals(0, discountCodeAllocator.getPooledCodes());
+        assertEquals((double) BLOCK_SIZE / (36 * 36), discountCodeAllocator.getSpaceUsage(), 1e-9);
+        verify(discountCodeRepository, times(1)).reserveCodeSequenceValues(BLOCK_SIZE);
+    }
+
+    private void stubSequence() {
+        when(discountCodeRepository.reserveCodeSequenceValues(BLOCK_SIZE)).thenAnswer(invocation -> {
+            long start = sequence.getAndAdd(BLOCK_SIZE);
+            return LongStream.range(start, start + BLOCK_SIZE).boxed().map(Number.class::cast).toList();
+        });
+    }
+}
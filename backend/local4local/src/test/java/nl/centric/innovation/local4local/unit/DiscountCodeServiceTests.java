@@ -1,14 +1,16 @@
 package nl.centric.innovation.local4local.unit;
 
 import lombok.SneakyThrows;
+import nl.centric.innovation.local4local.dto.CodeValidationBatchResponseDto;
+import nl.centric.innovation.local4local.dto.CodeValidationProjection;
 import nl.centric.innovation.local4local.dto.CodeValidationRequestDto;
 import nl.centric.innovation.local4local.dto.CodeValidationResponseDto;
 import nl.centric.innovation.local4local.dto.DiscountCodeViewDto;
+import nl.centric.innovation.local4local.dto.DiscountCodeWalletPageDto;
+import nl.centric.innovation.local4local.dto.DiscountCodeWalletProjection;
 import nl.centric.innovation.local4local.entity.Benefit;
-import nl.centric.innovation.local4local.entity.CitizenBenefit;
 import nl.centric.innovation.local4local.entity.DiscountCode;
 import nl.centric.innovation.local4local.entity.Offer;
-import nl.centric.innovation.local4local.entity.OfferTransaction;
 import nl.centric.innovation.local4local.entity.OfferType;
 import nl.centric.innovation.local4local.entity.Restriction;
 import nl.centric.innovation.local4local.entity.Supplier;
@@ -17,11 +19,10 @@ import nl.centric.innovation.local4local.entity.User;
 import nl.centric.innovation.local4local.enums.FrequencyOfUse;
 import nl.centric.innovation.local4local.enums.GenericStatusEnum;
 import nl.centric.innovation.local4local.exceptions.DtoValidateException;
-import nl.centric.innovation.local4local.repository.BenefitRepository;
 import nl.centric.innovation.local4local.repository.DiscountCodeRepository;
 import nl.centric.innovation.local4local.repository.OfferRepository;
 import nl.centric.innovation.local4local.repository.OfferTransactionRepository;
-import nl.centric.innovation.local4local.service.impl.CitizenBenefitService;
+import nl.centric.innovation.local4local.service.impl.DiscountCodeAllocator;
 import nl.centric.innovation.local4local.service.impl.DiscountCodeService;
 import nl.centric.innovation.local4local.service.impl.OfferService;
 import nl.centric.innovation.local4local.service.impl.OfferTransactionService;
@@ -30,17 +31,21 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.Method;
 import java.sql.Time;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -48,13 +53,14 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.lenient;
 import  static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.doNothing;
 
 @ExtendWith(MockitoExtension.class)
 class DiscountCodeServiceTests {
@@ -65,18 +71,15 @@ class DiscountCodeServiceTests {
     @Mock
     private OfferRepository offerRepository;
 
-    @Mock
-    private BenefitRepository benefitRepository;
-
-    @Mock
-    private CitizenBenefitService citizenBenefitService;
-
     @Mock
     private PrincipalService principalService;
 
     @Mock
     private OfferTransactionService offerTransactionService;
 
+    @Mock
+    private DiscountCodeAllocator discountCodeAllocator;
+
     @Mock
     private OfferService offerService;
 
@@ -98,6 +101,7 @@ class DiscountCodeServiceTests {
     @BeforeEach
     void setup() {
         supplierId = UUID.randomUUID();
+        ReflectionTestUtils.setField(discountCodeService, "offlineWindowHours", 168L);
 
         // Setup Benefit
         benefit = new Benefit();
@@ -130,7 +134,7 @@ class DiscountCodeServiceTests {
         double amount = 100.0;
 
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(discountCodeRepository.findByCodeIgnoreCaseAndIsActiveTrueAndOfferSupplierId(invalidCode, supplierId)).thenReturn(Optional.empty());
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId(invalidCode, supplierId)).thenReturn(Optional.empty());
 
         // Then
         assertThrows(DtoValidateException.class, () -> discountCodeService.validateAndProcessDiscountCode(new CodeValidationRequestDto(invalidCode, "12:00:00", amount)));
@@ -152,7 +156,8 @@ class DiscountCodeServiceTests {
         discountCode.setOffer(offer);
 
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(discountCodeRepository.findByCodeIgnoreCaseAndIsActiveTrueAndOfferSupplierId(validCode, supplierId)).thenReturn(Optional.of(discountCode));
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId(validCode, supplierId))
+                .thenReturn(Optional.of(codeValidation(discountCode, 200.0, null)));
 
         // Then
         assertThrows(DtoValidateException.class, () -> discountCodeService.validateAndProcessDiscountCode(new CodeValidationRequestDto(validCode, "12:00:00", amount)));
@@ -287,7 +292,8 @@ class DiscountCodeServiceTests {
         discount.setOffer(offer);
 
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(discountCodeRepository.findByCodeIgnoreCaseAndIsActiveTrueAndOfferSupplierId(discountCode, supplierId)).thenReturn(Optional.of(discount));
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId(discountCode, supplierId))
+                .thenReturn(Optional.of(codeValidation(discount, 200.0, null)));
         lenient().when(offerRepository.findById(offer.getId())).thenReturn(Optional.of(offer));
 
         // Then
@@ -300,18 +306,14 @@ class DiscountCodeServiceTests {
     @SneakyThrows
     void GivenValidDiscountCode_WhenHasFrequencyViolationUsingReflection_ThenExpectFalse() {
         // Given
-        DiscountCode discountCode = mock(DiscountCode.class);
-        Offer mockedOffer = mock(Offer.class);
         Restriction restriction = mock(Restriction.class);
 
-        when(discountCode.getOffer()).thenReturn(mockedOffer);
-        when(mockedOffer.getRestriction()).thenReturn(restriction);
-
-        Method method = DiscountCodeService.class.getDeclaredMethod("hasFrequencyViolation", DiscountCode.class);
+        Method method = DiscountCodeService.class.getDeclaredMethod("hasFrequencyViolation", Restriction.class, LocalDateTime.class,
+                LocalDateTime.class);
         method.setAccessible(true);
 
         // Invoke the private method
-        boolean result = (boolean) method.invoke(discountCodeService, discountCode);
+        boolean result = (boolean) method.invoke(discountCodeService, restriction, LocalDateTime.now(), LocalDateTime.now());
 
         // Verify
         assertFalse(result);
@@ -333,7 +335,8 @@ class DiscountCodeServiceTests {
         discountCode.setOffer(offer);
 
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(discountCodeRepository.findByCodeIgnoreCaseAndIsActiveTrueAndOfferSupplierId(validCode, supplierId)).thenReturn(Optional.of(discountCode));
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId(validCode, supplierId))
+                .thenReturn(Optional.of(codeValidation(discountCode, 200.0, null)));
 
         // When & Then
         assertThrows(DtoValidateException.class, () -> discountCodeService.validateAndProcessDiscountCode(new CodeValidationRequestDto(validCode, "01/27/2025, 17:50:50", null)));
@@ -346,23 +349,12 @@ class DiscountCodeServiceTests {
         Restriction restriction = new Restriction();
         restriction.setFrequencyOfUse(FrequencyOfUse.DAILY);
 
-        offer.setRestriction(restriction);
-
-        DiscountCode discountCode = new DiscountCode();
-        discountCode.setCode("JV12A");
-        discountCode.setUserId(userId);
-        discountCode.setOffer(offer);
-
-        OfferTransaction lastOfferTransaction = new OfferTransaction();
-        lastOfferTransaction.setCreatedDate(LocalDateTime.now().minusDays(1));
-
-        when(offerTransactionService.getLastOfferValidationForCitizen(any(), any()))
-                .thenReturn(Optional.of(lastOfferTransaction));
-
-        Method method = DiscountCodeService.class.getDeclaredMethod("hasFrequencyViolation", DiscountCode.class);
+        Method method = DiscountCodeService.class.getDeclaredMethod("hasFrequencyViolation", Restriction.class, LocalDateTime.class,
+                LocalDateTime.class);
         method.setAccessible(true);
 
-        boolean result = (boolean) method.invoke(discountCodeService, discountCode);
+        boolean result = (boolean) method.invoke(discountCodeService, restriction, LocalDateTime.now().minusDays(1),
+                LocalDateTime.now());
 
         // Then & Verify
         assertFalse(result);
@@ -391,7 +383,8 @@ class DiscountCodeServiceTests {
         discount.setOffer(offer);
 
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(discountCodeRepository.findByCodeIgnoreCaseAndIsActiveTrueAndOfferSupplierId(discountCode, supplierId)).thenReturn(Optional.of(discount));
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId(discountCode, supplierId))
+                .thenReturn(Optional.of(codeValidation(discount, 200.0, null)));
         lenient().when(offerRepository.findById(offer.getId())).thenReturn(Optional.of(offer));
 
         // Then
@@ -406,36 +399,10 @@ class DiscountCodeServiceTests {
         User user = new User();
         user.setId(userId);
 
-        Offer activeOffer = new Offer();
-        activeOffer.setSupplier(Supplier.builder()
-                .companyName("Company")
-                .profile(SupplierProfile.builder().logo("logo").build())
-                .build());
-        activeOffer.setOfferType(OfferType.builder().build());
-        activeOffer.setStatus(GenericStatusEnum.ACTIVE);
-        activeOffer.setExpirationDate(LocalDate.now().plusDays(1));
-        activeOffer.setTitle("Active Offer");
-        DiscountCode activeDiscountCode = new DiscountCode();
-        activeDiscountCode.setCode("ABC123");
-        activeDiscountCode.setIsActive(true);
-        activeDiscountCode.setOffer(activeOffer);
-
-        Offer inactiveOffer = new Offer();
-        inactiveOffer.setSupplier(Supplier.builder()
-                .companyName("Company")
-                .profile(SupplierProfile.builder().logo("logo").build())
-                .build());
-        inactiveOffer.setOfferType(OfferType.builder().build());
-        inactiveOffer.setExpirationDate(LocalDate.now().minusDays(1));
-        inactiveOffer.setTitle("Inactive Offer"); // Set non-null title
-        DiscountCode inactiveDiscountCode = new DiscountCode();
-        inactiveDiscountCode.setCode("ABC124");
-        inactiveDiscountCode.setIsActive(false);
-        inactiveDiscountCode.setOffer(inactiveOffer);
-
         when(principalService.getUser()).thenReturn(user);
-        when(discountCodeRepository.findByUserIdOrderByOfferExpirationDateAndIsActive(userId))
-                .thenReturn(List.of(activeDiscountCode, inactiveDiscountCode));
+        when(discountCodeRepository.findWalletCodesByUserId(userId)).thenReturn(List.of(
+                walletCode("ABC123", true, GenericStatusEnum.ACTIVE, LocalDate.now().plusDays(1)),
+                walletCode("ABC124", false, GenericStatusEnum.EXPIRED, LocalDate.now().minusDays(1))));
 
         // When
         Map<String, List<DiscountCodeViewDto>> result = discountCodeService.getDiscountCodes();
@@ -448,22 +415,56 @@ class DiscountCodeServiceTests {
         Assertions.assertFalse(result.get("inactive").get(0).isActive());
     }
 
+    @Test
+    @SneakyThrows
+    void GivenMoreCodesThanPageSize_WhenGetDiscountCodesPage_ThenNextPageContinuesAfterCursor() {
+        // Given
+        User user = new User();
+        user.setId(userId);
+        DiscountCodeWalletProjection first = walletCode("ABC123", true, GenericStatusEnum.ACTIVE, LocalDate.now().plusDays(1));
+        DiscountCodeWalletProjection second = walletCode("ABC124", true, GenericStatusEnum.ACTIVE, LocalDate.now().plusDays(2));
+
+        when(principalService.getUser()).thenReturn(user);
+        when(discountCodeRepository.findWalletPageByUserId(eq(userId), eq(true), eq(GenericStatusEnum.ACTIVE), any()))
+                .thenReturn(List.of(first, second));
+        when(discountCodeRepository.findWalletPageByUserIdAfterCursor(eq(userId), eq(true), eq(GenericStatusEnum.ACTIVE),
+                eq(first.getExpirationDate()), eq(first.getId()), any()))
+                .thenReturn(List.of(second));
+
+        // When
+        DiscountCodeWalletPageDto firstPage = discountCodeService.getDiscountCodesPage(true, null, 1);
+        DiscountCodeWalletPageDto secondPage = discountCodeService.getDiscountCodesPage(true, firstPage.nextCursor(), 1);
+
+        // Then
+        assertEquals(List.of("ABC123"), firstPage.discountCodes().stream().map(DiscountCodeViewDto::code).toList());
+        assertEquals(List.of("ABC124"), secondPage.discountCodes().stream().map(DiscountCodeViewDto::code).toList());
+        assertNotNull(firstPage.nextCursor());
+        Assertions.assertNull(secondPage.nextCursor());
+    }
+
+    @Test
+    void GivenMalformedCursor_WhenGetDiscountCodesPage_ThenThrowDtoValidateException() {
+        // Given
+        User user = new User();
+        user.setId(userId);
+        when(principalService.getUser()).thenReturn(user);
+
+        // When & Then
+        assertThrows(DtoValidateException.class, () -> discountCodeService.getDiscountCodesPage(false, "not-a-cursor", 20));
+    }
+
     @Test
     @SneakyThrows
     void GivenValidDiscountCode_WhenValidateAndProcessDiscountCode_ThenExpectSuccess() {
         // Given
         double adjustedAmount = 50.0;
-        UUID benefitId = UUID.randomUUID();
-        CitizenBenefit citizenBenefit = CitizenBenefit.builder().benefit(benefit).amount(200.0).build();
-
-        when(citizenBenefitService.getCitizenBenefitByUserIdAndBenefit(any(), any())).thenReturn(citizenBenefit);
 
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(discountCodeRepository.findByCodeIgnoreCaseAndIsActiveTrueAndOfferSupplierId("VALID123", supplierId))
-                .thenReturn(Optional.of(discountCode));
-        when(benefitRepository.findById(benefit.getId())).thenReturn(Optional.of(benefit));
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId("VALID123", supplierId))
+                .thenReturn(Optional.of(codeValidation(discountCode, 200.0, null)));
+        when(offerTransactionService.recordValidation(eq(discountCode), eq(benefit.getId()), eq(100.0), anyBoolean(), any(LocalDateTime.class)))
+                .thenReturn(true);
 
-        doNothing().when(offerTransactionService).saveTransaction(any(DiscountCode.class), any(Double.class), any(LocalDateTime.class));
         // When
         CodeValidationResponseDto result = discountCodeService.validateAndProcessDiscountCode(
                 new CodeValidationRequestDto("VALID123", "01/27/2025, 12:00:00", adjustedAmount));
@@ -473,20 +474,96 @@ class DiscountCodeServiceTests {
         assertEquals("VALID123", result.code());
     }
 
+    @Test
+    void GivenLowerCaseCode_WhenValidateAndProcessDiscountCode_ThenLookupUsesNormalizedCode() {
+        // Given
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId("VALID123", supplierId)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(DtoValidateException.class, () -> discountCodeService.validateAndProcessDiscountCode(
+                new CodeValidationRequestDto("valid123", "01/27/2025, 12:00:00", 50.0)));
+        verify(discountCodeRepository).findCodeValidationByCodeAndSupplierId("VALID123", supplierId);
+    }
+
+    @Test
+    void GivenMissingCitizenBenefit_WhenValidateAndProcessDiscountCode_ThenThrowDtoValidateException() {
+        // Given
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId("VALID123", supplierId))
+                .thenReturn(Optional.of(codeValidation(discountCode, null, null)));
+
+        // When & Then
+        assertThrows(DtoValidateException.class, () -> discountCodeService.validateAndProcessDiscountCode(
+                new CodeValidationRequestDto("VALID123", "01/27/2025, 12:00:00", 50.0)));
+        verify(offerTransactionService, never()).recordValidation(any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void GivenBalanceSpentConcurrently_WhenValidateAndProcessDiscountCode_ThenThrowDtoValidateException() {
+        // Given
+        ReflectionTestUtils.setField(discountCodeService, "amountExceededError", "40058");
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId("VALID123", supplierId))
+                .thenReturn(Optional.of(codeValidation(discountCode, 200.0, null)));
+        when(offerTransactionService.recordValidation(any(), any(), any(), anyBoolean(), any())).thenReturn(false);
+        when(discountCodeRepository.existsByIdAndIsActiveTrue(discountCode.getId())).thenReturn(true);
+
+        // When
+        DtoValidateException exception = assertThrows(DtoValidateException.class,
+                () -> discountCodeService.validateAndProcessDiscountCode(
+                        new CodeValidationRequestDto("VALID123", "01/27/2025, 12:00:00", 50.0)));
+
+        // Then
+        assertEquals("40058", exception.getMessage());
+    }
+
+    @Test
+    void GivenCodeDeactivatedConcurrently_WhenValidateAndProcessDiscountCode_ThenThrowAlreadyUsed() {
+        // Given
+        ReflectionTestUtils.setField(discountCodeService, "alreadyUsed", "40030");
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId("VALID123", supplierId))
+                .thenReturn(Optional.of(codeValidation(discountCode, 200.0, null)));
+        when(offerTransactionService.recordValidation(any(), any(), any(), anyBoolean(), any())).thenReturn(false);
+        when(discountCodeRepository.existsByIdAndIsActiveTrue(discountCode.getId())).thenReturn(false);
+
+        // When
+        DtoValidateException exception = assertThrows(DtoValidateException.class,
+                () -> discountCodeService.validateAndProcessDiscountCode(
+                        new CodeValidationRequestDto("VALID123", "01/27/2025, 12:00:00", 50.0)));
+
+        // Then
+        assertEquals("40030", exception.getMessage());
+    }
+
+    @Test
+    void GivenCodeUsedToday_WhenValidateAndProcessDailyOffer_ThenThrowDtoValidateException() {
+        // Given
+        Restriction restriction = new Restriction();
+        restriction.setFrequencyOfUse(FrequencyOfUse.DAILY);
+        offer.setRestriction(restriction);
+
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId("VALID123", supplierId))
+                .thenReturn(Optional.of(codeValidation(discountCode, 200.0, LocalDateTime.now())));
+
+        // When & Then
+        assertThrows(DtoValidateException.class, () -> discountCodeService.validateAndProcessDiscountCode(
+                new CodeValidationRequestDto("VALID123", "01/27/2025, 12:00:00", 50.0)));
+        verify(offerTransactionService, never()).recordValidation(any(), any(), any(), anyBoolean(), any());
+    }
+
     @Test
     @SneakyThrows
     void GivenSpecialOfferAndEligible_WhenValidateAndProcessDiscountCode_ThenReturnOfferDetails() {
         String code = "VALID123";
         String now = "01/27/2025, 12:00:00";
-        CitizenBenefit citizenBenefit = CitizenBenefit.builder().amount(200.0).build();
         // Mocks
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(discountCodeRepository.findByCodeIgnoreCaseAndIsActiveTrueAndOfferSupplierId(code, supplierId))
-                .thenReturn(Optional.of(discountCode));
-        when(benefitRepository.findById(discountCode.getOffer().getBenefit().getId()))
-                .thenReturn(Optional.of(benefit));
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId(code, supplierId))
+                .thenReturn(Optional.of(codeValidation(discountCode, 200.0, null)));
 
-        when(citizenBenefitService.getCitizenBenefitByUserIdAndBenefit(any(), any())).thenReturn(citizenBenefit);
         // Call - amount null -> treated as ZERO_AMOUNT -> not a custom amount
         CodeValidationResponseDto response = discountCodeService.validateAndProcessDiscountCode(new CodeValidationRequestDto(code, now, null));
 
@@ -494,5 +571,221 @@ class DiscountCodeServiceTests {
         assertEquals("VALID123", response.code());
     }
 
-}
+    @Test
+    void GivenSameCodeScannedTwiceOffline_WhenValidateAndProcessDiscountCodes_ThenSecondScanIsRejected() {
+        // Given
+        ReflectionTestUtils.setField(discountCodeService, "notFoundOrInactive", "40034");
+        offer.setOfferType(new OfferType(0, "test"));
+
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationsByCodesAndSupplierId(Set.of("VALID123"), supplierId))
+                .thenReturn(List.of(codeValidation(discountCode, 200.0, null)));
+        when(offerTransactionService.recordValidation(any(), any(), any(), anyBoolean(), any())).thenReturn(true);
+
+        // When
+        CodeValidationBatchResponseDto result = discountCodeService.validateAndProcessDiscountCodes(List.of(
+                new CodeValidationRequestDto("VALID123", "01/27/2025, 12:05:00", 50.0),
+                new CodeValidationRequestDto("valid123", "01/27/2025, 12:00:00", 50.0)));
+
+        // Then
+        assertEquals("40034", result.results().get(0).errorCode());
+        assertEquals("VALID123", result.results().get(1).validation().code());
+        verify(offerTransactionService, times(1)).recordValidation(any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void GivenScansSharingBalance_WhenValidateAndProcessDiscountCodes_ThenEarlierScanIsDebitedFirst() {
+        // Given
+        ReflectionTestUtils.setField(discountCodeService, "amountExceededError", "40058");
+        offer.setOfferType(new OfferType(0, "test"));
+        UUID citizenId = UUID.randomUUID();
+        discountCode.setUserId(citizenId);
+
+        Offer otherOffer = new Offer();
+        otherOffer.setOfferType(new OfferType(0, "test"));
+        otherOffer.setBenefit(benefit);
+        otherOffer.setStatus(GenericStatusEnum.ACTIVE);
+        otherOffer.setActive(true);
+
+        DiscountCode otherCode = new DiscountCode();
+        otherCode.setCode("OTHER1");
+        otherCode.setUserId(citizenId);
+        otherCode.setIsActive(true);
+        otherCode.setOffer(otherOffer);
+
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationsByCodesAndSupplierId(Set.of("VALID123", "OTHER1"), supplierId))
+                .thenReturn(List.of(codeValidation(discountCode, 150.0, null), codeValidation(otherCode, 150.0, null)));
+        when(offerTransactionService.recordValidation(eq(otherCode), any(), eq(100.0), anyBoolean(), any())).thenReturn(true);
+
+        // When
+        CodeValidationBatchResponseDto result = discountCodeService.validateAndProcessDiscountCodes(List.of(
+                new CodeValidationRequestDto("VALID123", "01/27/2025, 12:30:00", 100.0),
+                new CodeValidationRequestDto("OTHER1", "01/27/2025, 12:00:00", 100.0)));
+
+        // Then
+        assertEquals("40058", result.results().get(0).errorCode());
+        assertEquals("OTHER1", result.results().get(1).validation().code());
+        verify(offerTransactionService, never()).recordValidation(eq(discountCode), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void GivenDailyOfferScannedTwiceOffline_WhenValidateAndProcessDiscountCodes_ThenLaterScanSeesEarlierUse() {
+        // Given
+        ReflectionTestUtils.setField(discountCodeService, "alreadyUsed", "40030");
+        Restriction restriction = new Restriction();
+        restriction.setFrequencyOfUse(FrequencyOfUse.DAILY);
+        offer.setRestriction(restriction);
+        offer.setOfferType(new OfferType(0, "test"));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy, HH:mm:ss");
+
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationsByCodesAndSupplierId(Set.of("VALID123"), supplierId))
+                .thenReturn(List.of(codeValidation(discountCode, 200.0, null)));
+        when(offerTransactionService.recordValidation(any(), any(), any(), anyBoolean(), any())).thenReturn(true);
+
+        // When
+        CodeValidationBatchResponseDto result = discountCodeService.validateAndProcessDiscountCodes(List.of(
+                new CodeValidationRequestDto("VALID123", LocalDate.now().atTime(0, 0, 1).format(formatter), 20.0),
+                new CodeValidationRequestDto("VALID123", LocalDate.now().atTime(0, 0, 2).format(formatter), 20.0)));
+
+        // Then
+        assertNotNull(result.results().get(0).validation());
+        assertEquals("40030", result.results().get(1).errorCode());
+        verify(offerTransactionService, times(1)).recordValidation(any(), any(), any(), anyBoolean(), any());
+    }
 
+    @Test
+    void GivenDailyOfferScannedTwiceOnPastDayOffline_WhenValidateAndProcessDiscountCodes_ThenLaterScanSeesEarlierUse() {
+        // Given
+        ReflectionTestUtils.setField(discountCodeService, "alreadyUsed", "40030");
+        Restriction restriction = new Restriction();
+        restriction.setFrequencyOfUse(FrequencyOfUse.DAILY);
+        offer.setRestriction(restriction);
+        offer.setOfferType(new OfferType(0, "test"));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy, HH:mm:ss");
+        LocalDate scanDay = LocalDate.now().minusDays(3);
+
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationsByCodesAndSupplierId(Set.of("VALID123"), supplierId))
+                .thenReturn(List.of(codeValidation(discountCode, 200.0, null)));
+        when(offerTransactionService.recordValidation(any(), any(), any(), anyBoolean(), any())).thenReturn(true);
+
+        // When
+        CodeValidationBatchResponseDto result = discountCodeService.validateAndProcessDiscountCodes(List.of(
+                new CodeValidationRequestDto("VALID123", scanDay.atTime(9, 0).format(formatter), 20.0),
+                new CodeValidationRequestDto("VALID123", scanDay.atTime(17, 0).format(formatter), 20.0)));
+
+        // Then
+        assertNotNull(result.results().get(0).validation());
+        assertEquals("40030", result.results().get(1).errorCode());
+        verify(offerTransactionService, times(1)).recordValidation(any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void GivenDailyOfferScannedOfflineOnConsecutivePastDays_WhenValidateAndProcessDiscountCodes_ThenBothScansPass() {
+        // Given
+        Restriction restriction = new Restriction();
+        restriction.setFrequencyOfUse(FrequencyOfUse.DAILY);
+        offer.setRestriction(restriction);
+        offer.setOfferType(new OfferType(0, "test"));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy, HH:mm:ss");
+
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationsByCodesAndSupplierId(Set.of("VALID123"), supplierId))
+                .thenReturn(List.of(codeValidation(discountCode, 200.0, null)));
+        when(offerTransactionService.recordValidation(any(), any(), any(), anyBoolean(), any())).thenReturn(true);
+
+        // When
+        CodeValidationBatchResponseDto result = discountCodeService.validateAndProcessDiscountCodes(List.of(
+                new CodeValidationRequestDto("VALID123", LocalDate.now().minusDays(3).atTime(17, 0).format(formatter), 20.0),
+                new CodeValidationRequestDto("VALID123", LocalDate.now().minusDays(2).atTime(9, 0).format(formatter), 20.0)));
+
+        // Then
+        assertNotNull(result.results().get(0).validation());
+        assertNotNull(result.results().get(1).validation());
+        verify(offerTransactionService, times(2)).recordValidation(any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void GivenDailyOfferUsedTodayAndLaterDeviceTime_WhenValidateAndProcessDiscountCode_ThenThrowAlreadyUsed() {
+        // Given
+        ReflectionTestUtils.setField(discountCodeService, "alreadyUsed", "40030");
+        Restriction restriction = new Restriction();
+        restriction.setFrequencyOfUse(FrequencyOfUse.DAILY);
+        offer.setRestriction(restriction);
+        offer.setOfferType(new OfferType(0, "test"));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy, HH:mm:ss");
+
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationByCodeAndSupplierId("VALID123", supplierId))
+                .thenReturn(Optional.of(codeValidation(discountCode, 200.0, LocalDateTime.now())));
+
+        // When
+        DtoValidateException exception = assertThrows(DtoValidateException.class,
+                () -> discountCodeService.validateAndProcessDiscountCode(new CodeValidationRequestDto("VALID123",
+                        LocalDate.now().plusDays(2).atTime(12, 0).format(formatter), 20.0)));
+
+        // Then
+        assertEquals("40030", exception.getMessage());
+        verify(offerTransactionService, never()).recordValidation(any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void GivenScanTimesOutsideOfflineWindow_WhenValidateAndProcessDiscountCodes_ThenUsesAreRecordedWithinWindow() {
+        // Given
+        ReflectionTestUtils.setField(discountCodeService, "offlineWindowHours", 24L);
+        Restriction restriction = new Restriction();
+        restriction.setMinPrice(0);
+        restriction.setMaxPrice(100);
+        offer.setRestriction(restriction);
+        offer.setOfferType(new OfferType(0, "test"));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy, HH:mm:ss");
+        ArgumentCaptor<LocalDateTime> usageTimes = ArgumentCaptor.forClass(LocalDateTime.class);
+        LocalDateTime before = LocalDateTime.now().withNano(0);
+
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        when(discountCodeRepository.findCodeValidationsByCodesAndSupplierId(Set.of("VALID123"), supplierId))
+                .thenReturn(List.of(codeValidation(discountCode, 200.0, null)));
+        when(offerTransactionService.recordValidation(any(), any(), any(), anyBoolean(), usageTimes.capture())).thenReturn(true);
+
+        // When
+        discountCodeService.validateAndProcessDiscountCodes(List.of(
+                new CodeValidationRequestDto("VALID123", LocalDate.now().minusDays(5).atTime(12, 0).format(formatter), 20.0),
+                new CodeValidationRequestDto("VALID123", LocalDate.now().plusDays(5).atTime(12, 0).format(formatter), 20.0)));
+
+        // Then
+        LocalDateTime after = LocalDateTime.now();
+        assertFalse(usageTimes.getAllValues().get(0).isBefore(before.minusHours(24)));
+        assertFalse(usageTimes.getAllValues().get(0).isAfter(after.minusHours(24)));
+        assertFalse(usageTimes.getAllValues().get(1).isBefore(before));
+        assertFalse(usageTimes.getAllValues().get(1).isAfter(after));
+    }
+
+    private DiscountCodeWalletProjection walletCode(String code, boolean isActive, GenericStatusEnum offerStatus, LocalDate expirationDate) {
+        return new WalletCode(UUID.randomUUID(), code, isActive, offerStatus, new OfferType(0, "test"), expirationDate,
+                10.0, "Offer", "Company", "logo");
+    }
+
+    private record WalletCode(UUID getId, String getCode, Boolean getIsActive, GenericStatusEnum getOfferStatus,
+                              OfferType getOfferType, LocalDate getExpirationDate, Double getAmount, String getOfferTitle,
+                              String getCompanyName, String getCompanyLogo) implements DiscountCodeWalletProjection {
+    }
+
+    private CodeValidationProjection codeValidation(DiscountCode discountCode, Double balance, LocalDateTime lastUsedAt) {
+        discountCode.setLastUsedAt(lastUsedAt);
+
+        return new CodeValidationProjection() {
+            @Override
+            public DiscountCode getDiscountCode() {
+                return discountCode;
+            }
+
+            @Override
+            public Double getBalance() {
+                return balance;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,59 @@
+package nl.centric.innovation.local4local.unit;
+
+import lombok.SneakyThrows;
+import nl.centric.innovation.local4local.service.impl.FileSystemDocumentStoreImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileSystemDocumentStoreTests {
+
+    @TempDir
+    Path root;
+
+    @Test
+    @SneakyThrows
+    void GivenStoredDocument_WhenPutAgain_ThenLatestContentIsReturned() {
+        // Given
+        FileSystemDocumentStoreImpl documentStore = new FileSystemDocumentStoreImpl(root.toString());
+        documentStore.put("invoices/tenant/2025-02/supplier_nl-NL.pdf", new byte[]{1});
+
+        // When
+        documentStore.put("invoices/tenant/2025-02/supplier_nl-NL.pdf", new byte[]{2, 3});
+
+        // Then
+        assertArrayEquals(new byte[]{2, 3}, documentStore.get("invoices/tenant/2025-02/supplier_nl-NL.pdf").get());
+        try (var files = Files.list(root.resolve("invoices/tenant/2025-02"))) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenMissingDocument_WhenGet_ThenEmptyIsReturned() {
+        // Given
+        FileSystemDocumentStoreImpl documentStore = new FileSystemDocumentStoreImpl(root.toString());
+
+        // When
+        Optional<byte[]> document = documentStore.get("invoices/missing.pdf");
+
+        // Then
+        assertEquals(Optional.empty(), document);
+    }
+
+    @Test
+    void GivenKeyOutsideOfStore_WhenPut_ThenItIsRejected() {
+        // Given
+        FileSystemDocumentStoreImpl documentStore = new FileSystemDocumentStoreImpl(root.resolve("store").toString());
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> documentStore.put("../outside.pdf", new byte[]{1}));
+    }
+}
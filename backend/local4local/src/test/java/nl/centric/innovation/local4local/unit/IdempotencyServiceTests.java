@@ -0,0 +1,225 @@
+package nl.centric.innovation.local4local.unit;
+
+import lombok.SneakyThrows;
+import nl.centric.innovation.local4local.dto.CodeValidationRequestDto;
+import nl.centric.innovation.local4local.dto.CodeValidationResponseDto;
+import nl.centric.innovation.local4local.entity.IdempotencyKey;
+import nl.centric.innovation.local4local.entity.User;
+import nl.centric.innovation.local4local.exceptions.DtoValidateAlreadyExistsException;
+import nl.centric.innovation.local4local.exceptions.DtoValidateException;
+import nl.centric.innovation.local4local.repository.IdempotencyKeyRepository;
+import nl.centric.innovation.local4local.service.impl.IdempotencyService;
+import nl.centric.innovation.local4local.service.impl.PrincipalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTests {
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private PrincipalService principalService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private static final String KEY = "3f7c2a9e-retry";
+
+    private static final String SCOPE = "code-validation";
+
+    private static final CodeValidationRequestDto REQUEST =
+            new CodeValidationRequestDto("ABC123", "01/27/2025, 12:00:00", 10.0);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(idempotencyService, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(idempotencyService, "maxSize", 100L);
+        ReflectionTestUtils.setField(idempotencyService, "errorKeyReused", "40059");
+        idempotencyService.init();
+
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        lenient().when(principalService.getUser()).thenReturn(user);
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenRetriedRequest_WhenExecute_ThenStoredResponseIsReplayed() {
+        // When
+        CodeValidationResponseDto first = idempotencyService.execute(KEY, SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate);
+        CodeValidationResponseDto retry = idempotencyService.execute(KEY, SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate);
+
+        // Then
+        assertEquals(1, executions.get());
+        assertEquals(first, retry);
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenKeyReusedForOtherRequest_WhenExecute_ThenConflictIsThrown() {
+        // Given
+        idempotencyService.execute(KEY, SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate);
+        CodeValidationRequestDto otherRequest = new CodeValidationRequestDto("ABC123", "01/27/2025, 12:00:00", 20.0);
+
+        // When
+        DtoValidateAlreadyExistsException exception = assertThrows(DtoValidateAlreadyExistsException.class,
+                () -> idempotencyService.execute(KEY, SCOPE, otherRequest, CodeValidationResponseDto.class, this::validate));
+
+        // Then
+        assertEquals("40059", exception.getMessage());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenNoKey_WhenExecuteTwice_ThenActionRunsTwice() {
+        // When
+        idempotencyService.execute(null, SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate);
+        idempotencyService.execute(" ", SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate);
+
+        // Then
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenFailedRequest_WhenRetried_ThenActionRunsAgain() {
+        // Given
+        assertThrows(DtoValidateException.class, () -> idempotencyService.execute(KEY, SCOPE, REQUEST, Void.class, () -> {
+            executions.incrementAndGet();
+            throw new DtoValidateException("error");
+        }));
+
+        // When
+        idempotencyService.execute(KEY, SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate);
+
+        // Then
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenDatabaseStoreAndKeyStoredByOtherNode_WhenExecute_ThenStoredResponseIsReplayed() {
+        // Given
+        ReflectionTestUtils.setField(idempotencyService, "databaseStoreEnabled", true);
+        IdempotencyKey storedKey = IdempotencyKey.builder()
+                .response("{\"code\":\"ABC123\",\"currentTime\":\"12:00\"}")
+                .expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        when(idempotencyKeyRepository.findByKeyAndExpiresAtAfter(anyString(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(storedKey));
+
+        // When
+        CodeValidationResponseDto result = idempotencyService.execute(KEY, SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate);
+
+        // Then
+        assertEquals(0, executions.get());
+        assertEquals("ABC123", result.code());
+    }
+
+    @Test
+    void GivenDatabaseStoreAndKeyStoredByOtherNodeForOtherRequest_WhenExecute_ThenConflictIsThrown() {
+        // Given
+        ReflectionTestUtils.setField(idempotencyService, "databaseStoreEnabled", true);
+        IdempotencyKey storedKey = IdempotencyKey.builder()
+                .requestFingerprint("0".repeat(64))
+                .response("{\"code\":\"ABC123\",\"currentTime\":\"12:00\"}")
+                .expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        when(idempotencyKeyRepository.findByKeyAndExpiresAtAfter(anyString(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(storedKey));
+
+        // When & Then
+        assertThrows(DtoValidateAlreadyExistsException.class,
+                () -> idempotencyService.execute(KEY, SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenDatabaseStoreAndConcurrentNodeWins_WhenExecute_ThenResponseOfThatNodeIsReturned() {
+        // Given
+        ReflectionTestUtils.setField(idempotencyService, "databaseStoreEnabled", true);
+        IdempotencyKey storedKey = IdempotencyKey.builder()
+                .response("{\"code\":\"OTHER1\",\"currentTime\":\"12:00\"}")
+                .expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+        when(idempotencyKeyRepository.findByKeyAndExpiresAtAfter(anyString(), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty(), Optional.of(storedKey));
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(idempotencyKeyRepository.saveIfAbsent(anyString(), anyString(), anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(0);
+
+        // When
+        CodeValidationResponseDto result = idempotencyService.execute(KEY, SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate);
+
+        // Then
+        assertEquals(1, executions.get());
+        assertEquals("OTHER1", result.code());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenDatabaseStoreAndFailedRequest_WhenExecute_ThenOriginalExceptionIsThrown() {
+        // Given
+        ReflectionTestUtils.setField(idempotencyService, "databaseStoreEnabled", true);
+        when(idempotencyKeyRepository.findByKeyAndExpiresAtAfter(anyString(), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        // When & Then
+        DtoValidateException exception = assertThrows(DtoValidateException.class,
+                () -> idempotencyService.execute(KEY, SCOPE, REQUEST, Void.class, () -> {
+                    throw new DtoValidateException("amount exceeded");
+                }));
+        assertEquals("amount exceeded", exception.getMessage());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenSameKeyInOtherScope_WhenExecute_ThenActionRunsAgain() {
+        // When
+        idempotencyService.execute(KEY, SCOPE, REQUEST, CodeValidationResponseDto.class, this::validate);
+        idempotencyService.execute(KEY, "offer-use", REQUEST, CodeValidationResponseDto.class, this::validate);
+
+        // Then
+        assertEquals(2, executions.get());
+    }
+
+    private CodeValidationResponseDto validate() {
+        return CodeValidationResponseDto.builder()
+                .code("CODE" + executions.incrementAndGet())
+                .currentTime("12:00")
+                .build();
+    }
+}
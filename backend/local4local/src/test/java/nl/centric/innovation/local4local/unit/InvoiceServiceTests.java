@@ -1,30 +1,43 @@
 package nl.centric.innovation.local4local.unit;
 
+import lombok.SneakyThrows;
 import nl.centric.innovation.local4local.dto.InvoiceDto;
+import nl.centric.innovation.local4local.dto.InvoiceTransactionsSummaryDto;
 import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceDto;
 import nl.centric.innovation.local4local.entity.Supplier;
+import nl.centric.innovation.local4local.entity.SupplierInvoice;
 import nl.centric.innovation.local4local.entity.SupplierProfile;
 import nl.centric.innovation.local4local.entity.Tenant;
 import nl.centric.innovation.local4local.entity.User;
+import nl.centric.innovation.local4local.repository.SupplierInvoiceRepository;
+import nl.centric.innovation.local4local.repository.TenantRepository;
 import nl.centric.innovation.local4local.service.impl.InvoiceService;
 import nl.centric.innovation.local4local.service.impl.OfferTransactionService;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
 import nl.centric.innovation.local4local.service.impl.SupplierService;
+import nl.centric.innovation.local4local.service.interfaces.DocumentStore;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thymeleaf.ITemplateEngine;
 
 import org.thymeleaf.context.Context;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -48,14 +61,33 @@ class InvoiceServiceTests {
     @Mock
     private ITemplateEngine templateEngine;
 
+    @Mock
+    private SupplierInvoiceRepository supplierInvoiceRepository;
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private DocumentStore documentStore;
+
     @InjectMocks
     private InvoiceService invoiceService;
 
+    private static final LocalDate LAST_DAY_OF_MONTH = LocalDate.of(2025, 2, 28);
+    private static final InvoiceTransactionsSummaryDto TRANSACTIONS_SUMMARY =
+            new InvoiceTransactionsSummaryDto(2L, 220.0, LocalDateTime.of(2025, 2, 1, 10, 0));
+    private static final String STORAGE_KEY = "invoices/tenant/2025-02/supplier_nl-NL.pdf";
+
     private InvoiceDto invoiceDto;
 
     @BeforeEach
     void setUp() {
         invoiceDto = new InvoiceDto(INVOICE_NUMBER, INVOICE_DATE, DUE_DATE, MONTH);
+        ReflectionTestUtils.setField(invoiceService, "poolSize", 2);
+        ReflectionTestUtils.setField(invoiceService, "queueCapacity", 10);
+        ReflectionTestUtils.setField(invoiceService, "dueDays", 30);
+        ReflectionTestUtils.setField(invoiceService, "defaultLanguage", "nl-NL");
+        ReflectionTestUtils.setField(invoiceService, "errorEntityNotFound", "Entity not found");
     }
 
 
@@ -93,6 +125,104 @@ class InvoiceServiceTests {
         Assertions.assertEquals(mockOfferTransactions(), capturedContext.getVariable("offerTransactions"));
     }
 
+    @Test
+    @SneakyThrows
+    void GivenStoredInvoiceOfUnchangedTransactions_WhenGetMonthlyInvoice_ThenStoredPdfIsReturned() {
+        // Given
+        Supplier supplier = mockApprovedSupplier();
+        byte[] storedPdf = {1, 2, 3};
+        when(principalService.getSupplierId()).thenReturn(supplier.getId());
+        when(supplierService.findBySupplierId(supplier.getId())).thenReturn(Optional.of(supplier));
+        when(offerTransactionService.getInvoiceTransactionsSummary(supplier.getId(), INVOICE_DATE, LAST_DAY_OF_MONTH))
+                .thenReturn(TRANSACTIONS_SUMMARY);
+        when(supplierInvoiceRepository.findBySupplierIdAndMonthAndLanguage(supplier.getId(), INVOICE_DATE, "nl-NL"))
+                .thenReturn(Optional.of(storedInvoice(TRANSACTIONS_SUMMARY.fingerprint())));
+        when(documentStore.get(STORAGE_KEY)).thenReturn(Optional.of(storedPdf));
+
+        // When
+        byte[] pdfBytes = invoiceService.getMonthlyInvoice(INVOICE_DATE.plusDays(10), "nl-NL");
+
+        // Then
+        Assertions.assertArrayEquals(storedPdf, pdfBytes);
+        verify(templateEngine, never()).process(anyString(), any());
+        verify(documentStore, never()).put(anyString(), any());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenStoredInvoiceOfChangedTransactions_WhenGetMonthlyInvoice_ThenInvoiceIsRenderedAndStored() {
+        // Given
+        Supplier supplier = mockApprovedSupplier();
+        when(principalService.getSupplierId()).thenReturn(supplier.getId());
+        when(supplierService.findBySupplierId(supplier.getId())).thenReturn(Optional.of(supplier));
+        when(offerTransactionService.getInvoiceTransactionsSummary(supplier.getId(), INVOICE_DATE, LAST_DAY_OF_MONTH))
+                .thenReturn(TRANSACTIONS_SUMMARY);
+        when(supplierInvoiceRepository.findBySupplierIdAndMonthAndLanguage(supplier.getId(), INVOICE_DATE, "nl-NL"))
+                .thenReturn(Optional.of(storedInvoice("1:100.00:2025-02-01T09:00")));
+        when(offerTransactionService.getTransactionsBySupplierIdBetweenDates(supplier.getId(), INVOICE_DATE, LAST_DAY_OF_MONTH))
+                .thenReturn(mockOfferTransactions());
+        when(templateEngine.process(Mockito.anyString(), Mockito.any()))
+                .thenReturn("<html><body><p>Invoice Content</p></body></html>");
+
+        // When
+        byte[] pdfBytes = invoiceService.getMonthlyInvoice(INVOICE_DATE, "nl-NL");
+
+        // Then
+        String storageKey = String.format("invoices/%s/2025-02/%s_nl-NL.pdf", supplier.getTenant().getId(), supplier.getId());
+        verify(documentStore).put(storageKey, pdfBytes);
+        verify(supplierInvoiceRepository).upsertSupplierInvoice(eq(supplier.getTenant().getId()), eq(supplier.getId()),
+                eq(INVOICE_DATE), eq("nl-NL"), eq(TRANSACTIONS_SUMMARY.fingerprint()), eq(storageKey), any(LocalDateTime.class));
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenApprovedSuppliers_WhenGenerateMonthlyInvoicesOfTenant_ThenOnlyChangedInvoicesAreRendered() {
+        // Given
+        invoiceService.init();
+        Supplier unchangedSupplier = mockApprovedSupplier();
+        Supplier changedSupplier = mockApprovedSupplier();
+        Tenant tenant = changedSupplier.getTenant();
+        when(principalService.getTenantId()).thenReturn(tenant.getId());
+        when(tenantRepository.findById(tenant.getId())).thenReturn(Optional.of(tenant));
+        when(supplierService.findApprovedByTenantId(tenant.getId())).thenReturn(List.of(unchangedSupplier, changedSupplier));
+        when(offerTransactionService.getInvoiceTransactionsSummary(any(), eq(INVOICE_DATE), eq(LAST_DAY_OF_MONTH)))
+                .thenReturn(TRANSACTIONS_SUMMARY);
+        when(supplierInvoiceRepository.findBySupplierIdAndMonthAndLanguage(unchangedSupplier.getId(), INVOICE_DATE, "nl-NL"))
+                .thenReturn(Optional.of(storedInvoice(TRANSACTIONS_SUMMARY.fingerprint())));
+        when(supplierInvoiceRepository.findBySupplierIdAndMonthAndLanguage(changedSupplier.getId(), INVOICE_DATE, "nl-NL"))
+                .thenReturn(Optional.empty());
+        when(offerTransactionService.getTransactionsBySupplierIdBetweenDates(changedSupplier.getId(), INVOICE_DATE, LAST_DAY_OF_MONTH))
+                .thenReturn(mockOfferTransactions());
+        when(templateEngine.process(Mockito.anyString(), Mockito.any()))
+                .thenReturn("<html><body><p>Invoice Content</p></body></html>");
+
+        // When
+        invoiceService.generateMonthlyInvoicesOfTenant(INVOICE_DATE).join();
+        invoiceService.shutdown();
+
+        // Then
+        verify(templateEngine).process(Mockito.anyString(), Mockito.any());
+        verify(documentStore).put(eq(String.format("invoices/%s/2025-02/%s_nl-NL.pdf", tenant.getId(), changedSupplier.getId())), any());
+        verify(supplierInvoiceRepository, never()).upsertSupplierInvoice(any(), eq(unchangedSupplier.getId()), any(), any(),
+                any(), any(), any());
+    }
+
+    private Supplier mockApprovedSupplier() {
+        Supplier supplier = mockSupplierWithProfile();
+        supplier.setId(UUID.randomUUID());
+        supplier.setCompanyName("Company Name");
+        supplier.setTenant(mockUserWithTenant().getSupplier().getTenant());
+        supplier.getTenant().setId(UUID.fromString("7c9e6679-7425-40de-944b-e07fc1f90ae7"));
+        return supplier;
+    }
+
+    private SupplierInvoice storedInvoice(String fingerprint) {
+        return SupplierInvoice.builder()
+                .transactionsFingerprint(fingerprint)
+                .storageKey(STORAGE_KEY)
+                .build();
+    }
+
     private User mockUserWithTenant() {
         User user = new User();
         Supplier supplier = new Supplier();
@@ -0,0 +1,88 @@
+package nl.centric.innovation.local4local.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+import nl.centric.innovation.local4local.security.JsonSanitizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonSanitizerTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @SneakyThrows
+    void GivenCleanPayload_WhenSanitize_ThenPayloadIsUnchanged() {
+        // Given
+        String json = "{\"title\":\"Korting op fietsen\",\"amount\":12.10,\"count\":3,\"active\":true,"
+                + "\"description\":null,\"tags\":[\"sport\",\"buiten\"],\"hours\":[{\"day\":1,\"openTime\":\"09:00\"}]}";
+
+        // When
+        String result = sanitize(json);
+
+        // Then
+        assertEquals(json, result);
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenMarkupInObjectsAndArrays_WhenSanitize_ThenEveryStringIsSanitized() {
+        // Given
+        String json = "{\"title\":\"<script>alert(1)</script>Fietsen\",\"description\":\"<b>Korting</b> & meer\","
+                + "\"tags\":[\"<img src=x onerror=alert(1)>sport\"],\"nested\":{\"note\":\"<i>ok</i>\"}}";
+
+        // When
+        JsonNode result = objectMapper.readTree(sanitize(json));
+
+        // Then
+        assertEquals("Fietsen", result.get("title").textValue());
+        assertEquals("<b>Korting</b> & meer", result.get("description").textValue());
+        assertFalse(result.get("tags").get(0).textValue().contains("onerror"));
+        assertEquals("<i>ok</i>", result.get("nested").get("note").textValue());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenBlankStrings_WhenSanitize_ThenTheyBecomeNull() {
+        // Given
+        String json = "{\"name\":\"\",\"city\":\"  \"}";
+
+        // When
+        JsonNode result = objectMapper.readTree(sanitize(json));
+
+        // Then
+        assertTrue(result.get("name").isNull());
+        assertTrue(result.get("city").isNull());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenLargePayload_WhenSanitize_ThenItIsCopiedAcrossChunks() {
+        // Given
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"Aanbieder ").append(i).append("\"}");
+        }
+        json.append("]");
+
+        // When
+        String result = sanitize(json.toString());
+
+        // Then
+        assertEquals(json.toString(), result);
+    }
+
+    private static String sanitize(String json) throws Exception {
+        try (InputStream sanitized = JsonSanitizer.sanitize(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            return new String(sanitized.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package nl.centric.innovation.local4local.unit;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import nl.centric.innovation.local4local.authentication.JwtUtil;
+import nl.centric.innovation.local4local.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtUtilTests {
+
+    private static final String SECRET_KEY = "c2VjcmV0LWtleS1mb3ItdGhlLWp3dC11dGlsLXRlc3RzLW9mLWxvY2FsNGxvY2Fs";
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("jwt.secret.key", SECRET_KEY)
+            .withProperty("jwt.expiration.time", "60000");
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = jwtUtil(environment);
+    }
+
+    @Test
+    void GivenValidToken_WhenVerifiedTwice_ThenEachCallGetsItsOwnClaims() {
+        // Given
+        String token = jwtUtil.generateToken(Map.of("role", "ROLE_SUPPLIER"), user());
+
+        // When
+        Claims first = jwtUtil.verifyToken(token);
+        first.put("role", "ROLE_CITIZEN");
+        Claims second = jwtUtil.verifyToken(token);
+
+        // Then
+        assertNotSame(first, second);
+        assertEquals("supplier@domain.com", second.getSubject());
+        assertEquals("ROLE_SUPPLIER", second.get("role"));
+        assertEquals("supplier@domain.com", jwtUtil.extractUsername(token));
+    }
+
+    @Test
+    void GivenNestedClaim_WhenVerified_ThenNestedClaimCannotBeModified() {
+        // Given
+        String token = jwtUtil.generateToken(Map.of("role", Map.of("name", "ROLE_SUPPLIER")), user());
+
+        // When
+        Map<?, ?> role = jwtUtil.verifyToken(token).get("role", Map.class);
+
+        // Then
+        assertThrows(UnsupportedOperationException.class, role::clear);
+        assertEquals("ROLE_SUPPLIER", jwtUtil.verifyToken(token).get("role", Map.class).get("name"));
+    }
+
+    @Test
+    void GivenTamperedToken_WhenVerify_ThenBadCredentialsExceptionIsThrown() {
+        // Given
+        String token = jwtUtil.generateToken(user());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        // When & Then
+        assertThrows(BadCredentialsException.class, () -> jwtUtil.verifyToken(tampered));
+        assertThrows(BadCredentialsException.class, () -> jwtUtil.verifyToken("not-a-token"));
+    }
+
+    @Test
+    void GivenExpiredToken_WhenVerify_ThenExpiredJwtExceptionIsThrown() {
+        // Given
+        JwtUtil expiredTokens = jwtUtil(new MockEnvironment()
+                .withProperty("jwt.secret.key", SECRET_KEY)
+                .withProperty("jwt.expiration.time", "-1000"));
+        String token = expiredTokens.generateToken(user());
+
+        // When & Then
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.verifyToken(token));
+    }
+
+    private static JwtUtil jwtUtil(MockEnvironment environment) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "env", environment);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheExpireSeconds", 60L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setUsername("supplier@domain.com");
+        return user;
+    }
+}
@@ -3,24 +3,24 @@ package nl.centric.innovation.local4local.unit;
 import nl.centric.innovation.local4local.entity.LoginAttempt;
 import nl.centric.innovation.local4local.repository.LoginAttemptRepository;
 import nl.centric.innovation.local4local.service.impl.LoginAttemptServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.junit.jupiter.params.ParameterizedTest;
-import org.junit.jupiter.params.provider.Arguments;
-import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.stream.Stream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,104 +33,148 @@ public class LoginAttemptServiceImplTests {
 
     private static final String REMOTE_ADDRESS = "127.0.0.1";
 
-    private static Stream<Arguments> customData() {
-        return Stream.of(
-                Arguments.of(true, 0, 0),
-                Arguments.of(false, 0, 1)
-        );
+    private static final String USERNAME = "supplier@domain.com";
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(loginService, "windowMinutes", 60L);
+        ReflectionTestUtils.setField(loginService, "maxSize", 1000L);
+        ReflectionTestUtils.setField(loginService, "flushIntervalMs", 5000L);
+        loginService.init();
     }
 
     @Test
-    public void GivenValid_WhenLogin_ThenExpectSuccess() {
+    public void GivenFourFailedLogins_WhenLoginFails_ThenExpectBlocked() {
         // Given
-
-        boolean isSuccessful = true;
-        LoginAttempt loginAttempt = loginAttemptBuilder(0);
-
-        when(attemptRepository.save(any(LoginAttempt.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        for (int i = 0; i < 4; i++) {
+            assertFalse(loginService.loginFailed(REMOTE_ADDRESS, USERNAME));
+        }
 
         // When
-        LoginAttempt result = loginService.countLoginAttempts(Optional.of(loginAttempt), REMOTE_ADDRESS, isSuccessful);
+        boolean blocked = loginService.loginFailed(REMOTE_ADDRESS, USERNAME);
 
         // Then
-        assertEquals(0, result.getCount());
+        assertTrue(blocked);
+        assertTrue(loginService.isBlocked(REMOTE_ADDRESS, USERNAME));
+        verifyNoInteractions(attemptRepository);
     }
 
     @Test
-    public void GivenIsSuccessfulFalseCount2_WhenLogin_ThenExpectCount3() {
+    public void GivenFailedLoginsFromManyAddresses_WhenIsBlocked_ThenExpectUsernameBlocked() {
         // Given
-        boolean isSuccessful = false;
-        LoginAttempt existingLoginAttempt = loginAttemptBuilder(2);
-
-        when(attemptRepository.save(any(LoginAttempt.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        for (int i = 0; i < 5; i++) {
+            loginService.loginFailed("10.0.0." + i, USERNAME);
+        }
 
-        // When
-        LoginAttempt result = loginService.countLoginAttempts(Optional.of(existingLoginAttempt), REMOTE_ADDRESS, isSuccessful);
-
-        // Then
-        assertEquals(3, result.getCount());
+        // When and Then
+        assertTrue(loginService.isBlocked("10.0.0.99", USERNAME.toUpperCase()));
+        assertFalse(loginService.isBlocked("10.0.0.99", "citizen@domain.com"));
     }
 
-    @ParameterizedTest
-    @MethodSource("customData")
-    public void GivenFirstLogin_WhenLogin_ThenExpect0(Boolean isSuccessful, Integer actualCount, Integer expectedCount) {
-        // Given and When
-        when(attemptRepository.save(any(LoginAttempt.class))).thenAnswer(invocation -> invocation.getArgument(actualCount));
-        LoginAttempt result = loginService.countLoginAttempts(Optional.empty(), REMOTE_ADDRESS, isSuccessful);
+    @Test
+    public void GivenBlockedAddress_WhenLoginSucceeds_ThenExpectNotBlocked() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            loginService.loginFailed(REMOTE_ADDRESS, USERNAME);
+        }
+
+        // When
+        loginService.loginSucceeded(REMOTE_ADDRESS, USERNAME);
 
         // Then
-        assertEquals(expectedCount, result.getCount());
+        assertFalse(loginService.isBlocked(REMOTE_ADDRESS, USERNAME));
     }
 
     @Test
-    public void GivenCount5_WhenLoginAttempt_ThenExpectCount0() {
+    public void GivenFailuresOutsideWindow_WhenLoginFails_ThenExpectNotBlocked() {
         // Given
-        LoginAttempt loginAttempt = loginAttemptBuilder(5);
+        ReflectionTestUtils.setField(loginService, "windowMinutes", 0L);
+        loginService.init();
 
         // When
-        when(attemptRepository.save(any(LoginAttempt.class))).thenReturn(loginAttempt);
-
-        LoginAttempt result = loginService.countLoginAttempts(Optional.of(loginAttempt), REMOTE_ADDRESS, true);
+        for (int i = 0; i < 5; i++) {
+            loginService.loginFailed(REMOTE_ADDRESS, USERNAME);
+        }
 
         // Then
-        assertEquals(0, result.getCount());
-        verify(attemptRepository, times(1)).save(loginAttempt);
+        assertFalse(loginService.isBlocked(REMOTE_ADDRESS, USERNAME));
     }
 
     @Test
-    public void GivenCount5_WHenIsBlocked_ThenExpectTrue() {
-
-        LoginAttempt loginAttempt = loginAttemptBuilder(5);
+    public void GivenDatabaseStoreAndAddressBlockedByOtherNode_WhenIsBlocked_ThenExpectTrue() {
+        // Given
+        ReflectionTestUtils.setField(loginService, "databaseStoreEnabled", true);
+        LoginAttempt loginAttempt = LoginAttempt.builder()
+                .remoteAddress(REMOTE_ADDRESS)
+                .count(5)
+                .lastFailedDate(LocalDateTime.now().minusMinutes(5))
+                .build();
+        when(attemptRepository.findByRemoteAddress(REMOTE_ADDRESS)).thenReturn(Optional.of(loginAttempt));
 
-        assertTrue(loginService.isBlocked(loginAttempt));
+        // When and Then
+        assertTrue(loginService.isBlocked(REMOTE_ADDRESS, USERNAME));
+        assertTrue(loginService.isBlocked(REMOTE_ADDRESS, USERNAME));
+        verify(attemptRepository, times(1)).findByRemoteAddress(REMOTE_ADDRESS);
     }
 
     @Test
-    public void GivenCount3_WHenIsBlocked_ThenExpectFalse() {
+    public void GivenDatabaseStoreAndFailedLogin_WhenFlush_ThenExpectCountersWritten() {
+        // Given
+        ReflectionTestUtils.setField(loginService, "databaseStoreEnabled", true);
+        when(attemptRepository.findByRemoteAddress(REMOTE_ADDRESS)).thenReturn(Optional.empty());
+        loginService.loginFailed(REMOTE_ADDRESS, USERNAME);
+        loginService.loginFailed(REMOTE_ADDRESS, USERNAME);
 
-        LoginAttempt loginAttempt = loginAttemptBuilder(3);
+        // When
+        loginService.flushLoginAttempts();
+        loginService.flushLoginAttempts();
 
-        assertFalse(loginService.isBlocked(loginAttempt));
+        // Then
+        ArgumentCaptor<String> attempts = ArgumentCaptor.forClass(String.class);
+        verify(attemptRepository, times(1)).upsertLoginAttempts(attempts.capture(), any(LocalDateTime.class));
+        assertTrue(attempts.getValue().contains("\"remote_addr\":\"" + REMOTE_ADDRESS + "\""));
+        assertTrue(attempts.getValue().contains("\"failed_count\":2"));
+        assertTrue(attempts.getValue().contains("\"is_reset\":false"));
     }
 
     @Test
-    void GivenAlreadyExistingRemoteAddress_WhenFindByRemoteAddress_ThenExpectResultIsPresent() {
-        String remoteAddress = "192.168.1.1";
-        LoginAttempt expectedLoginAttempt = new LoginAttempt();
-        when(attemptRepository.findByRemoteAddress(remoteAddress)).thenReturn(Optional.of(expectedLoginAttempt));
+    public void GivenDatabaseStoreAndFlushedFailures_WhenLoginSucceedsAndFlush_ThenExpectOnlyResetWritten() {
+        // Given
+        ReflectionTestUtils.setField(loginService, "databaseStoreEnabled", true);
+        when(attemptRepository.findByRemoteAddress(REMOTE_ADDRESS)).thenReturn(Optional.empty());
+        loginService.loginFailed(REMOTE_ADDRESS, USERNAME);
+        loginService.flushLoginAttempts();
 
-        Optional<LoginAttempt> result = loginService.findByRemoteAddress(remoteAddress);
+        // When
+        loginService.loginSucceeded(REMOTE_ADDRESS, USERNAME);
+        loginService.flushLoginAttempts();
 
-        assertTrue(result.isPresent());
-        assertEquals(expectedLoginAttempt, result.get());
-        verify(attemptRepository).findByRemoteAddress(remoteAddress);
+        // Then
+        ArgumentCaptor<String> attempts = ArgumentCaptor.forClass(String.class);
+        verify(attemptRepository, times(2)).upsertLoginAttempts(attempts.capture(), any(LocalDateTime.class));
+        assertTrue(attempts.getValue().contains("\"failed_count\":0"));
+        assertTrue(attempts.getValue().contains("\"is_reset\":true"));
     }
 
-    private LoginAttempt loginAttemptBuilder(Integer count) {
-        return LoginAttempt.builder()
+    @Test
+    public void GivenDatabaseStoreAndStaleCounter_WhenIsBlocked_ThenExpectFailuresOfOtherNodesRead() {
+        // Given
+        ReflectionTestUtils.setField(loginService, "databaseStoreEnabled", true);
+        ReflectionTestUtils.setField(loginService, "flushIntervalMs", 0L);
+        LoginAttempt loginAttempt = LoginAttempt.builder()
                 .remoteAddress(REMOTE_ADDRESS)
-                .count(count)
+                .count(5)
+                .lastFailedDate(LocalDateTime.now().minusMinutes(1))
                 .build();
-    }
+        when(attemptRepository.findByRemoteAddress(REMOTE_ADDRESS))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(loginAttempt));
 
+        // When
+        boolean blocked = loginService.isBlocked(REMOTE_ADDRESS, USERNAME);
+
+        // Then
+        assertTrue(blocked);
+        verify(attemptRepository, times(2)).findByRemoteAddress(REMOTE_ADDRESS);
+    }
 }
@@ -0,0 +1,131 @@
+package nl.centric.innovation.local4local.unit;
+
+import nl.centric.innovation.local4local.dto.OfferDetailCacheDto;
+import nl.centric.innovation.local4local.entity.Benefit;
+import nl.centric.innovation.local4local.entity.Category;
+import nl.centric.innovation.local4local.entity.Offer;
+import nl.centric.innovation.local4local.entity.OfferType;
+import nl.centric.innovation.local4local.entity.Supplier;
+import nl.centric.innovation.local4local.entity.SupplierProfile;
+import nl.centric.innovation.local4local.enums.GenericStatusEnum;
+import nl.centric.innovation.local4local.repository.OfferRepository;
+import nl.centric.innovation.local4local.service.impl.OfferDetailCacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OfferDetailCacheServiceTests {
+
+    @InjectMocks
+    private OfferDetailCacheService offerDetailCacheService;
+
+    @Mock
+    private OfferRepository offerRepository;
+
+    private static final UUID SUPPLIER_ID = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(offerDetailCacheService, "expireMinutes", 10L);
+        ReflectionTestUtils.setField(offerDetailCacheService, "maxSize", 100L);
+        offerDetailCacheService.init();
+    }
+
+    @Test
+    void GivenLoadedOfferDetail_WhenGetOfferDetailTwice_ThenOfferIsLoadedOnce() {
+        // Given
+        Offer offer = offer();
+        when(offerRepository.findWithDetailsById(offer.getId())).thenReturn(Optional.of(offer));
+
+        // When
+        offerDetailCacheService.getOfferDetail(offer.getId());
+        Optional<OfferDetailCacheDto> result = offerDetailCacheService.getOfferDetail(offer.getId());
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals(offer.getTitle(), result.get().detail().title());
+        verify(offerRepository, times(1)).findWithDetailsById(offer.getId());
+    }
+
+    @Test
+    void GivenMissingOffer_WhenGetOfferDetailTwice_ThenMissIsNotCached() {
+        // Given
+        UUID offerId = UUID.randomUUID();
+        when(offerRepository.findWithDetailsById(offerId)).thenReturn(Optional.empty());
+
+        // When
+        offerDetailCacheService.getOfferDetail(offerId);
+        Optional<OfferDetailCacheDto> result = offerDetailCacheService.getOfferDetail(offerId);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(offerRepository, times(2)).findWithDetailsById(offerId);
+    }
+
+    @Test
+    void GivenCachedOfferDetail_WhenSupplierIsEvicted_ThenOfferIsLoadedAgain() {
+        // Given
+        Offer offer = offer();
+        when(offerRepository.findWithDetailsById(offer.getId())).thenReturn(Optional.of(offer));
+        offerDetailCacheService.getOfferDetail(offer.getId());
+
+        // When
+        offerDetailCacheService.evictSupplier(SUPPLIER_ID);
+        offerDetailCacheService.getOfferDetail(offer.getId());
+
+        // Then
+        verify(offerRepository, times(2)).findWithDetailsById(offer.getId());
+    }
+
+    private Offer offer() {
+        Benefit benefit = Benefit.builder()
+                .name("Benefit")
+                .description("Description")
+                .startDate(LocalDate.of(2025, 1, 1))
+                .expirationDate(LocalDate.of(2025, 12, 31))
+                .build();
+        benefit.setId(UUID.randomUUID());
+
+        Supplier supplier = Supplier.builder()
+                .companyName("Company")
+                .workingHours(List.of())
+                .profile(SupplierProfile.builder()
+                        .companyBranchAddress("Address")
+                        .category(Category.builder().categoryLabel("Food").build())
+                        .build())
+                .build();
+        supplier.setId(SUPPLIER_ID);
+
+        Offer offer = Offer.builder()
+                .title("Pizza deal")
+                .description("description")
+                .citizenOfferType("CITIZEN_WITH_PASS")
+                .offerType(new OfferType(1, "type"))
+                .coordinatesString("4.9,52.3")
+                .startDate(LocalDate.of(2025, 3, 1))
+                .expirationDate(LocalDate.of(2025, 12, 31))
+                .status(GenericStatusEnum.ACTIVE)
+                .supplier(supplier)
+                .benefit(benefit)
+                .build();
+        offer.setId(UUID.randomUUID());
+
+        return offer;
+    }
+}
@@ -0,0 +1,375 @@
+package nl.centric.innovation.local4local.unit;
+
+import nl.centric.innovation.local4local.dto.OfferMapClusterDto;
+import nl.centric.innovation.local4local.dto.OfferMapEntryDto;
+import nl.centric.innovation.local4local.dto.OfferMobileMapLightDto;
+import nl.centric.innovation.local4local.entity.Benefit;
+import nl.centric.innovation.local4local.entity.Offer;
+import nl.centric.innovation.local4local.entity.OfferType;
+import nl.centric.innovation.local4local.entity.Supplier;
+import nl.centric.innovation.local4local.entity.Tenant;
+import nl.centric.innovation.local4local.enums.GenericStatusEnum;
+import nl.centric.innovation.local4local.repository.OfferRepository;
+import nl.centric.innovation.local4local.service.impl.OfferMapIndexService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OfferMapIndexServiceTests {
+
+    @InjectMocks
+    private OfferMapIndexService offerMapIndexService;
+
+    @Mock
+    private OfferRepository offerRepository;
+
+    private static final UUID TENANT_ID = UUID.randomUUID();
+    private static final UUID BENEFIT_ID = UUID.randomUUID();
+    private static final LocalDate CURRENT_DAY = LocalDate.of(2025, 3, 10);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(offerMapIndexService, "refreshMinutes", 15L);
+    }
+
+    @Test
+    void GivenOffersInsideAndOutsideViewport_WhenFindOffersInViewport_ThenOnlyOffersInsideAreReturned() {
+        // Given
+        OfferMapEntryDto inside = entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 1);
+        OfferMapEntryDto outside = entry("Bakery deal", 6.1, 53.2, BENEFIT_ID, 1);
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(List.of(inside, outside));
+
+        // When
+        List<OfferMobileMapLightDto> result = findInDefaultViewport(-1, null);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(inside.id(), result.get(0).id());
+        assertTrue(result.get(0).isActive());
+    }
+
+    @Test
+    void GivenOffersForOtherBenefitsAndTypes_WhenFindOffersInViewport_ThenOnlyAccessibleOffersOfTypeAreReturned() {
+        // Given
+        OfferMapEntryDto accessible = entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 1);
+        OfferMapEntryDto otherBenefit = entry("Pizza deal", 4.9, 52.3, UUID.randomUUID(), 1);
+        OfferMapEntryDto otherType = entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 2);
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID))
+                .thenReturn(List.of(accessible, otherBenefit, otherType));
+
+        // When
+        List<OfferMobileMapLightDto> result = findInDefaultViewport(1, null);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(accessible.id(), result.get(0).id());
+    }
+
+    @Test
+    void GivenSearchKeyword_WhenFindOffersInViewport_ThenTitlesAreMatchedAtWordStart() {
+        // Given
+        OfferMapEntryDto firstWord = entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 1);
+        OfferMapEntryDto secondWord = entry("Free pizza", 4.9, 52.3, BENEFIT_ID, 1);
+        OfferMapEntryDto insideWord = entry("Apizza", 4.9, 52.3, BENEFIT_ID, 1);
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID))
+                .thenReturn(List.of(firstWord, secondWord, insideWord));
+
+        // When
+        List<OfferMobileMapLightDto> result = findInDefaultViewport(-1, "PIZ");
+
+        // Then
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void GivenNoAccessibleBenefits_WhenFindOffersInViewport_ThenIndexIsNotLoaded() {
+        // When
+        List<OfferMobileMapLightDto> result = offerMapIndexService.findOffersInViewport(TENANT_ID, 52.0, 53.0, 4.0, 5.0,
+                CURRENT_DAY, -1, null, Set.of());
+
+        // Then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(offerRepository);
+    }
+
+    @Test
+    void GivenLoadedIndex_WhenOfferIsApproved_ThenOfferIsReturnedWithoutReloading() {
+        // Given
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(new ArrayList<>());
+        assertTrue(findInDefaultViewport(-1, null).isEmpty());
+
+        // When
+        offerMapIndexService.upsert(offer(GenericStatusEnum.ACTIVE, LocalDate.of(2025, 12, 31)));
+
+        // Then
+        assertEquals(1, findInDefaultViewport(-1, null).size());
+        verify(offerRepository, times(1)).findActiveOfferMapEntriesByTenantId(TENANT_ID);
+    }
+
+    @Test
+    void GivenIndexedOffer_WhenOfferIsRejectedOrDeleted_ThenOfferIsRemoved() {
+        // Given
+        Offer offer = offer(GenericStatusEnum.ACTIVE, LocalDate.of(2025, 12, 31));
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID))
+                .thenReturn(List.of(OfferMapEntryDto.of(offer)));
+        assertEquals(1, findInDefaultViewport(-1, null).size());
+
+        // When
+        offer.setStatus(GenericStatusEnum.REJECTED);
+        offerMapIndexService.upsert(offer);
+
+        // Then
+        assertTrue(findInDefaultViewport(-1, null).isEmpty());
+    }
+
+    @Test
+    void GivenExpiredOffer_WhenRemoveExpired_ThenOfferIsRemoved() {
+        // Given
+        OfferMapEntryDto expired = entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 1, CURRENT_DAY.minusDays(1));
+        OfferMapEntryDto valid = entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 1, CURRENT_DAY);
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(List.of(expired, valid));
+        assertEquals(2, findInDefaultViewport(-1, null).size());
+
+        // When
+        offerMapIndexService.removeExpired(CURRENT_DAY);
+
+        // Then
+        List<OfferMobileMapLightDto> result = findInDefaultViewport(-1, null);
+        assertEquals(1, result.size());
+        assertEquals(valid.id(), result.get(0).id());
+    }
+
+    @Test
+    void GivenNearbyOffers_WhenFindClustersInViewportAtLowZoom_ThenOffersAreAggregatedIntoOneCluster() {
+        // Given
+        OfferMapEntryDto first = entry("Pizza deal", 4.90, 52.30, BENEFIT_ID, 1);
+        OfferMapEntryDto second = entry("Bakery deal", 4.92, 52.32, BENEFIT_ID, 1);
+        OfferMapEntryDto otherBenefit = entry("Bakery deal", 4.91, 52.31, UUID.randomUUID(), 1);
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID))
+                .thenReturn(List.of(first, second, otherBenefit));
+
+        // When
+        List<OfferMapClusterDto> result = offerMapIndexService.findClustersInViewport(TENANT_ID, 52.0, 53.0, 4.0, 5.0,
+                -1, null, 8, Set.of(BENEFIT_ID));
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(2, result.get(0).count());
+        assertEquals(4.91, result.get(0).longitude(), 0.0001);
+        assertEquals(52.31, result.get(0).latitude(), 0.0001);
+    }
+
+    @Test
+    void GivenDistantOffers_WhenFindClustersInViewportAtHighZoom_ThenEachOfferHasItsOwnCluster() {
+        // Given
+        OfferMapEntryDto first = entry("Pizza deal", 4.10, 52.10, BENEFIT_ID, 1);
+        OfferMapEntryDto second = entry("Bakery deal", 4.90, 52.90, BENEFIT_ID, 1);
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(List.of(first, second));
+
+        // When
+        List<OfferMapClusterDto> result = offerMapIndexService.findClustersInViewport(TENANT_ID, 52.0, 53.0, 4.0, 5.0,
+                -1, null, 12, Set.of(BENEFIT_ID));
+
+        // Then
+        assertEquals(2, result.size());
+        assertTrue(result.stream().allMatch(cluster -> cluster.count() == 1));
+    }
+
+    @Test
+    void GivenViewportSmallerThanGrid_WhenFindClustersInViewport_ThenOnlyCellsOfViewportAreReturned() {
+        // Given
+        List<OfferMapEntryDto> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(entry("Deal " + i, 4.0 + i * 0.1, 52.30, BENEFIT_ID, 1));
+        }
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(entries);
+
+        // When
+        List<OfferMapClusterDto> result = offerMapIndexService.findClustersInViewport(TENANT_ID, 52.29, 52.31, 4.495, 4.505,
+                -1, null, 12, Set.of(BENEFIT_ID));
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(1, result.get(0).count());
+        assertEquals(4.5, result.get(0).longitude(), 0.0001);
+    }
+
+    @Test
+    void GivenCachedClusters_WhenOfferIsApproved_ThenClustersAreRecomputed() {
+        // Given
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID))
+                .thenReturn(List.of(entry("Pizza deal", 4.90, 52.30, BENEFIT_ID, 1)));
+        assertEquals(1, offerMapIndexService.findClustersInViewport(TENANT_ID, 52.0, 53.0, 4.0, 5.0,
+                1, null, 8, Set.of(BENEFIT_ID)).get(0).count());
+
+        // When
+        offerMapIndexService.upsert(offer(GenericStatusEnum.ACTIVE, LocalDate.of(2025, 12, 31)));
+
+        // Then
+        List<OfferMapClusterDto> result = offerMapIndexService.findClustersInViewport(TENANT_ID, 52.0, 53.0, 4.0, 5.0,
+                1, null, 8, Set.of(BENEFIT_ID));
+        assertEquals(1, result.size());
+        assertEquals(2, result.get(0).count());
+    }
+
+    @Test
+    void GivenIndexedTitles_WhenSuggestTitles_ThenTitleStartsAreRankedBeforeWordStarts() {
+        // Given
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(List.of(
+                entry("Free pizza", 4.9, 52.3, BENEFIT_ID, 1),
+                entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 1),
+                entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 2),
+                entry("Bakery deal", 4.9, 52.3, BENEFIT_ID, 1)));
+
+        // When
+        List<String> result = offerMapIndexService.suggestTitles(TENANT_ID, "PIZ", Set.of(BENEFIT_ID), 2);
+
+        // Then
+        assertEquals(List.of("Pizza deal", "Free pizza"), result);
+    }
+
+    @Test
+    void GivenMoreMatchingTitlesThanLimit_WhenSuggestTitles_ThenFirstTitlesInKeyOrderAreReturned() {
+        // Given
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(List.of(
+                entry("Pizzeria", 4.9, 52.3, BENEFIT_ID, 1),
+                entry("Pizza margherita", 4.9, 52.3, BENEFIT_ID, 1),
+                entry("Pizza calzone", 4.9, 52.3, BENEFIT_ID, 1),
+                entry("Free pizza", 4.9, 52.3, BENEFIT_ID, 1)));
+
+        // When
+        List<String> result = offerMapIndexService.suggestTitles(TENANT_ID, "piz", Set.of(BENEFIT_ID), 2);
+
+        // Then
+        assertEquals(List.of("Pizza calzone", "Pizza margherita"), result);
+    }
+
+    @Test
+    void GivenMisspelledKeyword_WhenSuggestTitles_ThenTitlesWithinEditDistanceAreReturned() {
+        // Given
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(List.of(
+                entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 1),
+                entry("Bakery deal", 4.9, 52.3, BENEFIT_ID, 1)));
+
+        // When
+        List<String> result = offerMapIndexService.suggestTitles(TENANT_ID, "piza", Set.of(BENEFIT_ID), 10);
+
+        // Then
+        assertEquals(List.of("Pizza deal"), result);
+    }
+
+    @Test
+    void GivenMisspelledFirstLetter_WhenSuggestTitles_ThenOnlyKeysSharingTheFirstLetterAreCompared() {
+        // Given
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(List.of(
+                entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 1),
+                entry("Pasta deal", 4.9, 52.3, BENEFIT_ID, 1)));
+
+        // When
+        List<String> misspelledFirstLetter = offerMapIndexService.suggestTitles(TENANT_ID, "bizza", Set.of(BENEFIT_ID), 10);
+        List<String> misspelledLaterLetter = offerMapIndexService.suggestTitles(TENANT_ID, "pista", Set.of(BENEFIT_ID), 10);
+
+        // Then
+        assertTrue(misspelledFirstLetter.isEmpty());
+        assertEquals(List.of("Pasta deal"), misspelledLaterLetter);
+    }
+
+    @Test
+    void GivenTitlesOfOtherBenefits_WhenSuggestTitles_ThenOnlyAccessibleTitlesAreReturned() {
+        // Given
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID)).thenReturn(List.of(
+                entry("Pizza deal", 4.9, 52.3, BENEFIT_ID, 1),
+                entry("Pizza menu", 4.9, 52.3, UUID.randomUUID(), 1)));
+
+        // When
+        List<String> result = offerMapIndexService.suggestTitles(TENANT_ID, "pizza", Set.of(BENEFIT_ID), 10);
+
+        // Then
+        assertEquals(List.of("Pizza deal"), result);
+    }
+
+    @Test
+    void GivenSuggestedTitles_WhenOfferIsRejected_ThenTitleIsNoLongerSuggested() {
+        // Given
+        Offer offer = offer(GenericStatusEnum.ACTIVE, LocalDate.of(2025, 12, 31));
+        when(offerRepository.findActiveOfferMapEntriesByTenantId(TENANT_ID))
+                .thenReturn(List.of(OfferMapEntryDto.of(offer)));
+        assertEquals(List.of("Pizza deal"), offerMapIndexService.suggestTitles(TENANT_ID, "pizza", Set.of(BENEFIT_ID), 10));
+
+        // When
+        offer.setStatus(GenericStatusEnum.REJECTED);
+        offerMapIndexService.upsert(offer);
+
+        // Then
+        assertTrue(offerMapIndexService.suggestTitles(TENANT_ID, "pizza", Set.of(BENEFIT_ID), 10).isEmpty());
+    }
+
+    private List<OfferMobileMapLightDto> findInDefaultViewport(Integer offerType, String searchKeyword) {
+        return offerMapIndexService.findOffersInViewport(TENANT_ID, 52.0, 53.0, 4.0, 5.0, CURRENT_DAY, offerType,
+                searchKeyword, Set.of(BENEFIT_ID));
+    }
+
+    private OfferMapEntryDto entry(String title, double longitude, double latitude, UUID benefitId, int offerTypeId) {
+        return entry(title, longitude, latitude, benefitId, offerTypeId, LocalDate.of(2025, 12, 31));
+    }
+
+    private OfferMapEntryDto entry(String title, double longitude, double latitude, UUID benefitId, int offerTypeId,
+                                   LocalDate expirationDate) {
+        return OfferMapEntryDto.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .description("description")
+                .offerType(new OfferType(offerTypeId, "type"))
+                .coordinatesString(String.format("%f,%f", longitude, latitude))
+                .longitude(longitude)
+                .latitude(latitude)
+                .startDate(CURRENT_DAY.minusDays(10))
+                .expirationDate(expirationDate)
+                .benefitId(benefitId)
+                .build();
+    }
+
+    private Offer offer(GenericStatusEnum status, LocalDate expirationDate) {
+        Tenant tenant = new Tenant();
+        tenant.setId(TENANT_ID);
+        Benefit benefit = new Benefit();
+        benefit.setId(BENEFIT_ID);
+
+        Offer offer = Offer.builder()
+                .title("Pizza deal")
+                .description("description")
+                .offerType(new OfferType(1, "type"))
+                .coordinatesString("4.9,52.3")
+                .coordinates(new GeometryFactory().createPoint(new Coordinate(4.9, 52.3)))
+                .startDate(CURRENT_DAY.minusDays(10))
+                .expirationDate(expirationDate)
+                .status(status)
+                .isActive(true)
+                .benefit(benefit)
+                .supplier(Supplier.builder().tenant(tenant).build())
+                .build();
+        offer.setId(UUID.randomUUID());
+
+        return offer;
+    }
+}
@@ -1,27 +1,32 @@
 package nl.centric.innovation.local4local.unit;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.SneakyThrows;
-import nl.centric.innovation.local4local.entity.OfferSearchHistory;
 import nl.centric.innovation.local4local.entity.User;
 import nl.centric.innovation.local4local.repository.OfferSearchHistoryRepository;
 import nl.centric.innovation.local4local.service.impl.OfferSearchHistoryService;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,41 +38,68 @@ class OfferSearchHistoryServiceTests {
     @Mock
     private PrincipalService principalService;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(offerSearchHistoryService, "maxPendingUsers", 100);
+        ReflectionTestUtils.setField(offerSearchHistoryService, "batchSize", 100);
+    }
+
     @Test
     @SneakyThrows
-    void GivenNewSearchKeyword_WhenSaveSearchHistory_ThenSaveNewHistory() {
+    void GivenNewSearchKeyword_WhenSaveSearchHistory_ThenNothingIsWrittenBeforeFlush() {
         // Given
-        String searchKeyword = "newKeyword";
         User user = new User();
         user.setId(UUID.randomUUID());
-        when(offerSearchHistoryRepository.findBySearchKeywordAndUserId(searchKeyword, user.getId())).thenReturn(Optional.empty());
         when(principalService.getUser()).thenReturn(user);
 
         // When
-        offerSearchHistoryService.saveSearchHistory(searchKeyword);
+        offerSearchHistoryService.saveSearchHistory("newKeyword");
 
         // Then
-        verify(offerSearchHistoryRepository).save(any(OfferSearchHistory.class));
+        verifyNoInteractions(offerSearchHistoryRepository);
     }
 
     @Test
     @SneakyThrows
-    void GivenExistingSearchKeyword_WhenSaveSearchHistory_ThenUpdateExistingHistory() {
+    void GivenRepeatedSearches_WhenFlushSearchHistory_ThenSearchesAreCoalescedIntoOneUpsert() {
         // Given
-        String searchKeyword = "existingKeyword";
-        OfferSearchHistory existingHistory = new OfferSearchHistory();
         User user = new User();
         user.setId(UUID.randomUUID());
+        when(principalService.getUser()).thenReturn(user);
+        offerSearchHistoryService.saveSearchHistory("pizza");
+        offerSearchHistoryService.saveSearchHistory("bakery");
+        offerSearchHistoryService.saveSearchHistory("pizza");
+
+        // When
+        offerSearchHistoryService.flushSearchHistory();
+        offerSearchHistoryService.flushSearchHistory();
+
+        // Then
+        ArgumentCaptor<String> searches = ArgumentCaptor.forClass(String.class);
+        verify(offerSearchHistoryRepository, times(1)).upsertSearchHistory(searches.capture());
+        verify(offerSearchHistoryRepository, times(1)).trimSearchHistory(Set.of(user.getId()), 5);
 
+        List<Map<String, String>> savedSearches = new ObjectMapper().readValue(searches.getValue(), new TypeReference<>() {
+        });
+        assertEquals(List.of("bakery", "pizza"), savedSearches.stream().map(search -> search.get("search_keyword")).toList());
+    }
+
+    @Test
+    void GivenPendingSearches_WhenGetSearchHistoryForCitizen_ThenPendingSearchesAreListedFirst() {
+        // Given
+        User user = new User();
+        user.setId(UUID.randomUUID());
         when(principalService.getUser()).thenReturn(user);
-        when(offerSearchHistoryRepository.findBySearchKeywordAndUserId(searchKeyword, user.getId())).thenReturn(Optional.of(existingHistory));
+        when(offerSearchHistoryRepository.findTop5SearchKeywordsByUserIdOrderByCreatedDateDesc(user.getId()))
+                .thenReturn(List.of("pizza", "keyword1", "keyword2", "keyword3", "keyword4"));
+        offerSearchHistoryService.saveSearchHistory("pizza");
+        offerSearchHistoryService.saveSearchHistory("bakery");
 
         // When
-        offerSearchHistoryService.saveSearchHistory(searchKeyword);
+        List<String> result = offerSearchHistoryService.getSearchHistoryForCitizen();
 
         // Then
-        verify(offerSearchHistoryRepository).save(existingHistory);
-        assertNotNull(existingHistory.getCreatedDate());
+        assertEquals(List.of("bakery", "pizza", "keyword1", "keyword2", "keyword3"), result);
     }
 
     @Test
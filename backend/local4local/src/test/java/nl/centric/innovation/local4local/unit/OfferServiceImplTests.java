@@ -5,8 +5,12 @@ import nl.centric.innovation.local4local.dto.BenefitLightDto;
 import nl.centric.innovation.local4local.dto.BenefitTableDto;
 import nl.centric.innovation.local4local.dto.DeleteOffersDto;
 import nl.centric.innovation.local4local.dto.FilterOfferRequestDto;
+import nl.centric.innovation.local4local.dto.OfferDetailCacheDto;
+import nl.centric.innovation.local4local.dto.OfferDistanceCursorDto;
+import nl.centric.innovation.local4local.dto.OfferDistanceProjection;
 import nl.centric.innovation.local4local.dto.OfferMobileDetailDto;
 import nl.centric.innovation.local4local.dto.OfferMobileListDto;
+import nl.centric.innovation.local4local.dto.OfferMobileListPageDto;
 import nl.centric.innovation.local4local.dto.OfferMobileMapLightDto;
 import nl.centric.innovation.local4local.dto.OfferRejectionReasonDto;
 import nl.centric.innovation.local4local.dto.OfferRequestDto;
@@ -39,8 +43,11 @@ import nl.centric.innovation.local4local.repository.OfferTypeRepository;
 import nl.centric.innovation.local4local.repository.PassholderRepository;
 import nl.centric.innovation.local4local.repository.RejectOfferRepository;
 import nl.centric.innovation.local4local.repository.TenantRepository;
+import nl.centric.innovation.local4local.service.impl.BenefitAccessService;
 import nl.centric.innovation.local4local.service.impl.BenefitService;
 import nl.centric.innovation.local4local.service.impl.DiscountCodeService;
+import nl.centric.innovation.local4local.service.impl.OfferDetailCacheService;
+import nl.centric.innovation.local4local.service.impl.OfferMapIndexService;
 import nl.centric.innovation.local4local.service.impl.OfferSearchHistoryService;
 import nl.centric.innovation.local4local.service.impl.OfferService;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
@@ -69,6 +76,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -78,7 +86,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -137,8 +147,18 @@ class OfferServiceImplTests {
 
     @Mock
     private OfferSearchHistoryService offerSearchHistoryService;
+
+    @Mock
+    private OfferMapIndexService offerMapIndexService;
+
+    @Mock
+    private BenefitAccessService benefitAccessService;
+
+    @Mock
+    private OfferDetailCacheService offerDetailCacheService;
     private static final UUID SUPPLIER_ID = UUID.randomUUID();
     private static final UUID OFFER_ID = UUID.randomUUID();
+    private static final Set<UUID> BENEFIT_IDS = Set.of(UUID.randomUUID());
     private static final Double LATITUDE = 52.364246;
     private static final Double LONGITUDE = 4.942446;
 
@@ -464,7 +484,8 @@ class OfferServiceImplTests {
 
         when(principalService.getUser()).thenReturn(mockUser);
         when(principalService.getTenantId()).thenReturn(tenantId);
-        when(offerRepository.findAllOffersOrderedByDistanceToUser(pageable, LATITUDE, LONGITUDE, tenantId, localDate, citizenId, 1)).thenReturn(Collections.emptyList());
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findAllOffersOrderedByDistanceToUser(pageable, LATITUDE, LONGITUDE, tenantId, localDate, BENEFIT_IDS, 1)).thenReturn(Collections.emptyList());
         // When
         List<OfferMobileListDto> result = offerService.getOffersOrderedByDistanceToUser(page, LATITUDE, LONGITUDE, localDate, "", 1);
 
@@ -486,7 +507,8 @@ class OfferServiceImplTests {
 
         when(principalService.getUser()).thenReturn(mockUser);
         when(principalService.getTenantId()).thenReturn(tenantId);
-        when(offerRepository.findAllOffersOrderedByDistanceToUser(pageable, LATITUDE, LONGITUDE, tenantId, localDate, citizenId, 1)).thenReturn(List.of(offerMobileListDtotoBuilder()));
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findAllOffersOrderedByDistanceToUser(pageable, LATITUDE, LONGITUDE, tenantId, localDate, BENEFIT_IDS, 1)).thenReturn(List.of(offerMobileListDtotoBuilder()));
         // When
         List<OfferMobileListDto> result = offerService.getOffersOrderedByDistanceToUser(page, LATITUDE, LONGITUDE, localDate, "", 1);
 
@@ -510,7 +532,8 @@ class OfferServiceImplTests {
         when(principalService.getUser()).thenReturn(mockUser);
         when(principalService.getTenantId()).thenReturn(tenantId);
         doNothing().when(offerSearchHistoryService).saveSearchHistory(searchKeyword);
-        when(offerRepository.findSearchedOffersOrderedByDistanceToUser(pageable, LATITUDE, LONGITUDE, tenantId, localDate, citizenId, searchKeyword, 1)).thenReturn(List.of(offerMobileListDtotoBuilder()));
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findSearchedOffersOrderedByDistanceToUser(pageable, LATITUDE, LONGITUDE, tenantId, localDate, BENEFIT_IDS, searchKeyword, 1)).thenReturn(List.of(offerMobileListDtotoBuilder()));
         // When
         List<OfferMobileListDto> result = offerService.getOffersOrderedByDistanceToUser(page, LATITUDE, LONGITUDE, localDate, searchKeyword, 1);
 
@@ -530,10 +553,110 @@ class OfferServiceImplTests {
                 offerService.getOffersOrderedByDistanceToUser(page, latitude, longitude, LocalDate.of(2030, 4, 3), "", 1));
     }
 
+    @Test
+    @SneakyThrows
+    void GivenNoCursor_WhenGetOffersPageOrderedByDistanceToUser_ThenFirstPageIsReturnedInDistanceOrder() {
+        // Given
+        UUID tenantId = UUID.randomUUID();
+        LocalDate localDate = LocalDate.of(2025, 3, 4);
+        UUID citizenId = UUID.randomUUID();
+        User mockUser = new User();
+        mockUser.setId(citizenId);
+        Offer nearOffer = createListOffer(localDate.minusDays(1));
+        Offer farOffer = createListOffer(localDate.plusDays(1));
+        String firstPageId = new UUID(0, 0).toString();
+
+        when(principalService.getUser()).thenReturn(mockUser);
+        when(principalService.getTenantId()).thenReturn(tenantId);
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findOfferDistancesAfterCursor(LATITUDE, LONGITUDE, tenantId, BENEFIT_IDS, 1, -1.0,
+                firstPageId, 20)).thenReturn(List.of(distanceProjection(nearOffer.getId(), 100.0),
+                distanceProjection(farOffer.getId(), 250.0)));
+        when(offerRepository.findOffersForMobileListByIds(List.of(nearOffer.getId(), farOffer.getId())))
+                .thenReturn(List.of(farOffer, nearOffer));
+
+        // When
+        OfferMobileListPageDto result = offerService.getOffersPageOrderedByDistanceToUser(null, LATITUDE, LONGITUDE,
+                localDate, "", 1);
+
+        // Then
+        assertEquals(2, result.offers().size());
+        assertEquals(nearOffer.getId(), result.offers().get(0).id());
+        assertEquals(100.0, result.offers().get(0).distance());
+        assertTrue(result.offers().get(0).isActive());
+        assertEquals(farOffer.getId(), result.offers().get(1).id());
+        assertEquals(false, result.offers().get(1).isActive());
+        assertEquals(null, result.nextCursor());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenCursor_WhenGetOffersPageOrderedByDistanceToUser_ThenPageContinuesAfterCursor() {
+        // Given
+        UUID tenantId = UUID.randomUUID();
+        UUID citizenId = UUID.randomUUID();
+        User mockUser = new User();
+        mockUser.setId(citizenId);
+        UUID lastId = UUID.randomUUID();
+        String cursor = new OfferDistanceCursorDto(321.5, lastId).encode();
+
+        when(principalService.getUser()).thenReturn(mockUser);
+        when(principalService.getTenantId()).thenReturn(tenantId);
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findOfferDistancesAfterCursor(LATITUDE, LONGITUDE, tenantId, BENEFIT_IDS, 1, 321.5,
+                lastId.toString(), 20)).thenReturn(Collections.emptyList());
+
+        // When
+        OfferMobileListPageDto result = offerService.getOffersPageOrderedByDistanceToUser(cursor, LATITUDE, LONGITUDE,
+                LocalDate.of(2025, 3, 4), "", 1);
+
+        // Then
+        assertTrue(result.offers().isEmpty());
+        assertEquals(null, result.nextCursor());
+        verify(offerRepository, never()).findOffersForMobileListByIds(any());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenFullPage_WhenGetOffersPageOrderedByDistanceToUser_ThenNextCursorHoldsSortDistance() {
+        // Given
+        UUID tenantId = UUID.randomUUID();
+        UUID citizenId = UUID.randomUUID();
+        User mockUser = new User();
+        mockUser.setId(citizenId);
+        List<OfferDistanceProjection> distances = IntStream.range(0, 20)
+                .mapToObj(i -> distanceProjection(UUID.randomUUID(), 100.0 + i, 99.5 + i))
+                .toList();
+
+        when(principalService.getUser()).thenReturn(mockUser);
+        when(principalService.getTenantId()).thenReturn(tenantId);
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findOfferDistancesAfterCursor(LATITUDE, LONGITUDE, tenantId, BENEFIT_IDS, 1, -1.0,
+                new UUID(0, 0).toString(), 20)).thenReturn(distances);
+        when(offerRepository.findOffersForMobileListByIds(any())).thenReturn(Collections.emptyList());
+
+        // When
+        OfferMobileListPageDto result = offerService.getOffersPageOrderedByDistanceToUser(null, LATITUDE, LONGITUDE,
+                LocalDate.of(2025, 3, 4), "", 1);
+
+        // Then
+        OfferDistanceCursorDto nextCursor = OfferDistanceCursorDto.decode(result.nextCursor());
+        assertEquals(118.5, nextCursor.distance());
+        assertEquals(distances.get(19).getId(), nextCursor.id().toString());
+    }
+
+    @Test
+    void GivenInvalidCursor_WhenGetOffersPageOrderedByDistanceToUser_ThenExpectDtoValidateException() {
+        // When Then
+        assertThrows(DtoValidateException.class, () ->
+                offerService.getOffersPageOrderedByDistanceToUser("not-a-cursor", LATITUDE, LONGITUDE,
+                        LocalDate.of(2025, 3, 4), "", 1));
+    }
+
     @Test
     void GivenNonExistingOfferId_WhenGetOfferDetails_ThenExpectDtoToValidateNotFoundException() {
 
-        when(offerRepository.findById(OFFER_ID)).thenReturn(Optional.empty());
+        when(offerDetailCacheService.getOfferDetail(OFFER_ID)).thenReturn(Optional.empty());
         assertThrows(DtoValidateNotFoundException.class, () -> offerService.getOfferDetails(OFFER_ID, LATITUDE, LONGITUDE, LocalDate.now()));
     }
 
@@ -556,14 +679,42 @@ class OfferServiceImplTests {
                 .companyName("companyName")
                 .workingHours(List.of())
                 .build();
+        supplier.setId(SUPPLIER_ID);
         offer.setSupplier(supplier);
 
         when(principalService.getUser()).thenReturn(mockUser);
-        when(offerRepository.findById(offer.getId())).thenReturn(Optional.of(offer));
+        when(offerDetailCacheService.getOfferDetail(offer.getId())).thenReturn(Optional.of(OfferDetailCacheDto.of(offer)));
+        when(discountCodeRepository.findCodeByUserIdAndOfferId(citizenId, offerId)).thenReturn(Optional.of("ABC123"));
 
         OfferMobileDetailDto offerDetailsViewDto = offerService.getOfferDetails(offer.getId(), LATITUDE, LONGITUDE, LocalDate.of(2024, 12, 10));
 
         assertEquals(offer.getDescription(), offerDetailsViewDto.description());
+        assertEquals("ABC123", offerDetailsViewDto.discountCode());
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenOfferCoordinates_WhenGetOfferDetails_ThenDistanceIsComputedWithoutQuery() {
+        // Given
+        UUID citizenId = UUID.randomUUID();
+        User mockUser = new User();
+        mockUser.setId(citizenId);
+
+        Offer offer = offerBuilder();
+        offer.getSupplier().setId(SUPPLIER_ID);
+        offer.getSupplier().getProfile().setCategory(Category.builder().categoryLabel("testLabel").build());
+        offer.setCoordinates(new GeometryFactory().createPoint(new Coordinate(4.90, 52.37)));
+
+        when(principalService.getUser()).thenReturn(mockUser);
+        when(offerDetailCacheService.getOfferDetail(offer.getId())).thenReturn(Optional.of(OfferDetailCacheDto.of(offer)));
+
+        // When
+        OfferMobileDetailDto result = offerService.getOfferDetails(offer.getId(), 52.37, 4.91, offer.getStartDate());
+
+        // Then
+        assertEquals(678, result.distance(), 5);
+        assertTrue(result.isActive());
+        verify(offerRepository, never()).getOfferDistance(any(), any(), any());
     }
 
     @Test
@@ -581,10 +732,11 @@ class OfferServiceImplTests {
 
         OfferUsageRequestDto offerUsageRequestDto = offerTransactionDtoBuilder(UUID.randomUUID());
 
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
         when(offerRepository.findByIdAndStatusWithBenefitAccess(
                 offerUsageRequestDto.offerId(),
                 GenericStatusEnum.ACTIVE,
-                citizenId))
+                BENEFIT_IDS))
                 .thenReturn(Optional.empty());
 
         // Then
@@ -623,7 +775,8 @@ class OfferServiceImplTests {
                 .currentTime("20:00:00")
                 .build();
 
-        when(offerRepository.findByIdAndStatusWithBenefitAccess(offerId, GenericStatusEnum.ACTIVE, userId))
+        when(benefitAccessService.getAccessibleBenefitIds(userId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findByIdAndStatusWithBenefitAccess(offerId, GenericStatusEnum.ACTIVE, BENEFIT_IDS))
                 .thenReturn(Optional.of(offer));
 
         doNothing().when(discountCodeService).save(offerId, userId);
@@ -660,10 +813,11 @@ class OfferServiceImplTests {
                 .currentTime("20:00:00")
                 .build();
 
+        when(benefitAccessService.getAccessibleBenefitIds(userId)).thenReturn(BENEFIT_IDS);
         when(offerRepository.findByIdAndStatusWithBenefitAccess(
                 offerUsageRequestDto.offerId(),
                 GenericStatusEnum.ACTIVE,
-                userId))
+                BENEFIT_IDS))
                 .thenReturn(Optional.of(offer));
 
         // Then
@@ -725,8 +879,9 @@ class OfferServiceImplTests {
                 .currentTime("20:00:00")
                 .build();
 
+        when(benefitAccessService.getAccessibleBenefitIds(userId)).thenReturn(BENEFIT_IDS);
         when(offerRepository.findByIdAndStatusWithBenefitAccess(
-                offerUsageRequestDto.offerId(), GenericStatusEnum.ACTIVE, userId))
+                offerUsageRequestDto.offerId(), GenericStatusEnum.ACTIVE, BENEFIT_IDS))
                 .thenReturn(Optional.of(offer));
 
         // Then
@@ -794,7 +949,8 @@ class OfferServiceImplTests {
 
         OfferUsageRequestDto dto = offerTransactionDtoBuilder(UUID.randomUUID());
 
-        when(offerRepository.findByIdAndStatusWithBenefitAccess(dto.offerId(), GenericStatusEnum.ACTIVE, citizenId))
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findByIdAndStatusWithBenefitAccess(dto.offerId(), GenericStatusEnum.ACTIVE, BENEFIT_IDS))
                 .thenReturn(Optional.of(offer));
 
         assertThrows(DtoValidateException.class,
@@ -1134,7 +1290,8 @@ class OfferServiceImplTests {
 
         when(principalService.getUser()).thenReturn(mockUser);
         when(principalService.getTenantId()).thenReturn(tenantId);
-        when(offerRepository.findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 1, citizenId))
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 1, BENEFIT_IDS))
                 .thenReturn(mockOffers);
 
         // When
@@ -1142,7 +1299,7 @@ class OfferServiceImplTests {
 
         // Then
         assertEquals(mockOffers.size(), result.size());
-        verify(offerRepository).findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 1, citizenId);
+        verify(offerRepository).findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 1, BENEFIT_IDS);
     }
 
     @Test
@@ -1156,7 +1313,8 @@ class OfferServiceImplTests {
 
         when(principalService.getUser()).thenReturn(mockUser);
         when(principalService.getTenantId()).thenReturn(tenantId);
-        when(offerRepository.findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 2, citizenId))
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 2, BENEFIT_IDS))
                 .thenReturn(Collections.emptyList());
 
         // When
@@ -1164,7 +1322,7 @@ class OfferServiceImplTests {
 
         // Then
         assertTrue(result.isEmpty());
-        verify(offerRepository).findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 2, citizenId);
+        verify(offerRepository).findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 2, BENEFIT_IDS);
     }
 
     @Test
@@ -1182,7 +1340,8 @@ class OfferServiceImplTests {
 
         when(principalService.getUser()).thenReturn(mockUser);
         when(principalService.getTenantId()).thenReturn(tenantId);
-        when(offerRepository.findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 1, citizenId))
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 1, BENEFIT_IDS))
                 .thenReturn(mockOffers);
 
         // When
@@ -1190,7 +1349,7 @@ class OfferServiceImplTests {
 
         // Then
         assertEquals(mockOffers.size() - 1, result.size());
-        verify(offerRepository).findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 1, citizenId);
+        verify(offerRepository).findActiveOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, tenantId, 1, BENEFIT_IDS);
     }
 
     @Test
@@ -1209,8 +1368,9 @@ class OfferServiceImplTests {
 
         when(principalService.getUser()).thenReturn(mockUser);
         when(principalService.getTenantId()).thenReturn(tenantId);
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
         when(offerRepository.findActiveSearchOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE,
-                localDate, tenantId, 1, citizenId, searchKeyword))
+                localDate, tenantId, 1, BENEFIT_IDS, searchKeyword))
                 .thenReturn(mockOffers);
 
         // When
@@ -1220,7 +1380,72 @@ class OfferServiceImplTests {
         // Then
         assertEquals(mockOffers.size() - 1, result.size());
         verify(offerRepository).findActiveSearchOffersInViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE,
-                localDate, tenantId, 1, citizenId, searchKeyword);
+                localDate, tenantId, 1, BENEFIT_IDS, searchKeyword);
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenUserWithoutAccessibleBenefits_WhenGetOffersOrderedByDistanceToUser_ThenNoQueryIsExecuted() {
+        // Given
+        UUID citizenId = UUID.randomUUID();
+        User mockUser = new User();
+        mockUser.setId(citizenId);
+
+        when(principalService.getUser()).thenReturn(mockUser);
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(Set.of());
+
+        // When
+        List<OfferMobileListDto> result = offerService.getOffersOrderedByDistanceToUser(0, LATITUDE, LONGITUDE,
+                LocalDate.of(2025, 3, 4), "", 1);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(offerRepository);
+    }
+
+    @Test
+    void GivenMapIndexEnabled_WhenGetOffersWithinViewport_ThenOffersAreServedFromIndex() {
+        // Given
+        ReflectionTestUtils.setField(offerService, "mapIndexEnabled", true);
+        List<OfferMobileMapLightDto> mockOffers = Arrays.asList(
+                createOfferMapLightDto("test1", true, "coordinates1"),
+                createOfferMapLightDto("test2", true, "coordinates2")
+        );
+        LocalDate localDate = LocalDate.of(2025, 3, 10);
+        UUID tenantId = UUID.randomUUID();
+        UUID citizenId = UUID.randomUUID();
+        Set<UUID> benefitIds = Set.of(UUID.randomUUID());
+        User mockUser = new User();
+        mockUser.setId(citizenId);
+
+        when(principalService.getUser()).thenReturn(mockUser);
+        when(principalService.getTenantId()).thenReturn(tenantId);
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(benefitIds);
+        when(offerMapIndexService.findOffersInViewport(tenantId, MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE,
+                localDate, 1, "", benefitIds)).thenReturn(mockOffers);
+
+        // When
+        Map<String, List<OfferMobileMapLightDto>> result = offerService.getOffersWithinViewport(MIN_LATITUDE, MAX_LATITUDE, MIN_LONGITUDE, MAX_LONGITUDE, localDate, 1, "");
+
+        // Then
+        assertEquals(mockOffers.size(), result.size());
+        verify(offerRepository, never()).findActiveOffersInViewport(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void GivenOffersIds_WhenDeleteOffers_ThenOffersAreRemovedFromMapIndex() {
+        // Given
+        Offer offer = createOffer();
+        offer.setId(OFFER_ID);
+        DeleteOffersDto deleteOffersDto = new DeleteOffersDto(List.of(OFFER_ID));
+
+        when(offerRepository.findAllById(deleteOffersDto.offersIds())).thenReturn(List.of(offer));
+
+        // When
+        offerService.deleteOffers(deleteOffersDto);
+
+        // Then
+        verify(offerMapIndexService).removeAll(List.of(OFFER_ID));
     }
 
     @Test
@@ -1431,6 +1656,7 @@ class OfferServiceImplTests {
     @MethodSource("provideTestCases")
     void GivenKeyword_WhenSearchOffersStartingWithKeyword_ThenReturnExpectedOffers(String keyword, List<String> expectedOffers) {
         // Given
+        ReflectionTestUtils.setField(offerService, "suggestionLimit", 10);
         UUID tenantId = UUID.randomUUID();
         UUID citizenId = UUID.randomUUID();
         User mockUser = new User();
@@ -1438,7 +1664,9 @@ class OfferServiceImplTests {
 
         when(principalService.getUser()).thenReturn(mockUser);
         when(principalService.getTenantId()).thenReturn(tenantId);
-        when(offerRepository.searchByTitlePrefix(keyword, tenantId, GenericStatusEnum.ACTIVE, citizenId)).thenReturn(expectedOffers);
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.searchByTitlePrefix(keyword, tenantId, GenericStatusEnum.ACTIVE, BENEFIT_IDS,
+                PageRequest.of(0, 10))).thenReturn(expectedOffers);
 
         // When
         List<String> result = offerService.searchOffersByKeyword(keyword);
@@ -1447,6 +1675,54 @@ class OfferServiceImplTests {
         assertEquals(expectedOffers, result);
     }
 
+    @Test
+    void GivenTrigramSearchEnabled_WhenSearchOffersByKeyword_ThenRankedTitlesAreLimited() {
+        // Given
+        ReflectionTestUtils.setField(offerService, "trigramSearchEnabled", true);
+        ReflectionTestUtils.setField(offerService, "suggestionLimit", 5);
+        UUID tenantId = UUID.randomUUID();
+        UUID citizenId = UUID.randomUUID();
+        User mockUser = new User();
+        mockUser.setId(citizenId);
+        List<String> rankedTitles = List.of("Pizza", "Pizzeria deal");
+
+        when(principalService.getUser()).thenReturn(mockUser);
+        when(principalService.getTenantId()).thenReturn(tenantId);
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerRepository.searchOfferTitlesBySimilarity("piza", tenantId, BENEFIT_IDS, 5)).thenReturn(rankedTitles);
+
+        // When
+        List<String> result = offerService.searchOffersByKeyword("piza");
+
+        // Then
+        assertEquals(rankedTitles, result);
+        verify(offerRepository, never()).searchByTitlePrefix(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void GivenTypeaheadIndexEnabled_WhenSearchOffersByKeyword_ThenTitlesAreSuggestedFromIndex() {
+        // Given
+        ReflectionTestUtils.setField(offerService, "typeaheadIndexEnabled", true);
+        ReflectionTestUtils.setField(offerService, "suggestionLimit", 5);
+        UUID tenantId = UUID.randomUUID();
+        UUID citizenId = UUID.randomUUID();
+        User mockUser = new User();
+        mockUser.setId(citizenId);
+        List<String> suggestedTitles = List.of("Pizza deal", "Free pizza");
+
+        when(principalService.getUser()).thenReturn(mockUser);
+        when(principalService.getTenantId()).thenReturn(tenantId);
+        when(benefitAccessService.getAccessibleBenefitIds(citizenId)).thenReturn(BENEFIT_IDS);
+        when(offerMapIndexService.suggestTitles(tenantId, "piz", BENEFIT_IDS, 5)).thenReturn(suggestedTitles);
+
+        // When
+        List<String> result = offerService.searchOffersByKeyword("piz");
+
+        // Then
+        assertEquals(suggestedTitles, result);
+        verifyNoInteractions(offerRepository);
+    }
+
     @Test
     void GivenInvalidAmountForOfferType_WhenCreateOffer_ThenExpectError() {
         // Given
@@ -1479,6 +1755,46 @@ class OfferServiceImplTests {
     }
 
 
+    private Offer createListOffer(LocalDate startDate) {
+        Offer offer = createOffer();
+        offer.setStartDate(startDate);
+        offer.setExpirationDate(startDate.plusMonths(1));
+        offer.setCitizenOfferType("CITIZEN_WITH_PASS");
+        offer.setStatus(GenericStatusEnum.ACTIVE);
+        offer.setSupplier(Supplier.builder().companyName("Company").workingHours(List.of()).build());
+        offer.setBenefit(Benefit.builder()
+                .name("Benefit")
+                .description("Description")
+                .startDate(startDate)
+                .expirationDate(startDate.plusMonths(1))
+                .build());
+        offer.getBenefit().setId(UUID.randomUUID());
+        return offer;
+    }
+
+    private OfferDistanceProjection distanceProjection(UUID id, Double distance) {
+        return distanceProjection(id, distance, distance);
+    }
+
+    private OfferDistanceProjection distanceProjection(UUID id, Double distance, Double sortDistance) {
+        return new OfferDistanceProjection() {
+            @Override
+            public String getId() {
+                return id.toString();
+            }
+
+            @Override
+            public Double getDistance() {
+                return distance;
+            }
+
+            @Override
+            public Double getSortDistance() {
+                return sortDistance;
+            }
+        };
+    }
+
     private OfferRequestDto offerRequestDtoBuilder(LocalDate startDate, LocalDate expirationDate, UUID benefitId) {
         return OfferRequestDto.builder()
                 .title("Title")
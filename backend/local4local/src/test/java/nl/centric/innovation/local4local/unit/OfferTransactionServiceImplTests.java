@@ -1,9 +1,11 @@
 package nl.centric.innovation.local4local.unit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -20,6 +22,7 @@ import nl.centric.innovation.local4local.entity.Offer;
 import nl.centric.innovation.local4local.entity.OfferTransaction;
 import nl.centric.innovation.local4local.entity.Role;
 import nl.centric.innovation.local4local.entity.User;
+import nl.centric.innovation.local4local.enums.ExportFormat;
 import nl.centric.innovation.local4local.enums.TimeIntervalPeriod;
 import nl.centric.innovation.local4local.service.impl.OfferTransactionService;
 
@@ -28,14 +31,22 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import nl.centric.innovation.local4local.dto.TransactionDetailsDto;
 import nl.centric.innovation.local4local.repository.OfferTransactionRepository;
+import nl.centric.innovation.local4local.repository.TransactionMonthlyRollupRepository;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
@@ -44,11 +55,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 @ExtendWith(MockitoExtension.class)
 class OfferTransactionServiceImplTests {
@@ -56,40 +70,34 @@ class OfferTransactionServiceImplTests {
     @Mock
     private OfferTransactionRepository offerTransactionRepository;
 
-    @InjectMocks
-    private OfferTransactionService offerTransactionService;
-
     @Mock
-    private DiscountCode discountCode;
+    private TransactionMonthlyRollupRepository transactionMonthlyRollupRepository;
 
     @Mock
-    private Offer offer;
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private OfferTransactionService offerTransactionService;
 
     @Mock
     private PrincipalService principalService;
 
     @Test
-    void GivenSaveTransaction_WhenCalled_ThenVerifySave() {
-        offerTransactionService.saveTransaction(discountCode, 0.0, LocalDateTime.now());
-        // Verify
-        verify(offerTransactionRepository, times(1)).save(any(OfferTransaction.class));
-    }
-
-    @Test
-    void GivenOfferIdAndCitizenId_WhenGetLastOfferValidationForCitizen_ThenReturnResult() {
+    void GivenRebuildMonthlyRollup_WhenCalled_ThenRollupIsReplacedUnderLock() {
         // Given
-        UUID offerId = UUID.randomUUID();
-        UUID citizenId = UUID.randomUUID();
-        OfferTransaction mockTransaction = new OfferTransaction();
-        when(offerTransactionRepository.findFirstByDiscountCode_UserIdAndDiscountCode_OfferIdOrderByCreatedDateDesc(citizenId, offerId))
-                .thenReturn(Optional.of(mockTransaction));
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(transactionMonthlyRollupRepository.insertRollupFromTransactions()).thenReturn(3);
 
         // When
-        Optional<OfferTransaction> result = offerTransactionService.getLastOfferValidationForCitizen(offerId, citizenId);
+        int rows = offerTransactionService.rebuildMonthlyRollup();
 
         // Then
-        assertTrue(result.isPresent());
-        assertEquals(mockTransaction, result.get());
+        assertEquals(3, rows);
+        InOrder inOrder = Mockito.inOrder(transactionMonthlyRollupRepository);
+        inOrder.verify(transactionMonthlyRollupRepository).lockRollup();
+        inOrder.verify(transactionMonthlyRollupRepository).deleteRollup();
+        inOrder.verify(transactionMonthlyRollupRepository).insertRollupFromTransactions();
     }
 
     @Test
@@ -113,13 +121,13 @@ class OfferTransactionServiceImplTests {
         // When
         when(principalService.getSupplierId()).thenReturn(supplierId);
         List<OfferTransaction> transactions = Arrays.asList(transaction1, transaction2);
-        when(offerTransactionRepository.findAllByDiscountCode_Offer_SupplierIdOrderByCreatedDateDesc(supplierId)).thenReturn(transactions);
+        when(offerTransactionRepository.findAllBySupplierIdOrderByCreatedDateDesc(supplierId)).thenReturn(transactions);
 
         // Then
         List<TransactionDetailsDto> result = offerTransactionService.getAllValidTransactions();
 
         assertEquals(2, result.size());
-        verify(offerTransactionRepository, times(1)).findAllByDiscountCode_Offer_SupplierIdOrderByCreatedDateDesc(supplierId);
+        verify(offerTransactionRepository, times(1)).findAllBySupplierIdOrderByCreatedDateDesc(supplierId);
     }
 
     @SneakyThrows
@@ -151,15 +159,16 @@ class OfferTransactionServiceImplTests {
         UUID supplierId = UUID.randomUUID();
         Integer month = 11;
         Integer year = 2024;
+        LocalDateTime startOfMonth = YearMonth.of(year, month).atDay(1).atStartOfDay();
 
         // When
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(offerTransactionRepository.countMonthYearTransactionsBySupplierId(supplierId, month, year)).thenReturn(5);
+        when(offerTransactionRepository.countMonthYearTransactionsBySupplierId(supplierId, startOfMonth, startOfMonth.plusMonths(1))).thenReturn(5);
         Integer result = offerTransactionService.countMonthYearTransactionsBySupplierId(month, year);
 
         // Then
         assertEquals(5, result);
-        verify(offerTransactionRepository, times(1)).countMonthYearTransactionsBySupplierId(supplierId, month, year);
+        verify(offerTransactionRepository, times(1)).countMonthYearTransactionsBySupplierId(supplierId, startOfMonth, startOfMonth.plusMonths(1));
     }
 
     @Test
@@ -168,15 +177,16 @@ class OfferTransactionServiceImplTests {
         UUID supplierId = UUID.randomUUID();
         Integer month = 11;
         Integer year = 2024;
+        LocalDateTime startOfMonth = YearMonth.of(year, month).atDay(1).atStartOfDay();
 
         // When
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(offerTransactionRepository.countMonthYearTransactionsBySupplierId(supplierId, month, year)).thenReturn(0);
+        when(offerTransactionRepository.countMonthYearTransactionsBySupplierId(supplierId, startOfMonth, startOfMonth.plusMonths(1))).thenReturn(0);
         Integer result = offerTransactionService.countMonthYearTransactionsBySupplierId(month, year);
 
         // Then
         assertEquals(0, result);
-        verify(offerTransactionRepository, times(1)).countMonthYearTransactionsBySupplierId(supplierId, month, year);
+        verify(offerTransactionRepository, times(1)).countMonthYearTransactionsBySupplierId(supplierId, startOfMonth, startOfMonth.plusMonths(1));
     }
 
     @Test
@@ -187,13 +197,13 @@ class OfferTransactionServiceImplTests {
 
         // When
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(offerTransactionRepository.findDistinctYearByCreatedDateDesc(supplierId)).thenReturn(distinctYears);
+        when(offerTransactionRepository.findDistinctYearByCreatedDateDesc(eq(supplierId), any(LocalDateTime.class))).thenReturn(distinctYears);
 
         // Then
         List<Integer> result = offerTransactionService.getDistinctYearsForTransactionsBySupplierId();
 
         assertEquals(distinctYears, result);
-        verify(offerTransactionRepository, times(1)).findDistinctYearByCreatedDateDesc(supplierId);
+        verify(offerTransactionRepository, times(1)).findDistinctYearByCreatedDateDesc(eq(supplierId), any(LocalDateTime.class));
     }
 
     @Test
@@ -203,13 +213,13 @@ class OfferTransactionServiceImplTests {
 
         // When
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(offerTransactionRepository.findDistinctYearByCreatedDateDesc(supplierId)).thenReturn(Collections.emptyList());
+        when(offerTransactionRepository.findDistinctYearByCreatedDateDesc(eq(supplierId), any(LocalDateTime.class))).thenReturn(Collections.emptyList());
 
         // Then
         List<Integer> result = offerTransactionService.getDistinctYearsForTransactionsBySupplierId();
 
         assertTrue(result.isEmpty());
-        verify(offerTransactionRepository, times(1)).findDistinctYearByCreatedDateDesc(supplierId);
+        verify(offerTransactionRepository, times(1)).findDistinctYearByCreatedDateDesc(eq(supplierId), any(LocalDateTime.class));
     }
 
     @Test
@@ -219,12 +229,12 @@ class OfferTransactionServiceImplTests {
 
         // When
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(offerTransactionRepository.countByDiscountCodeOfferSupplierId(supplierId)).thenReturn(10);
+        when(offerTransactionRepository.countBySupplierId(supplierId)).thenReturn(10);
         Integer result = offerTransactionService.countAllTransactionsBySupplierId();
 
         // Then
         assertEquals(10, result);
-        verify(offerTransactionRepository, times(1)).countByDiscountCodeOfferSupplierId(supplierId);
+        verify(offerTransactionRepository, times(1)).countBySupplierId(supplierId);
     }
 
     @Test
@@ -234,12 +244,12 @@ class OfferTransactionServiceImplTests {
 
         // When
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(offerTransactionRepository.countByDiscountCodeOfferSupplierId(supplierId)).thenReturn(0);
+        when(offerTransactionRepository.countBySupplierId(supplierId)).thenReturn(0);
         Integer result = offerTransactionService.countAllTransactionsBySupplierId();
 
         // Then
         assertEquals(0, result);
-        verify(offerTransactionRepository, times(1)).countByDiscountCodeOfferSupplierId(supplierId);
+        verify(offerTransactionRepository, times(1)).countBySupplierId(supplierId);
     }
 
     @Test
@@ -248,6 +258,7 @@ class OfferTransactionServiceImplTests {
         UUID supplierId = UUID.randomUUID();
         int month = 5;
         int year = 2023;
+        LocalDateTime startOfMonth = YearMonth.of(year, month).atDay(1).atStartOfDay();
         int page = 0;
         int size = 10;
         Pageable pageable = PageRequest.of(page, size);
@@ -255,12 +266,12 @@ class OfferTransactionServiceImplTests {
 
         // When
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(offerTransactionRepository.findTransactionsByMonthAndYear(supplierId, month, year, pageable)).thenReturn(transactions);
+        when(offerTransactionRepository.findTransactionsByMonthAndYear(supplierId, startOfMonth, startOfMonth.plusMonths(1), pageable)).thenReturn(transactions);
         List<OfferTransactionTableDto> result = offerTransactionService.getTransactionsByMonthAndYear(month, year, page, size);
 
         // Then
         assertEquals(transactions, result);
-        verify(offerTransactionRepository, times(1)).findTransactionsByMonthAndYear(supplierId, month, year, pageable);
+        verify(offerTransactionRepository, times(1)).findTransactionsByMonthAndYear(supplierId, startOfMonth, startOfMonth.plusMonths(1), pageable);
     }
 
     @Test
@@ -269,18 +280,19 @@ class OfferTransactionServiceImplTests {
         UUID supplierId = UUID.randomUUID();
         int month = 5;
         int year = 2023;
+        LocalDateTime startOfMonth = YearMonth.of(year, month).atDay(1).atStartOfDay();
         int page = 0;
         int size = 10;
         Pageable pageable = PageRequest.of(page, size);
 
         // When
         when(principalService.getSupplierId()).thenReturn(supplierId);
-        when(offerTransactionRepository.findTransactionsByMonthAndYear(supplierId, month, year, pageable)).thenReturn(Collections.emptyList());
+        when(offerTransactionRepository.findTransactionsByMonthAndYear(supplierId, startOfMonth, startOfMonth.plusMonths(1), pageable)).thenReturn(Collections.emptyList());
         List<OfferTransactionTableDto> result = offerTransactionService.getTransactionsByMonthAndYear(month, year, page, size);
 
         // Then
         assertTrue(result.isEmpty());
-        verify(offerTransactionRepository, times(1)).findTransactionsByMonthAndYear(supplierId, month, year, pageable);
+        verify(offerTransactionRepository, times(1)).findTransactionsByMonthAndYear(supplierId, startOfMonth, startOfMonth.plusMonths(1), pageable);
     }
 
     @Test
@@ -330,7 +342,7 @@ class OfferTransactionServiceImplTests {
         when(principalService.getUser()).thenReturn(user);
 
         MonthlyTransactionDto existingStat = new MonthlyTransactionDto(LocalDateTime.now().getMonthValue(), 200.0);
-        when(offerTransactionRepository.sumTransactionsByMonthAndTenantIdSince(eq(tenantId), any(LocalDateTime.class)))
+        when(transactionMonthlyRollupRepository.sumAmountByMonthAndTenantIdSince(eq(tenantId), any(LocalDate.class)))
                 .thenReturn(List.of(existingStat));
 
         // When
@@ -355,7 +367,7 @@ class OfferTransactionServiceImplTests {
 
         MonthlyTransactionDto transaction = new MonthlyTransactionDto(LocalDateTime.now().getMonthValue(), 150.0);
         when(principalService.getUser()).thenReturn(user);
-        when(offerTransactionRepository.sumTransactionsByMonthAndTenantIdSince(eq(tenantId), any(LocalDateTime.class)))
+        when(transactionMonthlyRollupRepository.sumAmountByMonthAndTenantIdSince(eq(tenantId), any(LocalDate.class)))
                 .thenReturn(List.of(transaction));
 
         // When
@@ -390,7 +402,7 @@ class OfferTransactionServiceImplTests {
         MonthlyTransactionDto janTransaction = new MonthlyTransactionDto(1, 500.0);
         MonthlyTransactionDto decTransaction = new MonthlyTransactionDto(12, 800.0);
 
-        when(offerTransactionRepository.sumTransactionsByMonthAndTenantIdSince(eq(tenantId), any(LocalDateTime.class)))
+        when(transactionMonthlyRollupRepository.sumAmountByMonthAndTenantIdSince(eq(tenantId), any(LocalDate.class)))
                 .thenReturn(List.of(janTransaction, decTransaction));
 
         // When
@@ -424,7 +436,7 @@ class OfferTransactionServiceImplTests {
         when(principalService.getSupplierId()).thenReturn(supplierId);
 
         MonthlyTransactionDto existingStat = new MonthlyTransactionDto(LocalDateTime.now().getMonthValue(), 200.0);
-        when(offerTransactionRepository.sumTransactionsByMonthAndSupplierIdSince(eq(supplierId), any(LocalDateTime.class)))
+        when(transactionMonthlyRollupRepository.sumAmountByMonthAndSupplierIdSince(eq(supplierId), any(LocalDate.class)))
                 .thenReturn(List.of(existingStat));
 
         // When
@@ -449,7 +461,7 @@ class OfferTransactionServiceImplTests {
 
         MonthlyTransactionDto transaction = new MonthlyTransactionDto(LocalDateTime.now().getMonthValue(), 150.0);
         when(principalService.getUser()).thenReturn(user);
-        when(offerTransactionRepository.sumTransactionsByMonthAndSupplierIdSince(eq(supplierId), any(LocalDateTime.class)))
+        when(transactionMonthlyRollupRepository.sumAmountByMonthAndSupplierIdSince(eq(supplierId), any(LocalDate.class)))
                 .thenReturn(List.of(transaction));
 
         // When
@@ -484,7 +496,7 @@ class OfferTransactionServiceImplTests {
         MonthlyTransactionDto janTransaction = new MonthlyTransactionDto(1, 500.0);
         MonthlyTransactionDto decTransaction = new MonthlyTransactionDto(12, 800.0);
 
-        when(offerTransactionRepository.sumTransactionsByMonthAndSupplierIdSince(eq(supplierId), any(LocalDateTime.class)))
+        when(transactionMonthlyRollupRepository.sumAmountByMonthAndSupplierIdSince(eq(supplierId), any(LocalDate.class)))
                 .thenReturn(List.of(janTransaction, decTransaction));
 
         // When
@@ -512,12 +524,12 @@ class OfferTransactionServiceImplTests {
 
         // When
         when(principalService.getTenantId()).thenReturn(tenantId);
-        when(offerTransactionRepository.findDistinctYearByTenantIdAndCreatedDateDesc(tenantId)).thenReturn(distinctYears);
+        when(offerTransactionRepository.findDistinctYearByTenantIdAndCreatedDateDesc(eq(tenantId), any(LocalDateTime.class))).thenReturn(distinctYears);
 
         // Then
         List<Integer> result = offerTransactionService.getDistinctYearsForTransactionsByTenantId();
         assertEquals(distinctYears, result);
-        verify(offerTransactionRepository, times(1)).findDistinctYearByTenantIdAndCreatedDateDesc(tenantId);
+        verify(offerTransactionRepository, times(1)).findDistinctYearByTenantIdAndCreatedDateDesc(eq(tenantId), any(LocalDateTime.class));
     }
 
     @Test
@@ -526,15 +538,16 @@ class OfferTransactionServiceImplTests {
         UUID tenantId = UUID.randomUUID();
         int month = 6;
         int year = 2024;
+        LocalDateTime startOfMonth = YearMonth.of(year, month).atDay(1).atStartOfDay();
 
         // When
         when(principalService.getTenantId()).thenReturn(tenantId);
-        when(offerTransactionRepository.countMonthYearTransactionsByTenantId(tenantId, month, year)).thenReturn(7);
+        when(offerTransactionRepository.countMonthYearTransactionsByTenantId(tenantId, startOfMonth, startOfMonth.plusMonths(1))).thenReturn(7);
 
         // Then
         Integer result = offerTransactionService.countMonthYearTransactionsByTenantId(month, year);
         assertEquals(7, result);
-        verify(offerTransactionRepository, times(1)).countMonthYearTransactionsByTenantId(tenantId, month, year);
+        verify(offerTransactionRepository, times(1)).countMonthYearTransactionsByTenantId(tenantId, startOfMonth, startOfMonth.plusMonths(1));
     }
 
     @Test
@@ -570,6 +583,7 @@ class OfferTransactionServiceImplTests {
         UUID tenantId = UUID.randomUUID();
         int month = 6;
         int year = 2024;
+        LocalDateTime startOfMonth = YearMonth.of(year, month).atDay(1).atStartOfDay();
         int page = 0;
         int size = 5;
         Pageable pageable = PageRequest.of(page, size);
@@ -579,12 +593,101 @@ class OfferTransactionServiceImplTests {
 
         // When
         when(principalService.getTenantId()).thenReturn(tenantId);
-        when(offerTransactionRepository.findTransactionsByMonthYearAndTenantId(tenantId, month, year, pageable)).thenReturn(transactions);
+        when(offerTransactionRepository.findTransactionsByMonthYearAndTenantId(tenantId, startOfMonth, startOfMonth.plusMonths(1), pageable)).thenReturn(transactions);
 
         // Then
         List<OfferTransactionTenantTableDto> result = offerTransactionService.getTransactionsByMonthYearAndTenantId(month, year, page, size);
         assertEquals(transactions, result);
-        verify(offerTransactionRepository, times(1)).findTransactionsByMonthYearAndTenantId(tenantId, month, year, pageable);
+        verify(offerTransactionRepository, times(1)).findTransactionsByMonthYearAndTenantId(tenantId, startOfMonth, startOfMonth.plusMonths(1), pageable);
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenSupplierTransactions_WhenExportAsCsv_ThenAllRowsAreWrittenAfterHeader() {
+        // Given
+        UUID supplierId = UUID.randomUUID();
+        LocalDateTime startOfMonth = YearMonth.of(2024, 5).atDay(1).atStartOfDay();
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        stubTransactionTemplateWithoutResult();
+        when(offerTransactionRepository.streamTransactionsByMonthAndYear(supplierId, startOfMonth, startOfMonth.plusMonths(1)))
+                .thenReturn(Stream.of(
+                        new OfferTransactionTableDto("12345", "John Doe", 100.0, "01/05/2024", "10:20"),
+                        new OfferTransactionTableDto("12346", "Doe, Jane", 12.5, "02/05/2024", "11:00")));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        offerTransactionService.exportTransactionsByMonthAndYear(5, 2024, ExportFormat.CSV).writeTo(outputStream);
+
+        // Then
+        assertEquals("""
+                Pass number,Citizen,Amount,Date,Time\r
+                12345,John Doe,100.0,01/05/2024,10:20\r
+                12346,"Doe, Jane",12.5,02/05/2024,11:00\r
+                """, outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenTextStartingWithFormulaCharacter_WhenExportAsCsv_ThenCellIsPrefixedWithQuote() {
+        // Given
+        UUID supplierId = UUID.randomUUID();
+        LocalDateTime startOfMonth = YearMonth.of(2024, 5).atDay(1).atStartOfDay();
+        when(principalService.getSupplierId()).thenReturn(supplierId);
+        stubTransactionTemplateWithoutResult();
+        when(offerTransactionRepository.streamTransactionsByMonthAndYear(supplierId, startOfMonth, startOfMonth.plusMonths(1)))
+                .thenReturn(Stream.of(
+                        new OfferTransactionTableDto("12345", "=HYPERLINK(\"http://x\")", -5.0, "01/05/2024", "10:20"),
+                        new OfferTransactionTableDto("12346", "@Jane", 12.5, "02/05/2024", "11:00")));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        offerTransactionService.exportTransactionsByMonthAndYear(5, 2024, ExportFormat.CSV).writeTo(outputStream);
+
+        // Then
+        assertEquals("""
+                Pass number,Citizen,Amount,Date,Time\r
+                12345,"'=HYPERLINK(""http://x"")",-5.0,01/05/2024,10:20\r
+                12346,'@Jane,12.5,02/05/2024,11:00\r
+                """, outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SneakyThrows
+    void GivenTenantTransactions_WhenExportAsXlsx_ThenSheetHoldsEscapedTextAndNumericAmounts() {
+        // Given
+        UUID tenantId = UUID.randomUUID();
+        LocalDateTime startOfMonth = YearMonth.of(2024, 6).atDay(1).atStartOfDay();
+        when(principalService.getTenantId()).thenReturn(tenantId);
+        stubTransactionTemplateWithoutResult();
+        when(offerTransactionRepository.streamTransactionsByMonthYearAndTenantId(tenantId, startOfMonth, startOfMonth.plusMonths(1)))
+                .thenReturn(Stream.of(new OfferTransactionTenantTableDto("12345", "John Doe", 100.0,
+                        "Bakker & Zn", "Benefit", "01/06/2024", "10:00")));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        offerTransactionService.exportTransactionsByMonthYearAndTenantId(6, 2024, ExportFormat.XLSX).writeTo(outputStream);
+
+        // Then
+        String sheet = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    sheet = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+
+        assertNotNull(sheet);
+        assertTrue(sheet.contains("<c><v>100.0</v></c>"));
+        assertTrue(sheet.contains("Bakker &amp; Zn"));
+        assertTrue(sheet.endsWith("</sheetData></worksheet>"));
+    }
+
+    private void stubTransactionTemplateWithoutResult() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
     }
 
     private Set<Integer> getExpectedQuarterMonths(LocalDateTime now) {
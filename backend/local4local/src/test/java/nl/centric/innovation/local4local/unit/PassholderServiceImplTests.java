@@ -12,6 +12,7 @@ import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException
 import nl.centric.innovation.local4local.repository.CitizenGroupRepository;
 import nl.centric.innovation.local4local.repository.PassholderRepository;
 import nl.centric.innovation.local4local.repository.TenantRepository;
+import nl.centric.innovation.local4local.service.impl.BenefitAccessService;
 import nl.centric.innovation.local4local.service.impl.CitizenBenefitService;
 import nl.centric.innovation.local4local.service.impl.PassholderService;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
@@ -73,6 +74,9 @@ class PassholderServiceImplTests {
     @Mock
     private CitizenGroupRepository citizenGroupRepository;
 
+    @Mock
+    private BenefitAccessService benefitAccessService;
+
     private static final UUID TENANT_ID = UUID.randomUUID();
 
     private static final UUID CITIZEN_GROUP_ID = UUID.randomUUID();
@@ -300,6 +304,7 @@ class PassholderServiceImplTests {
 
         // Then
         verify(passholderRepository, times(1)).save(mockPassholder);
+        verify(benefitAccessService).evict(mockUser.getId());
         assertEquals(mockUser, mockPassholder.getUser());
     }
 
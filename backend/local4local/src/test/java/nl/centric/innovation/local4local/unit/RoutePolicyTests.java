@@ -0,0 +1,59 @@
+package nl.centric.innovation.local4local.unit;
+
+import nl.centric.innovation.local4local.authentication.RoutePolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutePolicyTests {
+
+    private static final String SUPPLIER_ID = "3f2b8c1e-9d4a-4b6f-8e2d-1a7c5b9e0f3d";
+
+    private final RoutePolicy routePolicy = RoutePolicy.compile(List.of(
+            "/api/users",
+            "/api/users/recover",
+            "/api/suppliers/{UUID}",
+            "/api/suppliers/register",
+            "/api/working-hours/availability/{UUID}"
+    ));
+
+    @Test
+    void GivenAllowedPaths_WhenMatches_ThenLiteralAndUuidSegmentsMatch() {
+        // When & Then
+        assertTrue(routePolicy.matches("/api/users"));
+        assertTrue(routePolicy.matches("/api/users/recover"));
+        assertTrue(routePolicy.matches("/api/suppliers/register"));
+        assertTrue(routePolicy.matches("/api/suppliers/" + SUPPLIER_ID));
+        assertTrue(routePolicy.matches("/api/suppliers/" + SUPPLIER_ID.toUpperCase()));
+        assertTrue(routePolicy.matches("/api/working-hours/availability/" + SUPPLIER_ID));
+    }
+
+    @Test
+    void GivenOtherPaths_WhenMatches_ThenTheyAreRejected() {
+        // When & Then
+        assertFalse(routePolicy.matches(null));
+        assertFalse(routePolicy.matches(""));
+        assertFalse(routePolicy.matches("/"));
+        assertFalse(routePolicy.matches("/api"));
+        assertFalse(routePolicy.matches("/api/users/"));
+        assertFalse(routePolicy.matches("api/users"));
+        assertFalse(routePolicy.matches("/api//users"));
+        assertFalse(routePolicy.matches("/api/Users"));
+        assertFalse(routePolicy.matches("/api/users/recover/other"));
+        assertFalse(routePolicy.matches("/api/suppliers/not-a-uuid"));
+        assertFalse(routePolicy.matches("/api/suppliers/" + SUPPLIER_ID.replace('-', 'a')));
+        assertFalse(routePolicy.matches("/api/suppliers/" + SUPPLIER_ID.replace('f', 'g')));
+        assertFalse(routePolicy.matches("/api/working-hours/" + SUPPLIER_ID));
+    }
+
+    @Test
+    void GivenMalformedPattern_WhenCompile_ThenItIsRejected() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> RoutePolicy.compile(List.of("api/users")));
+        assertThrows(IllegalArgumentException.class, () -> RoutePolicy.compile(List.of("/api//users")));
+    }
+}
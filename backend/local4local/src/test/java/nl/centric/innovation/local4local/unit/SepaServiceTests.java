@@ -1,39 +1,38 @@
 package nl.centric.innovation.local4local.unit;
 
-import com.prowidesoftware.swift.model.mx.dic.CreditTransferTransactionInformation10;
-import com.prowidesoftware.swift.model.mx.dic.GroupHeader32;
-import com.prowidesoftware.swift.model.mx.dic.PaymentInstructionInformation3;
 import lombok.SneakyThrows;
-import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceDto;
-import nl.centric.innovation.local4local.dto.OfferTransactionInvoiceTenantDto;
-import nl.centric.innovation.local4local.entity.Supplier;
-import nl.centric.innovation.local4local.entity.SupplierProfile;
+import nl.centric.innovation.local4local.dto.SepaCreditTransferDto;
+import nl.centric.innovation.local4local.dto.SepaTotalsDto;
 import nl.centric.innovation.local4local.entity.Tenant;
 import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException;
+import nl.centric.innovation.local4local.repository.OfferTransactionRepository;
 import nl.centric.innovation.local4local.repository.TenantRepository;
-import nl.centric.innovation.local4local.service.impl.OfferTransactionService;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
 import nl.centric.innovation.local4local.service.impl.SepaService;
-import nl.centric.innovation.local4local.service.impl.SupplierService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
-import java.math.BigDecimal;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.List;
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-import static nl.centric.innovation.local4local.util.DateUtils.getLastDayOfMonth;
 import static org.junit.Assert.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -41,154 +40,144 @@ import static org.mockito.Mockito.when;
 class SepaServiceTests {
 
     @Mock
-    private OfferTransactionService offerTransactionService;
+    private OfferTransactionRepository offerTransactionRepository;
 
     @Mock
     private PrincipalService principalService;
 
     @Mock
-    private SupplierService supplierService;
+    private TenantRepository tenantRepository;
 
     @Mock
-    private TenantRepository tenantRepository;
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private SepaService sepaService;
 
+    private static final LocalDate MONTH = LocalDate.of(2025, 6, 1);
+
+    private static final LocalDateTime START_DATE = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    private static final LocalDateTime END_DATE = LocalDateTime.of(2025, 7, 1, 0, 0);
+
+    private final UUID tenantId = UUID.randomUUID();
+
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(sepaService, "errorEntityNotFound", "Entity not found");
     }
 
     @Test
-    void GenerateSepaFile_ShouldReturnValidXml_WhenTransactionsExist() throws Exception {
+    @SneakyThrows
+    void GenerateSepaFile_ShouldReturnValidXml_WhenTransactionsExist() {
         // Given
-        UUID supplierId = UUID.randomUUID();
-        UUID tenantId = UUID.randomUUID();
-        Supplier mockSupplier = new Supplier();
-        mockSupplier.setProfile(new SupplierProfile());
-        mockSupplier.getProfile().setIban("NL55INGB0001234567");
-        Optional<Tenant> municipalityTenant = Optional.ofNullable(Tenant.builder()
-                .iban("NL91ABNA0417164300")
-                .bic("ABNANL2AXXX")
-                .build());
-        OfferTransactionInvoiceTenantDto dto = OfferTransactionInvoiceTenantDto.builder()
-                .supplierIban("NL55INGB0001234567")
-                .supplierName("Supplier Name")
-                .passNumber("PASS123")
-                .amount(100.0)
-                .acceptedBenefit("Benefit A")
-                .createdDate("2024-09-01")
-                .build();
+        stubTenant();
+        when(offerTransactionRepository.findSepaTotals(tenantId, START_DATE, END_DATE))
+                .thenReturn(new SepaTotalsDto(2L, 1L, 150.0));
+        when(offerTransactionRepository.streamSepaCreditTransfers(tenantId, START_DATE, END_DATE))
+                .thenReturn(Stream.of(
+                        new SepaCreditTransferDto("NL55INGB0001234567", "Supplier Name", 100.0),
+                        new SepaCreditTransferDto("NL55INGB0001234567", "Supplier Name", 50.0)));
 
         // When
-        when(offerTransactionService.getTransactionsByMonthYearAndTenantId(any(), any()))
-                .thenReturn(List.of(dto));
-        when(principalService.getTenantId()).thenReturn(tenantId);
-        when(tenantRepository.findById(tenantId)).thenReturn(municipalityTenant);
-        when(principalService.getTenant()).thenReturn(new Tenant());
-
-        // Verify
-        String xml = sepaService.generateSepaFile(LocalDate.now());
+        String xml = writeSepaFile(false);
 
-        Assertions.assertNotNull(xml);
+        // Then
         Assertions.assertTrue(xml.contains("<pain:CstmrCdtTrfInitn>"));
-        Assertions.assertTrue(xml.contains("Supplier Name"));
-        Assertions.assertTrue(xml.contains("NL55INGB0001234567"));
+        Assertions.assertTrue(xml.contains("<pain:NbOfTxs>2</pain:NbOfTxs>"));
+        Assertions.assertTrue(xml.contains("<pain:CtrlSum>150.00</pain:CtrlSum>"));
+        Assertions.assertTrue(xml.contains("<pain:IBAN>NL91ABNA0417164300</pain:IBAN>"));
+        Assertions.assertTrue(xml.contains("<pain:BIC>ABNANL2AXXX</pain:BIC>"));
+        Assertions.assertTrue(xml.contains("<pain:Nm>Supplier Name</pain:Nm>"));
+        Assertions.assertTrue(xml.contains("<pain:IBAN>NL55INGB0001234567</pain:IBAN>"));
+        Assertions.assertTrue(xml.contains("<pain:InstdAmt Ccy=\"EUR\">100.00</pain:InstdAmt>"));
+        Assertions.assertEquals(2, countOccurrences(xml, "<pain:CdtTrfTxInf>"));
+        Assertions.assertFalse(xml.contains("<pain:Ustrd>"));
+        Assertions.assertTrue(xml.endsWith("</pain:Document>"));
     }
 
     @Test
-    void GenerateSepaFile_ShouldThrowException_WhenNoTransactions() {
+    @SneakyThrows
+    void GenerateSepaFile_ShouldReadTotalsAndTransfersInOneSnapshot_WhenWritten() {
         // Given
-        LocalDate inputDate = LocalDate.of(2025, 6, 15);
-
-        when(offerTransactionService.getTransactionsByMonthYearAndTenantId(any(), any()))
-                .thenReturn(List.of());
-
-        // When & Then
-        DtoValidateNotFoundException exception = assertThrows(DtoValidateNotFoundException.class,
-                () -> sepaService.generateSepaFile(inputDate));
+        stubTenant();
+        when(offerTransactionRepository.findSepaTotals(tenantId, START_DATE, END_DATE))
+                .thenReturn(new SepaTotalsDto(1L, 1L, 100.0), new SepaTotalsDto(2L, 1L, 150.0));
+        when(offerTransactionRepository.streamSepaCreditTransfers(tenantId, START_DATE, END_DATE))
+                .thenReturn(Stream.of(
+                        new SepaCreditTransferDto("NL55INGB0001234567", "Supplier Name", 100.0),
+                        new SepaCreditTransferDto("NL55INGB0001234567", "Supplier Name", 50.0)));
 
-        Assertions.assertEquals("Entity not found", exception.getMessage());
+        // When
+        String xml = writeSepaFile(false);
+
+        // Then
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        Assertions.assertEquals(TransactionDefinition.ISOLATION_REPEATABLE_READ, definition.getValue().getIsolationLevel());
+        Assertions.assertTrue(definition.getValue().isReadOnly());
+        verify(offerTransactionRepository, times(2)).findSepaTotals(tenantId, START_DATE, END_DATE);
+        Assertions.assertTrue(xml.contains("<pain:NbOfTxs>2</pain:NbOfTxs>"));
+        Assertions.assertTrue(xml.contains("<pain:CtrlSum>150.00</pain:CtrlSum>"));
+        Assertions.assertEquals(2, countOccurrences(xml, "<pain:CdtTrfTxInf>"));
     }
 
     @Test
-    void buildGroupHeader_shouldReturnProperHeader() {
+    @SneakyThrows
+    void GenerateSepaFile_ShouldWriteOneTransferPerCreditor_WhenNetted() {
         // Given
-        List<OfferTransactionInvoiceTenantDto> transactions = List.of(
-                OfferTransactionInvoiceTenantDto.builder().amount(100.0).build(),
-                OfferTransactionInvoiceTenantDto.builder().amount(50.0).build()
-        );
+        stubTenant();
+        when(offerTransactionRepository.findSepaTotals(tenantId, START_DATE, END_DATE))
+                .thenReturn(new SepaTotalsDto(2L, 1L, 150.0));
+        when(offerTransactionRepository.streamNettedSepaCreditTransfers(tenantId, START_DATE, END_DATE))
+                .thenReturn(Stream.of(new SepaCreditTransferDto("NL55INGB0001234567", "Supplier Name", 150.0, 2L)));
 
         // When
-        when(principalService.getTenant()).thenReturn(new Tenant() {{
-            setName("DebtorName");
-        }});
-
-        GroupHeader32 header = (GroupHeader32) ReflectionTestUtils.invokeMethod(sepaService, "buildGroupHeader", transactions);
-
-        // Verify
-        Assertions.assertNotNull(header);
-        Assertions.assertTrue(header.getMsgId().startsWith("MSG-"));
-        Assertions.assertNotNull(header.getCreDtTm());
-        Assertions.assertEquals("2", header.getNbOfTxs());
-        Assertions.assertEquals(new BigDecimal("150.00"), header.getCtrlSum());
-        Assertions.assertEquals("DebtorName", header.getInitgPty().getNm());
+        String xml = writeSepaFile(true);
+
+        // Then
+        Assertions.assertTrue(xml.contains("<pain:NbOfTxs>1</pain:NbOfTxs>"));
+        Assertions.assertTrue(xml.contains("<pain:CtrlSum>150.00</pain:CtrlSum>"));
+        Assertions.assertEquals(1, countOccurrences(xml, "<pain:CdtTrfTxInf>"));
+        Assertions.assertTrue(xml.contains("<pain:InstdAmt Ccy=\"EUR\">150.00</pain:InstdAmt>"));
+        Assertions.assertTrue(xml.contains("<pain:Ustrd>2 transactions 2025-06</pain:Ustrd>"));
     }
 
     @Test
-    void buildPaymentInfo_shouldSetCorrectValues() {
+    void GenerateSepaFile_ShouldThrowException_WhenNoTransactions() {
         // Given
-        OfferTransactionInvoiceTenantDto dto = OfferTransactionInvoiceTenantDto.builder().amount(123.45).build();
-        UUID tenantId = UUID.randomUUID();
-        Optional<Tenant> municipalityTenant = Optional.ofNullable(Tenant.builder()
+        when(principalService.getTenantId()).thenReturn(tenantId);
+        when(offerTransactionRepository.findSepaTotals(tenantId, START_DATE, END_DATE))
+                .thenReturn(new SepaTotalsDto(0L, 0L, null));
+
+        // When & Then
+        DtoValidateNotFoundException exception = assertThrows(DtoValidateNotFoundException.class,
+                () -> sepaService.generateSepaFile(MONTH.plusDays(14), false));
+
+        Assertions.assertEquals("Entity not found", exception.getMessage());
+        verifyNoInteractions(tenantRepository, transactionManager);
+    }
+
+    private void stubTenant() {
+        when(principalService.getTenantId()).thenReturn(tenantId);
+        when(tenantRepository.findById(tenantId)).thenReturn(Optional.of(Tenant.builder()
                 .iban("NL91ABNA0417164300")
                 .bic("ABNANL2AXXX")
-                .build());
-        // When
+                .build()));
         when(principalService.getTenant()).thenReturn(new Tenant() {{
             setName("DebtorName");
         }});
-        when(principalService.getTenantId()).thenReturn(tenantId);
-        when(tenantRepository.findById(tenantId)).thenReturn(municipalityTenant);
-
-        PaymentInstructionInformation3 paymentInfo = (PaymentInstructionInformation3) ReflectionTestUtils.invokeMethod(sepaService, "buildPaymentInfo", List.of(dto));
-
-        // Verify
-        Assertions.assertNotNull(paymentInfo);
-        Assertions.assertTrue(paymentInfo.getPmtInfId().startsWith("PMT-"));
-        Assertions.assertEquals("TRF", paymentInfo.getPmtMtd().name());
-        Assertions.assertEquals(LocalDate.now().plusDays(30), paymentInfo.getReqdExctnDt());
-        Assertions.assertEquals("DebtorName", paymentInfo.getDbtr().getNm());
-        Assertions.assertEquals("NL91ABNA0417164300", paymentInfo.getDbtrAcct().getId().getIBAN());
-        Assertions.assertEquals("ABNANL2AXXX", paymentInfo.getDbtrAgt().getFinInstnId().getBIC());
-        Assertions.assertEquals(1, paymentInfo.getCdtTrfTxInf().size());
     }
 
-    @Test
     @SneakyThrows
-    void buildCreditTransferTransaction_shouldSetFields() {
-        // Given
-        OfferTransactionInvoiceTenantDto dto = OfferTransactionInvoiceTenantDto.builder()
-                .supplierName("CreditorName")
-                .amount(200.50)
-                .build();
+    private String writeSepaFile(boolean netted) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        sepaService.generateSepaFile(MONTH, netted).writeTo(outputStream);
 
-        // When
-        CreditTransferTransactionInformation10 tx = ReflectionTestUtils.invokeMethod(sepaService, "buildCreditTransferTransaction", dto);
-
-        // Verify
-        Assertions.assertNotNull(tx);
-        Assertions.assertNotNull(tx.getPmtId().getEndToEndId());
-        Assertions.assertEquals("EUR", tx.getAmt().getInstdAmt().getCcy());
-        Assertions.assertEquals(BigDecimal.valueOf(200.50), tx.getAmt().getInstdAmt().getValue());
-        Assertions.assertEquals("CreditorName", tx.getCdtr().getNm());
+        return outputStream.toString(StandardCharsets.UTF_8);
     }
 
-    @Test
-    void calculateTotalAmount_shouldReturnZeroForEmptyList() {
-        BigDecimal result = ReflectionTestUtils.invokeMethod(sepaService, "calculateTotalAmount", List.of());
-        Assertions.assertEquals(BigDecimal.ZERO.setScale(2), result);
+    private static int countOccurrences(String text, String fragment) {
+        return text.split(fragment, -1).length - 1;
     }
 }
-
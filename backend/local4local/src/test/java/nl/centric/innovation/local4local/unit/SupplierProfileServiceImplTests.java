@@ -17,6 +17,8 @@ import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException
 import nl.centric.innovation.local4local.repository.RejectSupplierRepository;
 import nl.centric.innovation.local4local.repository.SupplierProfileRepository;
 import nl.centric.innovation.local4local.repository.SupplierRepository;
+import nl.centric.innovation.local4local.service.impl.OfferDetailCacheService;
+import nl.centric.innovation.local4local.service.impl.OfferMapIndexService;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
 import nl.centric.innovation.local4local.service.impl.SupplierProfileService;
 import nl.centric.innovation.local4local.service.impl.SupplierService;
@@ -79,6 +81,12 @@ class SupplierProfileServiceImplTests {
     @Mock
     private WorkingHoursService workingHoursService;
 
+    @Mock
+    private OfferMapIndexService offerMapIndexService;
+
+    @Mock
+    private OfferDetailCacheService offerDetailCacheService;
+
     private Supplier supplier;
 
     private SupplierProfile supplierProfile;
@@ -23,6 +23,7 @@ import nl.centric.innovation.local4local.repository.SupplierRepository;
 import nl.centric.innovation.local4local.repository.TenantRepository;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
 import nl.centric.innovation.local4local.service.impl.SupplierService;
+import nl.centric.innovation.local4local.service.impl.UserDetailsServiceImpl;
 import nl.centric.innovation.local4local.service.impl.UserService;
 import nl.centric.innovation.local4local.service.interfaces.EmailService;
 import org.junit.jupiter.api.BeforeEach;
@@ -86,6 +87,9 @@ class SupplierServiceImplTests {
     @Mock
     private PrincipalService principalService;
 
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
 //    @Mock
 //    private QRCodeGenerator qrCodeGenerator;
 
@@ -1,19 +1,28 @@
 package nl.centric.innovation.local4local.unit;
 
+import nl.centric.innovation.local4local.entity.Role;
+import nl.centric.innovation.local4local.entity.Supplier;
 import nl.centric.innovation.local4local.entity.User;
+import nl.centric.innovation.local4local.enums.SupplierStatusEnum;
 import nl.centric.innovation.local4local.repository.UserRepository;
 import nl.centric.innovation.local4local.service.impl.UserDetailsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +34,13 @@ public class UserDetailsServiceImplTests {
     @InjectMocks
     private UserDetailsServiceImpl userDetailsService;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userDetailsService, "expireSeconds", 300L);
+        ReflectionTestUtils.setField(userDetailsService, "maxSize", 100L);
+        userDetailsService.init();
+    }
+
     @Test
     void GivenUsername_WhenLoadUserByUsername_ThenExpectUserDetails() {
         String username = "testUser";
@@ -37,4 +53,81 @@ public class UserDetailsServiceImplTests {
         assertNotNull(userDetails, "UserDetails should not be null");
         assertEquals(username, userDetails.getUsername(), "The usernames should match");
     }
+
+    @Test
+    void GivenCachedPrincipal_WhenLoadPrincipalByUsername_ThenUserIsQueriedOnceAndCopied() {
+        // Given
+        User user = userWithSupplier("testUser", UUID.randomUUID());
+        when(userRepository.findByUsernameIgnoreCase("testUser")).thenReturn(Optional.of(user));
+
+        // When
+        User first = userDetailsService.loadPrincipalByUsername("testUser");
+        User second = userDetailsService.loadPrincipalByUsername("TESTUSER");
+        first.setFirstName("changed");
+
+        // Then
+        assertNotSame(first, second);
+        assertEquals(user.getId(), second.getId());
+        assertEquals("first", second.getFirstName());
+        verify(userRepository, times(1)).findByUsernameIgnoreCase("testUser");
+    }
+
+    @Test
+    void GivenCachedPrincipal_WhenAssociationsOfLoadedPrincipalChange_ThenCachedPrincipalIsUnchanged() {
+        // Given
+        UUID supplierId = UUID.randomUUID();
+        User user = userWithSupplier("testUser", supplierId);
+        user.setRole(new Role(1, Role.ROLE_SUPPLIER));
+        when(userRepository.findByUsernameIgnoreCase("testUser")).thenReturn(Optional.of(user));
+
+        // When
+        User first = userDetailsService.loadPrincipalByUsername("testUser");
+        first.getSupplier().setStatus(SupplierStatusEnum.REJECTED);
+        first.getRole().setName(Role.ROLE_CITIZEN);
+        user.getSupplier().setCompanyName("changed");
+        User second = userDetailsService.loadPrincipalByUsername("testUser");
+
+        // Then
+        assertNotSame(first.getSupplier(), second.getSupplier());
+        assertEquals(supplierId, second.getSupplier().getId());
+        assertEquals(SupplierStatusEnum.APPROVED, second.getSupplier().getStatus());
+        assertEquals("company", second.getSupplier().getCompanyName());
+        assertEquals(Role.ROLE_SUPPLIER, second.getRole().getName());
+    }
+
+    @Test
+    void GivenEvictedPrincipal_WhenLoadPrincipalByUsername_ThenUserIsQueriedAgain() {
+        // Given
+        UUID supplierId = UUID.randomUUID();
+        when(userRepository.findByUsernameIgnoreCase("testUser"))
+                .thenReturn(Optional.of(userWithSupplier("testUser", supplierId)));
+        when(userRepository.findByUsernameIgnoreCase("otherUser"))
+                .thenReturn(Optional.of(userWithSupplier("otherUser", UUID.randomUUID())));
+        userDetailsService.loadPrincipalByUsername("testUser");
+        userDetailsService.loadPrincipalByUsername("otherUser");
+
+        // When
+        userDetailsService.evictBySupplierId(supplierId);
+        userDetailsService.loadPrincipalByUsername("testUser");
+        userDetailsService.loadPrincipalByUsername("otherUser");
+        userDetailsService.evict("OtherUser");
+        userDetailsService.loadPrincipalByUsername("otherUser");
+
+        // Then
+        verify(userRepository, times(2)).findByUsernameIgnoreCase("testUser");
+        verify(userRepository, times(2)).findByUsernameIgnoreCase("otherUser");
+    }
+
+    private static User userWithSupplier(String username, UUID supplierId) {
+        Supplier supplier = new Supplier();
+        supplier.setId(supplierId);
+        supplier.setCompanyName("company");
+        supplier.setStatus(SupplierStatusEnum.APPROVED);
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername(username);
+        user.setFirstName("first");
+        user.setSupplier(supplier);
+        return user;
+    }
 }
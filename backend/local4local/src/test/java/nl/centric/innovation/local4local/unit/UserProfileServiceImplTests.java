@@ -8,6 +8,7 @@ import nl.centric.innovation.local4local.exceptions.DtoValidateNotFoundException
 import nl.centric.innovation.local4local.repository.UserProfileRepository;
 import nl.centric.innovation.local4local.repository.UserRepository;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
+import nl.centric.innovation.local4local.service.impl.UserDetailsServiceImpl;
 import nl.centric.innovation.local4local.service.impl.UserProfileService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,6 +23,7 @@ import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,6 +39,9 @@ public class UserProfileServiceImplTests {
     @Mock
     private UserProfileRepository userProfileRepository;
 
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
     private UUID userId;
     private User user;
     private UserProfile userProfile;
@@ -115,6 +120,7 @@ public class UserProfileServiceImplTests {
         UserProfileDto resultDto = userProfileService.save(profileDto);
 
         assertNotNull(resultDto, "UserProfileDto should not be null");
+        verify(userDetailsService).evict(user.getUsername());
     }
 
     @Test
@@ -38,6 +38,7 @@ import nl.centric.innovation.local4local.repository.DeletedUserRepository;
 import nl.centric.innovation.local4local.service.impl.LoginAttemptServiceImpl;
 import nl.centric.innovation.local4local.service.impl.PassholderService;
 import nl.centric.innovation.local4local.service.impl.PrincipalService;
+import nl.centric.innovation.local4local.service.impl.UserDetailsServiceImpl;
 import nl.centric.innovation.local4local.service.impl.UserService;
 import nl.centric.innovation.local4local.service.interfaces.ConfirmationTokenService;
 import nl.centric.innovation.local4local.service.interfaces.EmailService;
@@ -122,6 +123,9 @@ class UserServiceImplTests {
     @Mock
     private PassholderService passholderService;
 
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
     @Value("${local4local.server.name}")
     private String baseURL;
 
@@ -7,6 +7,7 @@ import nl.centric.innovation.local4local.entity.Supplier;
 import nl.centric.innovation.local4local.entity.WorkingHours;
 import nl.centric.innovation.local4local.exceptions.DtoValidateException;
 import nl.centric.innovation.local4local.repository.WorkingHoursRepository;
+import nl.centric.innovation.local4local.service.impl.OfferDetailCacheService;
 import nl.centric.innovation.local4local.service.impl.WorkingHoursServiceImpl;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -30,6 +31,9 @@ public class WorkingHoursServiceImplTests {
     @Mock
     private WorkingHoursRepository workingHoursRepository;
 
+    @Mock
+    private OfferDetailCacheService offerDetailCacheService;
+
     private static final UUID SUPPLIER_ID = UUID.randomUUID();
     private static final String AM_10 = "10:00:00";
     private static final String AM_5 = "05:00:00";
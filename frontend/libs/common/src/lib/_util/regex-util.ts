@@ -13,7 +13,7 @@ export class RegexUtil {
 
 	public static telephoneRegexPattern = new RegExp(/^\+31\d{9}$/);
 
-	public static discountCodeRegexPattern = new RegExp(/^[A-Za-z0-9]{5}$/);
+	public static discountCodeRegexPattern = new RegExp(/^[A-Za-z0-9]{5,12}$/);
 
 	public static urlRegexPattern = new RegExp(
 		/^(?:(?:https?:)?\/\/)?(?:[a-zA-Z0-9](?:[a-zA-Z0-9-]*[a-zA-Z0-9])?\.)+[a-zA-Z]{2,6}(?::[0-9]{1,5})?(?:\/[^\s]*)?$/,